@@ -0,0 +1,141 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.core.ExecutorBackend;
+import com.scheduler.database.ConnectionPool;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.model.ExecutionMode;
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskPriority;
+import com.scheduler.web.WebServer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts the dashboard on a scheduler with a few thousand history records and
+ * lets concurrent pollers hit it the way the dashboard page does: metrics on
+ * every poll, the latest history on every fifth. Reports per-route latency
+ * percentiles and failures for the virtual-thread and the bounded-pool HTTP
+ * executor. The client runs in the same JVM, so on small machines its own
+ * scheduling delay is part of the numbers.
+ *
+ * Usage: DashboardLoadHarness [pollers] [seconds] [port]
+ */
+public class DashboardLoadHarness {
+    private static final int HISTORY_TASKS = 5000;
+    private static final int HISTORY_EVERY = 5;
+    private static final long POLL_PAUSE_MS = 100;
+    private static final int PLATFORM_WORKERS = 16;
+    
+    public static void main(String[] args) throws Exception {
+        int pollers = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 18080;
+        WebServer.configureConnections();
+        
+        DistributedTaskScheduler scheduler = populatedScheduler();
+        System.out.printf("%d pollers for %d s, %d ms between polls%n", pollers, seconds, POLL_PAUSE_MS);
+        run("virtual", new WebServer(scheduler, port, ExecutionMode.VIRTUAL, PLATFORM_WORKERS),
+            port, pollers, seconds);
+        run("pool " + PLATFORM_WORKERS, new WebServer(scheduler, port + 1, ExecutionMode.PLATFORM, PLATFORM_WORKERS),
+            port + 1, pollers, seconds);
+        scheduler.shutdown();
+    }
+    
+    private static DistributedTaskScheduler populatedScheduler() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        DatabaseManager store = new DatabaseManager(new ConnectionPool(url, "sa", "", 2, 8, 30_000),
+            65_536, 1024, 100);
+        DistributedTaskScheduler scheduler = new DistributedTaskScheduler(4, 4, ExecutorBackend.THREAD_POOL,
+            HISTORY_TASKS, 0, store);
+        List<ScheduledTask> tasks = new ArrayList<>();
+        for (int i = 0; i < HISTORY_TASKS; i++) {
+            tasks.add(new ScheduledTask("report-" + (i % 50), TaskPriority.MEDIUM, () -> { },
+                Duration.ofMillis(1), Instant.now()));
+        }
+        scheduler.scheduleTasks(tasks);
+        while (scheduler.getMetrics().getCompletedTasks() < HISTORY_TASKS) {
+            Thread.sleep(50);
+        }
+        return scheduler;
+    }
+    
+    private static void run(String label, WebServer server, int port, int pollers, int seconds)
+            throws InterruptedException {
+        server.start();
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        HttpRequest metrics = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/metrics"))
+            .timeout(Duration.ofSeconds(30)).build();
+        HttpRequest history = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/history?limit=100"))
+            .timeout(Duration.ofSeconds(30)).build();
+        LatencyHistogram metricsMicros = new LatencyHistogram();
+        LatencyHistogram historyMicros = new LatencyHistogram();
+        LongAdder failures = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < pollers; i++) {
+            clients.submit(() -> {
+                for (int poll = 0; running.get(); poll++) {
+                    poll(client, metrics, metricsMicros, failures);
+                    if (poll % HISTORY_EVERY == 0) {
+                        poll(client, history, historyMicros, failures);
+                    }
+                    try {
+                        Thread.sleep(POLL_PAUSE_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        clients.shutdown();
+        clients.awaitTermination(60, TimeUnit.SECONDS);
+        server.stop();
+        
+        System.out.println(label + ":");
+        report("  /api/metrics", metricsMicros, seconds);
+        report("  /api/history", historyMicros, seconds);
+        System.out.printf("  failed requests: %d%n", failures.sum());
+    }
+    
+    private static void poll(HttpClient client, HttpRequest request, LatencyHistogram micros, LongAdder failures) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                failures.increment();
+                return;
+            }
+            micros.record((System.nanoTime() - start) / 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failures.increment();
+        }
+    }
+    
+    private static void report(String label, LatencyHistogram micros, int seconds) {
+        long[] p = micros.percentiles(50, 99);
+        System.out.printf("%s: %7.0f req/s, p50 %7.2f ms, p99 %7.2f ms, max %7.2f ms%n",
+            label, (double) micros.getCount() / seconds, p[0] / 1000.0, p[1] / 1000.0, micros.getMax() / 1000.0);
+    }
+}
@@ -0,0 +1,140 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.TimingWheel;
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.model.TaskPriority;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Dispatch lag, from the time a task is due until it is handed over, of the
+ * timing wheel against the 100 ms peek/poll loop over a priority queue it
+ * replaced. The second scenario adds one CRITICAL task due an hour out,
+ * which the old loop's priority-first order leaves at the head of the queue.
+ *
+ * Usage: DispatchLagHarness [tasks] [spreadSeconds]
+ */
+public class DispatchLagHarness {
+    private static final long WHEEL_TICK_MICROS = 500;
+    private static final long LEGACY_POLL_MS = 100;
+    private static final long GRACE_MS = 2000;
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int spreadSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        System.out.printf("%d tasks due over %d s%n", tasks, spreadSeconds);
+        for (boolean blocker : new boolean[] {false, true}) {
+            System.out.println(blocker ? "With a CRITICAL task due in an hour:" : "Uniform:");
+            report("  polling loop", run(new LegacyDispatcher(), tasks, spreadSeconds, blocker), tasks);
+            report("  timing wheel", run(new WheelDispatcher(), tasks, spreadSeconds, blocker), tasks);
+        }
+    }
+
+    private static LatencyHistogram run(Dispatcher dispatcher, int tasks, int spreadSeconds, boolean blocker)
+            throws InterruptedException {
+        LatencyHistogram lagMicros = new LatencyHistogram();
+        AtomicInteger fired = new AtomicInteger();
+        dispatcher.start(item -> {
+            if (item.dueNanos != Long.MAX_VALUE) {
+                lagMicros.record(Math.max(0, System.nanoTime() - item.dueNanos) / 1000);
+                fired.incrementAndGet();
+            }
+        });
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        if (blocker) {
+            dispatcher.submit(new Item(TaskPriority.CRITICAL, start + TimeUnit.HOURS.toNanos(1)));
+        }
+        for (int i = 0; i < tasks; i++) {
+            long due = start + (long) (random.nextDouble() * TimeUnit.SECONDS.toNanos(spreadSeconds));
+            dispatcher.submit(new Item(PRIORITIES[random.nextInt(PRIORITIES.length)], due));
+        }
+        long giveUp = start + TimeUnit.SECONDS.toNanos(spreadSeconds) + TimeUnit.MILLISECONDS.toNanos(GRACE_MS);
+        while (fired.get() < tasks && System.nanoTime() < giveUp) {
+            Thread.sleep(10);
+        }
+        dispatcher.stop();
+        return lagMicros;
+    }
+
+    private static void report(String label, LatencyHistogram lagMicros, int tasks) {
+        long[] p = lagMicros.percentiles(50, 90, 99, 99.9);
+        System.out.printf("%s: dispatched %d/%d, lag p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+            label, lagMicros.getCount(), tasks, p[0] / 1000.0, p[1] / 1000.0, p[2] / 1000.0, p[3] / 1000.0,
+            lagMicros.getMax() / 1000.0);
+    }
+
+    private static final class Item {
+        final TaskPriority priority;
+        final long dueNanos;
+
+        Item(TaskPriority priority, long dueNanos) {
+            this.priority = priority;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private interface Dispatcher {
+        void start(Consumer<Item> handler);
+        void submit(Item item);
+        void stop();
+    }
+
+    /** The scheduler's dispatch loop before the timing wheel. */
+    private static final class LegacyDispatcher implements Dispatcher {
+        private final PriorityBlockingQueue<Item> queue = new PriorityBlockingQueue<>(11,
+            Comparator.<Item>comparingInt(item -> -item.priority.getWeight())
+                .thenComparingLong(item -> item.dueNanos));
+        private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+
+        @Override
+        public void start(Consumer<Item> handler) {
+            poller.scheduleAtFixedRate(() -> {
+                while (!queue.isEmpty()) {
+                    Item item = queue.peek();
+                    if (item != null && System.nanoTime() - item.dueNanos > 0) {
+                        queue.poll();
+                        handler.accept(item);
+                    } else {
+                        break;
+                    }
+                }
+            }, 0, LEGACY_POLL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void submit(Item item) {
+            queue.offer(item);
+        }
+
+        @Override
+        public void stop() {
+            poller.shutdownNow();
+        }
+    }
+
+    private static final class WheelDispatcher implements Dispatcher {
+        private TimingWheel<Item> wheel;
+
+        @Override
+        public void start(Consumer<Item> handler) {
+            wheel = new TimingWheel<>("Bench-Wheel", WHEEL_TICK_MICROS, TimeUnit.MICROSECONDS, handler,
+                Comparator.comparingInt(item -> -item.priority.getWeight()));
+            wheel.start();
+        }
+
+        @Override
+        public void submit(Item item) {
+            wheel.schedule(item, item.dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void stop() {
+            wheel.stop();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.ExecutionHistoryBuffer;
+import com.scheduler.model.TaskExecutionRecord;
+import com.scheduler.model.TaskStatus;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Completion throughput of the bounded history ring against the unbounded
+ * CopyOnWriteArrayList it replaced, at 1, 8 and 64 completing workers, plus
+ * the dashboard's read of the latest records. The list is emptied before
+ * each iteration, so its cost is that of a list holding one iteration's
+ * completions, which understates a long-running scheduler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionHistoryBenchmark {
+    private static final int CAPACITY = 10_000;
+    private static final int DASHBOARD_LIMIT = 50;
+
+    private final TaskExecutionRecord record = new TaskExecutionRecord("0123456789abcdef", "bench",
+        TaskStatus.COMPLETED, Instant.now(), Instant.now(), null);
+    private ExecutionHistoryBuffer ring;
+    private CopyOnWriteArrayList<TaskExecutionRecord> list;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        ring = new ExecutionHistoryBuffer(CAPACITY);
+        list = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < CAPACITY; i++) {
+            ring.add(record);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void ring1() {
+        ring.add(record);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void ring8() {
+        ring.add(record);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void ring64() {
+        ring.add(record);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void copyOnWrite1() {
+        list.add(record);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void copyOnWrite8() {
+        list.add(record);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void copyOnWrite64() {
+        list.add(record);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<TaskExecutionRecord> ringLatest() {
+        return ring.latest(DASHBOARD_LIMIT);
+    }
+}
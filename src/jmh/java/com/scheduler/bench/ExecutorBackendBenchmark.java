@@ -0,0 +1,84 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.ExecutorBackend;
+import com.scheduler.core.ResizableTaskExecutor;
+import com.scheduler.core.ThreadPoolTaskExecutor;
+import com.scheduler.core.WorkStealingTaskExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Short tasks (about a microsecond of work) through the shared-queue and
+ * work-stealing backends at increasing worker counts. {@code throughput}
+ * submits a batch and waits for all of it to finish; {@code submitToStart}
+ * submits one task and waits until a worker has started it, so its sample
+ * distribution is the handoff latency. With {@code affinity} set, tasks carry
+ * one of {@code workers} keys, which the work-stealing backend pins to a
+ * worker and the shared queue ignores.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorBackendBenchmark {
+    private static final int BATCH = 1000;
+    private static final long TASK_TOKENS = 200;
+    
+    @Param({"THREAD_POOL", "WORK_STEALING"})
+    public ExecutorBackend backend;
+    
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+    
+    @Param({"false", "true"})
+    public boolean affinity;
+    
+    private ResizableTaskExecutor executor;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile boolean started;
+    private final Runnable shortTask = () -> {
+        Blackhole.consumeCPU(TASK_TOKENS);
+        remaining.decrementAndGet();
+    };
+    private final Runnable startTask = () -> started = true;
+    
+    @Setup(Level.Trial)
+    public void start() {
+        executor = backend == ExecutorBackend.WORK_STEALING
+            ? new WorkStealingTaskExecutor(workers, workers)
+            : new ThreadPoolTaskExecutor(workers, workers);
+    }
+    
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void throughput() {
+        remaining.set(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            executor.submit(shortTask, affinity ? Integer.valueOf(i % workers) : null);
+        }
+        while (remaining.get() > 0) {
+            Thread.yield();
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void submitToStart() {
+        started = false;
+        executor.submit(startTask, affinity ? Integer.valueOf(0) : null);
+        while (!started) {
+            Thread.yield();
+        }
+    }
+}
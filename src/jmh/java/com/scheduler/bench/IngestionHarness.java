@@ -0,0 +1,121 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskPriority;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Ingests a large number of future tasks into a scheduler backed by an H2
+ * file database, one {@code scheduleTask} call at a time or through
+ * {@code scheduleTasks} in batches, and reports the time until every row is
+ * stored and the peak heap. The tasks are built before the clock starts and
+ * fall due an hour out, so nothing runs. Without a mode argument each mode
+ * runs in its own child JVM; per-task log lines go to a null stream.
+ *
+ * Usage: IngestionHarness [single|batch] [tasks] [batchSize]
+ */
+public class IngestionHarness {
+    private static final int DEFAULT_TASKS = 1_000_000;
+    private static final int DEFAULT_BATCH = 10_000;
+    private static final long SAMPLE_MS = 20;
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(args[0].equals("single") || args[0].equals("batch"))) {
+            forkEach(args);
+            return;
+        }
+        int tasks = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TASKS;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BATCH;
+        run(args[0].equals("batch"), tasks, batchSize);
+    }
+    
+    private static void forkEach(String[] args) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (String mode : List.of("single", "batch")) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                IngestionHarness.class.getName(), mode));
+            command.addAll(List.of(args));
+            Process child = new ProcessBuilder(command).inheritIO().start();
+            if (child.waitFor() != 0) {
+                throw new IllegalStateException(mode + " run exited with " + child.exitValue());
+            }
+        }
+    }
+    
+    private static void run(boolean batched, int count, int batchSize) throws Exception {
+        Path directory = Files.createTempDirectory("ingest");
+        PrintStream console = System.out;
+        DatabaseManager store = new DatabaseManager("jdbc:h2:" + directory.resolve("tasks").toAbsolutePath());
+        DistributedTaskScheduler scheduler = new DistributedTaskScheduler(2, 2, store);
+        
+        Instant due = Instant.now().plus(Duration.ofHours(1));
+        List<ScheduledTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new ScheduledTask("ingest-" + (i % 100), PRIORITIES[i % PRIORITIES.length], () -> { },
+                Duration.ofMillis(1), due.plusMillis(i % 60_000)));
+        }
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peakHeap = new AtomicLong(baseline);
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(SAMPLE_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long start = System.nanoTime();
+        if (batched) {
+            for (int from = 0; from < count; from += batchSize) {
+                scheduler.scheduleTasks(tasks.subList(from, Math.min(count, from + batchSize)));
+            }
+        } else {
+            for (ScheduledTask task : tasks) {
+                scheduler.scheduleTask(task);
+            }
+        }
+        long queuedNanos = System.nanoTime() - start;
+        store.flush();
+        long storedNanos = System.nanoTime() - start;
+        System.setOut(console);
+        sampling.set(false);
+        sampler.join();
+        
+        System.out.printf("%-6s %d tasks: accepted in %6.2f s, stored in %6.2f s (%7.0f tasks/s); "
+                + "peak heap %6.1f MB over the %6.1f MB of built tasks%n",
+            batched ? "batch" : "single", count, queuedNanos / 1e9, storedNanos / 1e9, count / (storedNanos / 1e9),
+            (peakHeap.get() - baseline) / 1048576.0, baseline / 1048576.0);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        scheduler.shutdown();
+        System.setOut(console);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
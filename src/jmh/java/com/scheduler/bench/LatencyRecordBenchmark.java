@@ -0,0 +1,81 @@
+package com.scheduler.bench;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.TaskLatencyMetrics;
+import com.scheduler.model.TaskPriority;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of recording one latency event, against the 50 ns budget: a bare
+ * histogram record, and the scheduler's full path through
+ * TaskLatencyMetrics (priority and task-name histograms), at 1, 4 and 16
+ * recording threads. Values cycle through a skewed spread of latencies so
+ * every bucket range is hit. Run with {@code -prof gc} to confirm recording
+ * does not allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatencyRecordBenchmark {
+    private static final int VALUES = 1024;
+    private static final String[] NAMES = {"report", "cleanup", "sync", "backup"};
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final TaskLatencyMetrics metrics = new TaskLatencyMetrics();
+    private final long[] values = new long[VALUES];
+    
+    @Setup(Level.Trial)
+    public void values() {
+        Random random = new Random(42);
+        for (int i = 0; i < VALUES; i++) {
+            // Mostly sub-millisecond, with a long tail into seconds
+            values[i] = (long) Math.exp(random.nextDouble() * 16);
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public void histogram1(Cursor cursor) {
+        histogram.record(values[cursor.next++ & (VALUES - 1)]);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void histogram4(Cursor cursor) {
+        histogram.record(values[cursor.next++ & (VALUES - 1)]);
+    }
+    
+    @Benchmark
+    @Threads(16)
+    public void histogram16(Cursor cursor) {
+        histogram.record(values[cursor.next++ & (VALUES - 1)]);
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public void taskMetrics1(Cursor cursor) {
+        recordTask(cursor.next++);
+    }
+    
+    @Benchmark
+    @Threads(16)
+    public void taskMetrics16(Cursor cursor) {
+        recordTask(cursor.next++);
+    }
+    
+    private void recordTask(int i) {
+        metrics.record(TaskLatencyMetrics.Stage.QUEUE_WAIT, PRIORITIES[i & 3], NAMES[(i >> 2) & 3],
+            values[i & (VALUES - 1)]);
+    }
+}
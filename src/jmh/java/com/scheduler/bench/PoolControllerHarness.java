@@ -0,0 +1,95 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.AdaptiveThreadPoolManager;
+import com.scheduler.metrics.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bursty load against the adaptive pool and against fixed pools at its
+ * lower and upper bound. Each cycle is a burst of blocking tasks followed
+ * by a quiet spell; the harness reports queue wait percentiles and the
+ * average number of pool threads, which is what a fixed pool sized for the
+ * bursts pays for during the quiet spells.
+ *
+ * Usage: PoolControllerHarness [cycles] [taskMillis]
+ */
+public class PoolControllerHarness {
+    private static final int MIN_THREADS = 4;
+    private static final int MAX_THREADS = 64;
+    private static final int BURST_RATE = 800;
+    private static final int QUIET_RATE = 20;
+    private static final long BURST_MS = 2000;
+    private static final long QUIET_MS = 3000;
+    private static final long SAMPLE_MS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long taskMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        System.out.printf("%d cycles of %d ms at %d/s then %d ms at %d/s, tasks block for %d ms%n",
+            cycles, BURST_MS, BURST_RATE, QUIET_MS, QUIET_RATE, taskMillis);
+        run("fixed " + MIN_THREADS, new AdaptiveThreadPoolManager(MIN_THREADS, MIN_THREADS), cycles, taskMillis);
+        run("adaptive " + MIN_THREADS + "-" + MAX_THREADS,
+            new AdaptiveThreadPoolManager(MIN_THREADS, MAX_THREADS), cycles, taskMillis);
+        run("fixed " + MAX_THREADS, new AdaptiveThreadPoolManager(MAX_THREADS, MAX_THREADS), cycles, taskMillis);
+    }
+
+    private static void run(String label, AdaptiveThreadPoolManager pool, int cycles, long taskMillis)
+            throws InterruptedException {
+        LatencyHistogram waitMicros = new LatencyHistogram();
+        LongAdder threadSamples = new LongAdder();
+        LongAdder samples = new LongAdder();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                threadSamples.add(pool.getPoolSize());
+                samples.increment();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SAMPLE_MS));
+            }
+        });
+        sampler.start();
+
+        long submitted = 0;
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            submitted += generate(pool, waitMicros, BURST_RATE, BURST_MS, taskMillis);
+            submitted += generate(pool, waitMicros, QUIET_RATE, QUIET_MS, taskMillis);
+        }
+        while (waitMicros.getCount() < submitted) {
+            Thread.sleep(10);
+        }
+        sampling.set(false);
+        sampler.join();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        long[] p = waitMicros.percentiles(50, 90, 99);
+        System.out.printf("%-16s queue wait p50 %7.1f ms, p90 %7.1f ms, p99 %7.1f ms, max %7.1f ms; "
+                + "avg threads %5.1f, resizes %d%n",
+            label, p[0] / 1000.0, p[1] / 1000.0, p[2] / 1000.0, waitMicros.getMax() / 1000.0,
+            (double) threadSamples.sum() / Math.max(1, samples.sum()), pool.getResizeCount());
+    }
+
+    /** Submits tasks at {@code perSecond} for {@code millis}; returns how many. */
+    private static long generate(AdaptiveThreadPoolManager pool, LatencyHistogram waitMicros, int perSecond,
+                                 long millis, long taskMillis) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / perSecond;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        long count = 0;
+        for (long next = start; next < end; next += intervalNanos) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            long submittedAt = System.nanoTime();
+            pool.submit(() -> {
+                waitMicros.record((System.nanoTime() - submittedAt) / 1000);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(taskMillis));
+            });
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,175 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.ClusterConfig;
+import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.database.PooledConnection;
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskPriority;
+import com.scheduler.model.TaskStatus;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.h2.tools.Server;
+
+/**
+ * Runs 1, 2 and 4 scheduler nodes, each in its own child JVM, against one H2
+ * TCP server and reports how fast they drain a table of due tasks between
+ * them. The parent seeds the tasks once every node is up and stops the clock
+ * when the last row is marked completed; each node only runs what it claims,
+ * rebuilding the action through its resolver. Tasks sleep, standing in for
+ * I/O-bound work, so on a machine with fewer cores than nodes the numbers
+ * still reflect claiming rather than CPU contention. Duplicate runs are those
+ * past one per task in the execution history.
+ *
+ * Usage: ScaleOutHarness [tasks] [taskMillis] [workersPerNode]
+ */
+public class ScaleOutHarness {
+    private static final int DEFAULT_TASKS = 12_000;
+    private static final long DEFAULT_TASK_MS = 20;
+    private static final int DEFAULT_WORKERS = 8;
+    private static final int[] NODE_COUNTS = {1, 2, 4};
+    private static final long POLL_MS = 20;
+    private static final String READY = "ready";
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("node")) {
+            node(args[1], args[2], Integer.parseInt(args[3]), Long.parseLong(args[4]));
+            return;
+        }
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+        long taskMillis = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_TASK_MS;
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WORKERS;
+        
+        Path directory = Files.createTempDirectory("scaleout");
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = Server.createTcpServer("-tcpPort", String.valueOf(port), "-baseDir",
+            directory.toString(), "-ifNotExists").start();
+        System.out.printf("%d tasks of %d ms, %d workers per node (ideal %d tasks/s per node)%n",
+            tasks, taskMillis, workers, workers * 1000 / taskMillis);
+        try {
+            double baseline = 0;
+            for (int nodes : NODE_COUNTS) {
+                String url = "jdbc:h2:tcp://localhost:" + port + "/./scale" + nodes;
+                double rate = run(url, nodes, tasks, taskMillis, workers);
+                if (baseline == 0) {
+                    baseline = rate;
+                }
+                System.out.printf("  speedup %.2fx over 1 node (%.0f%% of linear)%n",
+                    rate / baseline, 100 * rate / baseline / nodes);
+            }
+        } finally {
+            server.stop();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+    
+    private static double run(String url, int nodes, int count, long taskMillis, int workers) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        DatabaseManager seed = new DatabaseManager(url);
+        System.setOut(console);
+        
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> children = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ScaleOutHarness.class.getName(), "node", url, "node-" + i, String.valueOf(workers),
+                String.valueOf(taskMillis))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            children.add(child);
+        }
+        for (Process child : children) {
+            BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(),
+                StandardCharsets.UTF_8));
+            if (!READY.equals(out.readLine())) {
+                throw new IllegalStateException("Node exited before it was ready");
+            }
+        }
+        
+        List<ScheduledTask> tasks = new ArrayList<>(count);
+        Instant now = Instant.now();
+        for (int i = 0; i < count; i++) {
+            tasks.add(new ScheduledTask("work", TaskPriority.MEDIUM, () -> { }, Duration.ofMillis(taskMillis), now));
+        }
+        long start = System.nanoTime();
+        seed.saveTasks(tasks, TaskStatus.PENDING);
+        seed.flush();
+        while (count(seed, "SELECT COUNT(*) FROM tasks WHERE status = 'COMPLETED'") < count) {
+            Thread.sleep(POLL_MS);
+        }
+        long nanos = System.nanoTime() - start;
+        
+        for (Process child : children) {
+            child.getOutputStream().close();
+        }
+        for (Process child : children) {
+            if (!child.waitFor(60, TimeUnit.SECONDS)) {
+                child.destroyForcibly();
+            }
+        }
+        long runs = count(seed, "SELECT COUNT(*) FROM execution_history");
+        seed.shutdown();
+        
+        double rate = count / (nanos / 1e9);
+        System.out.printf("%d node%s: %6.2f s, %7.0f tasks/s, %d duplicate runs%n",
+            nodes, nodes == 1 ? " " : "s", nanos / 1e9, rate, runs - count);
+        return rate;
+    }
+    
+    private static long count(DatabaseManager store, String sql) throws SQLException {
+        try (PooledConnection pooled = store.getConnectionPool().acquire();
+             Statement stmt = pooled.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    /**
+     * One cluster node: runs whatever it claims until its stdin is closed.
+     */
+    private static void node(String url, String nodeId, int workers, long taskMillis) throws IOException {
+        Runnable work = () -> {
+            try {
+                Thread.sleep(taskMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ClusterConfig config = new ClusterConfig(nodeId, url)
+            .withResolver((id, name, priority, nextFireTime) ->
+                new ScheduledTask(id, name, priority, work, Duration.ofMillis(taskMillis), nextFireTime));
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        DistributedTaskScheduler scheduler = new DistributedTaskScheduler(workers, workers, config);
+        console.println(READY);
+        console.flush();
+        while (System.in.read() >= 0) {
+            // Parked until the parent closes the pipe
+        }
+        scheduler.shutdown();
+    }
+}
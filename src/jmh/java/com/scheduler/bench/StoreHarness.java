@@ -0,0 +1,121 @@
+package com.scheduler.bench;
+
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.database.JournalTaskStore;
+import com.scheduler.database.StoredTask;
+import com.scheduler.database.TaskStore;
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskExecutionRecord;
+import com.scheduler.model.TaskPriority;
+import com.scheduler.model.TaskStatus;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Drives the H2 store and the journal store with the events a scheduler
+ * writes for each task (created, running, finished, one execution record),
+ * from a single producer through the write-behind queue, and reports the
+ * sustained event rate until everything is stored. Every other task is left
+ * pending; the store is then shut down and reopened, and recovery time is
+ * the open plus paging through the pending tasks the way startup does. Each
+ * store runs in its own child JVM against a fresh temporary directory, at
+ * its default settings (the journal forces once a second).
+ *
+ * Usage: StoreHarness [h2|journal] [tasks]
+ */
+public class StoreHarness {
+    private static final int DEFAULT_TASKS = 200_000;
+    private static final int RECOVERY_PAGE_SIZE = 1000;
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(args[0].equals("h2") || args[0].equals("journal"))) {
+            forkEach(args);
+            return;
+        }
+        run(args[0], args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TASKS);
+    }
+    
+    private static void forkEach(String[] args) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (String store : List.of("h2", "journal")) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                StoreHarness.class.getName(), store));
+            command.addAll(List.of(args));
+            Process child = new ProcessBuilder(command).inheritIO().start();
+            if (child.waitFor() != 0) {
+                throw new IllegalStateException(store + " run exited with " + child.exitValue());
+            }
+        }
+    }
+    
+    private static void run(String kind, int count) throws Exception {
+        Path directory = Files.createTempDirectory("store");
+        PrintStream console = System.out;
+        List<ScheduledTask> tasks = new ArrayList<>(count);
+        Instant due = Instant.now().plus(Duration.ofHours(1));
+        for (int i = 0; i < count; i++) {
+            tasks.add(new ScheduledTask("store-" + (i % 100), PRIORITIES[i % PRIORITIES.length], () -> { },
+                Duration.ofMillis(1), due.plusMillis(i % 60_000)));
+        }
+        
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        TaskStore store = open(kind, directory);
+        long events = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ScheduledTask task = tasks.get(i);
+            store.saveTask(task, TaskStatus.PENDING);
+            events++;
+            if (i % 2 == 0) {
+                Instant end = Instant.now();
+                store.updateTaskStatus(task.getId(), TaskStatus.RUNNING);
+                store.updateTaskStatus(task.getId(), TaskStatus.COMPLETED);
+                store.saveExecutionRecord(new TaskExecutionRecord(task.getId(), task.getName(),
+                    TaskStatus.COMPLETED, end.minusMillis(1), end, null), task.getPriority());
+                events += 3;
+            }
+        }
+        store.flush();
+        long writeNanos = System.nanoTime() - start;
+        store.shutdown();
+        
+        start = System.nanoTime();
+        store = open(kind, directory);
+        int recovered = 0;
+        StoredTask cursor = null;
+        List<StoredTask> page;
+        do {
+            page = store.loadTasks(TaskStatus.PENDING, cursor, RECOVERY_PAGE_SIZE);
+            recovered += page.size();
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1);
+            }
+        } while (page.size() == RECOVERY_PAGE_SIZE);
+        long recoveryNanos = System.nanoTime() - start;
+        store.shutdown();
+        System.setOut(console);
+        
+        System.out.printf("%-7s %d events in %6.2f s (%8.0f events/s); recovered %d pending tasks in %6.2f s%n",
+            kind, events, writeNanos / 1e9, events / (writeNanos / 1e9), recovered, recoveryNanos / 1e9);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    private static TaskStore open(String kind, Path directory) throws IOException {
+        if (kind.equals("journal")) {
+            return new JournalTaskStore(directory.resolve("journal"));
+        }
+        return new DatabaseManager("jdbc:h2:" + directory.resolve("tasks").toAbsolutePath());
+    }
+}
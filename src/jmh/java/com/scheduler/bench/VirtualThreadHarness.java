@@ -0,0 +1,123 @@
+package com.scheduler.bench;
+
+import com.scheduler.core.AdaptiveThreadPoolManager;
+import com.scheduler.core.ExecutorBackend;
+import com.scheduler.model.ExecutionMode;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Submits a large number of concurrent sleeping tasks in one execution mode
+ * and reports throughput together with peak heap, resident set size and live
+ * platform threads. Without a mode argument each mode runs in its own child
+ * JVM, so the second run does not inherit the first one's memory footprint.
+ *
+ * Usage: VirtualThreadHarness [platform|virtual] [tasks] [sleepMillis] [platformThreads]
+ */
+public class VirtualThreadHarness {
+    private static final int DEFAULT_TASKS = 100_000;
+    private static final long DEFAULT_SLEEP_MS = 100;
+    private static final int DEFAULT_PLATFORM_THREADS = 256;
+    private static final long SAMPLE_MS = 20;
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(args[0].equals("platform") || args[0].equals("virtual"))) {
+            forkEach(args);
+            return;
+        }
+        ExecutionMode mode = args[0].equals("virtual") ? ExecutionMode.VIRTUAL : ExecutionMode.PLATFORM;
+        int tasks = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TASKS;
+        long sleepMillis = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SLEEP_MS;
+        int platformThreads = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PLATFORM_THREADS;
+        run(mode, tasks, sleepMillis, platformThreads);
+    }
+    
+    private static void forkEach(String[] args) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (String mode : List.of("platform", "virtual")) {
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+                VirtualThreadHarness.class.getName(), mode));
+            command.addAll(List.of(args));
+            Process child = new ProcessBuilder(command).inheritIO().start();
+            if (child.waitFor() != 0) {
+                throw new IllegalStateException(mode + " run exited with " + child.exitValue());
+            }
+        }
+    }
+    
+    private static void run(ExecutionMode mode, int tasks, long sleepMillis, int platformThreads)
+            throws InterruptedException {
+        // The platform pool is fixed at its ceiling; the virtual side may run every task at once
+        AdaptiveThreadPoolManager pool = new AdaptiveThreadPoolManager(platformThreads, platformThreads,
+            ExecutorBackend.THREAD_POOL, 50, 500, tasks);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        AtomicLong peakRss = new AtomicLong();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                peakRss.accumulateAndGet(residentKb(), Math::max);
+                try {
+                    Thread.sleep(SAMPLE_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        threads.resetPeakThreadCount();
+        
+        CountDownLatch done = new CountDownLatch(tasks);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            pool.submit(() -> {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, mode);
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - start;
+        sampling.set(false);
+        sampler.join();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-8s %d tasks sleeping %d ms: %8.2f s, %9.0f tasks/s; peak heap %6.1f MB, "
+                + "peak RSS %6.1f MB, peak platform threads %d%n",
+            mode.name().toLowerCase(), tasks, sleepMillis, seconds, tasks / seconds,
+            peakHeap.get() / 1048576.0, peakRss.get() / 1024.0, threads.getPeakThreadCount());
+    }
+    
+    /** Resident set size in KB from /proc, or 0 where that is not available. */
+    private static long residentKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux: report heap only
+        }
+        return 0;
+    }
+}
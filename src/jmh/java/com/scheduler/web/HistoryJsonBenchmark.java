@@ -0,0 +1,149 @@
+package com.scheduler.web;
+
+import com.scheduler.model.TaskExecutionRecord;
+import com.scheduler.model.TaskStatus;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Serializes a 10k-record history the way the old handler did (a
+ * {@code String.format} per record into one StringBuilder, then
+ * {@code getBytes}) and through the pooled JsonWriter streaming into the
+ * response body, plain and gzipped. Run with {@code -prof gc} for allocation
+ * per document; the setup prints the bytes each variant puts on the wire.
+ * The old format only carried five fields and did no escaping;
+ * {@code jsonWriterFiveFields} writes the same five, escaped, for a like for
+ * like comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryJsonBenchmark {
+    private static final int RECORDS = 10_000;
+    private static final int BODY_BUFFER = 8192;
+    
+    private final List<TaskExecutionRecord> history = new ArrayList<>(RECORDS);
+    private final CountingSink sink = new CountingSink();
+    
+    @Setup(Level.Trial)
+    public void populate() throws IOException {
+        Instant end = Instant.now();
+        for (int i = 0; i < RECORDS; i++) {
+            // One in ten failed with a message that needs escaping
+            boolean failed = i % 10 == 0;
+            history.add(new TaskExecutionRecord(String.format("%016x", i * 0x9E3779B97F4A7C15L),
+                "report-" + (i % 50), failed ? TaskStatus.FAILED : TaskStatus.COMPLETED,
+                end.minusMillis(20 + i % 100), end,
+                failed ? "Connection refused: \"db-" + (i % 3) + "\"\n\tat Worker.run" : null));
+        }
+        System.out.printf("%nbytes per document: format %d, writer (5 fields) %d, writer %d, writer+gzip %d%n",
+            measure(this::stringFormat), measure(this::jsonWriterFiveFields), measure(this::jsonWriter),
+            measure(this::jsonWriterGzip));
+    }
+    
+    @Benchmark
+    public long stringFormat() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < history.size(); i++) {
+            TaskExecutionRecord record = history.get(i);
+            if (i > 0) json.append(",");
+            json.append(String.format(
+                "{\"taskId\":\"%s\",\"taskName\":\"%s\",\"status\":\"%s\"," +
+                "\"duration\":%d,\"error\":\"%s\"}",
+                record.getTaskId(), record.getTaskName(), record.getStatus(),
+                record.getActualDuration() != null ?
+                    record.getActualDuration().toMillis() : 0,
+                record.getErrorMessage() != null ? record.getErrorMessage() : ""
+            ));
+        }
+        json.append("]");
+        sink.write(json.toString().getBytes());
+        return sink.count;
+    }
+    
+    @Benchmark
+    public long jsonWriter() throws IOException {
+        write(sink);
+        return sink.count;
+    }
+    
+    @Benchmark
+    public long jsonWriterFiveFields() throws IOException {
+        JsonWriter json = JsonWriter.acquire(sink);
+        try {
+            json.beginArray();
+            for (TaskExecutionRecord record : history) {
+                json.beginObject()
+                    .field("taskId", record.getTaskId())
+                    .field("taskName", record.getTaskName())
+                    .field("status", record.getStatus())
+                    .field("duration", record.getActualDuration() != null ?
+                        record.getActualDuration().toMillis() : 0)
+                    .field("error", record.getErrorMessage() != null ? record.getErrorMessage() : "")
+                    .endObject();
+            }
+            json.endArray().flush();
+        } finally {
+            json.release();
+        }
+        return sink.count;
+    }
+    
+    @Benchmark
+    public long jsonWriterGzip() throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(sink, BODY_BUFFER)) {
+            write(gzip);
+        }
+        return sink.count;
+    }
+    
+    private void write(OutputStream body) throws IOException {
+        JsonWriter json = JsonWriter.acquire(body);
+        try {
+            json.beginArray();
+            for (TaskExecutionRecord record : history) {
+                JsonViews.writeRecord(json, record);
+            }
+            json.endArray().flush();
+        } finally {
+            json.release();
+        }
+    }
+    
+    private long measure(Variant variant) throws IOException {
+        sink.count = 0;
+        return variant.run();
+    }
+    
+    private interface Variant {
+        long run() throws IOException;
+    }
+    
+    /** Stands in for the exchange body: counts bytes and drops them. */
+    private static final class CountingSink extends OutputStream {
+        long count;
+        
+        @Override
+        public void write(int b) {
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
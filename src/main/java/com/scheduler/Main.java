@@ -1,10 +1,15 @@
 package com.scheduler;
 
+import com.scheduler.core.DispatchPolicy;
 import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.core.TaskGraph;
+import com.scheduler.core.TaskTypeRegistry;
+import com.scheduler.database.JournalTaskStore;
 import com.scheduler.model.*;
 import com.scheduler.web.WebServer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 
 public class Main {
     
@@ -14,14 +19,36 @@ public class Main {
         System.out.println("║  With Database & Web Dashboard                ║");
         System.out.println("╚════════════════════════════════════════════════╝\n");
         
-        DistributedTaskScheduler scheduler = new DistributedTaskScheduler(2, 8);
+        // -Dscheduler.store=journal keeps state in a local journal instead of H2
+        DistributedTaskScheduler scheduler = "journal".equals(System.getProperty("scheduler.store"))
+            ? new DistributedTaskScheduler(2, 8, new JournalTaskStore())
+            : new DistributedTaskScheduler(2, 8);
+        // -Dscheduler.dispatch=EARLIEST_DEADLINE or SHORTEST_JOB; switchable later from the dashboard
+        String dispatch = System.getProperty("scheduler.dispatch");
+        if (dispatch != null) {
+            scheduler.setDispatchPolicy(DispatchPolicy.valueOf(dispatch.toUpperCase()));
+        }
+        WebServer.configureConnections();
         WebServer webServer = new WebServer(scheduler, 8080);
         webServer.start();
         
+        // Pick up recurring tasks left over from the previous run
+        TaskTypeRegistry taskTypes = new TaskTypeRegistry();
+        ScheduledTask[] recurring = recurringTasks();
+        ScheduledTask[] maintenance = maintenanceTasks();
+        for (ScheduledTask task : recurring) {
+            taskTypes.register(task);
+        }
+        for (ScheduledTask task : maintenance) {
+            taskTypes.register(task);
+        }
+        scheduler.recoverTasks(taskTypes);
+        
         // Schedule tasks
-        scheduleDataProcessingTasks(scheduler);
-        scheduleAnalyticsTasks(scheduler);
-        scheduleMaintenanceTasks(scheduler);
+        scheduleReportingPipeline(scheduler);
+        System.out.println("\n🔧 Scheduling Maintenance Tasks...");
+        scheduler.scheduleTasks(Arrays.asList(maintenance));
+        scheduleRecurringTasks(scheduler, recurring);
         
         System.out.println("\n✓ System running. Visit http://localhost:8080 for dashboard");
         System.out.println("  Press Ctrl+C to stop\n");
@@ -33,62 +60,103 @@ public class Main {
         webServer.stop();
     }
     
-    private static void scheduleDataProcessingTasks(DistributedTaskScheduler scheduler) {
-        System.out.println("\n📊 Scheduling Data Processing Tasks...");
+    /**
+     * Processing, then analysis, then reporting: each stage starts as soon as
+     * the stage before it has finished.
+     */
+    private static void scheduleReportingPipeline(DistributedTaskScheduler scheduler) {
+        System.out.println("\n📊 Scheduling Reporting Pipeline...");
         
+        TaskGraph pipeline = new TaskGraph();
+        ScheduledTask[] processing = new ScheduledTask[5];
         for (int i = 1; i <= 5; i++) {
             final int taskNum = i;
-            scheduler.scheduleTask(new ScheduledTask(
+            processing[i - 1] = new ScheduledTask(
                 "DataProcessing-" + taskNum,
                 TaskPriority.HIGH,
                 () -> simulateWork(500 + taskNum * 100),
-                Duration.ofMillis(500),
-                Instant.now().plusMillis(i * 200)
-            ));
+                Duration.ofMillis(500 + taskNum * 100),
+                Instant.now().plusMillis(200)
+            );
+            pipeline.add(processing[i - 1]);
         }
-    }
-    
-    private static void scheduleAnalyticsTasks(DistributedTaskScheduler scheduler) {
-        System.out.println("\n📈 Scheduling Analytics Tasks...");
         
-        scheduler.scheduleTask(new ScheduledTask(
+        ScheduledTask analysis = new ScheduledTask(
             "UserBehaviorAnalysis",
             TaskPriority.MEDIUM,
             () -> simulateWork(1000),
             Duration.ofMillis(1000),
-            Instant.now().plusMillis(300)
-        ));
+            Instant.now()
+        );
+        pipeline.add(analysis, processing);
         
-        scheduler.scheduleTask(new ScheduledTask(
+        pipeline.add(new ScheduledTask(
             "RevenueReporting",
             TaskPriority.CRITICAL,
             () -> simulateWork(800),
             Duration.ofMillis(800),
-            Instant.now().plusMillis(100)
-        ));
+            Instant.now()
+        ), analysis);
+        
+        scheduler.scheduleGraph(pipeline);
     }
     
-    private static void scheduleMaintenanceTasks(DistributedTaskScheduler scheduler) {
-        System.out.println("\n🔧 Scheduling Maintenance Tasks...");
-        
-        scheduler.scheduleTask(new ScheduledTask(
-            "DatabaseCleanup",
-            TaskPriority.LOW,
-            () -> simulateWork(1500),
-            Duration.ofMillis(1500),
-            Instant.now().plusMillis(500)
-        ));
+    /**
+     * One-shot maintenance jobs; also registered as task types, so more can be
+     * submitted through {@code POST /api/tasks/batch}.
+     */
+    private static ScheduledTask[] maintenanceTasks() {
+        return new ScheduledTask[] {
+            new ScheduledTask(
+                "DatabaseCleanup",
+                TaskPriority.LOW,
+                () -> simulateWork(1500),
+                Duration.ofMillis(1500),
+                Instant.now().plusMillis(500)
+            ).withExecutionMode(ExecutionMode.VIRTUAL),
+            new ScheduledTask(
+                "BackupValidation",
+                TaskPriority.MEDIUM,
+                () -> {
+                    simulateWork(300);
+                    throw new RuntimeException("Validation checksum mismatch");
+                },
+                Duration.ofMillis(300),
+                Instant.now().plusMillis(400)
+            ).withExecutionMode(ExecutionMode.VIRTUAL)
+             .withRetryPolicy(RetryPolicy.exponential(3, Duration.ofMillis(500)))
+        };
+    }
+    
+    private static ScheduledTask[] recurringTasks() {
+        return new ScheduledTask[] {
+            new ScheduledTask(
+                "health-check",
+                "HealthCheck",
+                TaskPriority.LOW,
+                () -> simulateWork(50),
+                Duration.ofMillis(50),
+                Instant.now().plusSeconds(1)
+            ).withRecurrence(Recurrence.fixedRate(Duration.ofSeconds(5))),
+            new ScheduledTask(
+                "cache-refresh",
+                "CacheRefresh",
+                TaskPriority.MEDIUM,
+                () -> simulateWork(200),
+                Duration.ofMillis(200),
+                Instant.now()
+            ).withRecurrence(Recurrence.cron("* * * * *"))
+        };
+    }
+    
+    private static void scheduleRecurringTasks(DistributedTaskScheduler scheduler, ScheduledTask[] tasks) {
+        System.out.println("\n🔁 Scheduling Recurring Tasks...");
         
-        scheduler.scheduleTask(new ScheduledTask(
-            "BackupValidation",
-            TaskPriority.MEDIUM,
-            () -> {
-                simulateWork(300);
-                throw new RuntimeException("Validation checksum mismatch");
-            },
-            Duration.ofMillis(300),
-            Instant.now().plusMillis(400)
-        ));
+        for (ScheduledTask task : tasks) {
+            if (scheduler.getTaskStatus(task.getId()) == null) {
+                scheduler.scheduleTask(task);
+            }
+        }
     }
     
     private static void simulateWork(long millis) {
@@ -1,54 +1,286 @@
 package com.scheduler.core;
 
+import com.scheduler.metrics.MetricsRegistry;
+import com.scheduler.metrics.OpenMetricsWriter;
+import com.scheduler.model.ExecutionMode;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
 
-public class AdaptiveThreadPoolManager {
-    private final ThreadPoolExecutor executor;
+public class AdaptiveThreadPoolManager implements TaskExecutor {
+    private static final long DEFAULT_TARGET_WAIT_MS = 50;
+    private static final int DEFAULT_VIRTUAL_CONCURRENCY = 10_000;
+    private static final long DEFAULT_SAMPLE_INTERVAL_MS = 500;
+    private static final double SHRINK_WAIT_FRACTION = 0.25;
+    private static final int SHRINK_AFTER_SAMPLES = 4;
+    private static final double CPU_CEILING = 0.90;
+    
+    private final ResizableTaskExecutor executor;
+    private final ScheduledExecutorService controller;
+    private final VirtualThreadTaskExecutor virtualExecutor;
     private final AtomicInteger activeThreads = new AtomicInteger(0);
     private final int minThreads;
     private final int maxThreads;
+    private final long targetWaitNanos;
+    private final long sampleIntervalNanos;
+    
+    private final LongAdder started = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final AtomicLong resizeCount = new AtomicLong(0);
+    private volatile long lastWaitMicros;
+    private volatile String lastResize = "none";
+    private volatile IntSupplier backlogProbe = () -> 0;
+    
+    private long prevStarted;
+    private long prevFinished;
+    private long prevWaitNanos;
+    private long prevServiceNanos;
+    private int idleSamples;
     
     public AdaptiveThreadPoolManager(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, ExecutorBackend.THREAD_POOL);
+    }
+    
+    public AdaptiveThreadPoolManager(int minThreads, int maxThreads, ExecutorBackend backend) {
+        this(minThreads, maxThreads, backend, DEFAULT_TARGET_WAIT_MS, DEFAULT_SAMPLE_INTERVAL_MS,
+            DEFAULT_VIRTUAL_CONCURRENCY);
+    }
+    
+    public AdaptiveThreadPoolManager(int minThreads, int maxThreads, ExecutorBackend backend,
+                                     long targetQueueWaitMillis, long sampleIntervalMillis,
+                                     int maxVirtualConcurrency) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException(
+                "Invalid pool bounds: min=" + minThreads + ", max=" + maxThreads);
+        }
         this.minThreads = minThreads;
         this.maxThreads = maxThreads;
+        this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetQueueWaitMillis);
+        this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
         
-        this.executor = new ThreadPoolExecutor(
-            minThreads, maxThreads,
-            60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(),
-            new ThreadFactory() {
-                private final AtomicInteger threadNumber = new AtomicInteger(1);
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread t = new Thread(r, "Worker-" + threadNumber.getAndIncrement());
-                    t.setDaemon(false);
-                    return t;
-                }
-            }
-        );
+        this.executor = backend == ExecutorBackend.WORK_STEALING
+            ? new WorkStealingTaskExecutor(minThreads, maxThreads)
+            : new ThreadPoolTaskExecutor(minThreads, maxThreads);
+        
+        this.controller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Pool-Controller");
+            t.setDaemon(true);
+            return t;
+        });
+        controller.scheduleWithFixedDelay(this::adjustPoolSize,
+            sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        
+        this.virtualExecutor = new VirtualThreadTaskExecutor(maxVirtualConcurrency);
+    }
+    
+    public Future<?> submit(Runnable task, ExecutionMode mode) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            return virtualExecutor.submit(task);
+        }
+        return submit(task);
     }
     
+    @Override
     public Future<?> submit(Runnable task) {
-        activeThreads.incrementAndGet();
+        return submit(task, null, System.nanoTime());
+    }
+    
+    /**
+     * Submits a platform task whose queue wait started at {@code queuedSinceNanos},
+     * for callers that held the task in their own queue before handing it over.
+     * Backends that support it keep tasks with the same affinity key on one worker.
+     */
+    public Future<?> submit(Runnable task, Object affinityKey, long queuedSinceNanos) {
+        long enqueuedAt = queuedSinceNanos;
         return executor.submit(() -> {
+            long startedAt = System.nanoTime();
+            waitNanos.add(startedAt - enqueuedAt);
+            started.increment();
+            activeThreads.incrementAndGet();
             try {
                 task.run();
             } finally {
                 activeThreads.decrementAndGet();
+                serviceNanos.add(System.nanoTime() - startedAt);
+                finished.increment();
             }
-        });
+        }, affinityKey);
     }
     
-    public int getActiveThreadCount() {
+    /**
+     * One controller step. The pool is sized from Little's law: enough threads to
+     * keep up with the observed completion rate, plus enough to drain the current
+     * backlog within the target queue wait. Growth happens as soon as the measured
+     * wait exceeds the target (unless the CPU is saturated); shrinking needs the
+     * wait to stay well under target for several samples and then halves the
+     * surplus, so the pool does not oscillate around the target.
+     */
+    private void adjustPoolSize() {
+        try {
+            long startedNow = started.sum();
+            long finishedNow = finished.sum();
+            long waitNow = waitNanos.sum();
+            long serviceNow = serviceNanos.sum();
+            
+            long startedDelta = startedNow - prevStarted;
+            long finishedDelta = finishedNow - prevFinished;
+            long waitDelta = waitNow - prevWaitNanos;
+            long serviceDelta = serviceNow - prevServiceNanos;
+            prevStarted = startedNow;
+            prevFinished = finishedNow;
+            prevWaitNanos = waitNow;
+            prevServiceNanos = serviceNow;
+            
+            int queueDepth = getQueueDepth();
+            long avgWait = startedDelta > 0 ? waitDelta / startedDelta : 0;
+            lastWaitMicros = TimeUnit.NANOSECONDS.toMicros(avgWait);
+            if (finishedDelta == 0 && queueDepth == 0) {
+                maybeShrink(0, avgWait, queueDepth);
+                return;
+            }
+            
+            double avgService = finishedDelta > 0
+                ? (double) serviceDelta / finishedDelta : (double) sampleIntervalNanos;
+            double completionRate = (double) finishedDelta / sampleIntervalNanos;
+            double inService = completionRate * avgService;
+            double backlog = queueDepth * avgService / Math.max(targetWaitNanos, 1);
+            int desired = clamp((int) Math.ceil(inService + backlog));
+            
+            int current = executor.getTargetPoolSize();
+            if (avgWait > targetWaitNanos || (queueDepth > 0 && startedDelta == 0)) {
+                idleSamples = 0;
+                if (desired > current && cpuLoad() < CPU_CEILING) {
+                    resize(current, desired, avgWait, queueDepth);
+                }
+            } else {
+                maybeShrink(desired, avgWait, queueDepth);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Pool controller error: " + e.getMessage());
+        }
+    }
+    
+    private void maybeShrink(int desired, long avgWait, int queueDepth) {
+        int current = executor.getTargetPoolSize();
+        if (queueDepth > 0 || avgWait > targetWaitNanos * SHRINK_WAIT_FRACTION || current <= minThreads) {
+            idleSamples = 0;
+            return;
+        }
+        if (++idleSamples < SHRINK_AFTER_SAMPLES) {
+            return;
+        }
+        idleSamples = 0;
+        int target = clamp(Math.max(desired, current - Math.max((current - desired) / 2, 1)));
+        if (target < current) {
+            resize(current, target, avgWait, queueDepth);
+        }
+    }
+    
+    private void resize(int from, int to, long avgWait, int queueDepth) {
+        executor.setTargetPoolSize(to);
+        resizeCount.incrementAndGet();
+        lastResize = String.format("%s %d->%d (wait %dms, queue %d)",
+            to > from ? "grow" : "shrink", from, to,
+            TimeUnit.NANOSECONDS.toMillis(avgWait), queueDepth);
+        System.out.println("⚙ Pool resized: " + lastResize);
+    }
+    
+    private int clamp(int threads) {
+        return Math.max(minThreads, Math.min(maxThreads, threads));
+    }
+    
+    private double cpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            double load = ((com.sun.management.OperatingSystemMXBean) os).getCpuLoad();
+            if (load >= 0) {
+                return load;
+            }
+        }
+        double loadAverage = os.getSystemLoadAverage();
+        return loadAverage < 0 ? 0 : loadAverage / os.getAvailableProcessors();
+    }
+    
+    @Override
+    public int getActiveCount() {
         return activeThreads.get();
     }
     
+    public int getActiveThreadCount() {
+        return activeThreads.get() + virtualExecutor.getActiveCount();
+    }
+    
+    public int getVirtualActiveCount() {
+        return virtualExecutor.getActiveCount();
+    }
+    
     public int getPoolSize() {
         return executor.getPoolSize();
     }
     
+    public int getCorePoolSize() {
+        return executor.getTargetPoolSize();
+    }
+    
+    public int getQueueDepth() {
+        return executor.getQueueDepth() + backlogProbe.getAsInt();
+    }
+    
+    /**
+     * Lets a caller that queues work upstream of the pool report that backlog, so
+     * the controller sizes the pool for it too.
+     */
+    public void setBacklogProbe(IntSupplier backlogProbe) {
+        this.backlogProbe = backlogProbe;
+    }
+    
+    public long getAverageQueueWaitMicros() {
+        return lastWaitMicros;
+    }
+    
+    public long getResizeCount() {
+        return resizeCount.get();
+    }
+    
+    public String getLastResize() {
+        return lastResize;
+    }
+    
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register(this::collectMetrics);
+    }
+    
+    private void collectMetrics(OpenMetricsWriter out) {
+        out.family("scheduler_pool_threads", "gauge", "Platform worker threads started");
+        out.sample("scheduler_pool_threads", "", executor.getPoolSize());
+        out.family("scheduler_pool_target_threads", "gauge", "Worker threads the controller is aiming for");
+        out.sample("scheduler_pool_target_threads", "", executor.getTargetPoolSize());
+        out.family("scheduler_pool_active_threads", "gauge", "Threads currently running a task");
+        out.sample("scheduler_pool_active_threads", "", "mode", "platform", activeThreads.get());
+        out.sample("scheduler_pool_active_threads", "", "mode", "virtual", virtualExecutor.getActiveCount());
+        out.family("scheduler_pool_queue_depth", "gauge", "Tasks waiting for a platform worker");
+        out.sample("scheduler_pool_queue_depth", "", getQueueDepth());
+        out.family("scheduler_pool_resizes", "counter", "Pool size changes made by the controller");
+        out.sample("scheduler_pool_resizes", "_total", resizeCount.get());
+    }
+    
+    @Override
     public void shutdown() {
+        controller.shutdownNow();
         executor.shutdown();
+        virtualExecutor.shutdown();
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return executor.awaitTermination(timeout, unit)
+            && virtualExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.scheduler.core;
+
+import com.scheduler.model.TaskIds;
+
+/**
+ * Settings for running several scheduler nodes against one shared database.
+ * Every node needs a unique {@code nodeId}; the database URL must point all
+ * nodes at the same database, e.g. an H2 server
+ * ({@code jdbc:h2:tcp://host/./taskscheduler}) or an H2 file opened with
+ * {@code AUTO_SERVER=TRUE}.
+ *
+ * Each node also holds a lease on a node number in the shared database, which
+ * it stamps into the ids of the tasks it creates. A node started with a number
+ * that another live node holds fails to start.
+ */
+public class ClusterConfig {
+    public static final long DEFAULT_LEASE_MS = 10_000;
+    public static final long DEFAULT_POLL_INTERVAL_MS = 100;
+    public static final int DEFAULT_MAX_CLAIM_BATCH = 256;
+    /** Lease whichever node number no live node holds. */
+    public static final int ANY_ID_NODE = -1;
+    
+    private final String nodeId;
+    private final String databaseUrl;
+    private long leaseMillis = DEFAULT_LEASE_MS;
+    private long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MS;
+    private int maxClaimBatch = DEFAULT_MAX_CLAIM_BATCH;
+    private int idNode = ANY_ID_NODE;
+    private TaskResolver resolver = (id, name, priority, nextFireTime) -> null;
+    
+    public ClusterConfig(String nodeId, String databaseUrl) {
+        this.nodeId = nodeId;
+        this.databaseUrl = databaseUrl;
+    }
+    
+    /**
+     * How long a claim stays valid without a heartbeat. A task held by a node
+     * that dies is picked up by another node once this has passed.
+     */
+    public ClusterConfig withLeaseMillis(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+        return this;
+    }
+    
+    public ClusterConfig withPollIntervalMillis(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+        return this;
+    }
+    
+    public ClusterConfig withMaxClaimBatch(int maxClaimBatch) {
+        this.maxClaimBatch = maxClaimBatch;
+        return this;
+    }
+    
+    /**
+     * Node number stamped into the ids of tasks created on this node. By
+     * default the node leases the lowest number no live node holds; set one to
+     * pin it, e.g. to keep ids recognisable per host.
+     */
+    public ClusterConfig withIdNode(int idNode) {
+        if (idNode < 0 || idNode > TaskIds.MAX_NODE) {
+            throw new IllegalArgumentException("Id node must be between 0 and " + TaskIds.MAX_NODE + ": " + idNode);
+        }
+        this.idNode = idNode;
+        return this;
+    }
+    
+    /**
+     * Used for claimed tasks that were scheduled on another node.
+     */
+    public ClusterConfig withResolver(TaskResolver resolver) {
+        this.resolver = resolver;
+        return this;
+    }
+    
+    public String getNodeId() { return nodeId; }
+    public String getDatabaseUrl() { return databaseUrl; }
+    public long getLeaseMillis() { return leaseMillis; }
+    public long getPollIntervalMillis() { return pollIntervalMillis; }
+    public int getMaxClaimBatch() { return maxClaimBatch; }
+    public int getIdNode() { return idNode; }
+    public TaskResolver getResolver() { return resolver; }
+}
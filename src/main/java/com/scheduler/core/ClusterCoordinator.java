@@ -0,0 +1,288 @@
+package com.scheduler.core;
+
+import com.scheduler.database.TaskLeaseStore;
+import com.scheduler.metrics.MetricsRegistry;
+import com.scheduler.metrics.OpenMetricsWriter;
+import com.scheduler.model.ScheduledTask;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Claims due tasks for this node from the shared database. Tasks scheduled on
+ * any node are only persisted; whichever node claims a row runs it. Each poll
+ * claims at most as many rows as this node has room for (a small multiple of
+ * its worker target, minus what it already holds), so a busy node leaves work
+ * to idle ones, and polls again straight away while full batches keep coming
+ * back or once half of what it holds has finished. Rows are claimed slightly before they are due and armed on the local
+ * timing wheel, so claiming does not add to schedule lag. A row this node's
+ * resolver does not know is handed straight back and left out of its claims
+ * for a minute, for nodes that can run it; at most
+ * {@value #MAX_UNRESOLVABLE} such rows are remembered.
+ *
+ * Delivery is at least once: if a node dies mid-run, its lease expires and the
+ * task runs again elsewhere.
+ */
+public class ClusterCoordinator {
+    private static final int CLAIM_AHEAD_FACTOR = 8;
+    private static final int MAX_ROUNDS_PER_POLL = 8;
+    static final int MAX_UNRESOLVABLE = 1024;
+    private static final long UNRESOLVABLE_RETRY_MS = 60_000;
+    
+    private final ClusterConfig config;
+    private final TaskLeaseStore leaseStore;
+    private final IntSupplier capacity;
+    private final Consumer<ScheduledTask> onClaimed;
+    private final Map<String, ScheduledTask> knownTasks = new ConcurrentHashMap<>();
+    // Unresolvable row ids, each with the time it may be claimed again
+    private final Map<String, Long> unresolvable = new ConcurrentHashMap<>();
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicLong claims = new AtomicLong(0);
+    private final AtomicLong reclaims = new AtomicLong(0);
+    private final AtomicLong claimErrors = new AtomicLong(0);
+    private final AtomicBoolean wakeQueued = new AtomicBoolean(false);
+    private final ScheduledExecutorService timer;
+    private volatile int lastBatchSize;
+    private volatile int idNode = ClusterConfig.ANY_ID_NODE;
+    
+    public ClusterCoordinator(ClusterConfig config, TaskLeaseStore leaseStore, IntSupplier capacity,
+                              Consumer<ScheduledTask> onClaimed) {
+        this.config = config;
+        this.leaseStore = leaseStore;
+        this.capacity = capacity;
+        this.onClaimed = onClaimed;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Cluster-Claimer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Leases this node's id number from the shared database: the configured
+     * one, or the lowest free one. The heartbeat keeps it and
+     * {@link #release()} hands it back.
+     *
+     * @throws IllegalStateException if the configured number is held by
+     *         another live node, or no number is free
+     */
+    public int leaseIdNode() {
+        int wanted = config.getIdNode();
+        int leased;
+        try {
+            leased = leaseStore.leaseIdNode(config.getNodeId(), wanted, config.getLeaseMillis());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not lease an id node: " + e.getMessage(), e);
+        }
+        if (leased < 0) {
+            throw new IllegalStateException(wanted >= 0
+                ? "Id node " + wanted + " is held by another live node"
+                : "Every id node is held by a live node");
+        }
+        idNode = leased;
+        return leased;
+    }
+    
+    public void start() {
+        long poll = config.getPollIntervalMillis();
+        long heartbeat = Math.max(1, config.getLeaseMillis() / 3);
+        timer.scheduleWithFixedDelay(this::claimDue, 0, poll, TimeUnit.MILLISECONDS);
+        timer.scheduleWithFixedDelay(this::renewLeases, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        System.out.println("🔗 Cluster node " + config.getNodeId() + " started (lease "
+            + config.getLeaseMillis() + "ms)");
+    }
+    
+    /**
+     * Remembers a task scheduled on this node, so it runs with its own action
+     * if this node is the one that claims it.
+     */
+    public void register(ScheduledTask task) {
+        knownTasks.put(task.getId(), task);
+    }
+    
+    /**
+     * Called when a claimed task has finished its run on this node.
+     */
+    public void finished(ScheduledTask task, boolean released) {
+        if (!released) {
+            knownTasks.remove(task.getId());
+        }
+        held.remove(task.getId());
+        if (inFlight.decrementAndGet() <= budget() / 2 && wakeQueued.compareAndSet(false, true)) {
+            try {
+                timer.execute(this::claimDue);
+            } catch (RejectedExecutionException e) {
+                // Stopping
+            }
+        }
+    }
+    
+    private int budget() {
+        return capacity.getAsInt() * CLAIM_AHEAD_FACTOR;
+    }
+    
+    private void claimDue() {
+        wakeQueued.set(false);
+        long now = System.currentTimeMillis();
+        unresolvable.values().removeIf(retryAt -> retryAt <= now);
+        try {
+            for (int round = 0; round < MAX_ROUNDS_PER_POLL; round++) {
+                int free = budget() - inFlight.get();
+                int batch = Math.min(config.getMaxClaimBatch(), free);
+                if (batch <= 0) {
+                    return;
+                }
+                long horizon = System.currentTimeMillis() + config.getPollIntervalMillis();
+                List<TaskLeaseStore.Lease> leases = leaseStore.claimDue(config.getNodeId(), horizon,
+                    config.getLeaseMillis(), batch, unresolvable.keySet());
+                lastBatchSize = leases.size();
+                for (TaskLeaseStore.Lease lease : leases) {
+                    accept(lease);
+                }
+                if (leases.size() < batch) {
+                    return;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            claimErrors.incrementAndGet();
+            System.err.println("Cluster claim error: " + e.getMessage());
+        }
+    }
+    
+    private void accept(TaskLeaseStore.Lease lease) throws SQLException {
+        if (held.contains(lease.getTaskId())) {
+            // Our own lease lapsed and we won it back; the task is already armed here
+            return;
+        }
+        ScheduledTask task = knownTasks.get(lease.getTaskId());
+        if (task == null) {
+            task = config.getResolver().resolve(lease.getTaskId(), lease.getName(), lease.getPriority(),
+                Instant.ofEpochMilli(lease.getNextFireMillis()));
+        }
+        if (task == null) {
+            if (unresolvable.size() < MAX_UNRESOLVABLE) {
+                unresolvable.put(lease.getTaskId(), System.currentTimeMillis() + UNRESOLVABLE_RETRY_MS);
+            }
+            leaseStore.unclaim(lease.getTaskId(), config.getNodeId());
+            return;
+        }
+        knownTasks.put(task.getId(), task);
+        held.add(task.getId());
+        claims.incrementAndGet();
+        if (lease.getPreviousOwner() != null) {
+            reclaims.incrementAndGet();
+            System.out.println("🔁 Reclaimed " + task.getName() + " [" + task.getId() + "] from "
+                + lease.getPreviousOwner());
+        }
+        inFlight.incrementAndGet();
+        onClaimed.accept(task);
+    }
+    
+    private void renewLeases() {
+        try {
+            leaseStore.renewLeases(config.getNodeId(), config.getLeaseMillis());
+            if (idNode >= 0 && !leaseStore.renewIdNode(config.getNodeId(), idNode, config.getLeaseMillis())) {
+                System.err.println("⚠ Id node " + idNode + " was taken over by another node; task ids may collide");
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Cluster heartbeat error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Cancels a task no node has claimed, wherever it was scheduled.
+     *
+     * @return false if the row is unknown, no longer pending, or claimed by
+     *         a node, which then has to cancel it itself
+     */
+    public boolean cancelUnclaimed(String taskId) {
+        try {
+            if (!leaseStore.cancelUnclaimed(taskId)) {
+                return false;
+            }
+        } catch (SQLException e) {
+            System.err.println("Cluster cancel error: " + e.getMessage());
+            return false;
+        }
+        knownTasks.remove(taskId);
+        return true;
+    }
+    
+    /**
+     * The task as scheduled on this node, or null if it was scheduled elsewhere.
+     */
+    public ScheduledTask getKnownTask(String taskId) {
+        return knownTasks.get(taskId);
+    }
+    
+    /**
+     * Stops claiming new work. Leases stay renewed until {@link #release()}.
+     */
+    public void stop() {
+        timer.shutdownNow();
+    }
+    
+    /**
+     * Hands back claimed tasks that never started, for other nodes to pick up.
+     */
+    public void release() {
+        try {
+            int released = leaseStore.unclaimPending(config.getNodeId());
+            if (released > 0) {
+                System.out.println("🔗 Released " + released + " unstarted tasks to the cluster");
+            }
+            if (idNode >= 0) {
+                leaseStore.releaseIdNode(config.getNodeId(), idNode);
+            }
+        } catch (SQLException e) {
+            System.err.println("Cluster release error: " + e.getMessage());
+        }
+    }
+    
+    public String getNodeId() {
+        return config.getNodeId();
+    }
+    
+    /** The leased id node, or -1 before {@link #leaseIdNode()}. */
+    public int getIdNode() {
+        return idNode;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    /** Rows this node is currently leaving to others because it cannot resolve them. */
+    public int getUnresolvableCount() {
+        return unresolvable.size();
+    }
+    
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register(this::collectMetrics);
+    }
+    
+    private void collectMetrics(OpenMetricsWriter out) {
+        String node = config.getNodeId();
+        out.family("scheduler_cluster_claims", "counter", "Task rows claimed by this node");
+        out.sample("scheduler_cluster_claims", "_total", "node", node, claims.get());
+        out.family("scheduler_cluster_reclaims", "counter", "Claims taken over from an expired lease");
+        out.sample("scheduler_cluster_reclaims", "_total", "node", node, reclaims.get());
+        out.family("scheduler_cluster_claim_errors", "counter", "Claim polls that failed");
+        out.sample("scheduler_cluster_claim_errors", "_total", "node", node, claimErrors.get());
+        out.family("scheduler_cluster_in_flight", "gauge", "Claimed tasks not yet finished on this node");
+        out.sample("scheduler_cluster_in_flight", "", "node", node, inFlight.get());
+        out.family("scheduler_cluster_last_claim_batch", "gauge", "Rows won by the most recent claim");
+        out.sample("scheduler_cluster_last_claim_batch", "", "node", node, lastBatchSize);
+        out.family("scheduler_cluster_unresolvable", "gauge", "Rows skipped because this node cannot resolve them");
+        out.sample("scheduler_cluster_unresolvable", "", "node", node, unresolvable.size());
+    }
+}
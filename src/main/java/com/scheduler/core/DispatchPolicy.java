@@ -0,0 +1,13 @@
+package com.scheduler.core;
+
+/**
+ * Order in which {@link PriorityLaneDispatcher} hands due tasks to the workers.
+ */
+public enum DispatchPolicy {
+    /** Deficit round robin over the priority lanes, first come first served within a lane. */
+    PRIORITY,
+    /** Earliest deadline first; tasks without a deadline follow in priority order. */
+    EARLIEST_DEADLINE,
+    /** Shortest learned duration first, ties broken by priority. */
+    SHORTEST_JOB
+}
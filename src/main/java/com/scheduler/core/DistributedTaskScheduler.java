@@ -1,113 +1,1274 @@
 package com.scheduler.core;
 
+import com.scheduler.database.ConnectionPool;
 import com.scheduler.database.DatabaseManager;
+import com.scheduler.database.StoredTask;
+import com.scheduler.database.TaskDependency;
+import com.scheduler.database.TaskLeaseStore;
+import com.scheduler.database.TaskStore;
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.MetricsRegistry;
+import com.scheduler.metrics.OpenMetricsWriter;
+import com.scheduler.metrics.TaskLatencyMetrics;
 import com.scheduler.model.*;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 
 public class DistributedTaskScheduler {
-    private final PriorityBlockingQueue<ScheduledTask> taskQueue;
+    private static final long DISPATCH_TICK_MICROS = 500;
+    private static final long WATCHDOG_TICK_MILLIS = 10;
+    private static final int DEFAULT_HISTORY_CAPACITY = 10_000;
+    private static final long DEFAULT_AGING_MS = 0;
+    private static final int RECOVERY_PAGE_SIZE = 10_000;
+    private static final int MAX_HELD_DEAD_LETTERS = 10_000;
+    
+    private final TimingWheel<ScheduledTask> dispatchWheel;
     private final AdaptiveThreadPoolManager threadPool;
-    private final ConcurrentHashMap<String, TaskStatus> taskStatusMap;
-    private final CopyOnWriteArrayList<TaskExecutionRecord> executionHistory;
-    private final ScheduledExecutorService schedulerService;
-    private final DatabaseManager dbManager;
+    private final PriorityLaneDispatcher laneDispatcher;
+    // Status of every task this node knows, until it has been finished for the TTL
+    private final TaskStateTable taskStates = new TaskStateTable();
+    // Wheel entries by task id, so a waiting task is cancelled in O(1); a
+    // recurring task keeps its entry across runs
+    private final ConcurrentHashMap<String, TimingWheel.Timeout<ScheduledTask>> armedTimeouts;
+    private final ConcurrentHashMap<String, Execution> executions = new ConcurrentHashMap<>();
+    private final TimingWheel<Execution> watchdog;
+    private final ExecutionHistoryBuffer executionHistory;
+    private final TaskLatencyMetrics latencyMetrics = new TaskLatencyMetrics();
+    private final DurationEstimator durationEstimator = new DurationEstimator();
+    private final TaskStore store;
+    private final ConnectionPool connectionPool;
+    private final ClusterCoordinator cluster;
+    private final List<SchedulerListener> listeners = new CopyOnWriteArrayList<>();
     private final AtomicBoolean running;
     private final AtomicInteger tasksCompleted;
     private final AtomicInteger tasksFailed;
+    private final AtomicLongArray completedByPriority = new AtomicLongArray(TaskPriority.values().length);
+    private final AtomicLongArray failedByPriority = new AtomicLongArray(TaskPriority.values().length);
+    private final AtomicLongArray deadlineMissesByPriority = new AtomicLongArray(TaskPriority.values().length);
+    private final AtomicLong deadlineMisses = new AtomicLong(0);
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private final AtomicLong retries = new AtomicLong(0);
+    private final AtomicLong deadLettered = new AtomicLong(0);
+    private final AtomicInteger deadLetterCount;
+    // Dead-lettered tasks kept with their actions so a replay can rerun them as is
+    private final ConcurrentHashMap<String, ScheduledTask> deadLetterTasks = new ConcurrentHashMap<>();
+    private volatile TaskResolver taskResolver;
+    private final ConcurrentHashMap<String, TaskGraph.Node> graphNodes = new ConcurrentHashMap<>();
+    private final AtomicLong graphCancellations = new AtomicLong(0);
+    private final AtomicLong cancellations = new AtomicLong(0);
+    private final AtomicLong timeouts = new AtomicLong(0);
     
     public DistributedTaskScheduler(int minThreads, int maxThreads) {
-        this.taskQueue = new PriorityBlockingQueue<>();
-        this.threadPool = new AdaptiveThreadPoolManager(minThreads, maxThreads);
-        this.taskStatusMap = new ConcurrentHashMap<>();
-        this.executionHistory = new CopyOnWriteArrayList<>();
-        this.schedulerService = Executors.newScheduledThreadPool(2);
-        this.dbManager = new DatabaseManager();
+        this(minThreads, maxThreads, ExecutorBackend.THREAD_POOL);
+    }
+    
+    public DistributedTaskScheduler(int minThreads, int maxThreads, ExecutorBackend backend) {
+        this(minThreads, maxThreads, backend, DEFAULT_HISTORY_CAPACITY, DEFAULT_AGING_MS);
+    }
+    
+    public DistributedTaskScheduler(int minThreads, int maxThreads, ExecutorBackend backend,
+                                    int historyCapacity, long priorityAgingMillis) {
+        this(minThreads, maxThreads, backend, historyCapacity, priorityAgingMillis, (ClusterConfig) null);
+    }
+    
+    /**
+     * Runs standalone on the given store, e.g. a {@link com.scheduler.database.JournalTaskStore}.
+     */
+    public DistributedTaskScheduler(int minThreads, int maxThreads, TaskStore store) {
+        this(minThreads, maxThreads, ExecutorBackend.THREAD_POOL, DEFAULT_HISTORY_CAPACITY,
+            DEFAULT_AGING_MS, store);
+    }
+    
+    public DistributedTaskScheduler(int minThreads, int maxThreads, ExecutorBackend backend,
+                                    int historyCapacity, long priorityAgingMillis, TaskStore store) {
+        this(minThreads, maxThreads, backend, historyCapacity, priorityAgingMillis, null, store);
+    }
+    
+    /**
+     * Joins a cluster of nodes sharing one database: scheduled tasks are only
+     * persisted, and each node claims and runs due tasks from the shared table.
+     */
+    public DistributedTaskScheduler(int minThreads, int maxThreads, ClusterConfig clusterConfig) {
+        this(minThreads, maxThreads, ExecutorBackend.THREAD_POOL, DEFAULT_HISTORY_CAPACITY,
+            DEFAULT_AGING_MS, clusterConfig);
+    }
+    
+    /**
+     * @param clusterConfig shared-database settings, or null to run standalone
+     */
+    public DistributedTaskScheduler(int minThreads, int maxThreads, ExecutorBackend backend,
+                                    int historyCapacity, long priorityAgingMillis,
+                                    ClusterConfig clusterConfig) {
+        this(minThreads, maxThreads, backend, historyCapacity, priorityAgingMillis, clusterConfig,
+            clusterConfig != null
+                ? new DatabaseManager(clusterConfig.getDatabaseUrl())
+                : new DatabaseManager());
+    }
+    
+    private DistributedTaskScheduler(int minThreads, int maxThreads, ExecutorBackend backend,
+                                     int historyCapacity, long priorityAgingMillis,
+                                     ClusterConfig clusterConfig, TaskStore store) {
+        this.dispatchWheel = new TimingWheel<>("Task-Dispatcher", DISPATCH_TICK_MICROS,
+            TimeUnit.MICROSECONDS, this::executeTask, Comparator.naturalOrder());
+        this.watchdog = new TimingWheel<>("Task-Watchdog", WATCHDOG_TICK_MILLIS,
+            TimeUnit.MILLISECONDS, this::timeOut, null);
+        this.threadPool = new AdaptiveThreadPoolManager(minThreads, maxThreads, backend);
+        this.laneDispatcher = new PriorityLaneDispatcher(threadPool::getCorePoolSize,
+            this::dispatchToPool, priorityAgingMillis, DispatchPolicy.PRIORITY,
+            durationEstimator::estimateMicros, this::withdrawn);
+        threadPool.setBacklogProbe(laneDispatcher::getQueuedCount);
+        this.armedTimeouts = new ConcurrentHashMap<>();
+        this.executionHistory = new ExecutionHistoryBuffer(historyCapacity);
+        this.store = store;
+        this.connectionPool = store instanceof DatabaseManager
+            ? ((DatabaseManager) store).getConnectionPool()
+            : null;
+        this.cluster = clusterConfig != null
+            ? new ClusterCoordinator(clusterConfig, new TaskLeaseStore(connectionPool),
+                threadPool::getCorePoolSize, this::armClaimed)
+            : null;
+        if (cluster != null) {
+            try {
+                TaskIds.setNode(cluster.leaseIdNode());
+            } catch (IllegalStateException e) {
+                laneDispatcher.stop();
+                threadPool.shutdown();
+                store.shutdown();
+                throw e;
+            }
+        }
         this.running = new AtomicBoolean(true);
         this.tasksCompleted = new AtomicInteger(0);
         this.tasksFailed = new AtomicInteger(0);
+        this.deadLetterCount = new AtomicInteger(store.countDeadLetters());
         
+        metricsRegistry.register(this::collectMetrics);
+        threadPool.registerMetrics(metricsRegistry);
+        store.registerMetrics(metricsRegistry);
+        if (cluster != null) {
+            cluster.registerMetrics(metricsRegistry);
+        }
         startScheduler();
     }
     
     public void scheduleTask(ScheduledTask task) {
-        taskQueue.offer(task);
-        taskStatusMap.put(task.getId(), TaskStatus.PENDING);
-        dbManager.saveTask(task, TaskStatus.PENDING);
+        taskStates.put(task.getId(), TaskStatus.PENDING);
+        store.saveTask(task, TaskStatus.PENDING);
+        notifyStatus(task, TaskStatus.PENDING);
+        if (cluster != null) {
+            // Runs on whichever node claims it
+            cluster.register(task);
+        } else if (task.isRecurring()) {
+            long delayMillis = task.getNextFireTimeMillis() - System.currentTimeMillis();
+            arm(task, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        } else {
+            arm(task, Duration.between(Instant.now(), task.getScheduledTime()).toNanos());
+        }
         System.out.println("✓ Scheduled: " + task.getName() + " [" + task.getId() + "]");
     }
     
-    private void startScheduler() {
-        schedulerService.scheduleAtFixedRate(() -> {
-            while (running.get() && !taskQueue.isEmpty()) {
-                ScheduledTask task = taskQueue.peek();
-                if (task != null && Instant.now().isAfter(task.getScheduledTime())) {
-                    taskQueue.poll();
-                    executeTask(task);
-                } else {
-                    break;
+    /**
+     * Schedules many tasks in one pass. Their rows are stored first, in chunked
+     * batch inserts; then the batch is handed to the wheel in one operation,
+     * earliest fire time first. One line is logged for the whole batch.
+     *
+     * @throws SQLException if the rows could not be stored; no task is armed,
+     *         and rows already committed stay PENDING for {@link #recoverTasks}
+     */
+    public void scheduleTasks(Collection<ScheduledTask> tasks) throws SQLException {
+        long start = System.nanoTime();
+        List<ScheduledTask> batch = new ArrayList<>(tasks);
+        batch.sort(Comparator.comparingLong(ScheduledTask::getNextFireTimeMillis));
+        store.saveTasks(batch, TaskStatus.PENDING);
+        
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        for (ScheduledTask task : batch) {
+            taskStates.put(task.getId(), TaskStatus.PENDING);
+            notifyStatus(task, TaskStatus.PENDING);
+            if (cluster != null) {
+                cluster.register(task);
+            } else {
+                task.setDueNanos(nowNanos
+                    + TimeUnit.MILLISECONDS.toNanos(task.getNextFireTimeMillis() - nowMillis));
+            }
+        }
+        if (cluster == null) {
+            for (TimingWheel.Timeout<ScheduledTask> timeout
+                    : dispatchWheel.scheduleAll(batch, ScheduledTask::getDueNanos)) {
+                index(timeout);
+            }
+        }
+        System.out.println("✓ Scheduled batch of " + batch.size() + " tasks in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
+    
+    public int recoverTasks(TaskResolver resolver) {
+        return recoverTasks(resolver, InterruptedTaskPolicy.RERUN);
+    }
+    
+    /**
+     * Schedules every task of {@code graph}. Tasks without predecessors start
+     * at their scheduled time; every other task is handed to the workers the
+     * moment its last predecessor completes. The edges are stored before any
+     * task can run, so a restart resumes the graph where it stopped.
+     */
+    public void scheduleGraph(TaskGraph graph) {
+        if (cluster != null) {
+            throw new IllegalStateException("Task graphs are not supported in cluster mode");
+        }
+        graph.computeCriticalPaths();
+        List<String[]> edges = new ArrayList<>();
+        long criticalPath = 0;
+        for (TaskGraph.Node node : graph.nodes()) {
+            for (TaskGraph.Node pred : node.predecessors) {
+                edges.add(new String[] { node.task.getId(), pred.task.getId() });
+            }
+            criticalPath = Math.max(criticalPath, node.task.getCriticalPathMillis());
+        }
+        try {
+            store.saveDependencies(graph.getId(), edges);
+        } catch (SQLException e) {
+            System.err.println("Error saving graph " + graph.getId() + ": " + e.getMessage());
+        }
+        
+        for (TaskGraph.Node node : graph.nodes()) {
+            ScheduledTask task = node.task;
+            graphNodes.put(task.getId(), node);
+            taskStates.put(task.getId(), TaskStatus.PENDING);
+            store.saveTask(task, TaskStatus.PENDING);
+            notifyStatus(task, TaskStatus.PENDING);
+        }
+        releaseRoots(graph);
+        System.out.println("✓ Scheduled graph " + graph.getId() + " (" + graph.size()
+            + " tasks, critical path " + criticalPath + "ms)");
+    }
+    
+    /**
+     * Releases the tasks of {@code graph} that wait on nothing. They are all
+     * picked before any is released: one that finishes straight away counts
+     * its successors down to zero and releases them itself.
+     */
+    private void releaseRoots(TaskGraph graph) {
+        List<ScheduledTask> roots = new ArrayList<>();
+        for (TaskGraph.Node node : graph.nodes()) {
+            if (node.waiting.get() == 0 && !node.cancelled.get()) {
+                roots.add(node.task);
+            }
+        }
+        for (ScheduledTask task : roots) {
+            releaseGraphTask(task);
+        }
+    }
+    
+    /**
+     * Starts a graph task whose predecessors are done: on the wheel if its
+     * scheduled time is still ahead, otherwise straight to the workers.
+     */
+    private void releaseGraphTask(ScheduledTask task) {
+        long delayNanos = Duration.between(Instant.now(), task.getScheduledTime()).toNanos();
+        if (delayNanos > 0) {
+            arm(task, delayNanos);
+        } else {
+            task.setDueNanos(System.nanoTime());
+            executeTask(task);
+        }
+    }
+    
+    private void finishGraphTask(TaskGraph.Node node, boolean completed) {
+        if (!completed) {
+            cancelDownstream(node);
+            return;
+        }
+        List<ScheduledTask> ready = null;
+        for (TaskGraph.Node succ : node.successors) {
+            if (succ.waiting.decrementAndGet() == 0 && !succ.cancelled.get()) {
+                if (ready == null) {
+                    ready = new ArrayList<>();
                 }
+                ready.add(succ.task);
+            }
+        }
+        if (ready != null) {
+            // Longest remaining chain first
+            ready.sort(Comparator.comparingLong(ScheduledTask::getCriticalPathMillis).reversed());
+            for (ScheduledTask task : ready) {
+                releaseGraphTask(task);
             }
-        }, 0, 100, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Cancels everything that depends, directly or not, on a task that failed
+     * or was cancelled.
+     */
+    private void cancelDownstream(TaskGraph.Node failed) {
+        ArrayDeque<TaskGraph.Node> pending = new ArrayDeque<>(failed.successors);
+        while (!pending.isEmpty()) {
+            TaskGraph.Node node = pending.poll();
+            if (node.cancelled.compareAndSet(false, true)) {
+                graphNodes.remove(node.task.getId());
+                graphCancellations.incrementAndGet();
+                setStatus(node.task, TaskStatus.CANCELLED);
+                System.err.println("⊘ Cancelled: " + node.task.getName() + " [" + node.task.getId()
+                    + "] - depends on unfinished " + failed.task.getName());
+                pending.addAll(node.successors);
+            }
+        }
+    }
+    
+    /**
+     * Reloads the PENDING and RUNNING tasks left in the database by a previous
+     * run and arms them again, rebinding each to its action through
+     * {@code resolver}. Rows are streamed page by page in scheduled time order,
+     * interrupted RUNNING rows first; while one page is being armed in parallel the next is read, so at most
+     * two pages of rows are held at once. An interrupted row is reset to PENDING
+     * through the write-behind queue, so the PENDING pass can meet it again and
+     * skips the ids the first pass restored. Rows the resolver does not know are
+     * left untouched. Call before scheduling new tasks. The resolver is also
+     * kept for replaying dead letters.
+     *
+     * @return the number of tasks restored
+     */
+    public int recoverTasks(TaskResolver resolver, InterruptedTaskPolicy policy) {
+        this.taskResolver = resolver;
+        if (cluster != null) {
+            // Unfinished rows stay claimable; expired leases are taken over instead
+            return 0;
+        }
+        long start = System.nanoTime();
+        AtomicInteger restored = new AtomicInteger(0);
+        AtomicInteger interrupted = new AtomicInteger(0);
+        AtomicInteger unresolved = new AtomicInteger(0);
+        Map<String, Queue<ScheduledTask>> graphTasks = new ConcurrentHashMap<>();
+        Set<String> restoredInterrupted = ConcurrentHashMap.newKeySet();
+        CompletableFuture<Void> arming = CompletableFuture.completedFuture(null);
+        
+        try {
+            for (TaskStatus status : new TaskStatus[] { TaskStatus.RUNNING, TaskStatus.PENDING }) {
+                StoredTask cursor = null;
+                List<StoredTask> page;
+                do {
+                    page = store.loadTasks(status, cursor, RECOVERY_PAGE_SIZE);
+                    List<StoredTask> batch = page;
+                    arming.join();
+                    arming = CompletableFuture.runAsync(() -> batch.parallelStream().forEach(row -> {
+                        if (row.getStatus() == TaskStatus.PENDING && restoredInterrupted.contains(row.getId())) {
+                            return;
+                        }
+                        if (restore(row, resolver, policy, interrupted, graphTasks)) {
+                            if (row.getStatus() == TaskStatus.RUNNING) {
+                                restoredInterrupted.add(row.getId());
+                            }
+                            restored.incrementAndGet();
+                        } else {
+                            unresolved.incrementAndGet();
+                        }
+                    }));
+                    cursor = page.isEmpty() ? cursor : page.get(page.size() - 1);
+                } while (page.size() == RECOVERY_PAGE_SIZE);
+            }
+            arming.join();
+            resumeGraphs(graphTasks);
+        } catch (SQLException e) {
+            System.err.println("Task recovery error: " + e.getMessage());
+        }
+        
+        System.out.println("♻ Recovered " + restored.get() + " tasks (" + interrupted.get()
+            + " interrupted, " + unresolved.get() + " without a registered type) in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return restored.get();
+    }
+    
+    private boolean restore(StoredTask row, TaskResolver resolver, InterruptedTaskPolicy policy,
+                            AtomicInteger interrupted, Map<String, Queue<ScheduledTask>> graphTasks) {
+        ScheduledTask task = resolver.resolve(row.getId(), row.getName(), row.getPriority(),
+            Instant.ofEpochMilli(row.getNextFireMillis()));
+        if (task == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (row.getStatus() == TaskStatus.RUNNING) {
+            interrupted.incrementAndGet();
+            if (policy == InterruptedTaskPolicy.MARK_FAILED) {
+                Instant at = Instant.ofEpochMilli(now);
+                TaskExecutionRecord record = new TaskExecutionRecord(task.getId(), task.getName(),
+                    TaskStatus.FAILED, at, at, "Interrupted by restart");
+                setStatus(task, TaskStatus.FAILED);
+                executionHistory.add(record);
+                store.saveExecutionRecord(record, task.getPriority());
+                if (!task.advanceSchedule(now)) {
+                    return true;
+                }
+            }
+            setStatus(task, TaskStatus.PENDING);
+        } else {
+            taskStates.put(task.getId(), TaskStatus.PENDING);
+        }
+        if (row.getGraphId() != null) {
+            // Armed once the graph's edges are back, see resumeGraphs
+            task.setGraphId(row.getGraphId());
+            graphTasks.computeIfAbsent(row.getGraphId(), k -> new ConcurrentLinkedQueue<>()).add(task);
+            return true;
+        }
+        
+        arm(task, TimeUnit.MILLISECONDS.toNanos(task.getNextFireTimeMillis() - now));
+        return true;
+    }
+    
+    /**
+     * Rebuilds the unfinished part of each recovered graph. An edge to a
+     * completed task is already satisfied; a task whose predecessor failed or
+     * was cancelled is cancelled along with everything downstream of it.
+     */
+    private void resumeGraphs(Map<String, Queue<ScheduledTask>> graphTasks) throws SQLException {
+        if (graphTasks.isEmpty()) {
+            return;
+        }
+        store.flush();
+        for (Map.Entry<String, Queue<ScheduledTask>> entry : graphTasks.entrySet()) {
+            TaskGraph graph = new TaskGraph(entry.getKey());
+            for (ScheduledTask task : entry.getValue()) {
+                graph.node(task);
+            }
+            List<TaskGraph.Node> blocked = new ArrayList<>();
+            for (TaskDependency edge : store.loadDependencies(graph.getId())) {
+                TaskGraph.Node succ = graph.find(edge.getTaskId());
+                if (succ == null) {
+                    continue;
+                }
+                TaskGraph.Node pred = graph.find(edge.getDependsOn());
+                if (pred != null) {
+                    TaskGraph.link(pred, succ);
+                } else if (edge.getDependsOnStatus() != TaskStatus.COMPLETED) {
+                    blocked.add(succ);
+                }
+            }
+            graph.computeCriticalPaths();
+            for (TaskGraph.Node node : graph.nodes()) {
+                graphNodes.put(node.task.getId(), node);
+            }
+            for (TaskGraph.Node node : blocked) {
+                if (node.cancelled.compareAndSet(false, true)) {
+                    graphNodes.remove(node.task.getId());
+                    graphCancellations.incrementAndGet();
+                    setStatus(node.task, TaskStatus.CANCELLED);
+                    cancelDownstream(node);
+                }
+            }
+            releaseRoots(graph);
+            System.out.println("♻ Resumed graph " + graph.getId() + " (" + graph.size() + " unfinished tasks)");
+        }
+    }
+    
+    /**
+     * The resolver passed to {@link #recoverTasks}, or null before recovery.
+     */
+    public TaskResolver getTaskResolver() {
+        return taskResolver;
+    }
+    
+    /**
+     * Last known status of a task scheduled or recovered by this node, or null.
+     */
+    public TaskStatus getTaskStatus(String taskId) {
+        return taskStates.getStatus(taskId);
+    }
+    
+    /**
+     * State of a task by id: from the state table while this node tracks it,
+     * otherwise read back from the store. Null if neither knows the task.
+     */
+    public TaskState lookupTask(String taskId) throws SQLException {
+        TaskState state = taskStates.get(taskId);
+        if (state != null) {
+            return state;
+        }
+        StoredTask row = store.loadTask(taskId);
+        return row != null
+            ? new TaskState(taskId, row.getStatus(), TaskIds.createdAt(taskId), null, false)
+            : null;
+    }
+    
+    private void startScheduler() {
+        dispatchWheel.start();
+        watchdog.start();
+        if (cluster != null) {
+            cluster.start();
+        }
+    }
+    
+    /**
+     * Arms a task this node has claimed from the shared table.
+     */
+    private void armClaimed(ScheduledTask task) {
+        taskStates.put(task.getId(), TaskStatus.PENDING);
+        long delayMillis = task.getNextFireTimeMillis() - System.currentTimeMillis();
+        arm(task, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+    
+    /**
+     * Puts a task on the wheel and indexes its entry by id for cancellation.
+     */
+    private void arm(ScheduledTask task, long delayNanos) {
+        task.setDueNanos(System.nanoTime() + delayNanos);
+        index(dispatchWheel.schedule(task, delayNanos, TimeUnit.NANOSECONDS));
+    }
+    
+    private void index(TimingWheel.Timeout<ScheduledTask> timeout) {
+        ScheduledTask task = timeout.getItem();
+        armedTimeouts.put(task.getId(), timeout);
+        if (timeout.isExpired() && !reusesTimeout(task)) {
+            // Fired before it was indexed
+            armedTimeouts.remove(task.getId(), timeout);
+        }
+    }
+    
+    /**
+     * Whether a task's wheel entry is re-armed in place after each run (see
+     * {@link #rearm}) rather than dropped once it fires.
+     */
+    private boolean reusesTimeout(ScheduledTask task) {
+        return cluster == null && task.isRecurring();
     }
     
     private void executeTask(ScheduledTask task) {
-        taskStatusMap.put(task.getId(), TaskStatus.RUNNING);
-        dbManager.updateTaskStatus(task.getId(), TaskStatus.RUNNING);
-        
-        threadPool.submit(() -> {
-            Instant startTime = Instant.now();
-            String errorMsg = null;
-            TaskStatus finalStatus = TaskStatus.COMPLETED;
-            
+        if (!running.get()) {
+            return;
+        }
+        if (!reusesTimeout(task)) {
+            armedTimeouts.remove(task.getId());
+        }
+        executions.put(task.getId(), new Execution(task));
+        
+        // Runs on the dispatcher thread, so anything blocking is left to the worker.
+        // Virtual tasks do not hold a platform worker, so they skip the lanes
+        // unless a resource group may have to hold them back.
+        if (task.getExecutionMode() == ExecutionMode.VIRTUAL && task.getResourceGroup() == null) {
+            long readyAtNanos = System.nanoTime();
+            threadPool.submit(() -> runTask(task, readyAtNanos), ExecutionMode.VIRTUAL);
+        } else {
+            laneDispatcher.offer(task);
+        }
+    }
+    
+    /**
+     * Lane dispatcher check for a run cancelled while it was queued: its
+     * execution is dropped here so it never reaches a worker.
+     */
+    private boolean withdrawn(ScheduledTask task) {
+        Execution run = executions.get(task.getId());
+        if (run == null || !run.cancelled) {
+            return false;
+        }
+        executions.remove(task.getId(), run);
+        return true;
+    }
+    
+    private void dispatchToPool(ScheduledTask task, long readyAtNanos) {
+        Runnable run = () -> {
             try {
-                System.out.println("▶ Executing: " + task.getName() + " [" + task.getId() + "]");
-                task.execute();
-                tasksCompleted.incrementAndGet();
-                System.out.println("✓ Completed: " + task.getName() + " [" + task.getId() + "]");
-            } catch (Exception e) {
-                finalStatus = TaskStatus.FAILED;
-                errorMsg = e.getMessage();
-                tasksFailed.incrementAndGet();
-                System.err.println("✗ Failed: " + task.getName() + " - " + e.getMessage());
-            }
-            
-            Instant endTime = Instant.now();
-            taskStatusMap.put(task.getId(), finalStatus);
-            dbManager.updateTaskStatus(task.getId(), finalStatus);
-            
-            TaskExecutionRecord record = new TaskExecutionRecord(
-                task.getId(), task.getName(), finalStatus, startTime, endTime, errorMsg
-            );
-            executionHistory.add(record);
-            dbManager.saveExecutionRecord(record);
-        });
+                runTask(task, readyAtNanos);
+            } finally {
+                laneDispatcher.release(task);
+            }
+        };
+        if (task.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            threadPool.submit(run, ExecutionMode.VIRTUAL);
+        } else {
+            threadPool.submit(run, task.getAffinityKey(), readyAtNanos);
+        }
+    }
+    
+    /**
+     * @param readyAtNanos when the wheel released the task, i.e. the end of its
+     *                     schedule lag and the start of its queue wait
+     */
+    private void runTask(ScheduledTask task, long readyAtNanos) {
+        Execution run = executions.get(task.getId());
+        if (run == null || !run.start()) {
+            // Cancelled while waiting for a worker
+            if (run != null) {
+                executions.remove(task.getId(), run);
+            }
+            return;
+        }
+        long startNanos = System.nanoTime();
+        long scheduleLagMicros = Math.max(0,
+            TimeUnit.NANOSECONDS.toMicros(readyAtNanos - task.getDueNanos()));
+        long queueWaitMicros = TimeUnit.NANOSECONDS.toMicros(startNanos - readyAtNanos);
+        latencyMetrics.record(TaskLatencyMetrics.Stage.SCHEDULE_LAG, task.getPriority(), task.getName(),
+            scheduleLagMicros);
+        latencyMetrics.record(TaskLatencyMetrics.Stage.QUEUE_WAIT, task.getPriority(), task.getName(),
+            queueWaitMicros);
+        setStatus(task, TaskStatus.RUNNING);
+        
+        Instant startTime = Instant.now();
+        String errorMsg = null;
+        Exception failure = null;
+        TaskStatus finalStatus = TaskStatus.COMPLETED;
+        long timeoutMillis = task.getTimeout().toMillis();
+        TimingWheel.Timeout<Execution> deadline = timeoutMillis > 0
+            ? watchdog.schedule(run, timeoutMillis, TimeUnit.MILLISECONDS)
+            : null;
+        
+        try {
+            System.out.println("▶ Executing: " + task.getName() + " [" + task.getId() + "]");
+            task.execute();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            // Settle the outcome first: a watchdog or cancel that lands after this is too late
+            run.finish();
+            if (deadline != null) {
+                deadline.cancel();
+            }
+        }
+        
+        if (run.cancelled) {
+            finalStatus = TaskStatus.CANCELLED;
+            failure = null;
+            errorMsg = "Cancelled";
+            System.err.println("⊘ Cancelled: " + task.getName() + " [" + task.getId() + "] while running");
+        } else if (run.timedOut) {
+            failure = new TimeoutException("Timed out after " + timeoutMillis + "ms");
+        }
+        if (failure == null && !run.cancelled) {
+            tasksCompleted.incrementAndGet();
+            completedByPriority.incrementAndGet(task.getPriority().ordinal());
+            System.out.println("✓ Completed: " + task.getName() + " [" + task.getId() + "]");
+        } else if (failure != null) {
+            finalStatus = TaskStatus.FAILED;
+            errorMsg = failure.getMessage();
+            tasksFailed.incrementAndGet();
+            failedByPriority.incrementAndGet(task.getPriority().ordinal());
+            System.err.println("✗ Failed: " + task.getName() + " - " + failure.getMessage());
+        }
+        
+        Instant endTime = Instant.now();
+        long endNanos = System.nanoTime();
+        long executionMicros = TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos);
+        latencyMetrics.record(TaskLatencyMetrics.Stage.EXECUTION, task.getPriority(), task.getName(),
+            executionMicros);
+        if (finalStatus == TaskStatus.COMPLETED) {
+            // Failed and timed-out runs say little about how long the task takes
+            durationEstimator.record(task, executionMicros);
+        }
+        if (task.getDeadline() != null && finalStatus != TaskStatus.CANCELLED
+                && endNanos - task.getDueNanos() > task.getDeadline().toNanos()) {
+            deadlineMisses.incrementAndGet();
+            deadlineMissesByPriority.incrementAndGet(task.getPriority().ordinal());
+        }
+        setStatus(task, finalStatus);
+        executions.remove(task.getId(), run);
+        
+        TaskExecutionRecord record = new TaskExecutionRecord(
+            task.getId(), task.getName(), finalStatus, startTime, endTime, errorMsg,
+            scheduleLagMicros, queueWaitMicros, task.getAttempt()
+        );
+        executionHistory.add(record);
+        store.saveExecutionRecord(record, task.getPriority());
+        for (SchedulerListener listener : listeners) {
+            try {
+                listener.onExecutionRecorded(record);
+            } catch (RuntimeException e) {
+                System.err.println("Listener error: " + e.getMessage());
+            }
+        }
+        
+        RetryPolicy retryPolicy = task.getRetryPolicy();
+        if (failure != null && running.get() && retryPolicy != null
+                && retryPolicy.shouldRetry(task.getAttempt(), failure)) {
+            retry(task, retryPolicy.delayMillis(task.getAttempt()));
+            return;
+        }
+        int attempts = task.getAttempt();
+        task.resetAttempts();
+        if (failure != null && !task.isRecurring()) {
+            // A recurring task's next run is its retry, so only one-shot tasks are dead-lettered
+            deadLetter(task, record, attempts);
+        }
+        TaskGraph.Node graphNode = task.getGraphId() != null ? graphNodes.remove(task.getId()) : null;
+        if (graphNode != null) {
+            finishGraphTask(graphNode, finalStatus == TaskStatus.COMPLETED);
+        }
+        
+        if (cluster != null) {
+            boolean released = !run.cancelled && release(task, endTime.toEpochMilli());
+            cluster.finished(task, released);
+        } else if (task.isRecurring()) {
+            rearm(task, endTime.toEpochMilli());
+        }
+    }
+    
+    /**
+     * Re-arms a failed task under the same id for its next attempt. A recurring
+     * task keeps its schedule; the retry only delays the current occurrence.
+     */
+    private void retry(ScheduledTask task, long delayMillis) {
+        task.nextAttempt();
+        retries.incrementAndGet();
+        System.out.println("↻ Retrying " + task.getName() + " [" + task.getId() + "] in " + delayMillis
+            + "ms (attempt " + task.getAttempt() + "/" + task.getRetryPolicy().getMaxAttempts() + ")");
+        
+        if (cluster != null) {
+            taskStates.put(task.getId(), TaskStatus.PENDING);
+            notifyStatus(task, TaskStatus.PENDING);
+            store.releaseTask(task.getId(), System.currentTimeMillis() + delayMillis);
+            cluster.finished(task, true);
+            return;
+        }
+        setStatus(task, TaskStatus.PENDING);
+        TimingWheel.Timeout<ScheduledTask> timeout = armedTimeouts.get(task.getId());
+        if (timeout != null && reusesTimeout(task)) {
+            task.setDueNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+            dispatchWheel.reschedule(timeout, delayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            arm(task, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        }
+    }
+    
+    private void deadLetter(ScheduledTask task, TaskExecutionRecord lastRun, int attempts) {
+        deadLettered.incrementAndGet();
+        deadLetterCount.incrementAndGet();
+        if (deadLetterTasks.size() < MAX_HELD_DEAD_LETTERS) {
+            deadLetterTasks.put(task.getId(), task);
+        }
+        store.saveDeadLetter(new TaskExecutionRecord(lastRun.getTaskId(), lastRun.getTaskName(),
+            lastRun.getStatus(), lastRun.getStartTime(), lastRun.getEndTime(), lastRun.getErrorMessage(),
+            0, 0, attempts), task.getPriority());
+        System.err.println("☠ Dead-lettered: " + task.getName() + " [" + task.getId() + "] after "
+            + attempts + (attempts == 1 ? " attempt" : " attempts"));
+    }
+    
+    /**
+     * Reruns dead-lettered tasks under their original ids, the given ones or,
+     * if {@code taskIds} is empty, the oldest {@code limit}. Tasks that failed
+     * before a restart are rebound through the resolver passed to
+     * {@link #recoverTasks}; those it does not know stay dead-lettered.
+     *
+     * @return the number of tasks put back on the schedule
+     */
+    public int replayDeadLetters(Collection<String> taskIds, int limit) throws SQLException {
+        store.flush();
+        List<DeadLetter> letters = taskIds.isEmpty()
+            ? store.getDeadLetters(limit)
+            : store.getDeadLetters(taskIds);
+        List<ScheduledTask> replayed = new ArrayList<>();
+        List<String> replayedIds = new ArrayList<>();
+        TaskResolver resolver = taskResolver;
+        long now = System.currentTimeMillis();
+        
+        for (DeadLetter letter : letters) {
+            ScheduledTask task = deadLetterTasks.remove(letter.getTaskId());
+            if (task == null && resolver != null) {
+                task = resolver.resolve(letter.getTaskId(), letter.getTaskName(), letter.getPriority(),
+                    Instant.ofEpochMilli(now));
+            }
+            if (task != null) {
+                replayed.add(task);
+                replayedIds.add(task.getId());
+            }
+        }
+        if (replayed.isEmpty()) {
+            return 0;
+        }
+        // Deleted before re-arming, so a replay that fails again is dead-lettered afresh
+        deadLetterCount.addAndGet(-store.deleteDeadLetters(replayedIds));
+        
+        for (ScheduledTask task : replayed) {
+            task.resetAttempts();
+            if (cluster != null) {
+                cluster.register(task);
+                taskStates.put(task.getId(), TaskStatus.PENDING);
+                notifyStatus(task, TaskStatus.PENDING);
+                store.releaseTask(task.getId(), now);
+            } else {
+                setStatus(task, TaskStatus.PENDING);
+                arm(task, 0);
+            }
+        }
+        System.out.println("↺ Replayed " + replayed.size() + " dead-lettered tasks");
+        return replayed.size();
+    }
+    
+    public List<DeadLetter> getDeadLetters(int limit) throws SQLException {
+        store.flush();
+        return store.getDeadLetters(limit);
+    }
+    
+    public int getDeadLetterCount() {
+        return deadLetterCount.get();
+    }
+    
+    /**
+     * Cluster counterpart of {@link #rearm}: the next run goes back to the
+     * shared table, where any node may claim it.
+     */
+    private boolean release(ScheduledTask task, long completedMillis) {
+        if (!running.get() || !task.isRecurring() || !task.advanceSchedule(completedMillis)) {
+            return false;
+        }
+        taskStates.put(task.getId(), TaskStatus.PENDING);
+        notifyStatus(task, TaskStatus.PENDING);
+        store.releaseTask(task.getId(), task.getNextFireTimeMillis());
+        return true;
+    }
+    
+    /**
+     * Puts a recurring task back on the wheel for its next run, reusing the same
+     * task, wheel node and database row.
+     */
+    private void rearm(ScheduledTask task, long completedMillis) {
+        TimingWheel.Timeout<ScheduledTask> timeout = armedTimeouts.get(task.getId());
+        if (!running.get() || timeout == null || !task.advanceSchedule(completedMillis)) {
+            armedTimeouts.remove(task.getId());
+            return;
+        }
+        setStatus(task, TaskStatus.PENDING);
+        long delayMillis = task.getNextFireTimeMillis() - System.currentTimeMillis();
+        task.setDueNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        dispatchWheel.reschedule(timeout, delayMillis, TimeUnit.MILLISECONDS);
+        if (armedTimeouts.get(task.getId()) != timeout) {
+            // Cancelled while being re-armed
+            timeout.cancel();
+        }
+    }
+    
+    /**
+     * Cancels a task scheduled on this node. A task still waiting on the wheel
+     * or for a worker is dropped without running; a running task has its
+     * worker interrupted and is recorded as CANCELLED once it returns, so
+     * tasks should stop promptly when interrupted. A recurring task is not
+     * run again, and tasks that depend on it in a graph are cancelled too.
+     *
+     * In cluster mode a task no node has claimed yet is cancelled in the
+     * shared database, whichever node scheduled it. A task claimed by another
+     * node can only be cancelled there.
+     *
+     * @return false if the task is unknown or has already finished
+     */
+    public boolean cancelTask(String taskId) {
+        if (cancelLocal(taskId)) {
+            return true;
+        }
+        if (cluster == null) {
+            return false;
+        }
+        ScheduledTask known = cluster.getKnownTask(taskId);
+        if (known != null) {
+            // Its row may still be queued, and would overwrite the cancel once written
+            store.flush();
+        }
+        if (cluster.cancelUnclaimed(taskId)) {
+            cancellations.incrementAndGet();
+            taskStates.put(taskId, TaskStatus.CANCELLED);
+            if (known != null) {
+                notifyStatus(known, TaskStatus.CANCELLED);
+            }
+            System.err.println("⊘ Cancelled: " + (known != null ? known.getName() : "unclaimed task")
+                + " [" + taskId + "]");
+            return true;
+        }
+        // This node may have claimed the row since it was looked for above
+        return cancelLocal(taskId);
+    }
+    
+    private boolean cancelLocal(String taskId) {
+        TimingWheel.Timeout<ScheduledTask> timeout = armedTimeouts.remove(taskId);
+        if (timeout != null && timeout.cancel()) {
+            cancelled(timeout.getItem());
+            return true;
+        }
+        Execution run = executions.get(taskId);
+        if (run != null && run.cancel()) {
+            if (!run.isStarted()) {
+                cancelled(run.task);
+            } else {
+                cancellations.incrementAndGet();
+            }
+            return true;
+        }
+        TaskGraph.Node node = graphNodes.get(taskId);
+        if (node != null && node.cancelled.compareAndSet(false, true)) {
+            cancelled(node.task);
+            return true;
+        }
+        if (timeout != null) {
+            // A recurring task between runs: removing its entry stops the re-arm
+            cancelled(timeout.getItem());
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return how many of {@code taskIds} were cancelled
+     */
+    public int cancelTasks(Collection<String> taskIds) {
+        int count = 0;
+        for (String taskId : taskIds) {
+            if (cancelTask(taskId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Finishes off a task cancelled before it started running.
+     */
+    private void cancelled(ScheduledTask task) {
+        cancellations.incrementAndGet();
+        setStatus(task, TaskStatus.CANCELLED);
+        System.err.println("⊘ Cancelled: " + task.getName() + " [" + task.getId() + "]");
+        TaskGraph.Node node = graphNodes.remove(task.getId());
+        if (node != null) {
+            node.cancelled.set(true);
+            cancelDownstream(node);
+        }
+        if (cluster != null) {
+            cluster.finished(task, false);
+        }
+    }
+    
+    /**
+     * Watchdog expiry: interrupts a run that has overrun its timeout. It is
+     * recorded as a failed attempt, and so retried if its policy allows,
+     * once the task returns.
+     */
+    private void timeOut(Execution run) {
+        if (run.timeOut()) {
+            timeouts.incrementAndGet();
+            System.err.println("⏱ Timed out: " + run.task.getName() + " [" + run.task.getId() + "] after "
+                + run.task.getTimeout().toMillis() + "ms");
+        }
+    }
+    
+    private void setStatus(ScheduledTask task, TaskStatus status) {
+        taskStates.put(task.getId(), status);
+        store.updateTaskStatus(task.getId(), status);
+        notifyStatus(task, status);
+    }
+    
+    private void notifyStatus(ScheduledTask task, TaskStatus status) {
+        for (SchedulerListener listener : listeners) {
+            try {
+                listener.onStatusChanged(task, status);
+            } catch (RuntimeException e) {
+                System.err.println("Listener error: " + e.getMessage());
+            }
+        }
+    }
+    
+    public void addListener(SchedulerListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(SchedulerListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Switches the order in which due tasks are handed to the workers. Tasks
+     * running on virtual threads skip the lanes and are not affected.
+     */
+    public void setDispatchPolicy(DispatchPolicy policy) {
+        laneDispatcher.setPolicy(policy);
+        System.out.println("⇄ Dispatch policy: " + policy);
+    }
+    
+    public DispatchPolicy getDispatchPolicy() {
+        return laneDispatcher.getPolicy();
+    }
+    
+    /**
+     * Caps how many tasks of a resource group run at once and how fast they
+     * start; see {@link ScheduledTask#withResourceGroup}. Calling it again for
+     * the same name changes the limits in place.
+     */
+    public void defineResourceGroup(ResourceGroup group) {
+        laneDispatcher.defineGroup(group);
+        System.out.println("✓ Resource group " + group.getName() + ": "
+            + (group.getMaxConcurrent() == ResourceGroup.UNLIMITED ? "unbounded" : "max " + group.getMaxConcurrent())
+            + (group.getPermitsPerSecond() > 0 ? ", " + group.getPermitsPerSecond() + "/s" : ""));
+    }
+    
+    /**
+     * Run durations learned per task name from completed runs.
+     */
+    public List<DurationEstimate> getDurationEstimates() {
+        return durationEstimator.snapshot();
     }
     
     public SystemMetrics getMetrics() {
         return new SystemMetrics(
-            taskQueue.size(),
+            dispatchWheel.size(),
             threadPool.getActiveThreadCount(),
             threadPool.getPoolSize(),
             tasksCompleted.get(),
             tasksFailed.get(),
-            executionHistory.size()
+            (int) executionHistory.getTotalRecorded(),
+            connectionPool != null ? connectionPool.getActiveConnections() : 0,
+            connectionPool != null ? connectionPool.getAverageWaitMicros() : 0,
+            store.getAverageQueryMicros(),
+            threadPool.getQueueDepth(),
+            threadPool.getAverageQueueWaitMicros(),
+            threadPool.getResizeCount(),
+            threadPool.getLastResize(),
+            laneDispatcher.getLaneMetrics(),
+            getLatencyStats(),
+            retries.get(),
+            deadLetterCount.get(),
+            cancellations.get(),
+            timeouts.get(),
+            laneDispatcher.getPolicy().name(),
+            deadlineMisses.get(),
+            averageEstimateErrorMicros(),
+            laneDispatcher.getGroupMetrics()
         );
     }
     
+    private long averageEstimateErrorMicros() {
+        LatencyHistogram errors = durationEstimator.getErrorHistogram();
+        long count = errors.getCount();
+        return count > 0 ? errors.getSum() / count : 0;
+    }
+    
+    private List<LatencyStats> getLatencyStats() {
+        List<LatencyStats> stats = latencyMetrics.snapshot();
+        TaskLatencyMetrics.add(stats, "PERSISTENCE", "all", "ALL", store.getPersistenceLatency());
+        return stats;
+    }
+    
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
+    private void collectMetrics(OpenMetricsWriter out) {
+        TaskPriority[] priorities = TaskPriority.values();
+        out.family("scheduler_tasks_completed", "counter", "Task runs that finished successfully");
+        for (TaskPriority p : priorities) {
+            out.sample("scheduler_tasks_completed", "_total", "priority", p.name(),
+                completedByPriority.get(p.ordinal()));
+        }
+        out.family("scheduler_tasks_failed", "counter", "Task runs that threw an exception");
+        for (TaskPriority p : priorities) {
+            out.sample("scheduler_tasks_failed", "_total", "priority", p.name(),
+                failedByPriority.get(p.ordinal()));
+        }
+        out.family("scheduler_task_retries", "counter", "Failed runs re-armed for another attempt");
+        out.sample("scheduler_task_retries", "_total", retries.get());
+        out.family("scheduler_tasks_dead_lettered", "counter", "Tasks moved to the dead-letter table");
+        out.sample("scheduler_tasks_dead_lettered", "_total", deadLettered.get());
+        out.family("scheduler_dead_letters", "gauge", "Dead-lettered tasks awaiting replay");
+        out.sample("scheduler_dead_letters", "", deadLetterCount.get());
+        out.family("scheduler_graph_tasks_waiting", "gauge", "Graph tasks not yet finished");
+        out.sample("scheduler_graph_tasks_waiting", "", graphNodes.size());
+        out.family("scheduler_graph_cancellations", "counter", "Graph tasks cancelled after a predecessor failed");
+        out.sample("scheduler_graph_cancellations", "_total", graphCancellations.get());
+        out.family("scheduler_tasks_cancelled", "counter", "Tasks cancelled before or while running");
+        out.sample("scheduler_tasks_cancelled", "_total", cancellations.get());
+        out.family("scheduler_tasks_timed_out", "counter", "Runs interrupted for overrunning their timeout");
+        out.sample("scheduler_tasks_timed_out", "_total", timeouts.get());
+        out.family("scheduler_deadline_misses", "counter", "Runs that finished after their deadline");
+        for (TaskPriority p : priorities) {
+            out.sample("scheduler_deadline_misses", "_total", "priority", p.name(),
+                deadlineMissesByPriority.get(p.ordinal()));
+        }
+        out.family("scheduler_dispatch_policy", "gauge", "Order in which due tasks are released, 1 for the one in use");
+        for (DispatchPolicy policy : DispatchPolicy.values()) {
+            out.sample("scheduler_dispatch_policy", "", "policy", policy.name(),
+                laneDispatcher.getPolicy() == policy ? 1 : 0);
+        }
+        out.family("scheduler_task_estimate_error_seconds", "histogram",
+            "Difference between a completed run's learned estimate and its actual duration");
+        out.histogram("scheduler_task_estimate_error_seconds", null, null, durationEstimator.getErrorHistogram());
+        out.family("scheduler_task_states", "gauge", "Tasks tracked in the in-memory state table");
+        out.sample("scheduler_task_states", "", taskStates.size());
+        out.family("scheduler_task_state_bytes", "gauge", "Memory held by the state table's slot arrays");
+        out.sample("scheduler_task_state_bytes", "", taskStates.getTableBytes());
+        out.family("scheduler_task_states_evicted", "counter", "Finished tasks dropped from the state table after the TTL");
+        out.sample("scheduler_task_states_evicted", "_total", taskStates.getEvictedCount());
+        out.family("scheduler_tasks_scheduled", "gauge", "Tasks waiting on the timing wheel");
+        out.sample("scheduler_tasks_scheduled", "", dispatchWheel.size());
+        out.family("scheduler_lane_depth", "gauge", "Due tasks waiting in each priority lane");
+        for (TaskPriority p : priorities) {
+            out.sample("scheduler_lane_depth", "", "priority", p.name(), laneDispatcher.getLaneDepth(p));
+        }
+        List<GroupMetrics> groups = laneDispatcher.getGroupMetrics();
+        if (!groups.isEmpty()) {
+            out.family("scheduler_group_running", "gauge", "Tasks of each resource group running");
+            for (GroupMetrics g : groups) {
+                out.sample("scheduler_group_running", "", "group", g.getGroup(), g.getRunning());
+            }
+            out.family("scheduler_group_parked", "gauge", "Due tasks held back by their resource group's limits");
+            for (GroupMetrics g : groups) {
+                out.sample("scheduler_group_parked", "", "group", g.getGroup(), g.getParked());
+            }
+            out.family("scheduler_group_throttled", "counter", "Runs that waited for a resource group permit");
+            for (GroupMetrics g : groups) {
+                out.sample("scheduler_group_throttled", "_total", "group", g.getGroup(), g.getThrottled());
+            }
+            out.family("scheduler_group_wait_seconds", "histogram", "Time runs spent waiting for a resource group permit");
+            for (GroupMetrics g : groups) {
+                LatencyHistogram wait = laneDispatcher.getGroupWaitHistogram(g.getGroup());
+                if (wait != null) {
+                    out.histogram("scheduler_group_wait_seconds", "group", g.getGroup(), wait);
+                }
+            }
+        }
+        collectLatency(out, "scheduler_task_schedule_lag_seconds", TaskLatencyMetrics.Stage.SCHEDULE_LAG,
+            "Delay between a run's due time and its release to the workers");
+        collectLatency(out, "scheduler_task_queue_wait_seconds", TaskLatencyMetrics.Stage.QUEUE_WAIT,
+            "Time from release until a worker starts the run");
+        collectLatency(out, "scheduler_task_execution_seconds", TaskLatencyMetrics.Stage.EXECUTION,
+            "Time spent running the task");
+    }
+    
+    private void collectLatency(OpenMetricsWriter out, String name, TaskLatencyMetrics.Stage stage,
+                                String help) {
+        out.family(name, "histogram", help);
+        for (TaskPriority p : TaskPriority.values()) {
+            out.histogram(name, "priority", p.name(), latencyMetrics.getHistogram(stage, p));
+        }
+    }
+    
     public List<TaskExecutionRecord> getExecutionHistory() {
-        return new ArrayList<>(executionHistory);
+        return executionHistory.snapshot();
+    }
+    
+    /**
+     * Returns the newest {@code limit} records, oldest first. Requests that reach
+     * past what the in-memory ring retains are served from the store, after
+     * waiting for the records still in its write-behind queue.
+     */
+    public List<TaskExecutionRecord> getExecutionHistory(int limit) {
+        boolean retainedAll = executionHistory.getTotalRecorded() <= executionHistory.getCapacity();
+        if (retainedAll || limit <= executionHistory.size()) {
+            return executionHistory.latest(limit);
+        }
+        store.flush();
+        List<TaskExecutionRecord> history = store.getExecutionHistory(limit);
+        Collections.reverse(history);
+        return history;
     }
     
-    public DatabaseManager getDatabaseManager() {
-        return dbManager;
+    /**
+     * The newest records matching {@code query} from the store, oldest first
+     * like {@link #getExecutionHistory}. Records still queued for the store
+     * are written first.
+     */
+    public List<TaskExecutionRecord> queryHistory(HistoryQuery query) throws SQLException {
+        store.flush();
+        List<TaskExecutionRecord> history = store.queryHistory(query);
+        Collections.reverse(history);
+        return history;
+    }
+    
+    /**
+     * Per task name and priority aggregates of {@code grain} with buckets
+     * starting in [from, to), for one task name or all of them (null).
+     */
+    public List<HistoryRollup> getRollups(HistoryRollup.Grain grain, Instant from, Instant to,
+                                          String taskName) throws SQLException {
+        return store.getRollups(grain, from, to, taskName);
+    }
+    
+    /**
+     * Number of executions recorded so far; changes whenever the history does.
+     */
+    public long getHistoryVersion() {
+        return executionHistory.getTotalRecorded();
+    }
+    
+    public TaskStore getTaskStore() {
+        return store;
     }
     
     public void shutdown() {
         running.set(false);
-        schedulerService.shutdown();
+        if (cluster != null) {
+            cluster.stop();
+        }
+        dispatchWheel.stop();
+        watchdog.stop();
+        laneDispatcher.stop();
         threadPool.shutdown();
+        try {
+            if (!threadPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Worker pool did not drain before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (cluster != null) {
+            store.flush();
+            cluster.release();
+        }
+        taskStates.close();
+        store.shutdown();
+    }
+    
+    /**
+     * One due run of a task, from its release off the wheel until it
+     * finishes. Cancelling or timing it out interrupts the worker running it.
+     */
+    private static final class Execution {
+        final ScheduledTask task;
+        volatile boolean cancelled;
+        volatile boolean timedOut;
+        private Thread worker;
+        private boolean started;
+        private boolean finished;
+        
+        Execution(ScheduledTask task) {
+            this.task = task;
+        }
+        
+        /** Binds the run to the calling worker; false if it was cancelled first. */
+        synchronized boolean start() {
+            if (cancelled) {
+                return false;
+            }
+            started = true;
+            worker = Thread.currentThread();
+            return true;
+        }
+        
+        synchronized boolean isStarted() {
+            return started;
+        }
+        
+        synchronized boolean cancel() {
+            if (cancelled || finished) {
+                return false;
+            }
+            cancelled = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+            return true;
+        }
+        
+        synchronized boolean timeOut() {
+            if (worker == null || cancelled || finished) {
+                return false;
+            }
+            timedOut = true;
+            worker.interrupt();
+            return true;
+        }
+        
+        /** Detaches the worker, clearing an interrupt the task did not consume. */
+        synchronized void finish() {
+            worker = null;
+            finished = true;
+            Thread.interrupted();
+        }
     }
 }
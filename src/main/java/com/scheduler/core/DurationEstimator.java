@@ -0,0 +1,118 @@
+package com.scheduler.core;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.model.DurationEstimate;
+import com.scheduler.model.ScheduledTask;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Learns how long each task name runs from its completed runs: an
+ * exponentially weighted moving average for the expected duration, and a
+ * log-bucketed histogram for its percentiles. Until a name has a few samples
+ * the task's own {@link ScheduledTask#getEstimatedDuration()} is used. Only the
+ * first {@value #MAX_TRACKED_NAMES} distinct names are learned, so memory stays
+ * bounded; later names keep their static estimates.
+ */
+public class DurationEstimator {
+    public static final double DEFAULT_ALPHA = 0.2;
+    private static final int MIN_SAMPLES = 3;
+    private static final int MAX_TRACKED_NAMES = 1024;
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+    
+    private final double alpha;
+    private final Map<String, Estimate> byName = new ConcurrentHashMap<>();
+    private final LatencyHistogram errorMicros = new LatencyHistogram();
+    
+    public DurationEstimator() {
+        this(DEFAULT_ALPHA);
+    }
+    
+    /**
+     * @param alpha weight of the newest sample in the moving average, in (0, 1]
+     */
+    public DurationEstimator(double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+    
+    /**
+     * Expected duration of the task's next run in microseconds. Cheap enough to
+     * call for every dispatch: it takes no lock.
+     */
+    public long estimateMicros(ScheduledTask task) {
+        Estimate estimate = byName.get(task.getName());
+        long learned = estimate != null ? estimate.current : -1;
+        return learned >= 0 ? learned : TimeUnit.NANOSECONDS.toMicros(task.getEstimatedDuration().toNanos());
+    }
+    
+    /**
+     * Feeds a completed run into the task name's estimate.
+     *
+     * @return how far off the estimate in force before this run was, in microseconds
+     */
+    public long record(ScheduledTask task, long micros) {
+        long error = Math.abs(micros - estimateMicros(task));
+        errorMicros.record(error);
+        Estimate estimate = forName(task.getName());
+        if (estimate != null) {
+            estimate.update(micros, alpha);
+        }
+        return error;
+    }
+    
+    /** Absolute estimate error of every recorded run, in microseconds. */
+    public LatencyHistogram getErrorHistogram() {
+        return errorMicros;
+    }
+    
+    /**
+     * Learned estimates of every tracked name, by name.
+     */
+    public List<DurationEstimate> snapshot() {
+        List<DurationEstimate> estimates = new ArrayList<>(byName.size());
+        for (Map.Entry<String, Estimate> entry : byName.entrySet()) {
+            Estimate estimate = entry.getValue();
+            long[] p = estimate.durations.percentiles(PERCENTILES);
+            estimates.add(new DurationEstimate(entry.getKey(), estimate.durations.getCount(),
+                estimate.average(), p[0], p[1], p[2]));
+        }
+        estimates.sort(Comparator.comparing(DurationEstimate::getTaskName));
+        return estimates;
+    }
+    
+    private Estimate forName(String name) {
+        Estimate estimate = byName.get(name);
+        if (estimate != null || byName.size() >= MAX_TRACKED_NAMES) {
+            return estimate;
+        }
+        return byName.computeIfAbsent(name, n -> new Estimate());
+    }
+    
+    private static final class Estimate {
+        final LatencyHistogram durations = new LatencyHistogram(1);
+        // Published once there are enough samples, -1 until then
+        volatile long current = -1;
+        private double average;
+        private long samples;
+        
+        synchronized void update(long micros, double alpha) {
+            average = samples == 0 ? micros : average + alpha * (micros - average);
+            samples++;
+            durations.record(micros);
+            if (samples >= MIN_SAMPLES) {
+                current = Math.round(average);
+            }
+        }
+        
+        synchronized long average() {
+            return Math.round(average);
+        }
+    }
+}
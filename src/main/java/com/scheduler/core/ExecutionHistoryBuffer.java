@@ -0,0 +1,82 @@
+package com.scheduler.core;
+
+import com.scheduler.model.TaskExecutionRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, multi-producer ring of the most recent execution records.
+ *
+ * Producers claim a sequence number with a single getAndIncrement and write
+ * their slot; nothing is ever copied on add. Each slot also stores the
+ * sequence it holds, which readers check before and after reading the record
+ * so a slot that is being overwritten is skipped rather than misreported.
+ */
+public class ExecutionHistoryBuffer {
+    private static final long UNPUBLISHED = -1L;
+    
+    private final int capacity;
+    private final AtomicReferenceArray<TaskExecutionRecord> records;
+    private final AtomicLongArray sequences;
+    private final AtomicLong cursor = new AtomicLong(0);
+    
+    public ExecutionHistoryBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.records = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, UNPUBLISHED);
+        }
+    }
+    
+    public void add(TaskExecutionRecord record) {
+        long seq = cursor.getAndIncrement();
+        int slot = (int) (seq % capacity);
+        sequences.set(slot, UNPUBLISHED);
+        records.set(slot, record);
+        sequences.set(slot, seq);
+    }
+    
+    /**
+     * Returns up to {@code limit} of the newest records, oldest first.
+     */
+    public List<TaskExecutionRecord> latest(int limit) {
+        long end = cursor.get();
+        long start = Math.max(0, end - Math.min(limit, capacity));
+        List<TaskExecutionRecord> snapshot = new ArrayList<>((int) (end - start));
+        
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq % capacity);
+            if (sequences.get(slot) != seq) {
+                continue;
+            }
+            TaskExecutionRecord record = records.get(slot);
+            if (sequences.get(slot) == seq) {
+                snapshot.add(record);
+            }
+        }
+        return snapshot;
+    }
+    
+    public List<TaskExecutionRecord> snapshot() {
+        return latest(capacity);
+    }
+    
+    public int size() {
+        return (int) Math.min(cursor.get(), capacity);
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public long getTotalRecorded() {
+        return cursor.get();
+    }
+}
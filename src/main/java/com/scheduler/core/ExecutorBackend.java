@@ -0,0 +1,5 @@
+package com.scheduler.core;
+
+public enum ExecutorBackend {
+    THREAD_POOL, WORK_STEALING
+}
@@ -0,0 +1,12 @@
+package com.scheduler.core;
+
+/**
+ * What recovery does with a task that was RUNNING when the previous process
+ * stopped, i.e. whose run was cut off without a recorded outcome.
+ */
+public enum InterruptedTaskPolicy {
+    /** Run it again straight away; suits idempotent tasks. */
+    RERUN,
+    /** Record the interrupted run as failed. Recurring tasks still get their next run. */
+    MARK_FAILED
+}
@@ -0,0 +1,585 @@
+package com.scheduler.core;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.model.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Holds due tasks in one lock-free lane per {@link TaskPriority} and releases
+ * them to the worker pool by deficit round robin, using the priority weights
+ * as quanta. Under sustained CRITICAL load a LOW task still gets one slot for
+ * every 20 CRITICAL ones instead of starving. Tasks are only released while the
+ * pool has a free worker, so the backlog stays here where it can be ordered.
+ * With aging enabled, any lane head that has waited longer than the aging
+ * threshold is released ahead of the round.
+ *
+ * That is the {@link DispatchPolicy#PRIORITY} policy. Under
+ * {@link DispatchPolicy#EARLIEST_DEADLINE} and {@link DispatchPolicy#SHORTEST_JOB}
+ * the dispatcher thread instead drains the lanes into one heap ordered by
+ * deadline or by estimated duration, and aging still releases any task that
+ * has waited too long. The policy can be switched at any time; tasks already
+ * waiting are reordered under the new one.
+ *
+ * A task in a {@link ResourceGroup} is only released once the group has a
+ * free slot and a rate permit. Until then it is parked in the group's queue
+ * here, in the order the policy picked it, and other tasks go ahead. A
+ * finishing task wakes the dispatcher to hand its slot on; a rate-limited
+ * group wakes it when its next permit is due.
+ *
+ * Tasks cancelled while they wait here stay in their lane until the
+ * dispatcher reaches them, and are then dropped instead of released, so they
+ * never take a worker.
+ */
+public class PriorityLaneDispatcher {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    public interface Sink {
+        void dispatch(ScheduledTask task, long readyAtNanos);
+    }
+    
+    // Soonest key first, then higher priority, then longer waiting
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong((Entry e) -> e.key)
+        .thenComparing(e -> e.task.getPriority().getWeight(), Comparator.reverseOrder())
+        .thenComparingLong(e -> e.readyAtNanos);
+    
+    private final Lane[] lanes;
+    private final IntSupplier capacity;
+    private final Sink sink;
+    private final long agingNanos;
+    private final ToLongFunction<ScheduledTask> estimateMicros;
+    private final Predicate<ScheduledTask> withdrawn;
+    // Owned by the dispatcher thread; entries already dispatched through aging are skipped
+    private final PriorityQueue<Entry> ordered = new PriorityQueue<>(ORDER);
+    private volatile DispatchPolicy policy;
+    private DispatchPolicy applied = DispatchPolicy.PRIORITY;
+    private final Map<String, GroupLimiter> groups = new ConcurrentHashMap<>();
+    // Dispatcher thread only: tasks parked in any group, and the delay until the next rate permit
+    private int parkedCount;
+    private long permitWaitNanos = Long.MAX_VALUE;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean waiting;
+    private int current;
+    
+    public PriorityLaneDispatcher(IntSupplier capacity, Sink sink, long agingMillis) {
+        this(capacity, sink, agingMillis, DispatchPolicy.PRIORITY,
+            task -> TimeUnit.NANOSECONDS.toMicros(task.getEstimatedDuration().toNanos()));
+    }
+    
+    /**
+     * @param estimateMicros expected run time of a task, for shortest job first
+     */
+    public PriorityLaneDispatcher(IntSupplier capacity, Sink sink, long agingMillis,
+                                  DispatchPolicy policy, ToLongFunction<ScheduledTask> estimateMicros) {
+        this(capacity, sink, agingMillis, policy, estimateMicros, task -> false);
+    }
+    
+    /**
+     * @param withdrawn whether a queued task has been cancelled and should be
+     *                  dropped rather than dispatched
+     */
+    public PriorityLaneDispatcher(IntSupplier capacity, Sink sink, long agingMillis,
+                                  DispatchPolicy policy, ToLongFunction<ScheduledTask> estimateMicros,
+                                  Predicate<ScheduledTask> withdrawn) {
+        this.capacity = capacity;
+        this.sink = sink;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        this.policy = policy;
+        this.estimateMicros = estimateMicros;
+        this.withdrawn = withdrawn;
+        
+        // Highest weight first so a fresh round starts with CRITICAL
+        TaskPriority[] priorities = TaskPriority.values();
+        this.lanes = new Lane[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            lanes[i] = new Lane(priorities[priorities.length - 1 - i]);
+        }
+        
+        this.worker = new Thread(this::run, "Lane-Dispatcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+    
+    public void offer(ScheduledTask task) {
+        long now = System.nanoTime();
+        long deadlineNanos = task.getDeadline() != null
+            ? task.getDueNanos() + task.getDeadline().toNanos()
+            : Long.MAX_VALUE;
+        laneFor(task.getPriority()).add(new Entry(task, now, deadlineNanos,
+            task.getExecutionMode() != ExecutionMode.VIRTUAL));
+        queued.incrementAndGet();
+        if (waiting) {
+            LockSupport.unpark(worker);
+        }
+    }
+    
+    /**
+     * Called by the worker when a released task finishes, freeing its slot
+     * and its resource group's.
+     */
+    public void release(ScheduledTask task) {
+        GroupLimiter group = groupOf(task);
+        if (group != null) {
+            group.release();
+        }
+        if (task.getExecutionMode() != ExecutionMode.VIRTUAL) {
+            inFlight.decrementAndGet();
+        }
+        if (waiting) {
+            LockSupport.unpark(worker);
+        }
+    }
+    
+    /**
+     * Adds a resource group, or changes the limits of an existing one in place.
+     * Tasks naming a group that was never defined are not limited.
+     */
+    public void defineGroup(ResourceGroup group) {
+        groups.compute(group.getName(), (name, limiter) -> {
+            if (limiter == null) {
+                return new GroupLimiter(group);
+            }
+            limiter.update(group);
+            return limiter;
+        });
+        LockSupport.unpark(worker);
+    }
+    
+    public List<GroupMetrics> getGroupMetrics() {
+        List<GroupMetrics> metrics = new ArrayList<>(groups.size());
+        for (GroupLimiter group : groups.values()) {
+            ResourceGroup limits = group.limits;
+            long[] wait = group.waitMicros.percentiles(50, 99);
+            metrics.add(new GroupMetrics(limits.getName(), limits.getMaxConcurrent(),
+                limits.getPermitsPerSecond(), group.running.get(), group.parkedDepth,
+                group.started.sum(), group.throttled.sum(), wait[0], wait[1]));
+        }
+        metrics.sort(Comparator.comparing(GroupMetrics::getGroup));
+        return metrics;
+    }
+    
+    /** Time each run of a group's tasks spent parked, for metrics. */
+    public LatencyHistogram getGroupWaitHistogram(String group) {
+        GroupLimiter limiter = groups.get(group);
+        return limiter != null ? limiter.waitMicros : null;
+    }
+    
+    private GroupLimiter groupOf(ScheduledTask task) {
+        String name = task.getResourceGroup();
+        return name != null ? groups.get(name) : null;
+    }
+    
+    public DispatchPolicy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Switches the dispatch order; the dispatcher thread applies it before its
+     * next release.
+     */
+    public void setPolicy(DispatchPolicy policy) {
+        this.policy = policy;
+        LockSupport.unpark(worker);
+    }
+    
+    public int getQueuedCount() {
+        return queued.get();
+    }
+    
+    public int getLaneDepth(TaskPriority priority) {
+        return laneFor(priority).depth.get();
+    }
+    
+    public List<LaneMetrics> getLaneMetrics() {
+        List<LaneMetrics> metrics = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            metrics.add(new LaneMetrics(lane.priority, lane.depth.get(), lane.dispatched.sum(),
+                lane.waitMicros.percentile(50), lane.waitMicros.percentile(99)));
+        }
+        return metrics;
+    }
+    
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+    
+    private Lane laneFor(TaskPriority priority) {
+        return lanes[lanes.length - 1 - priority.ordinal()];
+    }
+    
+    private void run() {
+        while (running) {
+            if (!dispatchAvailable()) {
+                waiting = true;
+                if (running && !canDispatch()) {
+                    LockSupport.parkNanos(this, Math.min(IDLE_PARK_NANOS, permitWaitNanos));
+                }
+                waiting = false;
+            }
+        }
+    }
+    
+    private boolean canDispatch() {
+        return queued.get() > parkedCount && inFlight.get() < capacity.getAsInt();
+    }
+    
+    private boolean dispatchAvailable() {
+        int limit = capacity.getAsInt();
+        DispatchPolicy next = policy;
+        if (next != applied) {
+            apply(next);
+        }
+        permitWaitNanos = Long.MAX_VALUE;
+        boolean dispatched = parkedCount > 0 && dispatchParked(limit);
+        if (next != DispatchPolicy.PRIORITY) {
+            return dispatchOrdered(limit) || dispatched;
+        }
+        dispatched |= agingNanos > 0 && dispatchAged(limit);
+        
+        while (queued.get() > parkedCount && inFlight.get() < limit) {
+            Lane lane = lanes[current];
+            if (lane.queue.isEmpty()) {
+                lane.deficit = 0;
+                current = (current + 1) % lanes.length;
+                continue;
+            }
+            if (lane.deficit <= 0) {
+                lane.deficit += lane.priority.getWeight();
+            }
+            while (lane.deficit > 0 && inFlight.get() < limit) {
+                Entry entry = lane.poll();
+                if (entry == null) {
+                    lane.deficit = 0;
+                    break;
+                }
+                if (admit(lane, entry)) {
+                    lane.deficit--;
+                }
+                dispatched = true;
+            }
+            if (lane.deficit <= 0) {
+                current = (current + 1) % lanes.length;
+            }
+        }
+        return dispatched;
+    }
+    
+    private boolean dispatchAged(int limit) {
+        boolean dispatched = false;
+        long now = System.nanoTime();
+        for (Lane lane : lanes) {
+            Entry head = lane.queue.peek();
+            while (head != null && now - head.readyAtNanos > agingNanos && inFlight.get() < limit) {
+                admit(lane, lane.poll());
+                dispatched = true;
+                head = lane.queue.peek();
+            }
+        }
+        return dispatched;
+    }
+    
+    /**
+     * Moves newly due tasks from the lanes into the heap, then releases aged
+     * tasks, then the rest in heap order, while workers are free.
+     */
+    private boolean dispatchOrdered(int limit) {
+        for (Lane lane : lanes) {
+            Entry entry;
+            while ((entry = lane.poll()) != null) {
+                entry.key = keyOf(entry, applied);
+                ordered.add(entry);
+                if (agingNanos > 0) {
+                    lane.arrivals.add(entry);
+                }
+            }
+        }
+        
+        boolean dispatched = false;
+        if (agingNanos > 0) {
+            long now = System.nanoTime();
+            for (Lane lane : lanes) {
+                Entry head = lane.arrivals.peek();
+                while (head != null && inFlight.get() < limit) {
+                    if (head.isWaiting()) {
+                        if (now - head.readyAtNanos <= agingNanos) {
+                            break;
+                        }
+                        admit(lane, head);
+                        dispatched = true;
+                    }
+                    lane.arrivals.poll();
+                    head = lane.arrivals.peek();
+                }
+            }
+        }
+        while (inFlight.get() < limit) {
+            Entry entry = ordered.poll();
+            if (entry == null) {
+                break;
+            }
+            if (entry.isWaiting()) {
+                admit(laneFor(entry.task.getPriority()), entry);
+                dispatched = true;
+            }
+        }
+        return dispatched;
+    }
+    
+    private long keyOf(Entry entry, DispatchPolicy policy) {
+        return policy == DispatchPolicy.EARLIEST_DEADLINE
+            ? entry.deadlineNanos
+            : estimateMicros.applyAsLong(entry.task);
+    }
+    
+    /**
+     * Re-sorts the tasks held in the heap under a new policy, or hands them
+     * back to the front of their lanes, oldest first, for priority dispatch.
+     */
+    private void apply(DispatchPolicy next) {
+        List<Entry> waiting = new ArrayList<>(ordered.size());
+        for (Entry entry : ordered) {
+            if (entry.isWaiting()) {
+                waiting.add(entry);
+            }
+        }
+        ordered.clear();
+        for (Lane lane : lanes) {
+            lane.arrivals.clear();
+        }
+        waiting.sort(Comparator.comparingLong(e -> e.readyAtNanos));
+        if (next == DispatchPolicy.PRIORITY) {
+            for (int i = waiting.size() - 1; i >= 0; i--) {
+                Entry entry = waiting.get(i);
+                laneFor(entry.task.getPriority()).queue.offerFirst(entry);
+            }
+        } else {
+            for (Entry entry : waiting) {
+                entry.key = keyOf(entry, next);
+                ordered.add(entry);
+                if (agingNanos > 0) {
+                    laneFor(entry.task.getPriority()).arrivals.add(entry);
+                }
+            }
+        }
+        applied = next;
+    }
+    
+    /**
+     * Dispatches a task if its resource group lets it start now, otherwise
+     * parks it behind the group's other parked tasks.
+     *
+     * @return whether the task was dispatched
+     */
+    private boolean admit(Lane lane, Entry entry) {
+        GroupLimiter group = groupOf(entry.task);
+        if (group != null && (!group.parked.isEmpty() || group.tryAcquire(System.nanoTime()) != GroupLimiter.ACQUIRED)) {
+            entry.parked = true;
+            entry.parkedAtNanos = System.nanoTime();
+            group.parked.add(entry);
+            group.parkedDepth++;
+            group.throttled.increment();
+            parkedCount++;
+            return false;
+        }
+        dispatch(lane, entry);
+        return true;
+    }
+    
+    /**
+     * Releases parked tasks, oldest first within each group, while their
+     * groups have permits and workers are free, and notes how soon the next
+     * rate permit is due.
+     */
+    private boolean dispatchParked(int limit) {
+        boolean dispatched = false;
+        long now = System.nanoTime();
+        long nextPermit = Long.MAX_VALUE;
+        for (GroupLimiter group : groups.values()) {
+            Entry head = group.parked.peek();
+            while (head != null && inFlight.get() < limit) {
+                long wait = group.tryAcquire(now);
+                if (wait != GroupLimiter.ACQUIRED) {
+                    if (wait > 0) {
+                        nextPermit = Math.min(nextPermit, wait);
+                    }
+                    break;
+                }
+                group.parked.poll();
+                group.parkedDepth--;
+                parkedCount--;
+                group.waitMicros.record(TimeUnit.NANOSECONDS.toMicros(now - head.parkedAtNanos));
+                dispatch(laneFor(head.task.getPriority()), head);
+                dispatched = true;
+                head = group.parked.peek();
+            }
+        }
+        permitWaitNanos = nextPermit;
+        return dispatched;
+    }
+    
+    private void dispatch(Lane lane, Entry entry) {
+        entry.taken = true;
+        entry.parked = false;
+        lane.depth.decrementAndGet();
+        queued.decrementAndGet();
+        if (withdrawn.test(entry.task)) {
+            // Hand back the group slot it was just given; it never counted against the pool
+            GroupLimiter group = groupOf(entry.task);
+            if (group != null) {
+                group.release();
+            }
+            return;
+        }
+        if (entry.platform) {
+            inFlight.incrementAndGet();
+        }
+        lane.dispatched.increment();
+        lane.waitMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - entry.readyAtNanos));
+        try {
+            sink.dispatch(entry.task, entry.readyAtNanos);
+        } catch (RuntimeException e) {
+            release(entry.task);
+            System.err.println("Lane dispatch error: " + entry.task.getName() + " - " + e.getMessage());
+        }
+    }
+    
+    private static final class Entry {
+        final ScheduledTask task;
+        final long readyAtNanos;
+        final long deadlineNanos;
+        final boolean platform;
+        long key;
+        boolean taken;
+        boolean parked;
+        long parkedAtNanos;
+        
+        Entry(ScheduledTask task, long readyAtNanos, long deadlineNanos, boolean platform) {
+            this.task = task;
+            this.readyAtNanos = readyAtNanos;
+            this.deadlineNanos = deadlineNanos;
+            this.platform = platform;
+        }
+        
+        /** Neither dispatched nor parked in a resource group. */
+        boolean isWaiting() {
+            return !taken && !parked;
+        }
+    }
+    
+    /**
+     * Slots and rate permits of one resource group. The rate is a token
+     * bucket kept as a single theoretical arrival time (GCRA): a permit is
+     * free once that time is no more than the burst allowance ahead of now,
+     * and taking one moves it on by one interval, in a single CAS.
+     */
+    private static final class GroupLimiter {
+        static final long ACQUIRED = 0;
+        static final long NO_SLOT = -1;
+        
+        volatile ResourceGroup limits;
+        private volatile long intervalNanos;
+        private volatile long toleranceNanos;
+        final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicLong theoreticalNanos = new AtomicLong(System.nanoTime());
+        final LongAdder started = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        final LatencyHistogram waitMicros = new LatencyHistogram(1);
+        // Dispatcher thread only, apart from reading the depth for metrics
+        final ArrayDeque<Entry> parked = new ArrayDeque<>();
+        volatile int parkedDepth;
+        
+        GroupLimiter(ResourceGroup limits) {
+            update(limits);
+        }
+        
+        void update(ResourceGroup limits) {
+            double rate = limits.getPermitsPerSecond();
+            long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+            this.intervalNanos = interval;
+            this.toleranceNanos = interval * (limits.getBurst() - 1);
+            this.limits = limits;
+        }
+        
+        /**
+         * Takes a slot and a permit. Returns {@link #ACQUIRED}, {@link #NO_SLOT}
+         * when the group is at its concurrency cap, or else the nanos until the
+         * next rate permit.
+         */
+        long tryAcquire(long now) {
+            int max = limits.getMaxConcurrent();
+            int current;
+            do {
+                current = running.get();
+                if (max != ResourceGroup.UNLIMITED && current >= max) {
+                    return NO_SLOT;
+                }
+            } while (!running.compareAndSet(current, current + 1));
+            
+            long interval = intervalNanos;
+            if (interval > 0) {
+                while (true) {
+                    long tat = theoreticalNanos.get();
+                    long start = tat - now > 0 ? tat : now;
+                    long wait = start - toleranceNanos - now;
+                    if (wait > 0) {
+                        running.decrementAndGet();
+                        return wait;
+                    }
+                    if (theoreticalNanos.compareAndSet(tat, start + interval)) {
+                        break;
+                    }
+                }
+            }
+            started.increment();
+            return ACQUIRED;
+        }
+        
+        void release() {
+            // Never below zero, should the group have been defined while the task ran
+            running.getAndUpdate(n -> n > 0 ? n - 1 : 0);
+        }
+    }
+    
+    private static final class Lane {
+        final TaskPriority priority;
+        final ConcurrentLinkedDeque<Entry> queue = new ConcurrentLinkedDeque<>();
+        // Tasks of this lane in the heap, oldest first, for aging; dispatcher thread only
+        final ArrayDeque<Entry> arrivals = new ArrayDeque<>();
+        // Waiting in the lane or the heap; only drops when a task is dispatched
+        final AtomicInteger depth = new AtomicInteger(0);
+        final LongAdder dispatched = new LongAdder();
+        final LatencyHistogram waitMicros = new LatencyHistogram();
+        int deficit;
+        
+        Lane(TaskPriority priority) {
+            this.priority = priority;
+        }
+        
+        void add(Entry entry) {
+            queue.add(entry);
+            depth.incrementAndGet();
+        }
+        
+        Entry poll() {
+            return queue.poll();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.scheduler.core;
+
+import java.util.concurrent.Future;
+
+/**
+ * A platform-thread backend the pool controller can resize at runtime.
+ */
+public interface ResizableTaskExecutor extends TaskExecutor {
+    Future<?> submit(Runnable task, Object affinityKey);
+    void setTargetPoolSize(int threads);
+    int getTargetPoolSize();
+    int getPoolSize();
+    int getQueueDepth();
+}
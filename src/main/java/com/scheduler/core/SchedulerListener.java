@@ -0,0 +1,17 @@
+package com.scheduler.core;
+
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskExecutionRecord;
+import com.scheduler.model.TaskStatus;
+
+/**
+ * Callback for task lifecycle events. Listeners are called on the scheduler's
+ * worker threads, so implementations must return quickly and must not block.
+ */
+public interface SchedulerListener {
+    default void onStatusChanged(ScheduledTask task, TaskStatus status) {
+    }
+    
+    default void onExecutionRecorded(TaskExecutionRecord record) {
+    }
+}
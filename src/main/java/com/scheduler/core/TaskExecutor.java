@@ -0,0 +1,11 @@
+package com.scheduler.core;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public interface TaskExecutor {
+    Future<?> submit(Runnable task);
+    int getActiveCount();
+    void shutdown();
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,135 @@
+package com.scheduler.core;
+
+import com.scheduler.model.ScheduledTask;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of tasks with dependencies between them, scheduled as one unit with
+ * {@link DistributedTaskScheduler#scheduleGraph}. A task runs as soon as all of
+ * its predecessors have completed, rather than at a guessed time offset; its
+ * scheduled time only matters if it is still in the future by then. If a task
+ * fails for good, everything downstream of it is cancelled.
+ *
+ * Predecessors have to be added before the tasks that depend on them, so a
+ * graph can never contain a cycle. Among tasks that become ready together, the
+ * one heading the longest remaining chain of estimated durations goes first.
+ */
+public class TaskGraph {
+    private final String id;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    
+    public TaskGraph() {
+        this("g-" + UUID.randomUUID().toString().substring(0, 8));
+    }
+    
+    public TaskGraph(String id) {
+        this.id = id;
+    }
+    
+    /**
+     * Adds {@code task}, to run after every task in {@code dependsOn} has
+     * completed. Those must already be in this graph.
+     */
+    public TaskGraph add(ScheduledTask task, ScheduledTask... dependsOn) {
+        if (task.isRecurring()) {
+            throw new IllegalArgumentException("Recurring task " + task.getName() + " cannot be part of a graph");
+        }
+        if (nodes.containsKey(task.getId())) {
+            throw new IllegalArgumentException("Task " + task.getName() + " is already in graph " + id);
+        }
+        Node node = node(task);
+        for (ScheduledTask predecessor : dependsOn) {
+            Node pred = nodes.get(predecessor.getId());
+            if (pred == null || pred == node) {
+                throw new IllegalArgumentException("Predecessor " + predecessor.getName()
+                    + " must be added to graph " + id + " before " + task.getName());
+            }
+            link(pred, node);
+        }
+        return this;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public int size() {
+        return nodes.size();
+    }
+    
+    Node node(ScheduledTask task) {
+        task.setGraphId(id);
+        return nodes.computeIfAbsent(task.getId(), k -> new Node(task));
+    }
+    
+    static void link(Node pred, Node succ) {
+        pred.successors.add(succ);
+        succ.predecessors.add(pred);
+        succ.waiting.incrementAndGet();
+    }
+    
+    Node find(String taskId) {
+        return nodes.get(taskId);
+    }
+    
+    Collection<Node> nodes() {
+        return nodes.values();
+    }
+    
+    /**
+     * Sets each task's critical path: its own estimate plus the longest path
+     * among its successors. Walks the graph in reverse topological order.
+     */
+    void computeCriticalPaths() {
+        List<Node> order = topologicalOrder();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            long longest = 0;
+            for (Node succ : node.successors) {
+                longest = Math.max(longest, succ.task.getCriticalPathMillis());
+            }
+            node.task.setCriticalPathMillis(node.task.getEstimatedDuration().toMillis() + longest);
+        }
+    }
+    
+    private List<Node> topologicalOrder() {
+        Map<Node, Integer> inDegree = new HashMap<>();
+        ArrayDeque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes.values()) {
+            inDegree.put(node, node.predecessors.size());
+            if (node.predecessors.isEmpty()) {
+                ready.add(node);
+            }
+        }
+        List<Node> order = new ArrayList<>(nodes.size());
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            order.add(node);
+            for (Node succ : node.successors) {
+                if (inDegree.merge(succ, -1, Integer::sum) == 0) {
+                    ready.add(succ);
+                }
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Runtime state of one task in a graph. {@code waiting} counts predecessors
+     * that have not completed yet; the decrement that takes it to zero makes
+     * the task ready, so exactly one completing predecessor releases it.
+     */
+    static final class Node {
+        final ScheduledTask task;
+        final List<Node> successors = new ArrayList<>();
+        final List<Node> predecessors = new ArrayList<>();
+        final AtomicInteger waiting = new AtomicInteger(0);
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        
+        Node(ScheduledTask task) {
+            this.task = task;
+        }
+    }
+}
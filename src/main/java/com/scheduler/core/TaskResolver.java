@@ -0,0 +1,19 @@
+package com.scheduler.core;
+
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskPriority;
+import java.time.Instant;
+
+/**
+ * Rebuilds a runnable task from its persisted row, so a node can run tasks that
+ * were scheduled by another node. Only the row is stored, not the action, so the
+ * resolver maps it back to code, typically by task name.
+ */
+@FunctionalInterface
+public interface TaskResolver {
+    /**
+     * @return the task to run under {@code taskId}, or null if this node cannot
+     *         run it, in which case the row is left for other nodes
+     */
+    ScheduledTask resolve(String taskId, String name, TaskPriority priority, Instant nextFireTime);
+}
@@ -0,0 +1,318 @@
+package com.scheduler.core;
+
+import com.scheduler.model.TaskIds;
+import com.scheduler.model.TaskState;
+import com.scheduler.model.TaskStatus;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Status of every task the scheduler is tracking, keyed by {@link TaskIds#key}
+ * in open-addressing tables with linear probing. A task takes two longs: its
+ * key, and its status packed with the time of its last change. There are no
+ * per-task objects for the collector to trace. Each table grows by half when
+ * it is 80% full, so it never drops below about 53% full, which keeps a task
+ * under 32 bytes. The tables are spread over segments that each have a
+ * StampedLock: lookups are usually optimistic reads without locking, and
+ * writers only contend within a segment.
+ *
+ * Tasks that have been finished (completed, failed or cancelled) for longer
+ * than the TTL are evicted by a sweeper thread, backward-shifting the
+ * entries that follow instead of leaving tombstones. Their final status
+ * stays in the task store. Ids without a 64-bit key, e.g. ones chosen by
+ * hand, are kept in a small map on the side.
+ */
+public class TaskStateTable {
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int MIN_CAPACITY = 256;
+    private static final int MAX_LOAD_PERCENT = 80;
+    private static final long MIN_SWEEP_INTERVAL_MS = 1000;
+    private static final int STATUS_BITS = 4;
+    private static final long STATUS_MASK = (1L << STATUS_BITS) - 1;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Map<String, Long> unkeyed = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final AtomicLong evicted = new AtomicLong(0);
+    private final Thread sweeper;
+    private volatile boolean closed;
+    
+    public TaskStateTable() {
+        this(DEFAULT_TTL);
+    }
+    
+    public TaskStateTable(Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        this.sweeper = new Thread(this::runSweeper, "Task-State-Sweeper");
+        this.sweeper.setDaemon(true);
+        this.sweeper.start();
+    }
+    
+    public void put(String taskId, TaskStatus status) {
+        long state = pack(status, System.currentTimeMillis());
+        long key = TaskIds.key(taskId);
+        if (key == 0) {
+            unkeyed.put(taskId, state);
+            return;
+        }
+        long hash = hash(key);
+        segments[(int) (hash >>> (64 - SEGMENT_BITS))].put(key, hash, state);
+    }
+    
+    /** Last known status of a tracked task, or null. */
+    public TaskStatus getStatus(String taskId) {
+        long state = lookup(taskId);
+        return state != 0 ? statusOf(state) : null;
+    }
+    
+    /** The tracked state of a task, or null if it is not (or no longer) tracked. */
+    public TaskState get(String taskId) {
+        long state = lookup(taskId);
+        if (state == 0) {
+            return null;
+        }
+        return new TaskState(taskId, statusOf(state), TaskIds.createdAt(taskId),
+            Instant.ofEpochMilli(state >>> STATUS_BITS), true);
+    }
+    
+    private long lookup(String taskId) {
+        long key = TaskIds.key(taskId);
+        if (key == 0) {
+            Long state = unkeyed.get(taskId);
+            return state != null ? state : 0;
+        }
+        long hash = hash(key);
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))].get(key, hash);
+    }
+    
+    public long size() {
+        long size = unkeyed.size();
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+    
+    /** Bytes held by the tables' slot arrays, not counting ids kept on the side. */
+    public long getTableBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += (long) segment.slots.length * Long.BYTES;
+        }
+        return bytes;
+    }
+    
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+    
+    /**
+     * Evicts tasks that finished more than the TTL before {@code nowMillis}.
+     *
+     * @return the number of tasks evicted
+     */
+    public int sweep(long nowMillis) {
+        long cutoff = nowMillis - ttlMillis;
+        int removed = 0;
+        for (Segment segment : segments) {
+            removed += segment.sweep(cutoff);
+        }
+        Iterator<Map.Entry<String, Long>> it = unkeyed.entrySet().iterator();
+        while (it.hasNext()) {
+            if (expired(it.next().getValue(), cutoff)) {
+                it.remove();
+                removed++;
+            }
+        }
+        evicted.addAndGet(removed);
+        return removed;
+    }
+    
+    public void close() {
+        closed = true;
+        sweeper.interrupt();
+    }
+    
+    private void runSweeper() {
+        long interval = Math.max(MIN_SWEEP_INTERVAL_MS, ttlMillis / 4);
+        while (!closed) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sweep(System.currentTimeMillis());
+        }
+    }
+    
+    private static long pack(TaskStatus status, long millis) {
+        return millis << STATUS_BITS | (status.ordinal() + 1);
+    }
+    
+    private static TaskStatus statusOf(long state) {
+        return STATUSES[(int) (state & STATUS_MASK) - 1];
+    }
+    
+    private static boolean expired(long state, long cutoff) {
+        TaskStatus status = statusOf(state);
+        boolean finished = status == TaskStatus.COMPLETED || status == TaskStatus.FAILED
+            || status == TaskStatus.CANCELLED;
+        return finished && (state >>> STATUS_BITS) < cutoff;
+    }
+    
+    private static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+    
+    /**
+     * One open-addressing table. Slot i is {@code slots[2i]} (the key, 0 when
+     * empty) and {@code slots[2i + 1]} (the packed state), so one array read
+     * gives a reader a consistent capacity.
+     */
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        volatile long[] slots = new long[MIN_CAPACITY * 2];
+        volatile int size;
+        
+        long get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            long state = find(slots, key, hash);
+            if (lock.validate(stamp)) {
+                return state;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(slots, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        
+        private static long find(long[] table, long key, long hash) {
+            int capacity = table.length >> 1;
+            int i = home(hash, capacity);
+            // Bounded, since an optimistic reader may see the table mid-write
+            for (int probes = 0; probes < capacity; probes++) {
+                long k = table[i << 1];
+                if (k == key) {
+                    return table[(i << 1) + 1];
+                }
+                if (k == 0) {
+                    return 0;
+                }
+                i = i + 1 == capacity ? 0 : i + 1;
+            }
+            return 0;
+        }
+        
+        void put(long key, long hash, long state) {
+            long stamp = lock.writeLock();
+            try {
+                long[] table = slots;
+                int capacity = table.length >> 1;
+                int i = home(hash, capacity);
+                while (true) {
+                    long k = table[i << 1];
+                    if (k == key) {
+                        table[(i << 1) + 1] = state;
+                        return;
+                    }
+                    if (k == 0) {
+                        break;
+                    }
+                    i = i + 1 == capacity ? 0 : i + 1;
+                }
+                table[(i << 1) + 1] = state;
+                table[i << 1] = key;
+                size++;
+                if ((long) size * 100 > (long) capacity * MAX_LOAD_PERCENT) {
+                    grow(table);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        
+        private void grow(long[] table) {
+            int capacity = table.length >> 1;
+            int grown = capacity + (capacity >> 1);
+            long[] next = new long[grown * 2];
+            for (int j = 0; j < capacity; j++) {
+                long key = table[j << 1];
+                if (key != 0) {
+                    int i = home(hash(key), grown);
+                    while (next[i << 1] != 0) {
+                        i = i + 1 == grown ? 0 : i + 1;
+                    }
+                    next[i << 1] = key;
+                    next[(i << 1) + 1] = table[(j << 1) + 1];
+                }
+            }
+            slots = next;
+        }
+        
+        int sweep(long cutoff) {
+            long stamp = lock.writeLock();
+            try {
+                long[] table = slots;
+                int capacity = table.length >> 1;
+                int removed = 0;
+                int i = 0;
+                while (i < capacity) {
+                    if (table[i << 1] != 0 && expired(table[(i << 1) + 1], cutoff)) {
+                        // Re-check slot i, which may now hold a shifted entry
+                        remove(table, i, capacity);
+                        removed++;
+                    } else {
+                        i++;
+                    }
+                }
+                size -= removed;
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        
+        /**
+         * Empties slot {@code hole} and moves back any later entry of the
+         * same probe run that would otherwise become unreachable.
+         */
+        private static void remove(long[] table, int hole, int capacity) {
+            int i = hole;
+            while (true) {
+                i = i + 1 == capacity ? 0 : i + 1;
+                long key = table[i << 1];
+                if (key == 0) {
+                    break;
+                }
+                int home = home(hash(key), capacity);
+                // Movable unless its home lies cyclically in (hole, i]
+                boolean between = hole <= i ? home > hole && home <= i : home > hole || home <= i;
+                if (!between) {
+                    table[hole << 1] = key;
+                    table[(hole << 1) + 1] = table[(i << 1) + 1];
+                    hole = i;
+                }
+            }
+            table[hole << 1] = 0;
+            table[(hole << 1) + 1] = 0;
+        }
+        
+        private static int home(long hash, int capacity) {
+            return (int) (((hash >>> 16) & 0xFFFFFFFFL) * capacity >>> 32);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.scheduler.core;
+
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskPriority;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named task types used to rebind persisted tasks to code. The database only
+ * keeps a task's row, so after a restart (or on another cluster node) the task
+ * name is looked up here and the registered template supplies the action,
+ * estimate, execution mode, affinity key and recurrence.
+ */
+public class TaskTypeRegistry implements TaskResolver {
+    private final Map<String, ScheduledTask> templates = new ConcurrentHashMap<>();
+    
+    public TaskTypeRegistry register(String name, Runnable action) {
+        return register(new ScheduledTask(name, TaskPriority.MEDIUM, action, Duration.ZERO, Instant.EPOCH));
+    }
+    
+    /**
+     * Registers {@code template} under its name. Only its action and settings
+     * are used; id, priority and fire time come from the persisted row.
+     */
+    public TaskTypeRegistry register(ScheduledTask template) {
+        templates.put(template.getName(), template);
+        return this;
+    }
+    
+    public boolean contains(String name) {
+        return templates.containsKey(name);
+    }
+    
+    public int size() {
+        return templates.size();
+    }
+    
+    @Override
+    public ScheduledTask resolve(String taskId, String name, TaskPriority priority, Instant nextFireTime) {
+        ScheduledTask template = templates.get(name);
+        return template != null ? template.rebind(taskId, priority, nextFireTime) : null;
+    }
+}
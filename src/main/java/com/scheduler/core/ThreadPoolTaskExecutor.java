@@ -0,0 +1,86 @@
+package com.scheduler.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared-queue backend on a ThreadPoolExecutor. With an unbounded queue the
+ * executor never grows past its core size on its own, so the target size is
+ * applied to the core and maximum sizes together. Lowering the maximum makes
+ * surplus threads exit as soon as they are idle; lowering only the core size
+ * would leave them to the keep-alive, which never expires while the queue
+ * hands a trickle of tasks to each idle thread in turn. Affinity keys are
+ * ignored.
+ */
+public class ThreadPoolTaskExecutor implements ResizableTaskExecutor {
+    private final ThreadPoolExecutor executor;
+    
+    public ThreadPoolTaskExecutor(int minThreads, int maxThreads) {
+        this.executor = new ThreadPoolExecutor(
+            minThreads, minThreads,
+            60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Worker-" + threadNumber.getAndIncrement());
+                    t.setDaemon(false);
+                    return t;
+                }
+            }
+        );
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task, Object affinityKey) {
+        return executor.submit(task);
+    }
+    
+    @Override
+    public synchronized void setTargetPoolSize(int threads) {
+        // The maximum may never be below the core size, so the order depends on the direction
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+    
+    @Override
+    public int getTargetPoolSize() {
+        return executor.getCorePoolSize();
+    }
+    
+    @Override
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+    
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+    
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
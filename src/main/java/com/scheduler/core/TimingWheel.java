@@ -0,0 +1,388 @@
+package com.scheduler.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hashed hierarchical timing wheel driven by a single dispatcher thread.
+ *
+ * Level 0 has one slot per tick; every higher level covers 64 slots of the
+ * level below and is cascaded down when the lower level wraps. Inserts and
+ * cancels are O(1): callers only enqueue onto lock-free queues that the wheel
+ * thread drains whenever it wakes. The thread does not wake for every tick:
+ * it parks until the next tick with an occupied slot at any level, and
+ * outright while the wheel is empty. Items expiring in the same tick
+ * are handed to the expiry handler in {@code order}, so a due LOW item is
+ * never held back by a CRITICAL item that is due later.
+ */
+public class TimingWheel<T> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+    private static final int MAX_INSERTS_PER_TICK = 100_000;
+    
+    private final Bucket<T>[][] wheels;
+    private final long tickNanos;
+    private final Consumer<T> expiryHandler;
+    private final Comparator<? super T> order;
+    private final ConcurrentLinkedQueue<Timeout<T>> pendingInserts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout<T>> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final List<T> expired = new ArrayList<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Thread worker;
+    private volatile long startNanos;
+    private volatile boolean idle;
+    // When the parked wheel thread will next wake on its own
+    private volatile long wakeNanos;
+    private long currentTick;
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(String name, long tickDuration, TimeUnit unit,
+                       Consumer<T> expiryHandler, Comparator<? super T> order) {
+        this.tickNanos = Math.max(unit.toNanos(tickDuration), 1);
+        this.expiryHandler = expiryHandler;
+        this.order = order;
+        this.wheels = new Bucket[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new Bucket<>();
+            }
+        }
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+    
+    public void start() {
+        if (running.compareAndSet(false, true)) {
+            startNanos = System.nanoTime();
+            worker.start();
+        }
+    }
+    
+    public Timeout<T> schedule(T item, long delay, TimeUnit unit) {
+        Timeout<T> timeout = new Timeout<>(this, item);
+        arm(timeout, System.nanoTime() + Math.max(unit.toNanos(delay), 0));
+        return timeout;
+    }
+    
+    /**
+     * Arms many items at once, each due at the {@link System#nanoTime()} value
+     * {@code deadlineNanos} gives for it. The whole batch is appended to the
+     * insert queue in one operation, and the wheel thread places it over the
+     * next ticks.
+     */
+    public List<Timeout<T>> scheduleAll(List<? extends T> items, ToLongFunction<? super T> deadlineNanos) {
+        List<Timeout<T>> timeouts = new ArrayList<>(items.size());
+        long earliest = Long.MAX_VALUE;
+        for (T item : items) {
+            Timeout<T> timeout = new Timeout<>(this, item);
+            timeout.deadlineNanos = deadlineNanos.applyAsLong(item);
+            earliest = Math.min(earliest, timeout.deadlineNanos);
+            timeouts.add(timeout);
+        }
+        if (timeouts.isEmpty()) {
+            return timeouts;
+        }
+        size.addAndGet(timeouts.size());
+        pendingInserts.addAll(timeouts);
+        wakeFor(earliest);
+        return timeouts;
+    }
+    
+    /**
+     * Re-arms a timeout that has already fired, reusing its node. Returns
+     * false if the timeout is still pending or was cancelled.
+     */
+    public boolean reschedule(Timeout<T> timeout, long delay, TimeUnit unit) {
+        if (!Timeout.STATE.compareAndSet(timeout, Timeout.EXPIRED, Timeout.INIT)) {
+            return false;
+        }
+        arm(timeout, System.nanoTime() + Math.max(unit.toNanos(delay), 0));
+        return true;
+    }
+    
+    private void arm(Timeout<T> timeout, long deadlineNanos) {
+        timeout.deadlineNanos = deadlineNanos;
+        size.incrementAndGet();
+        pendingInserts.add(timeout);
+        wakeFor(deadlineNanos);
+    }
+    
+    /**
+     * Unparks the wheel thread if it would otherwise sleep past {@code deadlineNanos}.
+     * The insert must already be queued: the thread publishes its wake time
+     * before its last look at the queue, so one of the two sees the other.
+     */
+    private void wakeFor(long deadlineNanos) {
+        if (idle || deadlineNanos - wakeNanos < 0) {
+            LockSupport.unpark(worker);
+        }
+    }
+    
+    public int size() {
+        return size.get();
+    }
+    
+    public void stop() {
+        running.set(false);
+        LockSupport.unpark(worker);
+    }
+    
+    private void run() {
+        while (running.get()) {
+            processCancels();
+            transferInserts();
+            // Work through the ticks that have ended, jumping over empty ones
+            long endedTick = tickOf(System.nanoTime());
+            while (currentTick < endedTick) {
+                long next = nextOccupiedTick();
+                if (next >= endedTick) {
+                    currentTick = endedTick;
+                    break;
+                }
+                currentTick = next;
+                advance();
+            }
+            fireExpired();
+            park();
+        }
+    }
+    
+    private void park() {
+        long next = size.get() == 0 ? Long.MAX_VALUE : nextOccupiedTick();
+        if (next == Long.MAX_VALUE) {
+            idle = true;
+            if (pendingInserts.isEmpty() && running.get()) {
+                LockSupport.park(this);
+            }
+            idle = false;
+            return;
+        }
+        long wake = startNanos + (next + 1) * tickNanos;
+        wakeNanos = wake;
+        long sleep = wake - System.nanoTime();
+        if (sleep > 0 && pendingInserts.isEmpty() && running.get()) {
+            LockSupport.parkNanos(this, sleep);
+        }
+    }
+    
+    /**
+     * The first tick from {@code currentTick} on at which {@link #advance()}
+     * has a non-empty bucket to expire or cascade, or Long.MAX_VALUE.
+     */
+    private long nextOccupiedTick() {
+        long best = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = WHEEL_BITS * level;
+            long span = 1L << shift;
+            // Buckets of this level are handled on ticks that are multiples of span
+            long base = (currentTick + span - 1) & -span;
+            if (base >= best) {
+                break;
+            }
+            int from = (int) ((base >>> shift) & WHEEL_MASK);
+            Bucket<T>[] wheel = wheels[level];
+            for (int offset = 0; offset < WHEEL_SIZE; offset++) {
+                if (wheel[(from + offset) & WHEEL_MASK].head != null) {
+                    best = Math.min(best, base + offset * span);
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+    
+    private void processCancels() {
+        Timeout<T> timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+    
+    private void transferInserts() {
+        long now = System.nanoTime();
+        for (int i = 0; i < MAX_INSERTS_PER_TICK; i++) {
+            Timeout<T> timeout = pendingInserts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.deadlineNanos - now <= 0) {
+                expire(timeout);
+            } else {
+                place(timeout);
+            }
+        }
+    }
+    
+    private void place(Timeout<T> timeout) {
+        if (timeout.state != Timeout.INIT) {
+            return;
+        }
+        long deadlineTick = Math.max(tickOf(timeout.deadlineNanos), currentTick);
+        long delta = Math.min(deadlineTick - currentTick, MAX_DELAY_TICKS);
+        int level = 0;
+        while (delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        long slotTick = delta == MAX_DELAY_TICKS ? currentTick + delta : deadlineTick;
+        int slot = (int) ((slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][slot].add(timeout);
+    }
+    
+    private long tickOf(long nanos) {
+        return (nanos - startNanos) / tickNanos;
+    }
+    
+    private void advance() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            long span = 1L << (WHEEL_BITS * level);
+            if ((currentTick & (span - 1)) == 0) {
+                int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                Bucket<T> bucket = wheels[level][slot];
+                for (Timeout<T> t = bucket.drain(); t != null; ) {
+                    Timeout<T> next = t.next;
+                    t.next = null;
+                    place(t);
+                    t = next;
+                }
+            }
+        }
+        
+        Bucket<T> due = wheels[0][(int) (currentTick & WHEEL_MASK)];
+        for (Timeout<T> t = due.drain(); t != null; ) {
+            Timeout<T> next = t.next;
+            t.next = null;
+            expire(t);
+            t = next;
+        }
+        currentTick++;
+    }
+    
+    private void expire(Timeout<T> timeout) {
+        if (Timeout.STATE.compareAndSet(timeout, Timeout.INIT, Timeout.EXPIRED)) {
+            size.decrementAndGet();
+            expired.add(timeout.item);
+        }
+    }
+    
+    private void fireExpired() {
+        if (expired.isEmpty()) {
+            return;
+        }
+        if (order != null && expired.size() > 1) {
+            expired.sort(order);
+        }
+        for (T item : expired) {
+            try {
+                expiryHandler.accept(item);
+            } catch (RuntimeException e) {
+                System.err.println("Timing wheel handler error: " + e.getMessage());
+            }
+        }
+        expired.clear();
+    }
+    
+    public static final class Timeout<T> {
+        static final int INIT = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+        
+        private final TimingWheel<T> wheel;
+        private final T item;
+        private volatile int state = INIT;
+        private long deadlineNanos;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        
+        Timeout(TimingWheel<T> wheel, T item) {
+            this.wheel = wheel;
+            this.item = item;
+        }
+        
+        public T getItem() {
+            return item;
+        }
+        
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+        
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+        
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+                return false;
+            }
+            wheel.size.decrementAndGet();
+            wheel.pendingCancels.add(this);
+            return true;
+        }
+    }
+    
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+        
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+        
+        void remove(Timeout<T> timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+        
+        Timeout<T> drain() {
+            Timeout<T> first = head;
+            for (Timeout<T> t = first; t != null; t = t.next) {
+                t.bucket = null;
+                t.prev = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
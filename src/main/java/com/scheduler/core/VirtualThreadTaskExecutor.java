@@ -0,0 +1,62 @@
+package com.scheduler.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every task on its own virtual thread. Concurrency is bounded by a
+ * semaphore rather than a thread count: a task waiting for a permit is just a
+ * parked virtual thread, so blocking work never ties up a platform worker.
+ */
+public class VirtualThreadTaskExecutor implements TaskExecutor {
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger(0);
+    
+    public VirtualThreadTaskExecutor(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        this.executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("VWorker-", 1).factory());
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task) {
+        return executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                permits.release();
+            }
+        });
+    }
+    
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+    
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+    
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,197 @@
+package com.scheduler.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Backend with one deque per worker. A task with an affinity key always goes
+ * to the same worker (key hash modulo the current pool size), so related tasks
+ * run on a warm thread; keyless tasks are spread round robin. A worker takes
+ * from the head of its own deque and, when that is empty, steals from the tail
+ * of another worker's deque, so there is no single queue lock to contend on.
+ *
+ * Workers are started up to the target size on demand. Workers above the
+ * target after a shrink stop receiving and stealing work, finish their own
+ * deque and then stay parked until the pool grows again.
+ */
+public class WorkStealingTaskExecutor implements ResizableTaskExecutor {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private final Worker[] workers;
+    private final AtomicInteger startedWorkers = new AtomicInteger(0);
+    private final AtomicInteger roundRobin = new AtomicInteger(0);
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicInteger active = new AtomicInteger(0);
+    private volatile int targetSize;
+    private volatile boolean shutdown;
+    
+    public WorkStealingTaskExecutor(int minThreads, int maxThreads) {
+        this.workers = new Worker[maxThreads];
+        for (int i = 0; i < maxThreads; i++) {
+            workers[i] = new Worker(i);
+        }
+        setTargetPoolSize(minThreads);
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task) {
+        return submit(task, null);
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task, Object affinityKey) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        int size = targetSize;
+        int index = affinityKey != null
+            ? Math.floorMod(affinityKey.hashCode(), size)
+            : Math.floorMod(roundRobin.getAndIncrement(), size);
+        Worker worker = workers[index];
+        
+        queued.incrementAndGet();
+        worker.deque.offerLast(future);
+        if (worker.parked) {
+            LockSupport.unpark(worker.thread);
+        } else {
+            wakeIdleWorker(size);
+        }
+        return future;
+    }
+    
+    private void wakeIdleWorker(int size) {
+        for (int i = 0; i < size; i++) {
+            Worker worker = workers[i];
+            if (worker.parked) {
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void setTargetPoolSize(int threads) {
+        int size = Math.max(1, Math.min(threads, workers.length));
+        targetSize = size;
+        for (int i = startedWorkers.get(); i < size; i++) {
+            workers[i].start();
+            startedWorkers.incrementAndGet();
+        }
+        for (int i = 0; i < size; i++) {
+            if (workers[i].parked) {
+                LockSupport.unpark(workers[i].thread);
+            }
+        }
+    }
+    
+    @Override
+    public int getTargetPoolSize() {
+        return targetSize;
+    }
+    
+    @Override
+    public int getPoolSize() {
+        return startedWorkers.get();
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        return queued.get();
+    }
+    
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+    
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (int i = 0; i < startedWorkers.get(); i++) {
+            LockSupport.unpark(workers[i].thread);
+        }
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int i = 0; i < startedWorkers.get(); i++) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            workers[i].thread.join(remaining);
+            if (workers[i].thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private Runnable steal(Worker thief) {
+        // A worker runs before it is counted, so the first one can get here with none started
+        int started = startedWorkers.get();
+        if (started < 2) {
+            return null;
+        }
+        int offset = ThreadLocalRandom.current().nextInt(started);
+        for (int i = 0; i < started; i++) {
+            Worker victim = workers[(offset + i) % started];
+            if (victim != thief) {
+                Runnable task = victim.deque.pollLast();
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private final class Worker implements Runnable {
+        final int index;
+        final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+        volatile Thread thread;
+        volatile boolean parked;
+        
+        Worker(int index) {
+            this.index = index;
+        }
+        
+        void start() {
+            thread = new Thread(this, "Worker-" + (index + 1));
+            thread.setDaemon(false);
+            thread.start();
+        }
+        
+        @Override
+        public void run() {
+            while (true) {
+                boolean retired = index >= targetSize;
+                Runnable task = deque.pollFirst();
+                if (task == null && (!retired || shutdown)) {
+                    task = steal(this);
+                }
+                if (task != null) {
+                    queued.decrementAndGet();
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                    continue;
+                }
+                if (shutdown && queued.get() == 0) {
+                    return;
+                }
+                parked = true;
+                if (deque.isEmpty() && (retired || queued.get() == 0) && !shutdown) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.scheduler.database;
+
+import java.sql.*;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small fixed-bounds JDBC pool. Idle connections are kept on a LIFO deque so
+ * the warmest connection (and its statement cache) is reused first; a
+ * connection is re-validated on checkout once it has been idle for longer
+ * than the validation interval.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long validationIntervalNanos;
+    private final long acquireTimeoutMillis;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger(0);
+    private final AtomicInteger checkedOut = new AtomicInteger(0);
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder heldNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+    private volatile boolean closed;
+    
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long validationIntervalMillis) {
+        this(url, user, password, minSize, maxSize, validationIntervalMillis, 30_000);
+    }
+    
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long validationIntervalMillis, long acquireTimeoutMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                "Invalid pool bounds: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(validationIntervalMillis);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        
+        for (int i = 0; i < minSize; i++) {
+            try {
+                openConnections.incrementAndGet();
+                idle.offerFirst(open());
+            } catch (SQLException e) {
+                openConnections.decrementAndGet();
+                System.err.println("Error pre-filling connection pool: " + e.getMessage());
+                break;
+            }
+        }
+    }
+    
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        PooledConnection conn = idle.pollFirst();
+        
+        while (conn == null) {
+            int open = openConnections.get();
+            if (open < maxSize && openConnections.compareAndSet(open, open + 1)) {
+                try {
+                    conn = open();
+                } catch (SQLException e) {
+                    openConnections.decrementAndGet();
+                    throw e;
+                }
+                break;
+            }
+            if (open >= maxSize) {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis)
+                    - (System.nanoTime() - start);
+                try {
+                    conn = remaining > 0 ? idle.pollFirst(remaining, TimeUnit.NANOSECONDS) : null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a connection", e);
+                }
+                if (conn == null) {
+                    throw new SQLTimeoutException(
+                        "Timed out after " + acquireTimeoutMillis + "ms waiting for a connection");
+                }
+            }
+        }
+        
+        if (!validate(conn)) {
+            discard(conn);
+            return acquire();
+        }
+        
+        long now = System.nanoTime();
+        long waited = now - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        checkouts.increment();
+        checkedOut.incrementAndGet();
+        conn.checkedOutAt = now;
+        return conn;
+    }
+    
+    void release(PooledConnection conn) {
+        heldNanos.add(System.nanoTime() - conn.checkedOutAt);
+        checkedOut.decrementAndGet();
+        try {
+            if (!conn.getConnection().getAutoCommit()) {
+                conn.getConnection().rollback();
+                conn.getConnection().setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(conn);
+            return;
+        }
+        if (closed) {
+            discard(conn);
+        } else {
+            conn.lastUsedAt = System.nanoTime();
+            idle.offerFirst(conn);
+        }
+    }
+    
+    private boolean validate(PooledConnection conn) {
+        if (System.nanoTime() - conn.lastUsedAt < validationIntervalNanos) {
+            return true;
+        }
+        try {
+            return conn.getConnection().isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private PooledConnection open() throws SQLException {
+        return new PooledConnection(this, DriverManager.getConnection(url, user, password));
+    }
+    
+    private void discard(PooledConnection conn) {
+        openConnections.decrementAndGet();
+        conn.closePhysical();
+    }
+    
+    public int getOpenConnections() { return openConnections.get(); }
+    public int getActiveConnections() { return checkedOut.get(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public long getCheckoutCount() { return checkouts.sum(); }
+    public long getMaxWaitMicros() { return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()); }
+    
+    public long getAverageWaitMicros() {
+        long count = checkouts.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count);
+    }
+    
+    public long getAverageCheckoutMicros() {
+        long count = checkouts.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(heldNanos.sum() / count);
+    }
+    
+    public void close() {
+        closed = true;
+        PooledConnection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            discard(conn);
+        }
+    }
+}
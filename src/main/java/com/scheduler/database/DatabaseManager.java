@@ -1,23 +1,157 @@
 package com.scheduler.database;
 
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.MetricsRegistry;
+import com.scheduler.metrics.OpenMetricsWriter;
 import com.scheduler.model.*;
+import com.scheduler.model.HistoryRollup.Grain;
 import java.sql.*;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-public class DatabaseManager {
+/**
+ * Task store kept in H2, in a local file by default or on a server shared by
+ * the nodes of a cluster.
+ */
+public class DatabaseManager implements TaskStore {
     private static final String DB_URL = "jdbc:h2:./taskscheduler";
     private static final String USER = "sa";
     private static final String PASS = "";
+    private static final int DEFAULT_BUFFER_CAPACITY = 65536;
+    private static final int DEFAULT_FLUSH_SIZE = 512;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 50;
+    private static final int BATCH_WRITE_ATTEMPTS = 2;
+    private static final long BATCH_RETRY_DELAY_MS = 100;
+    private static final long BATCH_RETRY_MAX_DELAY_MS = 5_000;
+    private static final int ROLLUP_WRITE_ATTEMPTS = 3;
+    private static final int DEFAULT_POOL_MIN = 2;
+    private static final int DEFAULT_POOL_MAX = 8;
+    private static final long DEFAULT_VALIDATION_INTERVAL_MS = 30_000;
+    private static final int BULK_INSERT_CHUNK = 1000;
+    private static final Duration DEFAULT_HISTORY_RETENTION = Duration.ofDays(30);
+    private static final long RETENTION_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int PRUNE_BATCH = 5000;
+    private static final long PRUNE_PAUSE_MS = 20;
+    
+    private static final String INSERT_TASK_SQL =
+        "MERGE INTO tasks (id, name, priority, status, scheduled_time, next_fire, graph_id, owner, lease_expires) " +
+        "KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, NULL, NULL)";
+    private static final String UPDATE_STATUS_SQL =
+        "UPDATE tasks SET status = ? WHERE id = ?";
+    private static final String RELEASE_TASK_SQL =
+        "UPDATE tasks SET status = 'PENDING', owner = NULL, lease_expires = NULL, next_fire = ? WHERE id = ?";
+    private static final String INSERT_RECORD_SQL =
+        "INSERT INTO execution_history " +
+        "(task_id, task_name, status, start_time, end_time, duration_ms, error_message, attempt) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DEAD_LETTER_SQL =
+        "MERGE INTO dead_letters (task_id, task_name, priority, attempts, error_message, failed_at) " +
+        "KEY (task_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_DEAD_LETTERS_SQL =
+        "SELECT * FROM dead_letters ORDER BY failed_at LIMIT ?";
+    private static final String SELECT_DEAD_LETTERS_BY_ID_SQL =
+        "SELECT * FROM dead_letters WHERE task_id = ANY(?) ORDER BY failed_at";
+    private static final String DELETE_DEAD_LETTERS_SQL =
+        "DELETE FROM dead_letters WHERE task_id = ANY(?)";
+    private static final String COUNT_DEAD_LETTERS_SQL =
+        "SELECT COUNT(*) FROM dead_letters";
+    private static final String SELECT_UNFINISHED_SQL =
+        "SELECT id, name, priority, scheduled_time, next_fire, graph_id FROM tasks " +
+        "WHERE status = ? AND (scheduled_time, id) > (?, ?) ORDER BY status, scheduled_time, id LIMIT ?";
+    private static final String SELECT_TASK_SQL =
+        "SELECT id, name, priority, status, scheduled_time, next_fire, graph_id FROM tasks WHERE id = ?";
+    private static final String INSERT_DEPENDENCY_SQL =
+        "MERGE INTO task_dependencies (graph_id, task_id, depends_on) KEY (task_id, depends_on) VALUES (?, ?, ?)";
+    private static final String SELECT_DEPENDENCIES_SQL =
+        "SELECT d.task_id, d.depends_on, t.status FROM task_dependencies d " +
+        "LEFT JOIN tasks t ON t.id = d.depends_on WHERE d.graph_id = ?";
+    private static final String SELECT_HISTORY_SQL =
+        "SELECT * FROM execution_history ORDER BY start_time DESC LIMIT ?";
+    private static final String MERGE_ROLLUP_SQL = mergeRollupSql();
+    private static final String SELECT_ROLLUPS_SQL =
+        "SELECT * FROM execution_rollups WHERE grain = ? AND bucket_start >= ? AND bucket_start < ?";
+    private static final String SELECT_TASK_ROLLUPS_SQL = SELECT_ROLLUPS_SQL + " AND task_name = ?";
+    private static final String PRUNE_HISTORY_SQL =
+        "DELETE FROM execution_history WHERE start_time < ? FETCH FIRST ? ROWS ONLY";
+    private static final String PRUNE_ROLLUPS_SQL =
+        "DELETE FROM execution_rollups WHERE grain = ? AND bucket_start < ? FETCH FIRST ? ROWS ONLY";
+    
+    private final ConnectionPool pool;
+    private final WriteBehindQueue writeQueue;
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final LatencyHistogram persistenceMicros = new LatencyHistogram();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final Thread retention;
+    private volatile boolean closed;
     
     public DatabaseManager() {
+        this(DB_URL);
+    }
+    
+    /**
+     * Uses the database at {@code url}, e.g. an H2 server shared by several nodes
+     * ({@code jdbc:h2:tcp://host/./taskscheduler}).
+     */
+    public DatabaseManager(String url) {
+        this(new ConnectionPool(url, USER, PASS, DEFAULT_POOL_MIN, DEFAULT_POOL_MAX,
+                DEFAULT_VALIDATION_INTERVAL_MS),
+            DEFAULT_BUFFER_CAPACITY, DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+    
+    public DatabaseManager(ConnectionPool pool, int bufferCapacity, int flushSize,
+                           long flushIntervalMillis) {
+        this.pool = pool;
         initializeDatabase();
+        this.writeQueue = new WriteBehindQueue(bufferCapacity, flushSize, flushIntervalMillis,
+            this::writeBatch);
+        this.retention = new Thread(this::runRetention, "History-Retention");
+        this.retention.setDaemon(true);
+        this.retention.start();
+    }
+    
+    /**
+     * Builds the upsert that adds a row's delta to the stored rollup, or
+     * inserts it if the bucket is new.
+     */
+    private static String mergeRollupSql() {
+        List<String> columns = new ArrayList<>(List.of("grain", "bucket_start", "task_name", "priority",
+            "runs", "failures", "total_ms", "min_ms", "max_ms"));
+        StringBuilder params = new StringBuilder(
+            "CAST(? AS VARCHAR(10)), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(20))");
+        StringBuilder updates = new StringBuilder(
+            "runs = r.runs + v.runs, failures = r.failures + v.failures, total_ms = r.total_ms + v.total_ms, " +
+            "min_ms = LEAST(r.min_ms, v.min_ms), max_ms = GREATEST(r.max_ms, v.max_ms)");
+        for (int i = 0; i < HistoryRollup.BUCKET_COUNT; i++) {
+            String bucket = "bucket_" + i;
+            columns.add(bucket);
+            updates.append(", ").append(bucket).append(" = r.").append(bucket).append(" + v.").append(bucket);
+        }
+        for (int i = 4; i < columns.size(); i++) {
+            params.append(", CAST(? AS BIGINT)");
+        }
+        StringBuilder values = new StringBuilder();
+        for (String column : columns) {
+            values.append(values.length() > 0 ? ", v." : "v.").append(column);
+        }
+        return "MERGE INTO execution_rollups r USING (VALUES (" + params + ")) AS v(" +
+            String.join(", ", columns) + ") " +
+            "ON r.grain = v.grain AND r.bucket_start = v.bucket_start AND r.task_name = v.task_name " +
+            "AND r.priority = v.priority " +
+            "WHEN MATCHED THEN UPDATE SET " + updates + " " +
+            "WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES (" + values + ")";
     }
     
     private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-             Statement stmt = conn.createStatement()) {
+        try (PooledConnection pooled = pool.acquire();
+             Statement stmt = pooled.getConnection().createStatement()) {
             
             // Create tasks table
             stmt.execute(
@@ -30,6 +164,24 @@ public class DatabaseManager {
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)"
             );
             
+            // Lease columns used when several nodes share the database
+            stmt.execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS next_fire BIGINT");
+            stmt.execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS owner VARCHAR(64)");
+            stmt.execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS lease_expires BIGINT");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_claim ON tasks(status, next_fire)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_recovery ON tasks(status, scheduled_time, id)");
+            
+            // Task graph edges, so a restart can resume a graph part way through
+            stmt.execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS graph_id VARCHAR(50)");
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS task_dependencies (" +
+                "graph_id VARCHAR(50) NOT NULL," +
+                "task_id VARCHAR(50) NOT NULL," +
+                "depends_on VARCHAR(50) NOT NULL," +
+                "PRIMARY KEY (task_id, depends_on))"
+            );
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_dependencies_graph ON task_dependencies(graph_id)");
+            
             // Create execution_history table
             stmt.execute(
                 "CREATE TABLE IF NOT EXISTS execution_history (" +
@@ -43,6 +195,52 @@ public class DatabaseManager {
                 "error_message TEXT," +
                 "FOREIGN KEY (task_id) REFERENCES tasks(id))"
             );
+            stmt.execute("ALTER TABLE execution_history ADD COLUMN IF NOT EXISTS attempt INT DEFAULT 1");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_start ON execution_history(start_time DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_task ON execution_history(task_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_name_start " +
+                "ON execution_history(task_name, start_time DESC)");
+            
+            // Per minute, hour and day aggregates, updated as history is written
+            StringBuilder buckets = new StringBuilder();
+            for (int i = 0; i < HistoryRollup.BUCKET_COUNT; i++) {
+                buckets.append("bucket_").append(i).append(" BIGINT NOT NULL,");
+            }
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS execution_rollups (" +
+                "grain VARCHAR(10) NOT NULL," +
+                "bucket_start TIMESTAMP NOT NULL," +
+                "task_name VARCHAR(255) NOT NULL," +
+                "priority VARCHAR(20) NOT NULL," +
+                "runs BIGINT NOT NULL," +
+                "failures BIGINT NOT NULL," +
+                "total_ms BIGINT NOT NULL," +
+                "min_ms BIGINT NOT NULL," +
+                "max_ms BIGINT NOT NULL," +
+                buckets +
+                "PRIMARY KEY (grain, bucket_start, task_name, priority))"
+            );
+            
+            // Tasks that failed for good, kept until replayed
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS dead_letters (" +
+                "task_id VARCHAR(50) PRIMARY KEY," +
+                "task_name VARCHAR(255) NOT NULL," +
+                "priority VARCHAR(20) NOT NULL," +
+                "attempts INT NOT NULL," +
+                "error_message TEXT," +
+                "failed_at TIMESTAMP NOT NULL," +
+                "FOREIGN KEY (task_id) REFERENCES tasks(id))"
+            );
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_dead_letters_failed ON dead_letters(failed_at)");
+            
+            // Id node numbers leased by cluster nodes
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS cluster_nodes (" +
+                "id_node INT PRIMARY KEY," +
+                "node_id VARCHAR(64) NOT NULL," +
+                "lease_expires BIGINT NOT NULL)"
+            );
             
             System.out.println("✓ Database initialized successfully");
             
@@ -51,76 +249,682 @@ public class DatabaseManager {
         }
     }
     
+    @Override
     public void saveTask(ScheduledTask task, TaskStatus status) {
-        String sql = "INSERT INTO tasks (id, name, priority, status, scheduled_time) " +
-                     "VALUES (?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, task.getId());
-            pstmt.setString(2, task.getName());
-            pstmt.setString(3, task.getPriority().name());
-            pstmt.setString(4, status.name());
-            pstmt.setTimestamp(5, Timestamp.from(task.getScheduledTime()));
-            
-            pstmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            System.err.println("Error saving task: " + e.getMessage());
+        writeQueue.enqueue(PersistenceEvent.taskCreated(task, status));
+    }
+    
+    /**
+     * Inserts a batch of new tasks right away, {@value #BULK_INSERT_CHUNK} rows
+     * per batched statement and transaction. Bypasses the write-behind queue,
+     * so a large submission does not queue an event per task, and its rows
+     * exist before any of the tasks can run.
+     */
+    @Override
+    public void saveTasks(List<ScheduledTask> tasks, TaskStatus status) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            Connection conn = pooled.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = pooled.prepare(INSERT_TASK_SQL);
+                for (int from = 0; from < tasks.size(); from += BULK_INSERT_CHUNK) {
+                    long start = System.nanoTime();
+                    int to = Math.min(from + BULK_INSERT_CHUNK, tasks.size());
+                    for (ScheduledTask task : tasks.subList(from, to)) {
+                        bindTask(pstmt, task.getId(), task.getName(), task.getPriority(), status,
+                            task.getScheduledTime(), task.getNextFireTimeMillis(), task.getGraphId());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    conn.commit();
+                    recordQuery(start);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
     
+    @Override
     public void updateTaskStatus(String taskId, TaskStatus status) {
-        String sql = "UPDATE tasks SET status = ? WHERE id = ?";
+        writeQueue.enqueue(PersistenceEvent.statusChanged(taskId, status));
+    }
+    
+    /**
+     * Hands a claimed task back to the cluster as PENDING with a new fire time.
+     * Queued behind the task's earlier status writes, so it is applied last.
+     */
+    @Override
+    public void releaseTask(String taskId, long nextFireMillis) {
+        writeQueue.enqueue(PersistenceEvent.released(taskId, nextFireMillis));
+    }
+    
+    /**
+     * Moves a task that failed for good to the dead-letter table.
+     */
+    @Override
+    public void saveDeadLetter(TaskExecutionRecord lastRun, TaskPriority priority) {
+        writeQueue.enqueue(PersistenceEvent.deadLettered(lastRun, priority));
+    }
+    
+    @Override
+    public void saveExecutionRecord(TaskExecutionRecord record, TaskPriority priority) {
+        writeQueue.enqueue(PersistenceEvent.executionRecorded(record, priority));
+    }
+    
+    @Override
+    public int getPendingWrites() {
+        return writeQueue.pending();
+    }
+    
+    /**
+     * Blocks until every write queued before this call has been committed.
+     */
+    @Override
+    public void flush() {
+        writeQueue.flush();
+    }
+    
+    @Override
+    public void shutdown() {
+        closed = true;
+        retention.interrupt();
+        try {
+            retention.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeQueue.shutdown();
+        pool.close();
+    }
+    
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+    
+    @Override
+    public long getAverageQueryMicros() {
+        long count = queryCount.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queryNanos.sum() / count);
+    }
+    
+    private void recordQuery(long startNanos) {
+        queryCount.increment();
+        queryNanos.add(System.nanoTime() - startNanos);
+    }
+    
+    @Override
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register(this::collectMetrics);
+    }
+    
+    private void collectMetrics(OpenMetricsWriter out) {
+        out.family("scheduler_db_pending_writes", "gauge", "Events waiting in the write-behind queue");
+        out.sample("scheduler_db_pending_writes", "", writeQueue.pending());
+        out.family("scheduler_db_connections", "gauge", "Pooled database connections by state");
+        out.sample("scheduler_db_connections", "", "state", "active", pool.getActiveConnections());
+        out.sample("scheduler_db_connections", "", "state", "idle", pool.getIdleConnections());
+        out.family("scheduler_db_queries", "counter", "Queries and write batches executed");
+        out.sample("scheduler_db_queries", "_total", queryCount.sum());
+        out.family("scheduler_db_query_seconds", "counter", "Time spent executing queries and write batches");
+        out.secondsSample("scheduler_db_query_seconds", "_total",
+            TimeUnit.NANOSECONDS.toMicros(queryNanos.sum()));
+        out.family("scheduler_db_dropped_events", "counter",
+            "Queued events that could not be written, even on their own, and were dropped");
+        out.sample("scheduler_db_dropped_events", "_total", droppedEvents.sum());
+        out.family("scheduler_db_write_latency_seconds", "histogram",
+            "Time from enqueue to commit of persisted events");
+        out.histogram("scheduler_db_write_latency_seconds", null, null, persistenceMicros);
+    }
+    
+    /**
+     * Time from enqueue to commit for each event in a written batch.
+     */
+    @Override
+    public LatencyHistogram getPersistenceLatency() {
+        return persistenceMicros;
+    }
+    
+    private void recordPersisted(List<PersistenceEvent> batch) {
+        long now = System.nanoTime();
+        for (PersistenceEvent event : batch) {
+            if (event.kind != PersistenceEvent.Kind.FLUSH) {
+                persistenceMicros.record(TimeUnit.NANOSECONDS.toMicros(now - event.enqueuedNanos));
+            }
+        }
+    }
+    
+    /**
+     * Events queued but dropped because they could not be written, even on their own.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+    
+    /**
+     * Writes a drained batch. While the database is unreachable or busy the
+     * batch is held and retried, which stalls the writer so a full queue
+     * pushes back on producers. If the batch is refused for its contents, its
+     * events are written one at a time in order, so a row the database
+     * rejects only costs its own event rather than the batch.
+     */
+    private void writeBatch(List<PersistenceEvent> batch) {
+        SQLException failure = writeRetrying(batch);
+        if (failure == null) {
+            return;
+        }
+        System.err.println("Error writing batch of " + batch.size() + " events, writing them one by one: "
+            + failure.getMessage());
+        for (PersistenceEvent event : batch) {
+            if (event.kind == PersistenceEvent.Kind.FLUSH) {
+                continue;
+            }
+            SQLException e = writeRetrying(List.of(event));
+            if (e != null) {
+                droppedEvents.increment();
+                System.err.println("Error writing " + event.kind + " for task " + event.taskId
+                    + ", dropped: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Writes the events, retrying transient failures with a doubling pause
+     * capped at {@link #BATCH_RETRY_MAX_DELAY_MS}. Returns null once written,
+     * or the error it gave up on: a non-transient one straight away, any
+     * after {@link #BATCH_WRITE_ATTEMPTS} once the store is shutting down.
+     */
+    private SQLException writeRetrying(List<PersistenceEvent> events) {
+        long delay = BATCH_RETRY_DELAY_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeEvents(events);
+                if (attempt > 1) {
+                    System.out.println("✓ Database reachable again, wrote " + events.size() + " held events");
+                }
+                return null;
+            } catch (SQLException e) {
+                if (!isTransient(e) || (closed && attempt >= BATCH_WRITE_ATTEMPTS)) {
+                    return e;
+                }
+                if (attempt == 1) {
+                    System.err.println("Error writing " + events.size() + " events, holding them until the "
+                        + "database is reachable: " + e.getMessage());
+                }
+                if (!pause(delay)) {
+                    return e;
+                }
+                delay = Math.min(delay * 2, BATCH_RETRY_MAX_DELAY_MS);
+            }
+        }
+    }
+    
+    /** The connection failed or timed out, or a deadlock victim: the same write may succeed later. */
+    private static boolean isTransient(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException
+                || t instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                String state = sql.getSQLState();
+                if (state.startsWith("08") || state.equals("40001") || state.equals("HYT00")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private void writeEvents(List<PersistenceEvent> batch) throws SQLException {
+        // Collapse the batch: a task's status updates fold into its insert if it is
+        // in the same batch, otherwise only the latest status per task is written
+        Map<String, PersistenceEvent> inserts = new LinkedHashMap<>();
+        Map<String, TaskStatus> statusUpdates = new LinkedHashMap<>();
+        List<TaskExecutionRecord> records = new ArrayList<>();
+        RollupTable rollups = new RollupTable();
+        Map<String, Long> releases = new LinkedHashMap<>();
+        List<PersistenceEvent> deadLetters = new ArrayList<>();
         
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, status.name());
-            pstmt.setString(2, taskId);
-            pstmt.executeUpdate();
-            
+        for (PersistenceEvent event : batch) {
+            switch (event.kind) {
+                case TASK_CREATED:
+                    inserts.put(event.taskId, event);
+                    break;
+                case STATUS_CHANGED:
+                    PersistenceEvent insert = inserts.get(event.taskId);
+                    if (insert != null) {
+                        insert.status = event.status;
+                    } else {
+                        statusUpdates.put(event.taskId, event.status);
+                    }
+                    break;
+                case EXECUTION_RECORDED:
+                    records.add(event.record);
+                    rollups.record(event.record, event.priority);
+                    break;
+                case RELEASED:
+                    releases.put(event.taskId, event.nextFireMillis);
+                    break;
+                case DEAD_LETTERED:
+                    deadLetters.add(event);
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        if (inserts.isEmpty() && statusUpdates.isEmpty() && records.isEmpty() && releases.isEmpty()
+                && deadLetters.isEmpty()) {
+            return;
+        }
+        
+        try (PooledConnection pooled = pool.acquire()) {
+            Connection conn = pooled.getConnection();
+            long start = System.nanoTime();
+            conn.setAutoCommit(false);
+            try {
+                if (!inserts.isEmpty()) {
+                    PreparedStatement pstmt = pooled.prepare(INSERT_TASK_SQL);
+                    for (PersistenceEvent event : inserts.values()) {
+                        bindTask(pstmt, event.taskId, event.taskName, event.priority, event.status,
+                            event.scheduledTime, event.nextFireMillis, event.graphId);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                
+                if (!statusUpdates.isEmpty()) {
+                    PreparedStatement pstmt = pooled.prepare(UPDATE_STATUS_SQL);
+                    for (Map.Entry<String, TaskStatus> entry : statusUpdates.entrySet()) {
+                        pstmt.setString(1, entry.getValue().name());
+                        pstmt.setString(2, entry.getKey());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                
+                if (!records.isEmpty()) {
+                    PreparedStatement pstmt = pooled.prepare(INSERT_RECORD_SQL);
+                    for (TaskExecutionRecord record : records) {
+                        bindExecutionRecord(pstmt, record);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                
+                if (!deadLetters.isEmpty()) {
+                    PreparedStatement pstmt = pooled.prepare(INSERT_DEAD_LETTER_SQL);
+                    for (PersistenceEvent event : deadLetters) {
+                        pstmt.setString(1, event.taskId);
+                        pstmt.setString(2, event.taskName);
+                        pstmt.setString(3, event.priority.name());
+                        pstmt.setInt(4, event.record.getAttempt());
+                        pstmt.setString(5, event.record.getErrorMessage());
+                        pstmt.setTimestamp(6, Timestamp.from(event.record.getEndTime()));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                
+                if (!releases.isEmpty()) {
+                    PreparedStatement pstmt = pooled.prepare(RELEASE_TASK_SQL);
+                    for (Map.Entry<String, Long> entry : releases.entrySet()) {
+                        pstmt.setLong(1, entry.getValue());
+                        pstmt.setString(2, entry.getKey());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                
+                conn.commit();
+                recordQuery(start);
+                recordPersisted(batch);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            if (!rollups.isEmpty()) {
+                writeRollups(pooled, rollups.rows());
+            }
+        }
+    }
+    
+    /**
+     * Adds a batch's rollup deltas in a transaction of their own, so that a
+     * conflict with another node updating the same rows cannot undo the
+     * history that was just written. When two nodes insert the same new
+     * bucket at once, or deadlock, the loser retries and merges into the row
+     * the winner wrote.
+     */
+    private void writeRollups(PooledConnection pooled, List<HistoryRollup> deltas) {
+        Connection conn = pooled.getConnection();
+        long start = System.nanoTime();
+        SQLException failure = null;
+        for (int attempt = 0; attempt < ROLLUP_WRITE_ATTEMPTS; attempt++) {
+            try {
+                PreparedStatement pstmt = pooled.prepare(MERGE_ROLLUP_SQL);
+                pstmt.clearBatch();
+                for (HistoryRollup delta : deltas) {
+                    pstmt.setString(1, delta.getGrain().name());
+                    pstmt.setTimestamp(2, Timestamp.from(delta.getBucketStart()));
+                    pstmt.setString(3, delta.getTaskName());
+                    pstmt.setString(4, delta.getPriority().name());
+                    pstmt.setLong(5, delta.getRuns());
+                    pstmt.setLong(6, delta.getFailures());
+                    pstmt.setLong(7, delta.getTotalMillis());
+                    pstmt.setLong(8, delta.getMinMillis());
+                    pstmt.setLong(9, delta.getMaxMillis());
+                    for (int i = 0; i < HistoryRollup.BUCKET_COUNT; i++) {
+                        pstmt.setLong(10 + i, delta.getBucket(i));
+                    }
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                recordQuery(start);
+                return;
+            } catch (SQLException e) {
+                failure = e;
+                try {
+                    conn.rollback();
+                } catch (SQLException rollback) {
+                    break;
+                }
+                if (!isConflict(e)) {
+                    break;
+                }
+            }
+        }
+        System.err.println("Error updating " + deltas.size() + " rollups: " + failure.getMessage());
+    }
+    
+    /** A lost race for a new key, or a transaction the database rolled back as a deadlock victim. */
+    private static boolean isConflict(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("23") || state.equals("40001"));
+    }
+    
+    private static void bindTask(PreparedStatement pstmt, String id, String name, TaskPriority priority,
+                                 TaskStatus status, Instant scheduledTime, long nextFireMillis,
+                                 String graphId) throws SQLException {
+        pstmt.setString(1, id);
+        pstmt.setString(2, name);
+        pstmt.setString(3, priority.name());
+        pstmt.setString(4, status.name());
+        pstmt.setTimestamp(5, Timestamp.from(scheduledTime));
+        pstmt.setLong(6, nextFireMillis);
+        pstmt.setString(7, graphId);
+    }
+    
+    private void bindExecutionRecord(PreparedStatement pstmt, TaskExecutionRecord record)
+            throws SQLException {
+        pstmt.setString(1, record.getTaskId());
+        pstmt.setString(2, record.getTaskName());
+        pstmt.setString(3, record.getStatus().name());
+        pstmt.setTimestamp(4, Timestamp.from(record.getStartTime()));
+        pstmt.setTimestamp(5, record.getEndTime() != null ? 
+            Timestamp.from(record.getEndTime()) : null);
+        pstmt.setLong(6, record.getActualDuration() != null ? 
+            record.getActualDuration().toMillis() : 0);
+        pstmt.setString(7, record.getErrorMessage());
+        pstmt.setInt(8, record.getAttempt());
+    }
+    
+    /**
+     * Stores a graph's edges, as {taskId, dependsOn} pairs, in one transaction.
+     * Written directly rather than through the write-behind queue so the edges
+     * are durable before any task of the graph can run.
+     */
+    @Override
+    public void saveDependencies(String graphId, List<String[]> edges) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            Connection conn = pooled.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = pooled.prepare(INSERT_DEPENDENCY_SQL);
+                for (String[] edge : edges) {
+                    pstmt.setString(1, graphId);
+                    pstmt.setString(2, edge[0]);
+                    pstmt.setString(3, edge[1]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            recordQuery(start);
+        }
+    }
+    
+    @Override
+    public List<TaskDependency> loadDependencies(String graphId) throws SQLException {
+        List<TaskDependency> edges = new ArrayList<>();
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            PreparedStatement pstmt = pooled.prepare(SELECT_DEPENDENCIES_SQL);
+            pstmt.setString(1, graphId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String status = rs.getString("status");
+                    edges.add(new TaskDependency(rs.getString("task_id"), rs.getString("depends_on"),
+                        status != null ? TaskStatus.valueOf(status) : null));
+                }
+            }
+            recordQuery(start);
+        }
+        return edges;
+    }
+    
+    /**
+     * Oldest dead letters first.
+     */
+    @Override
+    public List<DeadLetter> getDeadLetters(int limit) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(SELECT_DEAD_LETTERS_SQL);
+            pstmt.setInt(1, limit);
+            return readDeadLetters(pstmt);
+        }
+    }
+    
+    @Override
+    public List<DeadLetter> getDeadLetters(Collection<String> taskIds) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(SELECT_DEAD_LETTERS_BY_ID_SQL);
+            pstmt.setObject(1, taskIds.toArray(new String[0]));
+            return readDeadLetters(pstmt);
+        }
+    }
+    
+    private List<DeadLetter> readDeadLetters(PreparedStatement pstmt) throws SQLException {
+        long start = System.nanoTime();
+        List<DeadLetter> letters = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                letters.add(new DeadLetter(
+                    rs.getString("task_id"),
+                    rs.getString("task_name"),
+                    TaskPriority.valueOf(rs.getString("priority")),
+                    rs.getInt("attempts"),
+                    rs.getString("error_message"),
+                    rs.getTimestamp("failed_at").toInstant()
+                ));
+            }
+        }
+        recordQuery(start);
+        return letters;
+    }
+    
+    @Override
+    public int deleteDeadLetters(Collection<String> taskIds) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(DELETE_DEAD_LETTERS_SQL);
+            pstmt.setObject(1, taskIds.toArray(new String[0]));
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    @Override
+    public int countDeadLetters() {
+        try (PooledConnection pooled = pool.acquire();
+             ResultSet rs = pooled.prepare(COUNT_DEAD_LETTERS_SQL).executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
         } catch (SQLException e) {
-            System.err.println("Error updating task status: " + e.getMessage());
+            System.err.println("Error counting dead letters: " + e.getMessage());
+            return 0;
         }
     }
     
-    public void saveExecutionRecord(TaskExecutionRecord record) {
-        String sql = "INSERT INTO execution_history " +
-                     "(task_id, task_name, status, start_time, end_time, duration_ms, error_message) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * Returns the next page of tasks in {@code status}, in scheduled time order,
+     * starting after {@code after} (null for the first page). Paging by key
+     * rather than offset keeps each page a sorted index range scan.
+     */
+    @Override
+    public List<StoredTask> loadTasks(TaskStatus status, StoredTask after, int limit) throws SQLException {
+        List<StoredTask> page = new ArrayList<>(limit);
         
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, record.getTaskId());
-            pstmt.setString(2, record.getTaskName());
-            pstmt.setString(3, record.getStatus().name());
-            pstmt.setTimestamp(4, Timestamp.from(record.getStartTime()));
-            pstmt.setTimestamp(5, record.getEndTime() != null ? 
-                Timestamp.from(record.getEndTime()) : null);
-            pstmt.setLong(6, record.getActualDuration() != null ? 
-                record.getActualDuration().toMillis() : 0);
-            pstmt.setString(7, record.getErrorMessage());
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            PreparedStatement pstmt = pooled.prepare(SELECT_UNFINISHED_SQL);
+            Timestamp afterTime = after != null ? Timestamp.from(after.getScheduledTime()) : new Timestamp(0);
+            pstmt.setString(1, status.name());
+            pstmt.setTimestamp(2, afterTime);
+            pstmt.setString(3, after != null ? after.getId() : "");
+            pstmt.setInt(4, limit);
+            pstmt.setFetchSize(limit);
             
-            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Instant scheduled = rs.getTimestamp("scheduled_time").toInstant();
+                    long nextFire = rs.getLong("next_fire");
+                    page.add(new StoredTask(
+                        rs.getString("id"),
+                        rs.getString("name"),
+                        TaskPriority.valueOf(rs.getString("priority")),
+                        status,
+                        scheduled,
+                        rs.wasNull() ? scheduled.toEpochMilli() : nextFire,
+                        rs.getString("graph_id")
+                    ));
+                }
+            }
+            recordQuery(start);
+        }
+        return page;
+    }
+    
+    @Override
+    public StoredTask loadTask(String taskId) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            PreparedStatement pstmt = pooled.prepare(SELECT_TASK_SQL);
+            pstmt.setString(1, taskId);
             
-        } catch (SQLException e) {
-            System.err.println("Error saving execution record: " + e.getMessage());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                recordQuery(start);
+                if (!rs.next()) {
+                    return null;
+                }
+                Instant scheduled = rs.getTimestamp("scheduled_time").toInstant();
+                long nextFire = rs.getLong("next_fire");
+                return new StoredTask(
+                    rs.getString("id"),
+                    rs.getString("name"),
+                    TaskPriority.valueOf(rs.getString("priority")),
+                    TaskStatus.valueOf(rs.getString("status")),
+                    scheduled,
+                    rs.wasNull() ? scheduled.toEpochMilli() : nextFire,
+                    rs.getString("graph_id")
+                );
+            }
         }
     }
     
+    @Override
     public List<TaskExecutionRecord> getExecutionHistory(int limit) {
         List<TaskExecutionRecord> history = new ArrayList<>();
-        String sql = "SELECT * FROM execution_history ORDER BY start_time DESC LIMIT ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            PreparedStatement pstmt = pooled.prepare(SELECT_HISTORY_SQL);
             pstmt.setInt(1, limit);
-            ResultSet rs = pstmt.executeQuery();
             
+            readHistory(pstmt, history);
+            recordQuery(start);
+            
+        } catch (SQLException e) {
+            System.err.println("Error retrieving execution history: " + e.getMessage());
+        }
+        
+        return history;
+    }
+    
+    /**
+     * Filters on task id, or on task name and start time, are served by their
+     * indexes; the rest are applied while walking the start time index.
+     */
+    @Override
+    public List<TaskExecutionRecord> queryHistory(HistoryQuery query) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM execution_history WHERE TRUE");
+        if (query.getTaskId() != null) {
+            sql.append(" AND task_id = ?");
+            params.add(query.getTaskId());
+        }
+        if (query.getTaskName() != null) {
+            sql.append(" AND task_name = ?");
+            params.add(query.getTaskName());
+        }
+        if (query.getStatus() != null) {
+            sql.append(" AND status = ?");
+            params.add(query.getStatus().name());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND start_time >= ?");
+            params.add(Timestamp.from(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND start_time < ?");
+            params.add(Timestamp.from(query.getTo()));
+        }
+        // Leading with the name lets the (task_name, start_time) index return rows in order
+        sql.append(query.getTaskName() != null && query.getTaskId() == null
+            ? " ORDER BY task_name, start_time DESC LIMIT ?"
+            : " ORDER BY start_time DESC LIMIT ?");
+        params.add(query.getLimit());
+        
+        List<TaskExecutionRecord> history = new ArrayList<>();
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            PreparedStatement pstmt = pooled.prepare(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            readHistory(pstmt, history);
+            recordQuery(start);
+        }
+        return history;
+    }
+    
+    private static void readHistory(PreparedStatement pstmt, List<TaskExecutionRecord> history)
+            throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
                 TaskExecutionRecord record = new TaskExecutionRecord(
                     rs.getString("task_id"),
@@ -129,15 +933,119 @@ public class DatabaseManager {
                     rs.getTimestamp("start_time").toInstant(),
                     rs.getTimestamp("end_time") != null ? 
                         rs.getTimestamp("end_time").toInstant() : null,
-                    rs.getString("error_message")
+                    rs.getString("error_message"),
+                    0,
+                    0,
+                    rs.getInt("attempt")
                 );
                 history.add(record);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error retrieving execution history: " + e.getMessage());
         }
-        
-        return history;
+    }
+    
+    @Override
+    public List<HistoryRollup> getRollups(Grain grain, Instant from, Instant to, String taskName)
+            throws SQLException {
+        List<HistoryRollup> rollups = new ArrayList<>();
+        try (PooledConnection pooled = pool.acquire()) {
+            long start = System.nanoTime();
+            PreparedStatement pstmt = pooled.prepare(taskName != null ? SELECT_TASK_ROLLUPS_SQL : SELECT_ROLLUPS_SQL);
+            pstmt.setString(1, grain.name());
+            pstmt.setTimestamp(2, Timestamp.from(from));
+            pstmt.setTimestamp(3, Timestamp.from(to));
+            if (taskName != null) {
+                pstmt.setString(4, taskName);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long[] buckets = new long[HistoryRollup.BUCKET_COUNT];
+                    for (int i = 0; i < buckets.length; i++) {
+                        buckets[i] = rs.getLong("bucket_" + i);
+                    }
+                    rollups.add(new HistoryRollup(
+                        grain,
+                        rs.getTimestamp("bucket_start").toInstant(),
+                        rs.getString("task_name"),
+                        TaskPriority.valueOf(rs.getString("priority")),
+                        rs.getLong("runs"),
+                        rs.getLong("failures"),
+                        rs.getLong("total_ms"),
+                        rs.getLong("min_ms"),
+                        rs.getLong("max_ms"),
+                        buckets
+                    ));
+                }
+            }
+            recordQuery(start);
+        }
+        rollups.sort(RollupTable.ORDER);
+        return rollups;
+    }
+    
+    private void runRetention() {
+        while (!closed) {
+            try {
+                Thread.sleep(RETENTION_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            pruneHistory(Instant.now().minus(DEFAULT_HISTORY_RETENTION));
+        }
+    }
+    
+    /**
+     * Deletes history that started before {@code cutoff}, and rollups past
+     * their grain's retention. Rows go {@value #PRUNE_BATCH} per transaction
+     * with a pause in between, so the writer never waits long on the tables.
+     * Returns the number of history rows deleted.
+     */
+    public int pruneHistory(Instant cutoff) {
+        long start = System.nanoTime();
+        int deleted = pruneInBatches(PRUNE_HISTORY_SQL, null, cutoff);
+        int rollups = 0;
+        Instant now = Instant.now();
+        for (Grain grain : Grain.values()) {
+            if (grain.getRetention() != null) {
+                rollups += pruneInBatches(PRUNE_ROLLUPS_SQL, grain, now.minus(grain.getRetention()));
+            }
+        }
+        if (deleted > 0 || rollups > 0) {
+            System.out.println(String.format("🧹 Pruned %d history rows and %d rollups in %dms",
+                deleted, rollups, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+        return deleted;
+    }
+    
+    private int pruneInBatches(String sql, Grain grain, Instant cutoff) {
+        int total = 0;
+        while (!closed) {
+            int deleted;
+            try (PooledConnection pooled = pool.acquire()) {
+                long start = System.nanoTime();
+                PreparedStatement pstmt = pooled.prepare(sql);
+                int index = 1;
+                if (grain != null) {
+                    pstmt.setString(index++, grain.name());
+                }
+                pstmt.setTimestamp(index++, Timestamp.from(cutoff));
+                pstmt.setInt(index, PRUNE_BATCH);
+                deleted = pstmt.executeUpdate();
+                recordQuery(start);
+            } catch (SQLException e) {
+                System.err.println("Error pruning history: " + e.getMessage());
+                break;
+            }
+            total += deleted;
+            if (deleted < PRUNE_BATCH) {
+                break;
+            }
+            try {
+                Thread.sleep(PRUNE_PAUSE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return total;
     }
 }
@@ -0,0 +1,15 @@
+package com.scheduler.database;
+
+/**
+ * When {@link JournalTaskStore} forces appended records to disk. Every commit
+ * lands in the page cache, so a crash of the process alone loses nothing; the
+ * policy decides how much an OS crash or power loss can lose.
+ */
+public enum FsyncPolicy {
+    /** Force after every group commit, before {@code flush()} returns. */
+    EVERY_BATCH,
+    /** Force in the background once per sync interval. */
+    INTERVAL,
+    /** Leave write-back to the OS. */
+    NEVER
+}
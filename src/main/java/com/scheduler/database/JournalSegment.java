@@ -0,0 +1,199 @@
+package com.scheduler.database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped journal file. A 16-byte header (magic, version, sequence)
+ * is followed by records framed as {@code int length | int crc32 | payload};
+ * a zero length marks the end. The file is pre-sized and zero-filled, so an
+ * append is a plain memory copy. Not thread safe; the owning store serializes
+ * access.
+ *
+ * A compaction writes its segments under a pending name, which replay skips,
+ * and renames them with {@link #commit()} once they are the journal.
+ */
+final class JournalSegment {
+    static final int HEADER_BYTES = 16;
+    static final int FRAME_BYTES = 8;
+    private static final int MAGIC = 0x534A524E;
+    private static final int VERSION = 1;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+    private static final String PENDING_SUFFIX = SUFFIX + ".pending";
+    private static final byte[] ZEROS = new byte[4096];
+    
+    private final long sequence;
+    private Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final CRC32 crc = new CRC32();
+    private int position = HEADER_BYTES;
+    private int forced = HEADER_BYTES;
+    
+    private JournalSegment(long sequence, Path path, FileChannel channel, int size) throws IOException {
+        this.sequence = sequence;
+        this.path = path;
+        this.channel = channel;
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+    
+    static JournalSegment create(Path dir, long sequence, int size) throws IOException {
+        return createAt(dir.resolve(String.format("%s%016d%s", PREFIX, sequence, SUFFIX)), sequence, size);
+    }
+    
+    static JournalSegment createPending(Path dir, long sequence, int size) throws IOException {
+        return createAt(dir.resolve(String.format("%s%016d%s", PREFIX, sequence, PENDING_SUFFIX)), sequence, size);
+    }
+    
+    private static JournalSegment createAt(Path path, long sequence, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        JournalSegment segment = new JournalSegment(sequence, path, channel, size);
+        segment.map.putInt(0, MAGIC);
+        segment.map.putInt(4, VERSION);
+        segment.map.putLong(8, sequence);
+        segment.forced = 0;
+        return segment;
+    }
+    
+    static JournalSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Not a journal segment: " + path);
+        }
+        JournalSegment segment = new JournalSegment(sequenceOf(path), path, channel, (int) size);
+        if (segment.map.getInt(0) != MAGIC || segment.map.getInt(4) != VERSION
+                || segment.map.getLong(8) != segment.sequence) {
+            segment.close();
+            throw new IOException("Not a journal segment: " + path);
+        }
+        return segment;
+    }
+    
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+    
+    static boolean isPending(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(PENDING_SUFFIX);
+    }
+    
+    static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.indexOf(SUFFIX, PREFIX.length())));
+    }
+    
+    /**
+     * Renames a pending segment file to its journal name and returns that.
+     */
+    static Path commit(Path pending) throws IOException {
+        String name = pending.getFileName().toString();
+        Path committed = pending.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length()) + SUFFIX);
+        return Files.move(pending, committed, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Appends {@code payload} from its position to its limit, or returns false
+     * if it does not fit in the rest of this segment.
+     */
+    boolean append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (position + FRAME_BYTES + length > map.capacity()) {
+            return false;
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        map.put(position + FRAME_BYTES, payload, payload.position(), length);
+        map.putInt(position + 4, (int) crc.getValue());
+        // Length last, so a record is never visible before its body
+        map.putInt(position, length);
+        position += FRAME_BYTES + length;
+        return true;
+    }
+    
+    /**
+     * Hands each intact record's payload to {@code visitor} and leaves the
+     * segment positioned after the last one. Returns the offset of a torn or
+     * corrupt record, whose remains are zeroed so later appends cannot resurrect
+     * stale records behind it, or -1 if the segment ended cleanly.
+     */
+    int replay(Consumer<ByteBuffer> visitor) {
+        int offset = HEADER_BYTES;
+        while (offset + FRAME_BYTES <= map.capacity()) {
+            int length = map.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || offset + FRAME_BYTES + length > map.capacity()
+                    || checksum(offset + FRAME_BYTES, length) != map.getInt(offset + 4)) {
+                position = offset;
+                forced = offset;
+                for (int i = offset; i < map.capacity(); i += ZEROS.length) {
+                    map.put(i, ZEROS, 0, Math.min(ZEROS.length, map.capacity() - i));
+                }
+                return offset;
+            }
+            visitor.accept(map.slice(offset + FRAME_BYTES, length));
+            offset += FRAME_BYTES + length;
+        }
+        position = offset;
+        forced = offset;
+        return -1;
+    }
+    
+    private int checksum(int offset, int length) {
+        crc.reset();
+        crc.update(map.slice(offset, length));
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Forces the records appended since the last force to disk, returning
+     * false if there were none.
+     */
+    boolean force() {
+        if (position <= forced) {
+            return false;
+        }
+        map.force(forced, position - forced);
+        forced = position;
+        return true;
+    }
+    
+    /**
+     * Renames this segment from its pending name; the mapping stays valid.
+     */
+    void commit() throws IOException {
+        if (isPending(path)) {
+            path = commit(path);
+        }
+    }
+    
+    void close() throws IOException {
+        channel.close();
+    }
+    
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+    
+    long getSequence() { return sequence; }
+    Path getPath() { return path; }
+    int getCapacity() { return map.capacity(); }
+    /** Bytes in use, header included. */
+    int getPosition() { return position; }
+}
@@ -0,0 +1,1032 @@
+package com.scheduler.database;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.MetricsRegistry;
+import com.scheduler.metrics.OpenMetricsWriter;
+import com.scheduler.model.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Task store backed by an append-only journal in a directory of memory-mapped
+ * {@link JournalSegment}s. Writes go through the same write-behind queue as
+ * {@link DatabaseManager}; each drained batch is appended as one group commit
+ * and forced to disk according to the {@link FsyncPolicy}. All state is kept
+ * in memory and rebuilt by replaying the journal on open.
+ *
+ * Once the journal has grown to twice the size of its last compaction, live
+ * state is rewritten into fresh segments and the old ones are deleted. A
+ * manifest file names the first segment of the current generation; a
+ * compaction moves it forward only once its segments are on disk, so replay
+ * never sees the old and the new generation together. Finished
+ * tasks are dropped then, unless a dead letter or an unfinished graph still
+ * refers to them, and so are rollups past their retention. Executions are
+ * folded into the rollups as they are applied; a compaction writes the rollups
+ * and the retained history as snapshot records that are not folded again.
+ *
+ * A record is a type byte followed by that type's fields in a fixed order.
+ * Enums are stored by ordinal, instants as epoch seconds and nanos, and
+ * strings as a uint16 byte count (0xFFFF for null) and UTF-8.
+ */
+public class JournalTaskStore implements TaskStore {
+    private static final String DEFAULT_DIRECTORY = "taskscheduler-journal";
+    private static final String MANIFEST = "journal.manifest";
+    private static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int DEFAULT_BUFFER_CAPACITY = 65536;
+    private static final int DEFAULT_FLUSH_SIZE = 512;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 50;
+    private static final long DEFAULT_FSYNC_INTERVAL_MS = 1000;
+    private static final int HISTORY_CAPACITY = 10_000;
+    private static final int MIN_COMPACT_SEGMENTS = 4;
+    private static final int MAX_STRING_CHARS = 4000;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final int NULL_STRING = 0xFFFF;
+    
+    private static final byte TASK = 1;
+    private static final byte STATUS = 2;
+    private static final byte RELEASE = 3;
+    private static final byte EXECUTION = 4;
+    private static final byte DEAD_LETTER = 5;
+    private static final byte DEAD_LETTER_REMOVED = 6;
+    private static final byte DEPENDENCY = 7;
+    private static final byte HISTORY = 8;
+    private static final byte ROLLUP = 9;
+    
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final Comparator<TaskEntry> RECOVERY_ORDER =
+        Comparator.comparing((TaskEntry entry) -> entry.scheduledTime).thenComparing(entry -> entry.id);
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final Object lock = new Object();
+    private final ConcurrentHashMap<String, TaskEntry> tasks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DeadLetter> deadLetters = new ConcurrentHashMap<>();
+    private final ArrayDeque<TaskExecutionRecord> history = new ArrayDeque<>();
+    private final RollupTable rollups = new RollupTable();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private final LatencyHistogram persistenceMicros = new LatencyHistogram();
+    private final WriteBehindQueue writeQueue;
+    private final Thread syncer;
+    private volatile int segmentCount;
+    private volatile long journalBytes;
+    private volatile PageSnapshot recoveryPage;
+    
+    // Guarded by lock
+    private final List<JournalSegment> segments = new ArrayList<>();
+    /** Where rolled segments go: {@link #segments}, or a compaction's new generation. */
+    private List<JournalSegment> writing = segments;
+    private final Map<String, Map<String, Set<String>>> dependencies = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    private JournalSegment active;
+    private long firstSequence;
+    private int compactedSegments = 1;
+    private boolean compactionDue;
+    private boolean compacting;
+    private boolean open = true;
+    
+    public JournalTaskStore() throws IOException {
+        this(Paths.get(DEFAULT_DIRECTORY));
+    }
+    
+    public JournalTaskStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, FsyncPolicy.INTERVAL, DEFAULT_FSYNC_INTERVAL_MS,
+            DEFAULT_BUFFER_CAPACITY, DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+    
+    /**
+     * @param fsyncIntervalMillis how often {@link FsyncPolicy#INTERVAL} forces the journal
+     */
+    public JournalTaskStore(Path directory, int segmentBytes, FsyncPolicy fsyncPolicy,
+                            long fsyncIntervalMillis, int bufferCapacity, int flushSize,
+                            long flushIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        Files.createDirectories(directory);
+        openJournal();
+        this.writeQueue = new WriteBehindQueue(bufferCapacity, flushSize, flushIntervalMillis,
+            this::writeBatch);
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            this.syncer = new Thread(this::syncPeriodically, "Journal-Sync");
+            this.syncer.setDaemon(true);
+            this.syncer.start();
+        } else {
+            this.syncer = null;
+        }
+    }
+    
+    private void openJournal() throws IOException {
+        long start = System.nanoTime();
+        long[] manifest = readManifest();
+        boolean unfinished = manifest[1] != 0;
+        List<Path> listing;
+        try (Stream<Path> entries = Files.list(directory)) {
+            listing = entries.collect(Collectors.toList());
+        }
+        List<Path> files = new ArrayList<>();
+        for (Path file : listing) {
+            boolean pending = JournalSegment.isPending(file);
+            if (!pending && !JournalSegment.isSegment(file)) {
+                continue;
+            }
+            if (JournalSegment.sequenceOf(file) < manifest[0] || (pending && unfinished)) {
+                // Replaced by a compaction that finished, or written by one that did not
+                Files.delete(file);
+            } else if (pending) {
+                // The compaction finished but was stopped before renaming its segments
+                files.add(JournalSegment.commit(file));
+            } else {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparingLong(JournalSegment::sequenceOf));
+        if (unfinished) {
+            writeManifest(manifest[0], 0);
+        }
+        
+        synchronized (lock) {
+            firstSequence = manifest[0];
+            for (Path file : files) {
+                JournalSegment segment = JournalSegment.open(file);
+                segments.add(segment);
+                int torn = segment.replay(this::apply);
+                if (torn >= 0) {
+                    System.err.println("⚠ Journal " + file.getFileName()
+                        + ": discarded torn record at offset " + torn);
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.add(JournalSegment.create(directory, 1, segmentBytes));
+            }
+            active = segments.get(segments.size() - 1);
+            rollups.prune(Instant.now());
+            updateSize();
+        }
+        System.out.println(String.format("✓ Journal opened: %d tasks from %d segments in %dms",
+            tasks.size(), files.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+    
+    @Override
+    public void saveTask(ScheduledTask task, TaskStatus status) {
+        writeQueue.enqueue(PersistenceEvent.taskCreated(task, status));
+    }
+    
+    /**
+     * Appends a batch of new tasks as one commit, bypassing the write-behind
+     * queue, so the tasks are in the journal before any of them can run.
+     */
+    @Override
+    public void saveTasks(List<ScheduledTask> tasks, TaskStatus status) throws SQLException {
+        synchronized (lock) {
+            long start = System.nanoTime();
+            try {
+                for (ScheduledTask task : tasks) {
+                    writeTask(task.getId(), task.getName(), task.getPriority(), status,
+                        task.getScheduledTime(), task.getNextFireTimeMillis(), task.getGraphId());
+                }
+                commit(start);
+            } catch (IOException e) {
+                throw new SQLException("Journal write failed: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    @Override
+    public void updateTaskStatus(String taskId, TaskStatus status) {
+        writeQueue.enqueue(PersistenceEvent.statusChanged(taskId, status));
+    }
+    
+    @Override
+    public void releaseTask(String taskId, long nextFireMillis) {
+        writeQueue.enqueue(PersistenceEvent.released(taskId, nextFireMillis));
+    }
+    
+    @Override
+    public void saveExecutionRecord(TaskExecutionRecord record, TaskPriority priority) {
+        writeQueue.enqueue(PersistenceEvent.executionRecorded(record, priority));
+    }
+    
+    @Override
+    public void saveDeadLetter(TaskExecutionRecord lastRun, TaskPriority priority) {
+        writeQueue.enqueue(PersistenceEvent.deadLettered(lastRun, priority));
+    }
+    
+    @Override
+    public void saveDependencies(String graphId, List<String[]> edges) throws SQLException {
+        synchronized (lock) {
+            long start = System.nanoTime();
+            try {
+                for (String[] edge : edges) {
+                    writeDependency(graphId, edge[0], edge[1]);
+                }
+                commit(start);
+            } catch (IOException e) {
+                throw new SQLException("Journal write failed: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    @Override
+    public List<TaskDependency> loadDependencies(String graphId) {
+        List<TaskDependency> edges = new ArrayList<>();
+        synchronized (lock) {
+            for (Map.Entry<String, Set<String>> task
+                    : dependencies.getOrDefault(graphId, Collections.emptyMap()).entrySet()) {
+                for (String dependsOn : task.getValue()) {
+                    TaskEntry predecessor = tasks.get(dependsOn);
+                    edges.add(new TaskDependency(task.getKey(), dependsOn,
+                        predecessor != null ? predecessor.status : null));
+                }
+            }
+        }
+        return edges;
+    }
+    
+    /**
+     * Pages through a sorted snapshot of the tasks in {@code status}, taken
+     * when the first page is requested and dropped after the last one.
+     */
+    @Override
+    public List<StoredTask> loadTasks(TaskStatus status, StoredTask after, int limit) {
+        PageSnapshot snapshot = recoveryPage;
+        if (after == null || snapshot == null || snapshot.status != status) {
+            snapshot = new PageSnapshot(status, tasks.values().stream()
+                .filter(entry -> entry.status == status)
+                .sorted(RECOVERY_ORDER)
+                .toArray(TaskEntry[]::new));
+            recoveryPage = snapshot;
+        }
+        int from = after != null ? snapshot.indexAfter(after) : 0;
+        int to = Math.min(from + limit, snapshot.entries.length);
+        List<StoredTask> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            TaskEntry entry = snapshot.entries[i];
+            page.add(new StoredTask(entry.id, entry.name, entry.priority, status,
+                entry.scheduledTime, entry.nextFireMillis, entry.graphId));
+        }
+        if (to == snapshot.entries.length) {
+            recoveryPage = null;
+        }
+        return page;
+    }
+    
+    /**
+     * Finished tasks are only found until the next compaction drops them.
+     */
+    @Override
+    public StoredTask loadTask(String taskId) {
+        TaskEntry entry = tasks.get(taskId);
+        if (entry == null) {
+            return null;
+        }
+        return new StoredTask(entry.id, entry.name, entry.priority, entry.status,
+            entry.scheduledTime, entry.nextFireMillis, entry.graphId);
+    }
+    
+    @Override
+    public List<DeadLetter> getDeadLetters(int limit) {
+        return deadLetters.values().stream()
+            .sorted(Comparator.comparing(DeadLetter::getFailedAt))
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    public List<DeadLetter> getDeadLetters(Collection<String> taskIds) {
+        return taskIds.stream()
+            .map(deadLetters::get)
+            .filter(Objects::nonNull)
+            .sorted(Comparator.comparing(DeadLetter::getFailedAt))
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    public int deleteDeadLetters(Collection<String> taskIds) throws SQLException {
+        synchronized (lock) {
+            long start = System.nanoTime();
+            int deleted = 0;
+            try {
+                for (String taskId : taskIds) {
+                    if (deadLetters.containsKey(taskId)) {
+                        record.put(DEAD_LETTER_REMOVED);
+                        putString(taskId);
+                        append();
+                        deleted++;
+                    }
+                }
+                commit(start);
+            } catch (IOException e) {
+                throw new SQLException("Journal write failed: " + e.getMessage(), e);
+            }
+            return deleted;
+        }
+    }
+    
+    @Override
+    public int countDeadLetters() {
+        return deadLetters.size();
+    }
+    
+    /**
+     * Only the newest {@value #HISTORY_CAPACITY} records are kept.
+     */
+    @Override
+    public List<TaskExecutionRecord> getExecutionHistory(int limit) {
+        synchronized (history) {
+            List<TaskExecutionRecord> latest = new ArrayList<>(Math.min(limit, history.size()));
+            Iterator<TaskExecutionRecord> newestFirst = history.descendingIterator();
+            while (newestFirst.hasNext() && latest.size() < limit) {
+                latest.add(newestFirst.next());
+            }
+            return latest;
+        }
+    }
+    
+    /**
+     * Searches the newest {@value #HISTORY_CAPACITY} records only.
+     */
+    @Override
+    public List<TaskExecutionRecord> queryHistory(HistoryQuery query) {
+        synchronized (history) {
+            List<TaskExecutionRecord> matches = new ArrayList<>();
+            Iterator<TaskExecutionRecord> newestFirst = history.descendingIterator();
+            while (newestFirst.hasNext() && matches.size() < query.getLimit()) {
+                TaskExecutionRecord record = newestFirst.next();
+                if (query.matches(record)) {
+                    matches.add(record);
+                }
+            }
+            return matches;
+        }
+    }
+    
+    @Override
+    public List<HistoryRollup> getRollups(HistoryRollup.Grain grain, Instant from, Instant to, String taskName) {
+        return rollups.query(grain, from, to, taskName);
+    }
+    
+    @Override
+    public int getPendingWrites() {
+        return writeQueue.pending();
+    }
+    
+    /** Average time of a group commit, including its fsync. */
+    @Override
+    public long getAverageQueryMicros() {
+        long count = commits.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(commitNanos.sum() / count);
+    }
+    
+    @Override
+    public LatencyHistogram getPersistenceLatency() {
+        return persistenceMicros;
+    }
+    
+    @Override
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.register(this::collectMetrics);
+    }
+    
+    private void collectMetrics(OpenMetricsWriter out) {
+        out.family("scheduler_db_pending_writes", "gauge", "Events waiting in the write-behind queue");
+        out.sample("scheduler_db_pending_writes", "", writeQueue.pending());
+        out.family("scheduler_journal_segments", "gauge", "Journal segment files");
+        out.sample("scheduler_journal_segments", "", segmentCount);
+        out.family("scheduler_journal_bytes", "gauge", "Bytes written to journal segments");
+        out.sample("scheduler_journal_bytes", "", journalBytes);
+        out.family("scheduler_journal_commits", "counter", "Group commits appended to the journal");
+        out.sample("scheduler_journal_commits", "_total", commits.sum());
+        out.family("scheduler_journal_fsyncs", "counter", "Times the journal was forced to disk");
+        out.sample("scheduler_journal_fsyncs", "_total", fsyncs.sum());
+        out.family("scheduler_journal_compactions", "counter", "Journal compactions");
+        out.sample("scheduler_journal_compactions", "_total", compactions.sum());
+        out.family("scheduler_db_write_latency_seconds", "histogram",
+            "Time from enqueue to commit of persisted events");
+        out.histogram("scheduler_db_write_latency_seconds", null, null, persistenceMicros);
+    }
+    
+    @Override
+    public void flush() {
+        writeQueue.flush();
+    }
+    
+    @Override
+    public void shutdown() {
+        writeQueue.shutdown();
+        if (syncer != null) {
+            syncer.interrupt();
+        }
+        synchronized (lock) {
+            open = false;
+            try {
+                force();
+                for (JournalSegment segment : segments) {
+                    segment.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void writeBatch(List<PersistenceEvent> batch) {
+        synchronized (lock) {
+            long start = System.nanoTime();
+            try {
+                for (PersistenceEvent event : batch) {
+                    switch (event.kind) {
+                        case TASK_CREATED:
+                            writeTask(event.taskId, event.taskName, event.priority, event.status,
+                                event.scheduledTime, event.nextFireMillis, event.graphId);
+                            break;
+                        case STATUS_CHANGED:
+                            record.put(STATUS);
+                            putString(event.taskId);
+                            record.put((byte) event.status.ordinal());
+                            append();
+                            break;
+                        case RELEASED:
+                            record.put(RELEASE);
+                            putString(event.taskId);
+                            record.putLong(event.nextFireMillis);
+                            append();
+                            break;
+                        case EXECUTION_RECORDED:
+                            writeExecution(EXECUTION, event.record, event.priority);
+                            break;
+                        case DEAD_LETTERED:
+                            writeDeadLetter(new DeadLetter(event.taskId, event.taskName, event.priority,
+                                event.record.getAttempt(), event.record.getErrorMessage(),
+                                event.record.getEndTime()));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                commit(start);
+            } catch (IOException e) {
+                System.err.println("Error writing batch of " + batch.size() + " events: " + e.getMessage());
+                return;
+            }
+        }
+        recordPersisted(batch);
+    }
+    
+    private void recordPersisted(List<PersistenceEvent> batch) {
+        long now = System.nanoTime();
+        for (PersistenceEvent event : batch) {
+            if (event.kind != PersistenceEvent.Kind.FLUSH) {
+                persistenceMicros.record(TimeUnit.NANOSECONDS.toMicros(now - event.enqueuedNanos));
+            }
+        }
+    }
+    
+    private void writeTask(String id, String name, TaskPriority priority, TaskStatus status,
+                           Instant scheduledTime, long nextFireMillis, String graphId) throws IOException {
+        record.put(TASK);
+        putString(id);
+        putString(name);
+        record.put((byte) priority.ordinal());
+        record.put((byte) status.ordinal());
+        putInstant(scheduledTime);
+        record.putLong(nextFireMillis);
+        putString(graphId);
+        append();
+    }
+    
+    /**
+     * @param type EXECUTION for a new run, HISTORY for a retained one rewritten
+     *             by a compaction, which is already in the rollups
+     */
+    private void writeExecution(byte type, TaskExecutionRecord run, TaskPriority priority) throws IOException {
+        record.put(type);
+        record.put((byte) (priority != null ? priority.ordinal() : -1));
+        putString(run.getTaskId());
+        putString(run.getTaskName());
+        record.put((byte) run.getStatus().ordinal());
+        putInstant(run.getStartTime());
+        putInstant(run.getEndTime());
+        putString(run.getErrorMessage());
+        record.putLong(run.getScheduleLagMicros());
+        record.putLong(run.getQueueWaitMicros());
+        record.putInt(run.getAttempt());
+        append();
+    }
+    
+    private void writeDeadLetter(DeadLetter letter) throws IOException {
+        record.put(DEAD_LETTER);
+        putString(letter.getTaskId());
+        putString(letter.getTaskName());
+        record.put((byte) letter.getPriority().ordinal());
+        record.putInt(letter.getAttempts());
+        putString(letter.getErrorMessage());
+        putInstant(letter.getFailedAt());
+        append();
+    }
+    
+    private void writeRollup(HistoryRollup rollup) throws IOException {
+        record.put(ROLLUP);
+        record.put((byte) rollup.getGrain().ordinal());
+        putInstant(rollup.getBucketStart());
+        putString(rollup.getTaskName());
+        record.put((byte) rollup.getPriority().ordinal());
+        record.putLong(rollup.getRuns());
+        record.putLong(rollup.getFailures());
+        record.putLong(rollup.getTotalMillis());
+        record.putLong(rollup.getMinMillis());
+        record.putLong(rollup.getMaxMillis());
+        for (int i = 0; i < HistoryRollup.BUCKET_COUNT; i++) {
+            record.putLong(rollup.getBucket(i));
+        }
+        append();
+    }
+    
+    private void writeDependency(String graphId, String taskId, String dependsOn) throws IOException {
+        record.put(DEPENDENCY);
+        putString(graphId);
+        putString(taskId);
+        putString(dependsOn);
+        append();
+    }
+    
+    /**
+     * Appends the encoded record and applies it to the in-memory state through
+     * the same path as a replay, so what is read back after a restart is
+     * exactly what was served before it.
+     */
+    private void append() throws IOException {
+        record.flip();
+        try {
+            if (!active.append(record)) {
+                roll();
+                if (!active.append(record)) {
+                    throw new IOException("Record of " + record.remaining() + " bytes exceeds the segment size");
+                }
+            }
+            apply(record);
+        } finally {
+            record.clear();
+        }
+    }
+    
+    private void roll() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            force();
+        }
+        active = JournalSegment.create(directory, active.getSequence() + 1, segmentBytes);
+        writing.add(active);
+        if (!compacting && segments.size() >= Math.max(MIN_COMPACT_SEGMENTS, 2 * compactedSegments)) {
+            compactionDue = true;
+        }
+    }
+    
+    private void commit(long startNanos) throws IOException {
+        if (fsyncPolicy == FsyncPolicy.EVERY_BATCH) {
+            force();
+        }
+        if (compactionDue) {
+            compact();
+        }
+        commits.increment();
+        commitNanos.add(System.nanoTime() - startNanos);
+        updateSize();
+    }
+    
+    private void force() {
+        if (active.force()) {
+            fsyncs.increment();
+        }
+    }
+    
+    private void syncPeriodically() {
+        while (true) {
+            try {
+                Thread.sleep(fsyncIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (lock) {
+                if (!open) {
+                    return;
+                }
+                force();
+            }
+        }
+    }
+    
+    /**
+     * Rewrites live state into new segments, forces them and deletes the old
+     * ones. The new segments are written under pending names, and the manifest
+     * is marked with their first sequence while they are; only once they are
+     * forced does the manifest name them as the journal. A crash before that
+     * leaves the old generation in charge and the pending files are deleted on
+     * open; a crash after it leaves the old files to be deleted on open. Either
+     * way replay sees one generation, never both, which would fold the old
+     * executions into rollups the new snapshot records already contain.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        compactionDue = false;
+        compacting = true;
+        JournalSegment previous = active;
+        long first = previous.getSequence() + 1;
+        List<JournalSegment> fresh = new ArrayList<>();
+        Set<String> droppedTasks = new HashSet<>();
+        List<String> doneGraphs = new ArrayList<>();
+        List<HistoryRollup> rows = null;
+        List<TaskExecutionRecord> retained = null;
+        try {
+            deletePending();
+            writeManifest(firstSequence, first);
+            active = JournalSegment.createPending(directory, first, segmentBytes);
+            fresh.add(active);
+            writing = fresh;
+            
+            Set<String> openGraphs = new HashSet<>();
+            for (TaskEntry entry : tasks.values()) {
+                if (entry.graphId != null && !isFinished(entry.status)) {
+                    openGraphs.add(entry.graphId);
+                }
+            }
+            for (TaskEntry entry : new ArrayList<>(tasks.values())) {
+                if (isFinished(entry.status) && !deadLetters.containsKey(entry.id)
+                        && (entry.graphId == null || !openGraphs.contains(entry.graphId))) {
+                    droppedTasks.add(entry.id);
+                } else {
+                    writeTask(entry.id, entry.name, entry.priority, entry.status,
+                        entry.scheduledTime, entry.nextFireMillis, entry.graphId);
+                }
+            }
+            for (DeadLetter letter : new ArrayList<>(deadLetters.values())) {
+                writeDeadLetter(letter);
+            }
+            // Edges are kept until their graph has tasks and all of them are done
+            Set<String> knownGraphs = new HashSet<>();
+            for (TaskEntry entry : tasks.values()) {
+                if (entry.graphId != null && !droppedTasks.contains(entry.id)) {
+                    knownGraphs.add(entry.graphId);
+                }
+            }
+            List<String[]> edges = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Set<String>>> graph : dependencies.entrySet()) {
+                if (knownGraphs.contains(graph.getKey()) && !openGraphs.contains(graph.getKey())) {
+                    doneGraphs.add(graph.getKey());
+                    continue;
+                }
+                for (Map.Entry<String, Set<String>> task : graph.getValue().entrySet()) {
+                    for (String dependsOn : task.getValue()) {
+                        edges.add(new String[] {graph.getKey(), task.getKey(), dependsOn});
+                    }
+                }
+            }
+            for (String[] edge : edges) {
+                writeDependency(edge[0], edge[1], edge[2]);
+            }
+            rollups.prune(Instant.now());
+            rows = rollups.rows();
+            rollups.clear();
+            for (HistoryRollup row : rows) {
+                writeRollup(row);
+            }
+            synchronized (history) {
+                retained = new ArrayList<>(history);
+                history.clear();
+            }
+            for (TaskExecutionRecord run : retained) {
+                writeExecution(HISTORY, run, null);
+            }
+            
+            for (JournalSegment segment : fresh) {
+                if (segment.force()) {
+                    fsyncs.increment();
+                }
+            }
+            writeManifest(first, 0);
+        } catch (IOException | RuntimeException e) {
+            // The old segments are still the journal; undo what the rewrite took out of memory
+            active = previous;
+            for (JournalSegment segment : fresh) {
+                try {
+                    segment.delete();
+                } catch (IOException ignored) {
+                    // Deleted on the next compaction or open
+                }
+            }
+            if (rows != null) {
+                rollups.clear();
+                for (HistoryRollup row : rows) {
+                    rollups.merge(row);
+                }
+            }
+            if (retained != null) {
+                synchronized (history) {
+                    history.clear();
+                    history.addAll(retained);
+                }
+            }
+            throw e;
+        } finally {
+            writing = segments;
+            compacting = false;
+        }
+        
+        List<JournalSegment> old = new ArrayList<>(segments);
+        segments.clear();
+        segments.addAll(fresh);
+        firstSequence = first;
+        tasks.keySet().removeAll(droppedTasks);
+        dependencies.keySet().removeAll(doneGraphs);
+        try {
+            for (JournalSegment segment : fresh) {
+                segment.commit();
+            }
+            syncDirectory();
+            for (JournalSegment segment : old) {
+                segment.delete();
+            }
+        } catch (IOException e) {
+            // The manifest already names the new segments; the next open finishes the cleanup
+            System.err.println("Error cleaning up after journal compaction: " + e.getMessage());
+        }
+        compactedSegments = segments.size();
+        compactions.increment();
+        System.out.println(String.format("🗜 Journal compacted: %d → %d segments, %d finished tasks dropped (%dms)",
+            old.size(), segments.size(), droppedTasks.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+    
+    /**
+     * Returns the first sequence of the current generation and, if a compaction
+     * was under way, the first sequence of its pending segments (else 0).
+     * Without a manifest every segment is current.
+     */
+    private long[] readManifest() throws IOException {
+        long[] manifest = new long[2];
+        Path path = directory.resolve(MANIFEST);
+        if (!Files.exists(path)) {
+            return manifest;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] field = line.split("=", 2);
+            if (field.length < 2) {
+                continue;
+            }
+            if (field[0].equals("first")) {
+                manifest[0] = Long.parseLong(field[1].trim());
+            } else if (field[0].equals("pending")) {
+                manifest[1] = Long.parseLong(field[1].trim());
+            }
+        }
+        return manifest;
+    }
+    
+    /**
+     * Replaces the manifest atomically: written and forced under a temporary
+     * name, then renamed over the old one.
+     */
+    private void writeManifest(long first, long pending) throws IOException {
+        String text = "first=" + first + "\n" + (pending != 0 ? "pending=" + pending + "\n" : "");
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+    
+    private void deletePending() throws IOException {
+        List<Path> pending;
+        try (Stream<Path> entries = Files.list(directory)) {
+            pending = entries.filter(JournalSegment::isPending).collect(Collectors.toList());
+        }
+        for (Path file : pending) {
+            Files.delete(file);
+        }
+    }
+    
+    /**
+     * Makes renames in the journal directory durable. Not every platform can
+     * open a directory for this, so a failure is ignored.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Renames are still durable once the file system commits them
+        }
+    }
+    
+    private static boolean isFinished(TaskStatus status) {
+        return status == TaskStatus.COMPLETED || status == TaskStatus.FAILED || status == TaskStatus.CANCELLED;
+    }
+    
+    private void updateSize() {
+        long bytes = 0;
+        for (JournalSegment segment : segments) {
+            bytes += segment.getPosition();
+        }
+        journalBytes = bytes;
+        segmentCount = segments.size();
+    }
+    
+    /**
+     * Applies one record to the in-memory state. Called under the lock, both
+     * for live appends and while replaying on open.
+     */
+    private void apply(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case TASK: {
+                String id = getString(in);
+                String name = getString(in);
+                TaskPriority priority = PRIORITIES[in.get()];
+                TaskStatus status = STATUSES[in.get()];
+                Instant scheduledTime = getInstant(in);
+                long nextFireMillis = in.getLong();
+                tasks.put(id, new TaskEntry(id, name, priority, scheduledTime, getString(in),
+                    status, nextFireMillis));
+                break;
+            }
+            case STATUS: {
+                TaskEntry entry = tasks.get(getString(in));
+                TaskStatus status = STATUSES[in.get()];
+                if (entry != null) {
+                    entry.status = status;
+                }
+                break;
+            }
+            case RELEASE: {
+                TaskEntry entry = tasks.get(getString(in));
+                long nextFireMillis = in.getLong();
+                if (entry != null) {
+                    entry.status = TaskStatus.PENDING;
+                    entry.nextFireMillis = nextFireMillis;
+                }
+                break;
+            }
+            case EXECUTION:
+            case HISTORY: {
+                byte priority = in.get();
+                TaskExecutionRecord run = new TaskExecutionRecord(getString(in), getString(in),
+                    STATUSES[in.get()], getInstant(in), getInstant(in), getString(in),
+                    in.getLong(), in.getLong(), in.getInt());
+                if (type == EXECUTION) {
+                    rollups.record(run, PRIORITIES[priority]);
+                }
+                synchronized (history) {
+                    if (history.size() == HISTORY_CAPACITY) {
+                        history.pollFirst();
+                    }
+                    history.addLast(run);
+                }
+                break;
+            }
+            case DEAD_LETTER: {
+                DeadLetter letter = new DeadLetter(getString(in), getString(in), PRIORITIES[in.get()],
+                    in.getInt(), getString(in), getInstant(in));
+                deadLetters.put(letter.getTaskId(), letter);
+                break;
+            }
+            case DEAD_LETTER_REMOVED:
+                deadLetters.remove(getString(in));
+                break;
+            case ROLLUP: {
+                HistoryRollup.Grain grain = HistoryRollup.Grain.values()[in.get()];
+                Instant bucketStart = getInstant(in);
+                String taskName = getString(in);
+                TaskPriority priority = PRIORITIES[in.get()];
+                long runs = in.getLong();
+                long failures = in.getLong();
+                long totalMillis = in.getLong();
+                long minMillis = in.getLong();
+                long maxMillis = in.getLong();
+                long[] buckets = new long[HistoryRollup.BUCKET_COUNT];
+                for (int i = 0; i < buckets.length; i++) {
+                    buckets[i] = in.getLong();
+                }
+                rollups.merge(new HistoryRollup(grain, bucketStart, taskName, priority, runs, failures,
+                    totalMillis, minMillis, maxMillis, buckets));
+                break;
+            }
+            case DEPENDENCY: {
+                String graphId = getString(in);
+                String taskId = getString(in);
+                dependencies.computeIfAbsent(graphId, graph -> new LinkedHashMap<>())
+                    .computeIfAbsent(taskId, task -> new LinkedHashSet<>())
+                    .add(getString(in));
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+    
+    private void putString(String value) {
+        if (value == null) {
+            record.putShort((short) NULL_STRING);
+            return;
+        }
+        if (value.length() > MAX_STRING_CHARS) {
+            value = value.substring(0, MAX_STRING_CHARS);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.putShort((short) bytes.length);
+        record.put(bytes);
+    }
+    
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private void putInstant(Instant instant) {
+        record.putLong(instant != null ? instant.getEpochSecond() : Long.MIN_VALUE);
+        record.putInt(instant != null ? instant.getNano() : 0);
+    }
+    
+    private static Instant getInstant(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return seconds != Long.MIN_VALUE ? Instant.ofEpochSecond(seconds, nanos) : null;
+    }
+    
+    private static final class TaskEntry {
+        final String id;
+        final String name;
+        final TaskPriority priority;
+        final Instant scheduledTime;
+        final String graphId;
+        volatile TaskStatus status;
+        volatile long nextFireMillis;
+        
+        TaskEntry(String id, String name, TaskPriority priority, Instant scheduledTime, String graphId,
+                  TaskStatus status, long nextFireMillis) {
+            this.id = id;
+            this.name = name;
+            this.priority = priority;
+            this.scheduledTime = scheduledTime;
+            this.graphId = graphId;
+            this.status = status;
+            this.nextFireMillis = nextFireMillis;
+        }
+    }
+    
+    private static final class PageSnapshot {
+        final TaskStatus status;
+        final TaskEntry[] entries;
+        
+        PageSnapshot(TaskStatus status, TaskEntry[] entries) {
+            this.status = status;
+            this.entries = entries;
+        }
+        
+        /** Index of the first entry ordered after {@code after}. */
+        int indexAfter(StoredTask after) {
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                TaskEntry entry = entries[mid];
+                int cmp = entry.scheduledTime.compareTo(after.getScheduledTime());
+                if (cmp == 0) {
+                    cmp = entry.id.compareTo(after.getId());
+                }
+                if (cmp <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
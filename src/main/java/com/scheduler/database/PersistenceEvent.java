@@ -0,0 +1,66 @@
+package com.scheduler.database;
+
+import com.scheduler.model.*;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+
+class PersistenceEvent {
+    enum Kind { TASK_CREATED, STATUS_CHANGED, EXECUTION_RECORDED, RELEASED, DEAD_LETTERED, FLUSH }
+    
+    final Kind kind;
+    final String taskId;
+    final String taskName;
+    final TaskPriority priority;
+    final Instant scheduledTime;
+    final long nextFireMillis;
+    final TaskExecutionRecord record;
+    final CountDownLatch flushed;
+    final long enqueuedNanos = System.nanoTime();
+    TaskStatus status;
+    String graphId;
+    
+    private PersistenceEvent(Kind kind, String taskId, String taskName, TaskPriority priority,
+                             TaskStatus status, Instant scheduledTime, long nextFireMillis,
+                             TaskExecutionRecord record, CountDownLatch flushed) {
+        this.kind = kind;
+        this.taskId = taskId;
+        this.taskName = taskName;
+        this.priority = priority;
+        this.status = status;
+        this.scheduledTime = scheduledTime;
+        this.nextFireMillis = nextFireMillis;
+        this.record = record;
+        this.flushed = flushed;
+    }
+    
+    static PersistenceEvent taskCreated(ScheduledTask task, TaskStatus status) {
+        PersistenceEvent event = new PersistenceEvent(Kind.TASK_CREATED, task.getId(), task.getName(),
+            task.getPriority(), status, task.getScheduledTime(), task.getNextFireTimeMillis(), null, null);
+        event.graphId = task.getGraphId();
+        return event;
+    }
+    
+    static PersistenceEvent statusChanged(String taskId, TaskStatus status) {
+        return new PersistenceEvent(Kind.STATUS_CHANGED, taskId, null, null, status, null, 0, null, null);
+    }
+    
+    static PersistenceEvent executionRecorded(TaskExecutionRecord record, TaskPriority priority) {
+        return new PersistenceEvent(Kind.EXECUTION_RECORDED, record.getTaskId(), null, priority,
+            null, null, 0, record, null);
+    }
+    
+    static PersistenceEvent deadLettered(TaskExecutionRecord record, TaskPriority priority) {
+        return new PersistenceEvent(Kind.DEAD_LETTERED, record.getTaskId(), record.getTaskName(), priority,
+            TaskStatus.FAILED, null, 0, record, null);
+    }
+    
+    static PersistenceEvent released(String taskId, long nextFireMillis) {
+        return new PersistenceEvent(Kind.RELEASED, taskId, null, null, TaskStatus.PENDING, null,
+            nextFireMillis, null, null);
+    }
+    
+    static PersistenceEvent flush() {
+        return new PersistenceEvent(Kind.FLUSH, null, null, null, null, null, 0, null,
+            new CountDownLatch(1));
+    }
+}
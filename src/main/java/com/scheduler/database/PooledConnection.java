@@ -0,0 +1,59 @@
+package com.scheduler.database;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A pooled connection together with its cache of prepared statements.
+ * Closing it returns it to the pool; the cached statements stay open for
+ * the next borrower.
+ */
+public class PooledConnection implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    long lastUsedAt = System.nanoTime();
+    long checkedOutAt;
+    
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+    
+    public Connection getConnection() {
+        return connection;
+    }
+    
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null || pstmt.isClosed()) {
+            pstmt = connection.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        } else {
+            pstmt.clearParameters();
+            pstmt.clearBatch();
+        }
+        return pstmt;
+    }
+    
+    void closePhysical() {
+        for (PreparedStatement pstmt : statements.values()) {
+            try {
+                pstmt.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+}
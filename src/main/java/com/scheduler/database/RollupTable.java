@@ -0,0 +1,133 @@
+package com.scheduler.database;
+
+import com.scheduler.model.*;
+import com.scheduler.model.HistoryRollup.Grain;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Rollup rows by grain, bucket start, task name and priority. Folds a write
+ * batch into one delta per row for {@link DatabaseManager}, and holds the live
+ * rollups of {@link JournalTaskStore}. Updates must be serialized by the
+ * caller; readers get copies.
+ */
+final class RollupTable {
+    private static final int PRIORITIES = TaskPriority.values().length;
+    static final Comparator<HistoryRollup> ORDER = Comparator
+        .comparing(HistoryRollup::getBucketStart)
+        .thenComparing(HistoryRollup::getTaskName)
+        .thenComparing(HistoryRollup::getPriority);
+    
+    private final Map<Grain, ConcurrentSkipListMap<Instant, ConcurrentHashMap<String, HistoryRollup[]>>> grains =
+        new EnumMap<>(Grain.class);
+    
+    RollupTable() {
+        for (Grain grain : Grain.values()) {
+            grains.put(grain, new ConcurrentSkipListMap<>());
+        }
+    }
+    
+    /**
+     * Adds one execution to its minute, hour and day rows, bucketed by start time.
+     */
+    void record(TaskExecutionRecord record, TaskPriority priority) {
+        long millis = record.getActualDuration() != null ? record.getActualDuration().toMillis() : 0;
+        boolean failed = record.getStatus() == TaskStatus.FAILED;
+        for (Grain grain : Grain.values()) {
+            row(grain, grain.bucketOf(record.getStartTime()), record.getTaskName(), priority)
+                .record(millis, failed);
+        }
+    }
+    
+    void merge(HistoryRollup rollup) {
+        row(rollup.getGrain(), rollup.getBucketStart(), rollup.getTaskName(), rollup.getPriority())
+            .merge(rollup);
+    }
+    
+    private HistoryRollup row(Grain grain, Instant bucketStart, String taskName, TaskPriority priority) {
+        HistoryRollup[] byPriority = grains.get(grain)
+            .computeIfAbsent(bucketStart, bucket -> new ConcurrentHashMap<>())
+            .computeIfAbsent(taskName, name -> new HistoryRollup[PRIORITIES]);
+        HistoryRollup row = byPriority[priority.ordinal()];
+        if (row == null) {
+            row = new HistoryRollup(grain, bucketStart, taskName, priority);
+            byPriority[priority.ordinal()] = row;
+        }
+        return row;
+    }
+    
+    /**
+     * Copies of the rows of {@code grain} whose bucket starts in [from, to),
+     * for one task name or all of them, by bucket, name and priority.
+     */
+    List<HistoryRollup> query(Grain grain, Instant from, Instant to, String taskName) {
+        List<HistoryRollup> rows = new ArrayList<>();
+        for (Map<String, HistoryRollup[]> bucket : grains.get(grain).subMap(from, to).values()) {
+            if (taskName != null) {
+                addCopies(rows, bucket.get(taskName));
+            } else {
+                for (HistoryRollup[] byPriority : bucket.values()) {
+                    addCopies(rows, byPriority);
+                }
+            }
+        }
+        rows.sort(ORDER);
+        return rows;
+    }
+    
+    private static void addCopies(List<HistoryRollup> rows, HistoryRollup[] byPriority) {
+        if (byPriority == null) {
+            return;
+        }
+        for (HistoryRollup row : byPriority) {
+            if (row != null) {
+                rows.add(row.copy());
+            }
+        }
+    }
+    
+    /** Every row, uncopied, in no particular order. */
+    List<HistoryRollup> rows() {
+        List<HistoryRollup> rows = new ArrayList<>();
+        for (ConcurrentSkipListMap<Instant, ConcurrentHashMap<String, HistoryRollup[]>> buckets : grains.values()) {
+            for (Map<String, HistoryRollup[]> bucket : buckets.values()) {
+                for (HistoryRollup[] byPriority : bucket.values()) {
+                    for (HistoryRollup row : byPriority) {
+                        if (row != null) {
+                            rows.add(row);
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Drops the rows that are past their grain's retention at {@code now}.
+     */
+    void prune(Instant now) {
+        for (Grain grain : Grain.values()) {
+            if (grain.getRetention() != null) {
+                grains.get(grain).headMap(now.minus(grain.getRetention())).clear();
+            }
+        }
+    }
+    
+    boolean isEmpty() {
+        for (ConcurrentSkipListMap<Instant, ConcurrentHashMap<String, HistoryRollup[]>> buckets : grains.values()) {
+            if (!buckets.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    void clear() {
+        for (ConcurrentSkipListMap<Instant, ConcurrentHashMap<String, HistoryRollup[]>> buckets : grains.values()) {
+            buckets.clear();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.scheduler.database;
+
+import com.scheduler.model.TaskPriority;
+import com.scheduler.model.TaskStatus;
+import java.time.Instant;
+
+/**
+ * A task row as read back from the store, e.g. during recovery.
+ */
+public class StoredTask {
+    private final String id;
+    private final String name;
+    private final TaskPriority priority;
+    private final TaskStatus status;
+    private final Instant scheduledTime;
+    private final long nextFireMillis;
+    private final String graphId;
+    
+    StoredTask(String id, String name, TaskPriority priority, TaskStatus status,
+               Instant scheduledTime, long nextFireMillis, String graphId) {
+        this.id = id;
+        this.name = name;
+        this.priority = priority;
+        this.status = status;
+        this.scheduledTime = scheduledTime;
+        this.nextFireMillis = nextFireMillis;
+        this.graphId = graphId;
+    }
+    
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public TaskPriority getPriority() { return priority; }
+    public TaskStatus getStatus() { return status; }
+    public Instant getScheduledTime() { return scheduledTime; }
+    public long getNextFireMillis() { return nextFireMillis; }
+    public String getGraphId() { return graphId; }
+}
@@ -0,0 +1,23 @@
+package com.scheduler.database;
+
+import com.scheduler.model.TaskStatus;
+
+/**
+ * A persisted task graph edge: {@code taskId} runs after {@code dependsOn}.
+ */
+public class TaskDependency {
+    private final String taskId;
+    private final String dependsOn;
+    private final TaskStatus dependsOnStatus;
+    
+    TaskDependency(String taskId, String dependsOn, TaskStatus dependsOnStatus) {
+        this.taskId = taskId;
+        this.dependsOn = dependsOn;
+        this.dependsOnStatus = dependsOnStatus;
+    }
+    
+    public String getTaskId() { return taskId; }
+    public String getDependsOn() { return dependsOn; }
+    /** Last persisted status of the predecessor, or null if its row is missing. */
+    public TaskStatus getDependsOnStatus() { return dependsOnStatus; }
+}
@@ -0,0 +1,284 @@
+package com.scheduler.database;
+
+import com.scheduler.model.TaskIds;
+import com.scheduler.model.TaskPriority;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lease-based claiming of due task rows for several scheduler nodes sharing one
+ * database. A node claims a row by writing itself as owner with a conditional
+ * UPDATE that only matches while the row is still claimable, so two nodes can
+ * never both win the same row. Owners renew their leases by heartbeat; a row
+ * whose lease has expired is claimable again, which is how the tasks of a dead
+ * node are taken over.
+ *
+ * The id node each node stamps into its task ids is leased the same way, from
+ * the {@code cluster_nodes} table, so no two live nodes share one.
+ */
+public class TaskLeaseStore {
+    private static final int RENEW_ATTEMPTS = 3;
+    private static final String CLAIMABLE =
+        "((status = 'PENDING' AND (owner IS NULL OR lease_expires < ?)) " +
+        "OR (status = 'RUNNING' AND lease_expires < ?))";
+    private static final String SELECT_CLAIMABLE_SQL =
+        "SELECT id, name, priority, next_fire, owner FROM tasks WHERE next_fire <= ? AND " +
+        CLAIMABLE + " ORDER BY next_fire LIMIT ?";
+    private static final String CLAIM_SQL =
+        "UPDATE tasks SET owner = ?, lease_expires = ?, status = 'PENDING' WHERE id = ? AND " + CLAIMABLE;
+    private static final String RENEW_SQL =
+        "UPDATE tasks SET lease_expires = ? WHERE owner = ? AND status IN ('PENDING', 'RUNNING')";
+    private static final String UNCLAIM_SQL =
+        "UPDATE tasks SET owner = NULL, lease_expires = NULL WHERE id = ? AND owner = ?";
+    private static final String UNCLAIM_PENDING_SQL =
+        "UPDATE tasks SET owner = NULL, lease_expires = NULL WHERE owner = ? AND status = 'PENDING'";
+    private static final String CANCEL_UNCLAIMED_SQL =
+        "UPDATE tasks SET status = 'CANCELLED', owner = NULL, lease_expires = NULL WHERE id = ? " +
+        "AND status = 'PENDING' AND (owner IS NULL OR lease_expires < ?)";
+    private static final String SELECT_LIVE_ID_NODES_SQL =
+        "SELECT id_node, node_id FROM cluster_nodes WHERE lease_expires >= ?";
+    private static final String CLAIM_ID_NODE_SQL =
+        "UPDATE cluster_nodes SET node_id = ?, lease_expires = ? WHERE id_node = ? " +
+        "AND (node_id = ? OR lease_expires < ?)";
+    private static final String INSERT_ID_NODE_SQL =
+        "INSERT INTO cluster_nodes (id_node, node_id, lease_expires) VALUES (?, ?, ?)";
+    private static final String RENEW_ID_NODE_SQL =
+        "UPDATE cluster_nodes SET lease_expires = ? WHERE id_node = ? AND node_id = ?";
+    private static final String RELEASE_ID_NODE_SQL =
+        "DELETE FROM cluster_nodes WHERE id_node = ? AND node_id = ?";
+    
+    private final ConnectionPool pool;
+    
+    public TaskLeaseStore(ConnectionPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Claims up to {@code limit} claimable rows due by {@code horizonMillis},
+     * earliest first, skipping ids in {@code exclude}. Rows another node wins
+     * in the meantime are simply not returned.
+     */
+    public List<Lease> claimDue(String owner, long horizonMillis, long leaseMillis, int limit,
+                                Set<String> exclude) throws SQLException {
+        long now = System.currentTimeMillis();
+        List<Lease> candidates = new ArrayList<>();
+        List<Lease> claimed = new ArrayList<>();
+        
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement select = pooled.prepare(SELECT_CLAIMABLE_SQL);
+            select.setLong(1, horizonMillis);
+            select.setLong(2, now);
+            select.setLong(3, now);
+            select.setInt(4, limit + exclude.size());
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next() && candidates.size() < limit) {
+                    String id = rs.getString("id");
+                    if (!exclude.contains(id)) {
+                        candidates.add(new Lease(id, rs.getString("name"),
+                            TaskPriority.valueOf(rs.getString("priority")),
+                            rs.getLong("next_fire"), rs.getString("owner")));
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                return claimed;
+            }
+            
+            // Each UPDATE commits on its own so row locks are held only briefly
+            PreparedStatement claim = pooled.prepare(CLAIM_SQL);
+            for (Lease lease : candidates) {
+                claim.setString(1, owner);
+                claim.setLong(2, now + leaseMillis);
+                claim.setString(3, lease.taskId);
+                claim.setLong(4, now);
+                claim.setLong(5, now);
+                claim.addBatch();
+            }
+            int[] counts = claim.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 1) {
+                    claimed.add(candidates.get(i));
+                }
+            }
+        }
+        return claimed;
+    }
+    
+    /**
+     * Extends the lease on every pending or running row held by {@code owner}.
+     * The update spans many rows, so it can lose a deadlock against claims and
+     * status writes from other nodes; it is retried rather than letting the
+     * leases run down to the next heartbeat.
+     */
+    public int renewLeases(String owner, long leaseMillis) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (PooledConnection pooled = pool.acquire()) {
+                PreparedStatement pstmt = pooled.prepare(RENEW_SQL);
+                pstmt.setLong(1, System.currentTimeMillis() + leaseMillis);
+                pstmt.setString(2, owner);
+                return pstmt.executeUpdate();
+            } catch (SQLException e) {
+                if (attempt >= RENEW_ATTEMPTS || !"40001".equals(e.getSQLState())) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gives up a single claim, e.g. for a task this node cannot run.
+     */
+    public void unclaim(String taskId, String owner) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(UNCLAIM_SQL);
+            pstmt.setString(1, taskId);
+            pstmt.setString(2, owner);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Gives up every claimed row that has not started yet, so other nodes can
+     * take them without waiting for the leases to expire.
+     */
+    public int unclaimPending(String owner) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(UNCLAIM_PENDING_SQL);
+            pstmt.setString(1, owner);
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Marks a pending row CANCELLED if no node holds a live lease on it, with
+     * the same conditional UPDATE as a claim, so it cannot race one: either
+     * the cancel wins and no node will claim the row, or a node has it and
+     * the cancel matches nothing.
+     *
+     * @return false if the row is unknown, not pending, or claimed
+     */
+    public boolean cancelUnclaimed(String taskId) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(CANCEL_UNCLAIMED_SQL);
+            pstmt.setString(1, taskId);
+            pstmt.setLong(2, System.currentTimeMillis());
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+    
+    /**
+     * Leases {@code idNode} for {@code owner}, or the lowest number no live
+     * node holds if {@code idNode} is negative. A number is free once its
+     * holder's lease has expired; {@code owner} can take back its own at once,
+     * e.g. after a restart. Returns the number leased, or -1 if another live
+     * node holds it (or, for any number, if none is free).
+     */
+    public int leaseIdNode(String owner, int idNode, long leaseMillis) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            if (idNode >= 0) {
+                return claimIdNode(pooled, owner, idNode, leaseMillis) ? idNode : -1;
+            }
+            Set<Integer> live = new HashSet<>();
+            int own = -1;
+            PreparedStatement select = pooled.prepare(SELECT_LIVE_ID_NODES_SQL);
+            select.setLong(1, System.currentTimeMillis());
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    live.add(rs.getInt("id_node"));
+                    if (owner.equals(rs.getString("node_id"))) {
+                        own = rs.getInt("id_node");
+                    }
+                }
+            }
+            if (own >= 0 && claimIdNode(pooled, owner, own, leaseMillis)) {
+                return own;
+            }
+            for (int node = 0; node <= TaskIds.MAX_NODE; node++) {
+                if (!live.contains(node) && claimIdNode(pooled, owner, node, leaseMillis)) {
+                    return node;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    private boolean claimIdNode(PooledConnection pooled, String owner, int idNode, long leaseMillis)
+            throws SQLException {
+        long now = System.currentTimeMillis();
+        PreparedStatement claim = pooled.prepare(CLAIM_ID_NODE_SQL);
+        claim.setString(1, owner);
+        claim.setLong(2, now + leaseMillis);
+        claim.setInt(3, idNode);
+        claim.setString(4, owner);
+        claim.setLong(5, now);
+        if (claim.executeUpdate() == 1) {
+            return true;
+        }
+        PreparedStatement insert = pooled.prepare(INSERT_ID_NODE_SQL);
+        insert.setInt(1, idNode);
+        insert.setString(2, owner);
+        insert.setLong(3, now + leaseMillis);
+        try {
+            insert.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            // Integrity violation: a live node holds the number, or just won it
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Extends {@code owner}'s lease on {@code idNode}, returning false if the
+     * lease had lapsed and another node has taken the number.
+     */
+    public boolean renewIdNode(String owner, int idNode, long leaseMillis) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(RENEW_ID_NODE_SQL);
+            pstmt.setLong(1, System.currentTimeMillis() + leaseMillis);
+            pstmt.setInt(2, idNode);
+            pstmt.setString(3, owner);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+    
+    public void releaseIdNode(String owner, int idNode) throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            PreparedStatement pstmt = pooled.prepare(RELEASE_ID_NODE_SQL);
+            pstmt.setInt(1, idNode);
+            pstmt.setString(2, owner);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * A row won by {@link #claimDue}. {@code previousOwner} is set when the
+     * lease was taken over from another node.
+     */
+    public static final class Lease {
+        private final String taskId;
+        private final String name;
+        private final TaskPriority priority;
+        private final long nextFireMillis;
+        private final String previousOwner;
+        
+        Lease(String taskId, String name, TaskPriority priority, long nextFireMillis, String previousOwner) {
+            this.taskId = taskId;
+            this.name = name;
+            this.priority = priority;
+            this.nextFireMillis = nextFireMillis;
+            this.previousOwner = previousOwner;
+        }
+        
+        public String getTaskId() { return taskId; }
+        public String getName() { return name; }
+        public TaskPriority getPriority() { return priority; }
+        public long getNextFireMillis() { return nextFireMillis; }
+        public String getPreviousOwner() { return previousOwner; }
+    }
+}
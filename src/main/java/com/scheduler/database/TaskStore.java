@@ -0,0 +1,106 @@
+package com.scheduler.database;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.MetricsRegistry;
+import com.scheduler.model.*;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Durable home of tasks, execution history, dead letters and graph edges.
+ * Task and history writes are queued and applied in order by one writer;
+ * {@link #flush()} waits for them. {@link DatabaseManager} keeps everything in
+ * H2, {@link JournalTaskStore} in an append-only journal on local disk.
+ * Failures are reported as {@link SQLException} whichever backend is in use.
+ */
+public interface TaskStore {
+    void saveTask(ScheduledTask task, TaskStatus status);
+    
+    /**
+     * Stores a batch of new tasks before returning, so none of them can run
+     * before it is persisted.
+     */
+    void saveTasks(List<ScheduledTask> tasks, TaskStatus status) throws SQLException;
+    
+    void updateTaskStatus(String taskId, TaskStatus status);
+    
+    /**
+     * Hands a claimed task back as PENDING with a new fire time.
+     */
+    void releaseTask(String taskId, long nextFireMillis);
+    
+    /**
+     * Appends a run to the history and adds it to the minute, hour and day rollups.
+     */
+    void saveExecutionRecord(TaskExecutionRecord record, TaskPriority priority);
+    
+    /**
+     * Moves a task that failed for good to the dead letters.
+     */
+    void saveDeadLetter(TaskExecutionRecord lastRun, TaskPriority priority);
+    
+    /**
+     * Stores a graph's edges, as {taskId, dependsOn} pairs, before returning.
+     */
+    void saveDependencies(String graphId, List<String[]> edges) throws SQLException;
+    
+    List<TaskDependency> loadDependencies(String graphId) throws SQLException;
+    
+    /**
+     * Returns the next page of tasks in {@code status}, in scheduled time and
+     * id order, starting after {@code after} (null for the first page).
+     */
+    List<StoredTask> loadTasks(TaskStatus status, StoredTask after, int limit) throws SQLException;
+    
+    /**
+     * The stored row of one task, or null if the store no longer has it.
+     */
+    StoredTask loadTask(String taskId) throws SQLException;
+    
+    /**
+     * Oldest dead letters first.
+     */
+    List<DeadLetter> getDeadLetters(int limit) throws SQLException;
+    
+    List<DeadLetter> getDeadLetters(Collection<String> taskIds) throws SQLException;
+    
+    int deleteDeadLetters(Collection<String> taskIds) throws SQLException;
+    
+    int countDeadLetters();
+    
+    /**
+     * The newest {@code limit} execution records, newest first.
+     */
+    List<TaskExecutionRecord> getExecutionHistory(int limit);
+    
+    /**
+     * The newest records matching {@code query}, newest first.
+     */
+    List<TaskExecutionRecord> queryHistory(HistoryQuery query) throws SQLException;
+    
+    /**
+     * Rollups of {@code grain} whose bucket starts in [from, to), for one task
+     * name or all of them (null), ordered by bucket, task name and priority.
+     */
+    List<HistoryRollup> getRollups(HistoryRollup.Grain grain, Instant from, Instant to, String taskName)
+        throws SQLException;
+    
+    int getPendingWrites();
+    
+    /** Average time of a query or write batch. */
+    long getAverageQueryMicros();
+    
+    /** Time from enqueue to commit for each persisted event. */
+    LatencyHistogram getPersistenceLatency();
+    
+    void registerMetrics(MetricsRegistry registry);
+    
+    /**
+     * Blocks until every write queued before this call has been committed.
+     */
+    void flush();
+    
+    void shutdown();
+}
@@ -0,0 +1,165 @@
+package com.scheduler.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded buffer of persistence events drained by a single writer thread.
+ * Producers block when the buffer is full, which pushes back on submission
+ * instead of growing the heap; the writer hands off batches of up to
+ * {@code flushSize} events, or whatever arrived within {@code flushIntervalMillis}.
+ */
+class WriteBehindQueue {
+    private static final long FLUSH_CHECK_MS = 100;
+    private static final long SHUTDOWN_WAIT_MS = 10_000;
+    
+    private final ArrayBlockingQueue<PersistenceEvent> buffer;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final Consumer<List<PersistenceEvent>> batchWriter;
+    private final Thread writer;
+    // Set by shutdown; the writer stops once it has written this marker and the buffer is empty
+    private volatile PersistenceEvent stopMarker;
+    private boolean stopped;
+    
+    WriteBehindQueue(int capacity, int flushSize, long flushIntervalMillis,
+                     Consumer<List<PersistenceEvent>> batchWriter) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batchWriter = batchWriter;
+        this.writer = new Thread(this::run, "DB-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    /**
+     * Blocks until there is room. An interrupt does not drop the event: the
+     * put is retried and the interrupt restored once the event is queued.
+     */
+    void enqueue(PersistenceEvent event) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                buffer.put(event);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    int pending() {
+        return buffer.size();
+    }
+    
+    /**
+     * Waits until everything queued before the call has been written, or the
+     * writer has stopped.
+     */
+    void flush() {
+        if (!writer.isAlive()) {
+            return;
+        }
+        PersistenceEvent marker = PersistenceEvent.flush();
+        enqueue(marker);
+        await(marker, Long.MAX_VALUE);
+    }
+    
+    void shutdown() {
+        PersistenceEvent marker = PersistenceEvent.flush();
+        stopMarker = marker;
+        if (writer.isAlive()) {
+            enqueue(marker);
+        }
+        if (!await(marker, SHUTDOWN_WAIT_MS)) {
+            System.err.println("Write-behind queue not drained at shutdown, " + buffer.size() + " events unwritten");
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private boolean await(PersistenceEvent marker, long timeoutMillis) {
+        long waited = 0;
+        try {
+            while (!marker.flushed.await(FLUSH_CHECK_MS, TimeUnit.MILLISECONDS)) {
+                waited += FLUSH_CHECK_MS;
+                // Nothing drains the marker once the writer has stopped
+                if (!writer.isAlive() || waited >= timeoutMillis) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private void run() {
+        List<PersistenceEvent> batch = new ArrayList<>(flushSize);
+        while (!stopped || !buffer.isEmpty()) {
+            try {
+                PersistenceEvent first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+            } catch (InterruptedException e) {
+                buffer.drainTo(batch);
+            }
+            write(batch);
+        }
+    }
+    
+    private void fill(List<PersistenceEvent> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        boolean flushRequested = batch.get(0).kind == PersistenceEvent.Kind.FLUSH;
+        while (!flushRequested && batch.size() < flushSize) {
+            int from = batch.size();
+            if (buffer.drainTo(batch, flushSize - from) == 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                PersistenceEvent next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            }
+            for (int i = from; i < batch.size(); i++) {
+                if (batch.get(i).kind == PersistenceEvent.Kind.FLUSH) {
+                    flushRequested = true;
+                }
+            }
+        }
+    }
+    
+    private void write(List<PersistenceEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchWriter.accept(batch);
+        } finally {
+            for (PersistenceEvent event : batch) {
+                if (event.kind == PersistenceEvent.Kind.FLUSH) {
+                    event.flushed.countDown();
+                    stopped |= event == stopMarker;
+                }
+            }
+            batch.clear();
+        }
+    }
+}
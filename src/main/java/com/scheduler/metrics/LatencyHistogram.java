@@ -0,0 +1,175 @@
+package com.scheduler.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-bucketed histogram of non-negative values (typically microseconds).
+ * Each power of two is split into 8 linear sub-buckets, so any recorded value
+ * is reported within 12.5% of its true value while the whole range up to
+ * 2^40 fits in a few hundred counters.
+ *
+ * Recording is striped: each thread increments counters in one of several
+ * independent stripes, picked from its thread id, so concurrent recorders do
+ * not contend on the same cache lines. Reads merge all stripes. Recording never
+ * allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    
+    // Per stripe: buckets, then total count, max and sum, padded so stripes never share a cache line
+    private static final int COUNT_SLOT = BUCKET_COUNT;
+    private static final int MAX_SLOT = BUCKET_COUNT + 1;
+    private static final int SUM_SLOT = BUCKET_COUNT + 2;
+    private static final int STRIDE = (BUCKET_COUNT + 3 + 15) & ~7;
+    private static final int DEFAULT_STRIPES = defaultStripes();
+    
+    private final AtomicLongArray cells;
+    private final int stripeMask;
+    
+    public LatencyHistogram() {
+        this(DEFAULT_STRIPES);
+    }
+    
+    /**
+     * @param stripes number of independent recorders, rounded up to a power of two;
+     *                use 1 for histograms that are rarely written concurrently
+     */
+    public LatencyHistogram(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripeMask = stripes <= 1 ? 0 : size - 1;
+        this.cells = new AtomicLongArray((stripeMask + 1) * STRIDE);
+    }
+    
+    private static int defaultStripes() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return Math.min(16, Integer.highestOneBit(Math.max(1, cpus - 1) << 1));
+    }
+    
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        int base = stripe() * STRIDE;
+        cells.getAndIncrement(base + bucketOf(v));
+        cells.getAndIncrement(base + COUNT_SLOT);
+        cells.getAndAdd(base + SUM_SLOT, v);
+        if (v > cells.getPlain(base + MAX_SLOT)) {
+            cells.accumulateAndGet(base + MAX_SLOT, v, Math::max);
+        }
+    }
+    
+    private int stripe() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask;
+    }
+    
+    public long getCount() {
+        long total = 0;
+        for (int s = 0; s <= stripeMask; s++) {
+            total += cells.get(s * STRIDE + COUNT_SLOT);
+        }
+        return total;
+    }
+    
+    public long getSum() {
+        long sum = 0;
+        for (int s = 0; s <= stripeMask; s++) {
+            sum += cells.get(s * STRIDE + SUM_SLOT);
+        }
+        return sum;
+    }
+    
+    /**
+     * Fills {@code out} with the number of values at or below each of the
+     * ascending {@code bounds} and returns the total count, reading each bucket
+     * once so the result is self-consistent. Does not allocate.
+     */
+    public long cumulativeCounts(long[] bounds, long[] out) {
+        long running = 0;
+        int j = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long upper = upperBound(i);
+            while (j < bounds.length && upper > bounds[j]) {
+                out[j++] = running;
+            }
+            for (int s = 0; s <= stripeMask; s++) {
+                running += cells.get(s * STRIDE + i);
+            }
+        }
+        while (j < bounds.length) {
+            out[j++] = running;
+        }
+        return running;
+    }
+    
+    public long getMax() {
+        long max = 0;
+        for (int s = 0; s <= stripeMask; s++) {
+            max = Math.max(max, cells.get(s * STRIDE + MAX_SLOT));
+        }
+        return max;
+    }
+    
+    /**
+     * Returns the value at the given percentile (0-100), or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        return percentiles(percentile)[0];
+    }
+    
+    /**
+     * Returns the values at several percentiles (0-100, ascending) from a single
+     * merge of the stripes, so they are consistent with each other.
+     */
+    public long[] percentiles(double... percentiles) {
+        long[] merged = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int s = 0; s <= stripeMask; s++) {
+            int base = s * STRIDE;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long c = cells.get(base + i);
+                merged[i] += c;
+                total += c;
+            }
+        }
+        long max = getMax();
+        
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+        int bucket = 0;
+        long seen = merged[0];
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percentiles[p] / 100.0 * total));
+            while (seen < rank && bucket < BUCKET_COUNT - 1) {
+                seen += merged[++bucket];
+            }
+            values[p] = seen >= rank ? Math.min(upperBound(bucket), max) : max;
+        }
+        return values;
+    }
+    
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+    
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
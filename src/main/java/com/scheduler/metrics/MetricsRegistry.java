@@ -0,0 +1,44 @@
+package com.scheduler.metrics;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects metric families from the components that own them. Each component
+ * registers a {@link Source} once; a scrape asks every source to write its
+ * current values into one shared, reused {@link OpenMetricsWriter}.
+ */
+public class MetricsRegistry {
+    public interface Source {
+        void collect(OpenMetricsWriter out);
+    }
+    
+    public interface Sink {
+        void write(byte[] buffer, int length) throws IOException;
+    }
+    
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+    
+    public void register(Source source) {
+        sources.add(source);
+    }
+    
+    /**
+     * Renders all sources and hands the finished exposition to {@code sink}.
+     * The buffer is only valid during the call.
+     */
+    public synchronized void scrape(Sink sink) throws IOException {
+        writer.reset();
+        for (Source source : sources) {
+            try {
+                source.collect(writer);
+            } catch (RuntimeException e) {
+                System.err.println("Metrics source error: " + e.getMessage());
+            }
+        }
+        writer.eof();
+        sink.write(writer.buffer(), writer.length());
+    }
+}
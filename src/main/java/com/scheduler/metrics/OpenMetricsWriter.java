@@ -0,0 +1,200 @@
+package com.scheduler.metrics;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders metric families in the OpenMetrics text format into a byte buffer
+ * that is kept and reused between scrapes. Names, label values and numbers are
+ * encoded straight into the buffer, so a scrape produces no garbage once the
+ * buffer has grown to fit. Not thread-safe; {@link MetricsRegistry} serialises
+ * scrapes.
+ */
+public final class OpenMetricsWriter {
+    public static final String CONTENT_TYPE =
+        "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    
+    /** Histogram bucket bounds in microseconds, exposed in seconds. */
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+        100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+        100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+    private static final String[] BUCKET_LABELS = new String[BUCKET_BOUNDS_MICROS.length];
+    
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+            BUCKET_LABELS[i] = BigDecimal.valueOf(BUCKET_BOUNDS_MICROS[i], 6)
+                .stripTrailingZeros().toPlainString();
+        }
+    }
+    
+    private final long[] cumulative = new long[BUCKET_BOUNDS_MICROS.length];
+    private byte[] buffer = new byte[16 * 1024];
+    private int position;
+    
+    void reset() {
+        position = 0;
+    }
+    
+    byte[] buffer() {
+        return buffer;
+    }
+    
+    int length() {
+        return position;
+    }
+    
+    /**
+     * Starts a metric family. {@code type} is counter, gauge or histogram; counter
+     * samples must then be written with the {@code _total} suffix.
+     */
+    public void family(String name, String type, String help) {
+        ascii("# TYPE ");
+        ascii(name);
+        put(' ');
+        ascii(type);
+        ascii("\n# HELP ");
+        ascii(name);
+        put(' ');
+        escaped(help, false);
+        put('\n');
+    }
+    
+    public void sample(String name, String suffix, long value) {
+        sample(name, suffix, null, null, value);
+    }
+    
+    public void sample(String name, String suffix, String label, String labelValue, long value) {
+        ascii(name);
+        ascii(suffix);
+        if (label != null) {
+            put('{');
+            label(label, labelValue);
+            put('}');
+        }
+        put(' ');
+        number(value);
+        put('\n');
+    }
+    
+    /**
+     * Writes a histogram recorded in microseconds as seconds, with fixed buckets.
+     * {@code label} may be null for an unlabelled histogram.
+     */
+    public void histogram(String name, String label, String labelValue, LatencyHistogram micros) {
+        long count = micros.cumulativeCounts(BUCKET_BOUNDS_MICROS, cumulative);
+        for (int i = 0; i <= BUCKET_BOUNDS_MICROS.length; i++) {
+            ascii(name);
+            ascii("_bucket{");
+            if (label != null) {
+                label(label, labelValue);
+                put(',');
+            }
+            ascii("le=\"");
+            ascii(i < BUCKET_BOUNDS_MICROS.length ? BUCKET_LABELS[i] : "+Inf");
+            ascii("\"} ");
+            number(i < BUCKET_BOUNDS_MICROS.length ? cumulative[i] : count);
+            put('\n');
+        }
+        sample(name, "_count", label, labelValue, count);
+        ascii(name);
+        ascii("_sum");
+        if (label != null) {
+            put('{');
+            label(label, labelValue);
+            put('}');
+        }
+        put(' ');
+        microsAsSeconds(micros.getSum());
+        put('\n');
+    }
+    
+    /**
+     * Writes a counter whose value is a duration in microseconds, in seconds.
+     */
+    public void secondsSample(String name, String suffix, long micros) {
+        ascii(name);
+        ascii(suffix);
+        put(' ');
+        microsAsSeconds(micros);
+        put('\n');
+    }
+    
+    void eof() {
+        ascii("# EOF\n");
+    }
+    
+    private void label(String label, String value) {
+        ascii(label);
+        ascii("=\"");
+        escaped(value, true);
+        put('"');
+    }
+    
+    private void microsAsSeconds(long micros) {
+        number(micros / 1_000_000);
+        put('.');
+        long fraction = micros % 1_000_000;
+        for (long div = 100_000; div > 0; div /= 10) {
+            put((char) ('0' + (fraction / div) % 10));
+        }
+    }
+    
+    private void number(long value) {
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        ensure(20);
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte b = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = b;
+        }
+    }
+    
+    private void escaped(String text, boolean quote) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                ascii("\\\\");
+            } else if (c == '\n') {
+                ascii("\\n");
+            } else if (c == '"' && quote) {
+                ascii("\\\"");
+            } else if (c < 0x80) {
+                put(c);
+            } else {
+                byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                ensure(encoded.length);
+                System.arraycopy(encoded, 0, buffer, position, encoded.length);
+                position += encoded.length;
+            }
+        }
+    }
+    
+    private void ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+    
+    private void put(char c) {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+    
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, position + bytes)];
+            System.arraycopy(buffer, 0, grown, 0, position);
+            buffer = grown;
+        }
+    }
+}
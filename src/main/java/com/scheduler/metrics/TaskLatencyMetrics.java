@@ -0,0 +1,101 @@
+package com.scheduler.metrics;
+
+import com.scheduler.model.LatencyStats;
+import com.scheduler.model.TaskPriority;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency of each stage of a task's life, kept for all tasks together, per
+ * {@link TaskPriority} and per task name. Only the first few distinct names get
+ * their own histograms; later ones share an overflow entry so memory stays
+ * bounded however many names are scheduled.
+ */
+public class TaskLatencyMetrics {
+    public enum Stage { SCHEDULE_LAG, QUEUE_WAIT, EXECUTION }
+    
+    public static final String OTHER_NAMES = "(other)";
+    private static final int MAX_TRACKED_NAMES = 128;
+    private static final int NAME_STRIPES = 2;
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+    
+    private final LatencyHistogram[] all;
+    private final LatencyHistogram[][] byPriority;
+    private final Map<String, LatencyHistogram[]> byName = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] otherNames;
+    
+    public TaskLatencyMetrics() {
+        Stage[] stages = Stage.values();
+        this.all = newHistograms(stages.length, 0);
+        this.byPriority = new LatencyHistogram[TaskPriority.values().length][];
+        for (int p = 0; p < byPriority.length; p++) {
+            byPriority[p] = newHistograms(stages.length, 0);
+        }
+        this.otherNames = newHistograms(stages.length, NAME_STRIPES);
+    }
+    
+    private static LatencyHistogram[] newHistograms(int count, int stripes) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = stripes > 0 ? new LatencyHistogram(stripes) : new LatencyHistogram();
+        }
+        return histograms;
+    }
+    
+    public void record(Stage stage, TaskPriority priority, String name, long micros) {
+        int s = stage.ordinal();
+        all[s].record(micros);
+        byPriority[priority.ordinal()][s].record(micros);
+        forName(name)[s].record(micros);
+    }
+    
+    public LatencyHistogram getHistogram(Stage stage, TaskPriority priority) {
+        return byPriority[priority.ordinal()][stage.ordinal()];
+    }
+    
+    private LatencyHistogram[] forName(String name) {
+        LatencyHistogram[] histograms = byName.get(name);
+        if (histograms != null) {
+            return histograms;
+        }
+        if (byName.size() >= MAX_TRACKED_NAMES) {
+            return otherNames;
+        }
+        return byName.computeIfAbsent(name, n -> newHistograms(Stage.values().length, NAME_STRIPES));
+    }
+    
+    /**
+     * Percentiles for every stage and group that has recorded anything.
+     */
+    public List<LatencyStats> snapshot() {
+        List<LatencyStats> stats = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            int s = stage.ordinal();
+            add(stats, stage.name(), "all", "ALL", all[s]);
+            for (TaskPriority priority : TaskPriority.values()) {
+                add(stats, stage.name(), "priority", priority.name(), byPriority[priority.ordinal()][s]);
+            }
+            for (Map.Entry<String, LatencyHistogram[]> entry : byName.entrySet()) {
+                add(stats, stage.name(), "task", entry.getKey(), entry.getValue()[s]);
+            }
+            add(stats, stage.name(), "task", OTHER_NAMES, otherNames[s]);
+        }
+        return stats;
+    }
+    
+    /**
+     * Adds a row for {@code histogram} unless it is empty.
+     */
+    public static void add(List<LatencyStats> stats, String stage, String group, String key,
+                           LatencyHistogram histogram) {
+        long count = histogram.getCount();
+        if (count == 0) {
+            return;
+        }
+        long[] values = histogram.percentiles(PERCENTILES);
+        stats.add(new LatencyStats(stage, group, key, count,
+            values[0], values[1], values[2], histogram.getMax()));
+    }
+}
@@ -0,0 +1,157 @@
+package com.scheduler.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Standard five-field cron expression: minute, hour, day of month, month and
+ * day of week (0 or 7 is Sunday). Each field supports {@code *}, single values,
+ * ranges, lists and {@code /step}. Fields are compiled into bit masks once, so
+ * finding the next fire time only walks the calendar, skipping whole months,
+ * days and hours that cannot match.
+ */
+public final class CronExpression implements Recurrence {
+    private static final int SEARCH_YEARS = 5;
+    
+    private final String expression;
+    private final ZoneId zone;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+    
+    private CronExpression(String expression, ZoneId zone, String[] fields) {
+        this.expression = expression;
+        this.zone = zone;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        long dow = parseField(fields[4], 0, 7);
+        if ((dow & (1L << 7)) != 0) {
+            dow = (dow | 1L) & ~(1L << 7);
+        }
+        this.daysOfWeek = dow;
+        this.dayOfMonthRestricted = !fields[2].startsWith("*");
+        this.dayOfWeekRestricted = !fields[4].startsWith("*");
+    }
+    
+    public static CronExpression parse(String expression) {
+        return parse(expression, ZoneId.systemDefault());
+    }
+    
+    public static CronExpression parse(String expression, ZoneId zone) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException(
+                "Cron expression needs 5 fields, got " + fields.length + ": " + expression);
+        }
+        return new CronExpression(expression, zone, fields);
+    }
+    
+    @Override
+    public long firstFire(long notBeforeMillis) {
+        return nextAfter(notBeforeMillis - 1);
+    }
+    
+    @Override
+    public long nextFire(long scheduledMillis, long completedMillis) {
+        return nextAfter(Math.max(scheduledMillis, completedMillis));
+    }
+    
+    /**
+     * Returns the first matching minute strictly after {@code afterMillis}, or
+     * {@link #NONE} if nothing matches within the next few years (e.g. Feb 30).
+     */
+    public long nextAfter(long afterMillis) {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(afterMillis), zone)
+            .truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        LocalDateTime limit = t.plusYears(SEARCH_YEARS);
+        
+        while (t.isBefore(limit)) {
+            if (!matches(months, t.getMonthValue())) {
+                t = t.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+            } else if (!dayMatches(t)) {
+                t = t.toLocalDate().plusDays(1).atStartOfDay();
+            } else if (!matches(hours, t.getHour())) {
+                t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!matches(minutes, t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t.atZone(zone).toInstant().toEpochMilli();
+            }
+        }
+        return NONE;
+    }
+    
+    private boolean dayMatches(LocalDateTime t) {
+        boolean dom = matches(daysOfMonth, t.getDayOfMonth());
+        boolean dow = matches(daysOfWeek, t.getDayOfWeek().getValue() % 7);
+        if (dayOfMonthRestricted && dayOfWeekRestricted) {
+            return dom || dow;
+        }
+        return dom && dow;
+    }
+    
+    private static boolean matches(long mask, int value) {
+        return (mask & (1L << value)) != 0;
+    }
+    
+    private static long parseField(String field, int min, int max) {
+        long mask = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            String range = part;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max, field);
+                range = part.substring(0, slash);
+            }
+            
+            int from;
+            int to;
+            if (range.equals("*")) {
+                from = min;
+                to = max;
+            } else if (range.contains("-")) {
+                String[] bounds = range.split("-", 2);
+                from = parseNumber(bounds[0], min, max, field);
+                to = parseNumber(bounds[1], min, max, field);
+                if (from > to) {
+                    throw new IllegalArgumentException("Invalid cron range '" + range + "' in " + field);
+                }
+            } else {
+                from = parseNumber(range, min, max, field);
+                to = slash >= 0 ? max : from;
+            }
+            
+            for (int v = from; v <= to; v += step) {
+                mask |= 1L << v;
+            }
+        }
+        return mask;
+    }
+    
+    private static int parseNumber(String value, int min, int max, String field) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n < min || n > max) {
+                throw new IllegalArgumentException(
+                    "Cron value " + n + " out of range [" + min + "-" + max + "] in " + field);
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron value '" + value + "' in " + field);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "cron(" + expression + ")";
+    }
+}
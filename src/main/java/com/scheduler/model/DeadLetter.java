@@ -0,0 +1,32 @@
+package com.scheduler.model;
+
+import java.time.Instant;
+
+/**
+ * A task that failed for good, kept until it is replayed.
+ */
+public class DeadLetter {
+    private final String taskId;
+    private final String taskName;
+    private final TaskPriority priority;
+    private final int attempts;
+    private final String errorMessage;
+    private final Instant failedAt;
+    
+    public DeadLetter(String taskId, String taskName, TaskPriority priority, int attempts,
+                      String errorMessage, Instant failedAt) {
+        this.taskId = taskId;
+        this.taskName = taskName;
+        this.priority = priority;
+        this.attempts = attempts;
+        this.errorMessage = errorMessage;
+        this.failedAt = failedAt;
+    }
+    
+    public String getTaskId() { return taskId; }
+    public String getTaskName() { return taskName; }
+    public TaskPriority getPriority() { return priority; }
+    public int getAttempts() { return attempts; }
+    public String getErrorMessage() { return errorMessage; }
+    public Instant getFailedAt() { return failedAt; }
+}
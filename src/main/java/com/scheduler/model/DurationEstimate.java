@@ -0,0 +1,28 @@
+package com.scheduler.model;
+
+public class DurationEstimate {
+    private final String taskName;
+    private final long samples;
+    private final long averageMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    
+    public DurationEstimate(String taskName, long samples, long averageMicros,
+                            long p50Micros, long p90Micros, long p99Micros) {
+        this.taskName = taskName;
+        this.samples = samples;
+        this.averageMicros = averageMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+    }
+    
+    public String getTaskName() { return taskName; }
+    public long getSamples() { return samples; }
+    /** Exponentially weighted moving average of the run durations. */
+    public long getAverageMicros() { return averageMicros; }
+    public long getP50Micros() { return p50Micros; }
+    public long getP90Micros() { return p90Micros; }
+    public long getP99Micros() { return p99Micros; }
+}
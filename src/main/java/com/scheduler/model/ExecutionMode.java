@@ -0,0 +1,5 @@
+package com.scheduler.model;
+
+public enum ExecutionMode {
+    PLATFORM, VIRTUAL
+}
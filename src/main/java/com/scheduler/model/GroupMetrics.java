@@ -0,0 +1,38 @@
+package com.scheduler.model;
+
+public class GroupMetrics {
+    private final String group;
+    private final int maxConcurrent;
+    private final double permitsPerSecond;
+    private final int running;
+    private final int parked;
+    private final long started;
+    private final long throttled;
+    private final long waitP50Micros;
+    private final long waitP99Micros;
+    
+    public GroupMetrics(String group, int maxConcurrent, double permitsPerSecond, int running,
+                        int parked, long started, long throttled, long waitP50Micros, long waitP99Micros) {
+        this.group = group;
+        this.maxConcurrent = maxConcurrent;
+        this.permitsPerSecond = permitsPerSecond;
+        this.running = running;
+        this.parked = parked;
+        this.started = started;
+        this.throttled = throttled;
+        this.waitP50Micros = waitP50Micros;
+        this.waitP99Micros = waitP99Micros;
+    }
+    
+    public String getGroup() { return group; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public double getPermitsPerSecond() { return permitsPerSecond; }
+    public int getRunning() { return running; }
+    /** Due tasks held back by the group's limits. */
+    public int getParked() { return parked; }
+    public long getStarted() { return started; }
+    /** Runs that had to wait for a permit. */
+    public long getThrottled() { return throttled; }
+    public long getWaitP50Micros() { return waitP50Micros; }
+    public long getWaitP99Micros() { return waitP99Micros; }
+}
@@ -0,0 +1,60 @@
+package com.scheduler.model;
+
+import java.time.Instant;
+
+/**
+ * Filters for reading raw execution history. Unset filters match everything;
+ * {@code from} is inclusive and {@code to} exclusive, on the start time.
+ */
+public class HistoryQuery {
+    private final int limit;
+    private String taskId;
+    private String taskName;
+    private TaskStatus status;
+    private Instant from;
+    private Instant to;
+    
+    public HistoryQuery(int limit) {
+        this.limit = limit;
+    }
+    
+    public HistoryQuery withTaskId(String taskId) {
+        this.taskId = taskId;
+        return this;
+    }
+    
+    public HistoryQuery withTaskName(String taskName) {
+        this.taskName = taskName;
+        return this;
+    }
+    
+    public HistoryQuery withStatus(TaskStatus status) {
+        this.status = status;
+        return this;
+    }
+    
+    public HistoryQuery withFrom(Instant from) {
+        this.from = from;
+        return this;
+    }
+    
+    public HistoryQuery withTo(Instant to) {
+        this.to = to;
+        return this;
+    }
+    
+    public boolean matches(TaskExecutionRecord record) {
+        return (taskId == null || taskId.equals(record.getTaskId()))
+            && (taskName == null || taskName.equals(record.getTaskName()))
+            && (status == null || status == record.getStatus())
+            && (from == null || !record.getStartTime().isBefore(from))
+            && (to == null || record.getStartTime().isBefore(to));
+    }
+    
+    public int getLimit() { return limit; }
+    public String getTaskId() { return taskId; }
+    public String getTaskName() { return taskName; }
+    public TaskStatus getStatus() { return status; }
+    public Instant getFrom() { return from; }
+    public Instant getTo() { return to; }
+}
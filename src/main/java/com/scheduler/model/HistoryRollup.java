@@ -0,0 +1,127 @@
+package com.scheduler.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Executions of one task name and priority within one minute, hour or day:
+ * run and failure counts, total, min and max duration, and a coarse duration
+ * histogram. Stores build rows up with {@link #record} as executions are
+ * written and hand out copies.
+ */
+public class HistoryRollup {
+    public enum Grain {
+        MINUTE(ChronoUnit.MINUTES, Duration.ofDays(7)),
+        HOUR(ChronoUnit.HOURS, Duration.ofDays(90)),
+        DAY(ChronoUnit.DAYS, null);
+        
+        private final ChronoUnit unit;
+        private final Duration retention;
+        
+        Grain(ChronoUnit unit, Duration retention) {
+            this.unit = unit;
+            this.retention = retention;
+        }
+        
+        public Instant bucketOf(Instant time) {
+            return time.truncatedTo(unit);
+        }
+        
+        public Duration getLength() {
+            return unit.getDuration();
+        }
+        
+        /** How long rows of this grain are kept, or null to keep them forever. */
+        public Duration getRetention() {
+            return retention;
+        }
+    }
+    
+    /** Upper bounds of the duration buckets; one more bucket holds longer runs. */
+    public static final long[] BUCKET_BOUNDS_MS = {10, 100, 1_000, 10_000, 60_000};
+    public static final int BUCKET_COUNT = BUCKET_BOUNDS_MS.length + 1;
+    
+    private final Grain grain;
+    private final Instant bucketStart;
+    private final String taskName;
+    private final TaskPriority priority;
+    private final long[] buckets;
+    private long runs;
+    private long failures;
+    private long totalMillis;
+    private long minMillis;
+    private long maxMillis;
+    
+    public HistoryRollup(Grain grain, Instant bucketStart, String taskName, TaskPriority priority) {
+        this(grain, bucketStart, taskName, priority, 0, 0, 0, 0, 0, new long[BUCKET_COUNT]);
+    }
+    
+    public HistoryRollup(Grain grain, Instant bucketStart, String taskName, TaskPriority priority,
+                         long runs, long failures, long totalMillis, long minMillis, long maxMillis,
+                         long[] buckets) {
+        this.grain = grain;
+        this.bucketStart = bucketStart;
+        this.taskName = taskName;
+        this.priority = priority;
+        this.runs = runs;
+        this.failures = failures;
+        this.totalMillis = totalMillis;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.buckets = buckets;
+    }
+    
+    public void record(long durationMillis, boolean failed) {
+        minMillis = runs == 0 ? durationMillis : Math.min(minMillis, durationMillis);
+        maxMillis = Math.max(maxMillis, durationMillis);
+        runs++;
+        totalMillis += durationMillis;
+        if (failed) {
+            failures++;
+        }
+        buckets[bucketIndex(durationMillis)]++;
+    }
+    
+    public void merge(HistoryRollup other) {
+        if (other.runs == 0) {
+            return;
+        }
+        minMillis = runs == 0 ? other.minMillis : Math.min(minMillis, other.minMillis);
+        maxMillis = Math.max(maxMillis, other.maxMillis);
+        runs += other.runs;
+        failures += other.failures;
+        totalMillis += other.totalMillis;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] += other.buckets[i];
+        }
+    }
+    
+    public HistoryRollup copy() {
+        return new HistoryRollup(grain, bucketStart, taskName, priority, runs, failures, totalMillis,
+            minMillis, maxMillis, Arrays.copyOf(buckets, BUCKET_COUNT));
+    }
+    
+    public static int bucketIndex(long durationMillis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (durationMillis <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+    
+    public Grain getGrain() { return grain; }
+    public Instant getBucketStart() { return bucketStart; }
+    public String getTaskName() { return taskName; }
+    public TaskPriority getPriority() { return priority; }
+    public long getRuns() { return runs; }
+    public long getFailures() { return failures; }
+    public long getTotalMillis() { return totalMillis; }
+    public long getMinMillis() { return minMillis; }
+    public long getMaxMillis() { return maxMillis; }
+    public long getAverageMillis() { return runs == 0 ? 0 : totalMillis / runs; }
+    /** Run count per duration bucket, see {@link #BUCKET_BOUNDS_MS}. */
+    public long getBucket(int index) { return buckets[index]; }
+}
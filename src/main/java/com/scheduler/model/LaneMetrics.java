@@ -0,0 +1,24 @@
+package com.scheduler.model;
+
+public class LaneMetrics {
+    private final TaskPriority priority;
+    private final int depth;
+    private final long dispatched;
+    private final long waitP50Micros;
+    private final long waitP99Micros;
+    
+    public LaneMetrics(TaskPriority priority, int depth, long dispatched,
+                       long waitP50Micros, long waitP99Micros) {
+        this.priority = priority;
+        this.depth = depth;
+        this.dispatched = dispatched;
+        this.waitP50Micros = waitP50Micros;
+        this.waitP99Micros = waitP99Micros;
+    }
+    
+    public TaskPriority getPriority() { return priority; }
+    public int getDepth() { return depth; }
+    public long getDispatched() { return dispatched; }
+    public long getWaitP50Micros() { return waitP50Micros; }
+    public long getWaitP99Micros() { return waitP99Micros; }
+}
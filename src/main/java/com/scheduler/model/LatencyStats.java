@@ -0,0 +1,37 @@
+package com.scheduler.model;
+
+/**
+ * Percentiles of one lifecycle stage for one group of tasks: all tasks, one
+ * priority, or one task name.
+ */
+public class LatencyStats {
+    private final String stage;
+    private final String group;
+    private final String key;
+    private final long count;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+    
+    public LatencyStats(String stage, String group, String key, long count,
+                        long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+        this.stage = stage;
+        this.group = group;
+        this.key = key;
+        this.count = count;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+    
+    public String getStage() { return stage; }
+    public String getGroup() { return group; }
+    public String getKey() { return key; }
+    public long getCount() { return count; }
+    public long getP50Micros() { return p50Micros; }
+    public long getP90Micros() { return p90Micros; }
+    public long getP99Micros() { return p99Micros; }
+    public long getMaxMicros() { return maxMicros; }
+}
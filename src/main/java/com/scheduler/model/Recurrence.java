@@ -0,0 +1,85 @@
+package com.scheduler.model;
+
+import java.time.Duration;
+
+/**
+ * Computes when a recurring task fires next. Times are epoch milliseconds so
+ * re-arming a task after each run does not allocate.
+ */
+public interface Recurrence {
+    long NONE = -1L;
+    
+    long firstFire(long notBeforeMillis);
+    
+    /**
+     * Returns the next fire time after a run that was due at {@code scheduledMillis}
+     * and finished at {@code completedMillis}, or {@link #NONE} to stop recurring.
+     */
+    long nextFire(long scheduledMillis, long completedMillis);
+    
+    static Recurrence fixedRate(Duration period) {
+        return new FixedRate(period.toMillis());
+    }
+    
+    static Recurrence fixedDelay(Duration delay) {
+        return new FixedDelay(delay.toMillis());
+    }
+    
+    static Recurrence cron(String expression) {
+        return CronExpression.parse(expression);
+    }
+    
+    final class FixedRate implements Recurrence {
+        private final long periodMillis;
+        
+        FixedRate(long periodMillis) {
+            if (periodMillis <= 0) {
+                throw new IllegalArgumentException("Period must be positive: " + periodMillis + "ms");
+            }
+            this.periodMillis = periodMillis;
+        }
+        
+        @Override
+        public long firstFire(long notBeforeMillis) {
+            return notBeforeMillis;
+        }
+        
+        @Override
+        public long nextFire(long scheduledMillis, long completedMillis) {
+            // Stay on the original grid; runs missed while overrunning are skipped
+            long elapsed = Math.max(completedMillis - scheduledMillis, 0);
+            return scheduledMillis + (elapsed / periodMillis + 1) * periodMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return "every " + periodMillis + "ms";
+        }
+    }
+    
+    final class FixedDelay implements Recurrence {
+        private final long delayMillis;
+        
+        FixedDelay(long delayMillis) {
+            if (delayMillis < 0) {
+                throw new IllegalArgumentException("Delay must not be negative: " + delayMillis + "ms");
+            }
+            this.delayMillis = delayMillis;
+        }
+        
+        @Override
+        public long firstFire(long notBeforeMillis) {
+            return notBeforeMillis;
+        }
+        
+        @Override
+        public long nextFire(long scheduledMillis, long completedMillis) {
+            return completedMillis + delayMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return delayMillis + "ms after each run";
+        }
+    }
+}
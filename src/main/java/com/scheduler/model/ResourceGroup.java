@@ -0,0 +1,51 @@
+package com.scheduler.model;
+
+/**
+ * Limits shared by every task that names this group with
+ * {@link ScheduledTask#withResourceGroup}, typically one per downstream
+ * database or API: at most {@code maxConcurrent} of them running at once and
+ * at most {@code permitsPerSecond} of them starting per second. Tasks held
+ * back by a limit wait in the dispatcher, not on a worker thread.
+ */
+public final class ResourceGroup {
+    public static final int UNLIMITED = 0;
+    
+    private final String name;
+    private int maxConcurrent = UNLIMITED;
+    private double permitsPerSecond = UNLIMITED;
+    private int burst = 1;
+    
+    public ResourceGroup(String name) {
+        this.name = name;
+    }
+    
+    public ResourceGroup withMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = Math.max(UNLIMITED, maxConcurrent);
+        return this;
+    }
+    
+    /**
+     * Lets runs start at {@code permitsPerSecond} on average, with up to ten
+     * milliseconds' worth of them (at least one) at once after an idle spell.
+     */
+    public ResourceGroup withRate(double permitsPerSecond) {
+        return withRate(permitsPerSecond, (int) Math.max(1, Math.ceil(permitsPerSecond / 100)));
+    }
+    
+    /**
+     * @param burst how many runs may start back to back after an idle spell
+     */
+    public ResourceGroup withRate(double permitsPerSecond, int burst) {
+        if (permitsPerSecond < 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be non-negative and burst at least 1");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        return this;
+    }
+    
+    public String getName() { return name; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public double getPermitsPerSecond() { return permitsPerSecond; }
+    public int getBurst() { return burst; }
+}
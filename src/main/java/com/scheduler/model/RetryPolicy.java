@@ -0,0 +1,117 @@
+package com.scheduler.model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a failing task is retried: up to {@code maxAttempts} runs in total, with
+ * exponential backoff in between. Each delay is drawn at random between
+ * {@code (1 - jitter)} and 1 times the exponential value, so tasks that failed
+ * together, e.g. during a downstream outage, come back spread out instead of
+ * all at once. Only failures of a retryable type are retried; by default that
+ * is any {@link Exception}.
+ */
+public final class RetryPolicy {
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+    public static final double DEFAULT_JITTER = 0.5;
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMinutes(5);
+    
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private long maxDelayMillis = DEFAULT_MAX_DELAY.toMillis();
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private double jitter = DEFAULT_JITTER;
+    private final List<Class<? extends Throwable>> retryOn = new ArrayList<>(List.of(Exception.class));
+    private final List<Class<? extends Throwable>> abortOn = new ArrayList<>();
+    
+    private RetryPolicy(int maxAttempts, long initialDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+    }
+    
+    public static RetryPolicy exponential(int maxAttempts, Duration initialDelay) {
+        return new RetryPolicy(maxAttempts, initialDelay.toMillis());
+    }
+    
+    public RetryPolicy withMaxDelay(Duration maxDelay) {
+        this.maxDelayMillis = maxDelay.toMillis();
+        return this;
+    }
+    
+    public RetryPolicy withMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+        return this;
+    }
+    
+    /**
+     * @param jitter fraction of each delay that is randomized, from 0 (none) to 1
+     */
+    public RetryPolicy withJitter(double jitter) {
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        return this;
+    }
+    
+    /**
+     * Restricts retries to failures of these types (and their subclasses).
+     */
+    @SafeVarargs
+    public final RetryPolicy retryOn(Class<? extends Throwable>... types) {
+        retryOn.clear();
+        // Copied element by element: handing the array itself on is what makes varargs unsafe
+        for (Class<? extends Throwable> type : types) {
+            retryOn.add(type);
+        }
+        return this;
+    }
+    
+    /**
+     * Failures of these types are never retried, even if otherwise retryable.
+     */
+    @SafeVarargs
+    public final RetryPolicy abortOn(Class<? extends Throwable>... types) {
+        for (Class<? extends Throwable> type : types) {
+            abortOn.add(type);
+        }
+        return this;
+    }
+    
+    /**
+     * @param attempt the 1-based attempt that just failed
+     */
+    public boolean shouldRetry(int attempt, Throwable failure) {
+        return attempt < maxAttempts && matches(retryOn, failure) && !matches(abortOn, failure);
+    }
+    
+    /**
+     * Delay before the attempt after {@code attempt}, with jitter applied.
+     */
+    public long delayMillis(int attempt) {
+        double exponential = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+        long capped = (long) Math.min(exponential, maxDelayMillis);
+        long randomized = (long) (capped * jitter * ThreadLocalRandom.current().nextDouble());
+        return capped - randomized;
+    }
+    
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    private static boolean matches(List<Class<? extends Throwable>> types, Throwable failure) {
+        for (Class<? extends Throwable> type : types) {
+            if (type.isInstance(failure)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public String toString() {
+        return "retry(" + maxAttempts + " attempts, " + initialDelayMillis + "ms x" + multiplier + ")";
+    }
+}
@@ -2,24 +2,52 @@ package com.scheduler.model;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.UUID;
 
 public class ScheduledTask implements Task, Comparable<ScheduledTask> {
+    private static final int DEFAULT_TIMEOUT_FACTOR = 10;
+    private static final Duration MIN_DEFAULT_TIMEOUT = Duration.ofSeconds(1);
+    
     private final String id;
     private final String name;
     private final TaskPriority priority;
     private final Runnable action;
     private final Duration estimatedDuration;
     private final Instant scheduledTime;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private String affinityKey;
+    private String resourceGroup;
+    private Recurrence recurrence;
+    private RetryPolicy retryPolicy;
+    private Duration timeout;
+    private Duration deadline;
+    private volatile int attempt = 1;
+    private String graphId;
+    private long criticalPathMillis;
+    private volatile long nextFireMillis;
+    private volatile long dueNanos;
     
     public ScheduledTask(String name, TaskPriority priority, Runnable action, 
                         Duration estimatedDuration, Instant scheduledTime) {
-        this.id = UUID.randomUUID().toString().substring(0, 8);
+        this(newId(), name, priority, action, estimatedDuration, scheduledTime);
+    }
+    
+    /**
+     * Rebuilds a task under an existing id, e.g. one loaded from the database.
+     */
+    public ScheduledTask(String id, String name, TaskPriority priority, Runnable action,
+                        Duration estimatedDuration, Instant scheduledTime) {
+        this.id = id;
         this.name = name;
         this.priority = priority;
         this.action = action;
         this.estimatedDuration = estimatedDuration;
         this.scheduledTime = scheduledTime;
+        this.nextFireMillis = scheduledTime.toEpochMilli();
+    }
+    
+    /** A fresh id for a task built under an explicit id, e.g. through a resolver. */
+    public static String newId() {
+        return TaskIds.format(TaskIds.next());
     }
     
     @Override
@@ -51,6 +79,193 @@ public class ScheduledTask implements Task, Comparable<ScheduledTask> {
         return scheduledTime;
     }
     
+    /**
+     * Epoch millis of the next due run: the scheduled time for a one-shot task,
+     * the cached next fire time for a recurring one.
+     */
+    public long getNextFireTimeMillis() {
+        return nextFireMillis;
+    }
+    
+    /**
+     * System.nanoTime() at which the current run is due, set when it is put on
+     * the timing wheel; used to measure how late the run was released.
+     */
+    public long getDueNanos() {
+        return dueNanos;
+    }
+    
+    public void setDueNanos(long dueNanos) {
+        this.dueNanos = dueNanos;
+    }
+    
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+    
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+    
+    /**
+     * Makes the task recurring. The scheduled time passed to the constructor is
+     * the earliest the first run may happen.
+     */
+    public ScheduledTask withRecurrence(Recurrence recurrence) {
+        this.recurrence = recurrence;
+        this.nextFireMillis = recurrence.firstFire(scheduledTime.toEpochMilli());
+        return this;
+    }
+    
+    /**
+     * Computes and caches the next fire time after a run that finished at
+     * {@code completedMillis}. Returns false when the recurrence has ended.
+     */
+    public boolean advanceSchedule(long completedMillis) {
+        if (recurrence == null) {
+            return false;
+        }
+        long next = recurrence.nextFire(nextFireMillis, completedMillis);
+        if (next == Recurrence.NONE) {
+            return false;
+        }
+        nextFireMillis = next;
+        return true;
+    }
+    
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+    
+    /**
+     * Retries failed runs of this task by re-arming it under the same id.
+     */
+    public ScheduledTask withRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+    
+    /**
+     * Longest a run may take before the scheduler interrupts it: the timeout
+     * set with {@link #withTimeout}, otherwise ten times the estimated duration
+     * and at least a second. {@link Duration#ZERO} means no limit.
+     */
+    public Duration getTimeout() {
+        if (timeout != null) {
+            return timeout;
+        }
+        Duration derived = estimatedDuration.multipliedBy(DEFAULT_TIMEOUT_FACTOR);
+        return derived.compareTo(MIN_DEFAULT_TIMEOUT) < 0 ? MIN_DEFAULT_TIMEOUT : derived;
+    }
+    
+    public ScheduledTask withTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+    
+    /**
+     * How long after its due time each run should have finished, or null if
+     * it has no deadline. Used by the earliest-deadline-first dispatch policy
+     * and counted as a miss when a run finishes later.
+     */
+    public Duration getDeadline() {
+        return deadline;
+    }
+    
+    public ScheduledTask withDeadline(Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+    
+    /** The 1-based attempt of the current (or next) run. */
+    public int getAttempt() {
+        return attempt;
+    }
+    
+    public void nextAttempt() {
+        attempt++;
+    }
+    
+    public void resetAttempts() {
+        attempt = 1;
+    }
+    
+    /** Id of the task graph this task belongs to, or null. */
+    public String getGraphId() {
+        return graphId;
+    }
+    
+    public void setGraphId(String graphId) {
+        this.graphId = graphId;
+    }
+    
+    /**
+     * Estimated duration of the longest dependency chain starting at this task,
+     * itself included; 0 outside a task graph.
+     */
+    public long getCriticalPathMillis() {
+        return criticalPathMillis;
+    }
+    
+    public void setCriticalPathMillis(long criticalPathMillis) {
+        this.criticalPathMillis = criticalPathMillis;
+    }
+    
+    @Override
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+    
+    /**
+     * Routes the task to virtual threads; meant for tasks that mostly block on I/O.
+     */
+    public ScheduledTask withExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+    
+    @Override
+    public String getAffinityKey() {
+        return affinityKey;
+    }
+    
+    /**
+     * Tasks sharing an affinity key are kept on the same worker when the
+     * work-stealing backend is in use.
+     */
+    public ScheduledTask withAffinityKey(String affinityKey) {
+        this.affinityKey = affinityKey;
+        return this;
+    }
+    
+    /** Name of the {@link ResourceGroup} whose limits this task obeys, or null. */
+    public String getResourceGroup() {
+        return resourceGroup;
+    }
+    
+    public ScheduledTask withResourceGroup(String resourceGroup) {
+        this.resourceGroup = resourceGroup;
+        return this;
+    }
+    
+    /**
+     * Copies this task's action and settings onto another id, priority and
+     * first fire time, e.g. to rebuild a persisted task from a registered template.
+     */
+    public ScheduledTask rebind(String id, TaskPriority priority, Instant fireTime) {
+        ScheduledTask copy = new ScheduledTask(id, name, priority, action, estimatedDuration, fireTime);
+        copy.executionMode = executionMode;
+        copy.affinityKey = affinityKey;
+        copy.resourceGroup = resourceGroup;
+        copy.retryPolicy = retryPolicy;
+        copy.timeout = timeout;
+        copy.deadline = deadline;
+        if (recurrence != null) {
+            copy.withRecurrence(recurrence);
+        }
+        return copy;
+    }
+    
     @Override
     public int compareTo(ScheduledTask other) {
         int priorityCompare = Integer.compare(
@@ -58,6 +273,8 @@ public class ScheduledTask implements Task, Comparable<ScheduledTask> {
             this.priority.getWeight()
         );
         if (priorityCompare != 0) return priorityCompare;
-        return this.scheduledTime.compareTo(other.scheduledTime);
+        int pathCompare = Long.compare(other.criticalPathMillis, this.criticalPathMillis);
+        if (pathCompare != 0) return pathCompare;
+        return Long.compare(this.nextFireMillis, other.nextFireMillis);
     }
 }
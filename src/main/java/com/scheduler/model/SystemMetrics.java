@@ -1,5 +1,7 @@
 package com.scheduler.model;
 
+import java.util.List;
+
 public class SystemMetrics {
     private final int pendingTasks;
     private final int activeThreads;
@@ -7,15 +9,55 @@ public class SystemMetrics {
     private final int completedTasks;
     private final int failedTasks;
     private final int totalExecutions;
+    private final int dbActiveConnections;
+    private final long dbPoolWaitMicros;
+    private final long dbQueryMicros;
+    private final int queuedTasks;
+    private final long queueWaitMicros;
+    private final long poolResizes;
+    private final String lastPoolResize;
+    private final List<LaneMetrics> lanes;
+    private final List<LatencyStats> latencies;
+    private final long retries;
+    private final int deadLetters;
+    private final long cancellations;
+    private final long timeouts;
+    private final String dispatchPolicy;
+    private final long deadlineMisses;
+    private final long estimateErrorMicros;
+    private final List<GroupMetrics> groups;
     
     public SystemMetrics(int pendingTasks, int activeThreads, int totalThreads,
-                        int completedTasks, int failedTasks, int totalExecutions) {
+                        int completedTasks, int failedTasks, int totalExecutions,
+                        int dbActiveConnections, long dbPoolWaitMicros, long dbQueryMicros,
+                        int queuedTasks, long queueWaitMicros, long poolResizes,
+                        String lastPoolResize, List<LaneMetrics> lanes,
+                        List<LatencyStats> latencies, long retries, int deadLetters,
+                        long cancellations, long timeouts, String dispatchPolicy,
+                        long deadlineMisses, long estimateErrorMicros, List<GroupMetrics> groups) {
         this.pendingTasks = pendingTasks;
         this.activeThreads = activeThreads;
         this.totalThreads = totalThreads;
         this.completedTasks = completedTasks;
         this.failedTasks = failedTasks;
         this.totalExecutions = totalExecutions;
+        this.dbActiveConnections = dbActiveConnections;
+        this.dbPoolWaitMicros = dbPoolWaitMicros;
+        this.dbQueryMicros = dbQueryMicros;
+        this.queuedTasks = queuedTasks;
+        this.queueWaitMicros = queueWaitMicros;
+        this.poolResizes = poolResizes;
+        this.lastPoolResize = lastPoolResize;
+        this.lanes = lanes;
+        this.latencies = latencies;
+        this.retries = retries;
+        this.deadLetters = deadLetters;
+        this.cancellations = cancellations;
+        this.timeouts = timeouts;
+        this.dispatchPolicy = dispatchPolicy;
+        this.deadlineMisses = deadlineMisses;
+        this.estimateErrorMicros = estimateErrorMicros;
+        this.groups = groups;
     }
     
     public int getPendingTasks() { return pendingTasks; }
@@ -24,6 +66,24 @@ public class SystemMetrics {
     public int getCompletedTasks() { return completedTasks; }
     public int getFailedTasks() { return failedTasks; }
     public int getTotalExecutions() { return totalExecutions; }
+    public int getDbActiveConnections() { return dbActiveConnections; }
+    public long getDbPoolWaitMicros() { return dbPoolWaitMicros; }
+    public long getDbQueryMicros() { return dbQueryMicros; }
+    public int getQueuedTasks() { return queuedTasks; }
+    public long getQueueWaitMicros() { return queueWaitMicros; }
+    public long getPoolResizes() { return poolResizes; }
+    public String getLastPoolResize() { return lastPoolResize; }
+    public List<LaneMetrics> getLanes() { return lanes; }
+    public List<LatencyStats> getLatencies() { return latencies; }
+    public long getRetries() { return retries; }
+    public int getDeadLetters() { return deadLetters; }
+    public long getCancellations() { return cancellations; }
+    public long getTimeouts() { return timeouts; }
+    public String getDispatchPolicy() { return dispatchPolicy; }
+    public long getDeadlineMisses() { return deadlineMisses; }
+    /** Mean absolute error of the learned duration estimates. */
+    public long getEstimateErrorMicros() { return estimateErrorMicros; }
+    public List<GroupMetrics> getGroups() { return groups; }
     
     @Override
     public String toString() {
@@ -37,9 +97,17 @@ public class SystemMetrics {
             "║ Completed Tasks:    %-16d║\n" +
             "║ Failed Tasks:       %-16d║\n" +
             "║ Total Executions:   %-16d║\n" +
+            "║ DB Connections:     %-16d║\n" +
+            "║ DB Pool Wait (µs):  %-16d║\n" +
+            "║ DB Query (µs):      %-16d║\n" +
+            "║ Queued Tasks:       %-16d║\n" +
+            "║ Queue Wait (µs):    %-16d║\n" +
+            "║ Pool Resizes:       %-16d║\n" +
             "╚══════════════════════════════════════╝",
             pendingTasks, activeThreads, totalThreads, 
-            completedTasks, failedTasks, totalExecutions
+            completedTasks, failedTasks, totalExecutions,
+            dbActiveConnections, dbPoolWaitMicros, dbQueryMicros,
+            queuedTasks, queueWaitMicros, poolResizes
         );
     }
 }
\ No newline at end of file
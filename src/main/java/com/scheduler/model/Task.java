@@ -8,4 +8,12 @@ public interface Task {
     TaskPriority getPriority();
     void execute() throws Exception;
     Duration getEstimatedDuration();
+    
+    default ExecutionMode getExecutionMode() {
+        return ExecutionMode.PLATFORM;
+    }
+    
+    default String getAffinityKey() {
+        return null;
+    }
 }
\ No newline at end of file
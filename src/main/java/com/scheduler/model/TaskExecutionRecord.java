@@ -11,9 +11,23 @@ public class TaskExecutionRecord {
     private final Instant endTime;
     private final Duration actualDuration;
     private final String errorMessage;
+    private final long scheduleLagMicros;
+    private final long queueWaitMicros;
+    private final int attempt;
     
     public TaskExecutionRecord(String taskId, String taskName, TaskStatus status,
                               Instant startTime, Instant endTime, String errorMessage) {
+        this(taskId, taskName, status, startTime, endTime, errorMessage, 0, 0, 1);
+    }
+    
+    /**
+     * @param scheduleLagMicros how late the task was released after its due time
+     * @param queueWaitMicros   time from release until a worker started it
+     * @param attempt           1-based attempt number of this run
+     */
+    public TaskExecutionRecord(String taskId, String taskName, TaskStatus status,
+                              Instant startTime, Instant endTime, String errorMessage,
+                              long scheduleLagMicros, long queueWaitMicros, int attempt) {
         this.taskId = taskId;
         this.taskName = taskName;
         this.status = status;
@@ -22,6 +36,9 @@ public class TaskExecutionRecord {
         this.actualDuration = endTime != null ? 
             Duration.between(startTime, endTime) : null;
         this.errorMessage = errorMessage;
+        this.scheduleLagMicros = scheduleLagMicros;
+        this.queueWaitMicros = queueWaitMicros;
+        this.attempt = attempt;
     }
     
     public String getTaskId() { return taskId; }
@@ -31,6 +48,9 @@ public class TaskExecutionRecord {
     public Instant getEndTime() { return endTime; }
     public Duration getActualDuration() { return actualDuration; }
     public String getErrorMessage() { return errorMessage; }
+    public long getScheduleLagMicros() { return scheduleLagMicros; }
+    public long getQueueWaitMicros() { return queueWaitMicros; }
+    public int getAttempt() { return attempt; }
     
     @Override
     public String toString() {
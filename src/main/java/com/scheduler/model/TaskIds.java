@@ -0,0 +1,101 @@
+package com.scheduler.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic 64-bit task ids: milliseconds since 2024-01-01 UTC in the top 42
+ * bits, a node number in the next 10 and a sequence in the low 12. Ids taken
+ * in one process only ever increase; past 4096 in one millisecond they borrow
+ * from the next, so they stay unique across restarts unless the clock steps
+ * back past the last id taken. Nodes sharing a database need distinct node
+ * numbers. The string form is 16 lowercase hex digits and sorts like the number.
+ */
+public final class TaskIds {
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    public static final int MAX_NODE = 1023;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // Keys of 8 hex digit ids from older versions, below any generated id
+    private static final long LEGACY_BIT = 1L << 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private static final AtomicLong last = new AtomicLong();
+    private static volatile long nodeBits;
+    
+    private TaskIds() {
+    }
+    
+    /**
+     * Sets this process's node number; call it before any id is taken.
+     */
+    public static void setNode(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        nodeBits = (long) node << SEQUENCE_BITS;
+    }
+    
+    public static long next() {
+        long node = nodeBits;
+        long floor = (System.currentTimeMillis() - EPOCH_MILLIS) << TIME_SHIFT | node;
+        while (true) {
+            long prev = last.get();
+            long id;
+            if (prev < floor) {
+                id = floor;
+            } else if ((prev & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                id = prev + 1;
+            } else {
+                id = ((prev >>> TIME_SHIFT) + 1) << TIME_SHIFT | node;
+            }
+            if (last.compareAndSet(prev, id)) {
+                return id;
+            }
+        }
+    }
+    
+    public static String format(long id) {
+        char[] digits = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            digits[i] = HEX[(int) (id & 0xF)];
+            id >>>= 4;
+        }
+        return new String(digits);
+    }
+    
+    /**
+     * The 64-bit key of a task id: the number itself for a generated id, the
+     * value with bit 32 set for an 8 hex digit id of an older version (no
+     * generated id is that small), and 0 for any other id.
+     */
+    public static long key(String id) {
+        int length = id.length();
+        if (length != 16 && length != 8) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                return 0;
+            }
+            value = value << 4 | digit;
+        }
+        if (length == 8) {
+            return value | LEGACY_BIT;
+        }
+        return value >= LEGACY_BIT << 1 ? value : 0;
+    }
+    
+    /**
+     * When a generated id was taken, to the millisecond, or null for other ids.
+     */
+    public static Instant createdAt(String id) {
+        long key = id.length() == 16 ? key(id) : 0;
+        return key != 0 ? Instant.ofEpochMilli((key >>> TIME_SHIFT) + EPOCH_MILLIS) : null;
+    }
+}
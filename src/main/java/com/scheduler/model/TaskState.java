@@ -0,0 +1,33 @@
+package com.scheduler.model;
+
+import java.time.Instant;
+
+/**
+ * What is known about one task: its status, when its id was taken and, while
+ * the scheduler still tracks it, when the status last changed.
+ */
+public class TaskState {
+    private final String taskId;
+    private final TaskStatus status;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+    private final boolean tracked;
+    
+    public TaskState(String taskId, TaskStatus status, Instant createdAt, Instant updatedAt,
+                     boolean tracked) {
+        this.taskId = taskId;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.tracked = tracked;
+    }
+    
+    public String getTaskId() { return taskId; }
+    public TaskStatus getStatus() { return status; }
+    /** Null for ids that were not generated by {@link TaskIds}. */
+    public Instant getCreatedAt() { return createdAt; }
+    /** Null once the task has been evicted and was read back from the store. */
+    public Instant getUpdatedAt() { return updatedAt; }
+    /** Whether this came from the in-memory state table rather than the store. */
+    public boolean isTracked() { return tracked; }
+}
@@ -0,0 +1,299 @@
+package com.scheduler.web;
+
+import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.core.SchedulerListener;
+import com.scheduler.model.*;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fan-out hub behind {@code /api/stream}. Scheduler events go into one bounded
+ * queue that a single thread drains every flush interval. Each batch is
+ * coalesced (latest status per task, newest records only), encoded once, and
+ * the same bytes are handed to every client. Each client has a small bounded
+ * queue written out by its own virtual thread; a client whose queue fills up
+ * cannot keep up and is disconnected instead of buffering without limit.
+ */
+class EventBroadcaster implements SchedulerListener {
+    private static final int EVENT_QUEUE_CAPACITY = 65_536;
+    private static final int CLIENT_QUEUE_CAPACITY = 256;
+    private static final int MAX_CLIENTS = 1000;
+    private static final int MAX_TASKS_PER_FRAME = 200;
+    private static final int MAX_RECORDS_PER_FRAME = 50;
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final long METRICS_INTERVAL_MS = 1000;
+    private static final long KEEPALIVE_INTERVAL_MS = 15_000;
+    private static final byte[] HELLO = "retry: 3000\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEEPALIVE = ": keepalive\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESYNC = "event: resync\ndata: {}\n\n".getBytes(StandardCharsets.US_ASCII);
+    
+    private final DistributedTaskScheduler scheduler;
+    private final JsonViews.Fields extraMetrics;
+    private final ArrayBlockingQueue<Object> events = new ArrayBlockingQueue<>(EVENT_QUEUE_CAPACITY);
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AtomicLong clientIds = new AtomicLong(0);
+    private final AtomicLong droppedClients = new AtomicLong(0);
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean overflowed;
+    private volatile boolean metricsRequested;
+    
+    // Only touched by the worker thread
+    private final JsonWriter frameWriter = JsonWriter.acquire(null);
+    private final List<Object> drained = new ArrayList<>();
+    private final Map<String, StatusEvent> statusBatch = new LinkedHashMap<>();
+    private final ArrayDeque<TaskExecutionRecord> recordBatch = new ArrayDeque<>();
+    private long lastMetricsChecksum = -1;
+    
+    EventBroadcaster(DistributedTaskScheduler scheduler, JsonViews.Fields extraMetrics) {
+        this.scheduler = scheduler;
+        this.extraMetrics = extraMetrics;
+        this.worker = new Thread(this::run, "SSE-Broadcaster");
+        this.worker.setDaemon(true);
+    }
+    
+    void start() {
+        scheduler.addListener(this);
+        worker.start();
+    }
+    
+    @Override
+    public void onStatusChanged(ScheduledTask task, TaskStatus status) {
+        if (!clients.isEmpty()) {
+            publish(new StatusEvent(task.getId(), task.getName(), status));
+        }
+    }
+    
+    @Override
+    public void onExecutionRecorded(TaskExecutionRecord record) {
+        if (!clients.isEmpty()) {
+            publish(record);
+        }
+    }
+    
+    private void publish(Object event) {
+        if (!events.offer(event)) {
+            overflowed = true;
+        }
+    }
+    
+    /**
+     * Takes over the exchange as an event stream. The handler thread returns
+     * immediately; the client's writer thread owns the exchange from here on.
+     */
+    void register(HttpExchange exchange) throws IOException {
+        if (!running || clients.size() >= MAX_CLIENTS) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(200, 0);
+        
+        Client client = new Client(exchange);
+        client.queue.offer(HELLO);
+        clients.add(client);
+        client.writer = Thread.ofVirtual()
+            .name("SSE-Client-" + clientIds.incrementAndGet())
+            .start(client);
+        metricsRequested = true;
+        LockSupport.unpark(worker);
+    }
+    
+    int getClientCount() {
+        return clients.size();
+    }
+    
+    long getDroppedClients() {
+        return droppedClients.get();
+    }
+    
+    void stop() {
+        running = false;
+        scheduler.removeListener(this);
+        LockSupport.unpark(worker);
+        for (Client client : clients) {
+            disconnect(client);
+        }
+    }
+    
+    private void run() {
+        long nextMetrics = 0;
+        long nextKeepalive = System.currentTimeMillis() + KEEPALIVE_INTERVAL_MS;
+        
+        while (running) {
+            if (clients.isEmpty()) {
+                events.clear();
+                overflowed = false;
+                LockSupport.park(this);
+                continue;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS));
+            
+            try {
+                if (overflowed) {
+                    // Deltas were lost; tell clients to reload instead
+                    overflowed = false;
+                    broadcast(RESYNC);
+                }
+                flushEvents();
+                
+                long now = System.currentTimeMillis();
+                if (now >= nextMetrics || metricsRequested) {
+                    boolean force = metricsRequested;
+                    metricsRequested = false;
+                    nextMetrics = now + METRICS_INTERVAL_MS;
+                    broadcastMetrics(force);
+                }
+                if (now >= nextKeepalive) {
+                    nextKeepalive = now + KEEPALIVE_INTERVAL_MS;
+                    broadcast(KEEPALIVE);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Event stream error: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void flushEvents() throws IOException {
+        events.drainTo(drained);
+        if (drained.isEmpty()) {
+            return;
+        }
+        int skippedTasks = 0;
+        int skippedRecords = 0;
+        for (Object event : drained) {
+            if (event instanceof StatusEvent) {
+                StatusEvent status = (StatusEvent) event;
+                if (statusBatch.size() < MAX_TASKS_PER_FRAME || statusBatch.containsKey(status.taskId)) {
+                    statusBatch.put(status.taskId, status);
+                } else {
+                    skippedTasks++;
+                }
+            } else {
+                recordBatch.addLast((TaskExecutionRecord) event);
+                if (recordBatch.size() > MAX_RECORDS_PER_FRAME) {
+                    recordBatch.pollFirst();
+                    skippedRecords++;
+                }
+            }
+        }
+        drained.clear();
+        
+        if (!statusBatch.isEmpty()) {
+            JsonWriter json = frameWriter.reset(null);
+            json.raw("event: tasks\ndata: ").beginObject()
+                .field("skipped", skippedTasks)
+                .name("tasks").beginArray();
+            for (StatusEvent status : statusBatch.values()) {
+                json.beginObject()
+                    .field("taskId", status.taskId)
+                    .field("taskName", status.taskName)
+                    .field("status", status.status)
+                    .endObject();
+            }
+            json.endArray().endObject().raw("\n\n");
+            statusBatch.clear();
+            broadcast(json.toByteArray());
+        }
+        
+        if (!recordBatch.isEmpty()) {
+            JsonWriter json = frameWriter.reset(null);
+            json.raw("event: history\ndata: ").beginObject()
+                .field("skipped", skippedRecords)
+                .name("records").beginArray();
+            for (TaskExecutionRecord record : recordBatch) {
+                JsonViews.writeRecord(json, record);
+            }
+            json.endArray().endObject().raw("\n\n");
+            recordBatch.clear();
+            broadcast(json.toByteArray());
+        }
+    }
+    
+    private void broadcastMetrics(boolean force) throws IOException {
+        JsonWriter json = frameWriter.reset(null);
+        json.raw("event: metrics\ndata: ").beginObject();
+        JsonViews.writeMetrics(json, scheduler.getMetrics(), false);
+        extraMetrics.write(json);
+        json.endObject().raw("\n\n");
+        
+        // Unchanged snapshots are not sent again
+        long checksum = json.checksum();
+        if (force || checksum != lastMetricsChecksum) {
+            lastMetricsChecksum = checksum;
+            broadcast(json.toByteArray());
+        }
+    }
+    
+    private void broadcast(byte[] frame) {
+        for (Client client : clients) {
+            if (!client.queue.offer(frame)) {
+                droppedClients.incrementAndGet();
+                disconnect(client);
+            }
+        }
+    }
+    
+    private void disconnect(Client client) {
+        if (client.closed) {
+            return;
+        }
+        client.closed = true;
+        clients.remove(client);
+        if (client.writer != null) {
+            client.writer.interrupt();
+        }
+        client.exchange.close();
+    }
+    
+    private static final class StatusEvent {
+        final String taskId;
+        final String taskName;
+        final TaskStatus status;
+        
+        StatusEvent(String taskId, String taskName, TaskStatus status) {
+            this.taskId = taskId;
+            this.taskName = taskName;
+            this.status = status;
+        }
+    }
+    
+    private final class Client implements Runnable {
+        final HttpExchange exchange;
+        final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE_CAPACITY);
+        volatile Thread writer;
+        volatile boolean closed;
+        
+        Client(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+        
+        @Override
+        public void run() {
+            OutputStream os = exchange.getResponseBody();
+            try {
+                while (!closed) {
+                    os.write(queue.take());
+                    byte[] frame;
+                    while ((frame = queue.poll()) != null) {
+                        os.write(frame);
+                    }
+                    os.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // Client went away or was dropped
+            } finally {
+                disconnect(this);
+            }
+        }
+    }
+}
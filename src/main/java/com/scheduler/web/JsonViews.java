@@ -0,0 +1,168 @@
+package com.scheduler.web;
+
+import com.scheduler.model.*;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JSON shapes shared by the REST endpoints and the event stream, so a record
+ * or a metrics snapshot looks the same wherever the dashboard receives it.
+ */
+final class JsonViews {
+    /**
+     * Writes extra fields into an object that is already open.
+     */
+    interface Fields {
+        void write(JsonWriter json) throws IOException;
+    }
+    
+    private JsonViews() {
+    }
+    
+    /**
+     * Writes the metrics fields into the currently open object. Per task name
+     * latency rows are only included when asked for, since there can be many.
+     */
+    static void writeMetrics(JsonWriter json, SystemMetrics metrics, boolean taskLatencies)
+            throws IOException {
+        json.field("pendingTasks", metrics.getPendingTasks())
+            .field("activeThreads", metrics.getActiveThreads())
+            .field("totalThreads", metrics.getTotalThreads())
+            .field("completedTasks", metrics.getCompletedTasks())
+            .field("failedTasks", metrics.getFailedTasks())
+            .field("totalExecutions", metrics.getTotalExecutions())
+            .field("dbActiveConnections", metrics.getDbActiveConnections())
+            .field("dbPoolWaitMicros", metrics.getDbPoolWaitMicros())
+            .field("dbQueryMicros", metrics.getDbQueryMicros())
+            .field("queuedTasks", metrics.getQueuedTasks())
+            .field("queueWaitMicros", metrics.getQueueWaitMicros())
+            .field("poolResizes", metrics.getPoolResizes())
+            .field("lastPoolResize", metrics.getLastPoolResize())
+            .field("retries", metrics.getRetries())
+            .field("deadLetters", metrics.getDeadLetters())
+            .field("cancellations", metrics.getCancellations())
+            .field("timeouts", metrics.getTimeouts())
+            .field("dispatchPolicy", metrics.getDispatchPolicy())
+            .field("deadlineMisses", metrics.getDeadlineMisses())
+            .field("estimateErrorMicros", metrics.getEstimateErrorMicros());
+        writeLanes(json.name("lanes"), metrics.getLanes());
+        writeGroups(json.name("groups"), metrics.getGroups());
+        writeLatencies(json.name("latencies"), metrics.getLatencies(), taskLatencies);
+    }
+    
+    static void writeLatencies(JsonWriter json, List<LatencyStats> latencies, boolean taskLatencies)
+            throws IOException {
+        json.beginArray();
+        for (LatencyStats stats : latencies) {
+            if (!taskLatencies && stats.getGroup().equals("task")) {
+                continue;
+            }
+            json.beginObject()
+                .field("stage", stats.getStage())
+                .field("group", stats.getGroup())
+                .field("key", stats.getKey())
+                .field("count", stats.getCount())
+                .field("p50Micros", stats.getP50Micros())
+                .field("p90Micros", stats.getP90Micros())
+                .field("p99Micros", stats.getP99Micros())
+                .field("maxMicros", stats.getMaxMicros())
+                .endObject();
+        }
+        json.endArray();
+    }
+    
+    static void writeLanes(JsonWriter json, List<LaneMetrics> lanes) throws IOException {
+        json.beginArray();
+        for (LaneMetrics lane : lanes) {
+            json.beginObject()
+                .field("priority", lane.getPriority())
+                .field("depth", lane.getDepth())
+                .field("dispatched", lane.getDispatched())
+                .field("waitP50Micros", lane.getWaitP50Micros())
+                .field("waitP99Micros", lane.getWaitP99Micros())
+                .endObject();
+        }
+        json.endArray();
+    }
+    
+    static void writeGroups(JsonWriter json, List<GroupMetrics> groups) throws IOException {
+        json.beginArray();
+        for (GroupMetrics group : groups) {
+            json.beginObject()
+                .field("group", group.getGroup())
+                .field("maxConcurrent", group.getMaxConcurrent())
+                .field("permitsPerSecond", group.getPermitsPerSecond())
+                .field("running", group.getRunning())
+                .field("parked", group.getParked())
+                .field("started", group.getStarted())
+                .field("throttled", group.getThrottled())
+                .field("waitP50Micros", group.getWaitP50Micros())
+                .field("waitP99Micros", group.getWaitP99Micros())
+                .endObject();
+        }
+        json.endArray();
+    }
+    
+    static void writeDeadLetter(JsonWriter json, DeadLetter letter) throws IOException {
+        json.beginObject()
+            .field("taskId", letter.getTaskId())
+            .field("taskName", letter.getTaskName())
+            .field("priority", letter.getPriority())
+            .field("attempts", letter.getAttempts())
+            .field("error", letter.getErrorMessage() != null ? letter.getErrorMessage() : "")
+            .field("failedAt", letter.getFailedAt().toEpochMilli())
+            .endObject();
+    }
+    
+    static void writeEstimate(JsonWriter json, DurationEstimate estimate) throws IOException {
+        json.beginObject()
+            .field("taskName", estimate.getTaskName())
+            .field("samples", estimate.getSamples())
+            .field("averageMicros", estimate.getAverageMicros())
+            .field("p50Micros", estimate.getP50Micros())
+            .field("p90Micros", estimate.getP90Micros())
+            .field("p99Micros", estimate.getP99Micros())
+            .endObject();
+    }
+    
+    static void writeTaskState(JsonWriter json, TaskState state) throws IOException {
+        json.beginObject()
+            .field("id", state.getTaskId())
+            .field("status", state.getStatus())
+            .field("createdAt", state.getCreatedAt())
+            .field("updatedAt", state.getUpdatedAt())
+            .field("tracked", state.isTracked())
+            .endObject();
+    }
+    
+    static void writeRollup(JsonWriter json, HistoryRollup rollup) throws IOException {
+        json.beginObject()
+            .field("bucketStart", rollup.getBucketStart().toEpochMilli())
+            .field("taskName", rollup.getTaskName())
+            .field("priority", rollup.getPriority())
+            .field("runs", rollup.getRuns())
+            .field("failures", rollup.getFailures())
+            .field("avgMs", rollup.getAverageMillis())
+            .field("minMs", rollup.getMinMillis())
+            .field("maxMs", rollup.getMaxMillis())
+            .name("buckets").beginArray();
+        for (int i = 0; i < HistoryRollup.BUCKET_COUNT; i++) {
+            json.value(rollup.getBucket(i));
+        }
+        json.endArray().endObject();
+    }
+    
+    static void writeRecord(JsonWriter json, TaskExecutionRecord record) throws IOException {
+        json.beginObject()
+            .field("taskId", record.getTaskId())
+            .field("taskName", record.getTaskName())
+            .field("status", record.getStatus())
+            .field("duration", record.getActualDuration() != null ?
+                record.getActualDuration().toMillis() : 0)
+            .field("error", record.getErrorMessage() != null ? record.getErrorMessage() : "")
+            .field("scheduleLagMicros", record.getScheduleLagMicros())
+            .field("queueWaitMicros", record.getQueueWaitMicros())
+            .field("attempt", record.getAttempt())
+            .endObject();
+    }
+}
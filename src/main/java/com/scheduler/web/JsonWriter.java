@@ -0,0 +1,324 @@
+package com.scheduler.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Minimal streaming JSON writer that encodes UTF-8 straight into a byte buffer.
+ * Writers and their buffers are pooled and reused across requests, so rendering
+ * a response does not allocate intermediate strings. A pool is used rather than
+ * one writer per thread because HTTP requests may each run on a fresh virtual
+ * thread. When attached to a stream the buffer is flushed whenever it fills up;
+ * when detached it grows, so the whole document can be inspected (e.g. for an
+ * ETag) before it is sent.
+ */
+final class JsonWriter {
+    private static final int INITIAL_BUFFER = 8192;
+    private static final int MAX_DEPTH = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final int MAX_POOLED = 64;
+    private static final int MAX_POOLED_BUFFER = 256 * 1024;
+    private static final ConcurrentLinkedQueue<JsonWriter> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger(0);
+    
+    private final boolean[] first = new boolean[MAX_DEPTH];
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[INITIAL_BUFFER];
+    private int position;
+    private int depth;
+    private boolean afterName;
+    private OutputStream out;
+    
+    private JsonWriter() {
+    }
+    
+    /**
+     * Returns a pooled writer, cleared and writing to {@code out}, or to its own
+     * growable buffer if {@code out} is null. Hand it back with {@link #release()}.
+     */
+    static JsonWriter acquire(OutputStream out) {
+        JsonWriter writer = POOL.poll();
+        if (writer != null) {
+            POOLED.decrementAndGet();
+        } else {
+            writer = new JsonWriter();
+        }
+        return writer.reset(out);
+    }
+    
+    /**
+     * Clears the writer for a new document, for owners that keep one writer.
+     */
+    JsonWriter reset(OutputStream out) {
+        this.out = out;
+        position = 0;
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+    
+    /**
+     * Returns this writer to the pool. It must not be used afterwards.
+     */
+    void release() {
+        out = null;
+        if (buffer.length > MAX_POOLED_BUFFER) {
+            buffer = new byte[INITIAL_BUFFER];
+        }
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(this);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+    
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+    
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+    
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+    
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+    
+    JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        put((byte) ':');
+        afterName = true;
+        return this;
+    }
+    
+    JsonWriter value(String value) throws IOException {
+        separator();
+        if (value == null) {
+            ascii("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+    
+    JsonWriter value(Enum<?> value) throws IOException {
+        return value(value != null ? value.name() : null);
+    }
+    
+    JsonWriter value(long value) throws IOException {
+        separator();
+        if (value == Long.MIN_VALUE) {
+            ascii("-9223372036854775808");
+            return this;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        ensure(20);
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte b = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = b;
+        }
+        return this;
+    }
+    
+    JsonWriter value(double value) throws IOException {
+        separator();
+        ascii(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+    
+    JsonWriter value(boolean value) throws IOException {
+        separator();
+        ascii(value ? "true" : "false");
+        return this;
+    }
+    
+    JsonWriter field(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+    
+    JsonWriter field(String name, Enum<?> value) throws IOException {
+        return name(name).value(value);
+    }
+    
+    JsonWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+    
+    JsonWriter field(String name, double value) throws IOException {
+        return name(name).value(value);
+    }
+    
+    JsonWriter field(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+    
+    /** Epoch milliseconds, or null. */
+    JsonWriter field(String name, Instant value) throws IOException {
+        name(name);
+        if (value == null) {
+            return value((String) null);
+        }
+        return value(value.toEpochMilli());
+    }
+    
+    /**
+     * Appends ASCII text verbatim, e.g. the framing around an event payload.
+     */
+    JsonWriter raw(String text) throws IOException {
+        ascii(text);
+        return this;
+    }
+    
+    /**
+     * Writes any buffered bytes to the attached stream.
+     */
+    void flush() throws IOException {
+        if (out != null && position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+    
+    /** Number of bytes held in the buffer (the whole document when detached). */
+    int length() {
+        return position;
+    }
+    
+    /** CRC32 of the buffered bytes, used as a cheap ETag for detached documents. */
+    long checksum() {
+        crc.reset();
+        crc.update(buffer, 0, position);
+        return crc.getValue();
+    }
+    
+    void writeTo(OutputStream target) throws IOException {
+        target.write(buffer, 0, position);
+    }
+    
+    byte[] toByteArray() {
+        byte[] bytes = new byte[position];
+        System.arraycopy(buffer, 0, bytes, 0, position);
+        return bytes;
+    }
+    
+    private JsonWriter open(char bracket) throws IOException {
+        separator();
+        put((byte) bracket);
+        first[++depth] = true;
+        return this;
+    }
+    
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        put((byte) bracket);
+        return this;
+    }
+    
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (depth > 0) {
+            if (first[depth]) {
+                first[depth] = false;
+            } else {
+                put((byte) ',');
+            }
+        }
+    }
+    
+    private void string(String s) throws IOException {
+        put((byte) '"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                put((byte) '\\');
+                put((byte) c);
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                escapeControl(c);
+            } else if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xF0 | (cp >> 18));
+                buffer[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?');
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        put((byte) '"');
+    }
+    
+    private void escapeControl(char c) throws IOException {
+        switch (c) {
+            case '\n': ascii("\\n"); break;
+            case '\r': ascii("\\r"); break;
+            case '\t': ascii("\\t"); break;
+            case '\b': ascii("\\b"); break;
+            case '\f': ascii("\\f"); break;
+            default:
+                ensure(6);
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = HEX[(c >> 12) & 0xF];
+                buffer[position++] = HEX[(c >> 8) & 0xF];
+                buffer[position++] = HEX[(c >> 4) & 0xF];
+                buffer[position++] = HEX[c & 0xF];
+        }
+    }
+    
+    private void ascii(String s) throws IOException {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+    
+    private void put(byte b) throws IOException {
+        ensure(1);
+        buffer[position++] = b;
+    }
+    
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes <= buffer.length) {
+            return;
+        }
+        if (out != null) {
+            flush();
+        } else {
+            byte[] grown = new byte[Math.max(buffer.length * 2, position + bytes)];
+            System.arraycopy(buffer, 0, grown, 0, position);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.scheduler.web;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps one route with its own concurrency limit and latency histogram, so a
+ * burst of slow requests on one endpoint cannot take every HTTP worker. A
+ * request that cannot get a permit within the timeout is answered with 503
+ * instead of queueing behind the others.
+ */
+class RouteHandler implements HttpHandler {
+    private final String route;
+    private final HttpHandler delegate;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final LatencyHistogram latencyMicros = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    
+    /**
+     * @param maxConcurrent concurrent requests allowed on this route, or 0 for no limit
+     */
+    RouteHandler(String route, HttpHandler delegate, int maxConcurrent, long acquireTimeoutMillis) {
+        this.route = route;
+        this.delegate = delegate;
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        if (!acquire()) {
+            rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        try {
+            delegate.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            errors.increment();
+            throw e;
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+            latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+    
+    private boolean acquire() {
+        if (permits == null) {
+            return true;
+        }
+        try {
+            return permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    void writeStats(JsonWriter json) throws IOException {
+        json.beginObject()
+            .field("route", route)
+            .field("requests", latencyMicros.getCount())
+            .field("rejected", rejected.sum())
+            .field("errors", errors.sum())
+            .field("p50Micros", latencyMicros.percentile(50))
+            .field("p99Micros", latencyMicros.percentile(99))
+            .field("maxMicros", latencyMicros.getMax())
+            .endObject();
+    }
+}
@@ -1,28 +1,138 @@
 package com.scheduler.web;
 
+import com.scheduler.core.DispatchPolicy;
 import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.core.TaskResolver;
+import com.scheduler.metrics.OpenMetricsWriter;
 import com.scheduler.model.*;
 import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
 
 public class WebServer {
+    private static final int DEFAULT_HISTORY_LIMIT = 100;
+    private static final int MAX_HISTORY_LIMIT = 10_000;
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final int STREAM_BUFFER_BYTES = 8192;
+    private static final int DEFAULT_WORKER_THREADS = 16;
+    private static final int WORKER_QUEUE_CAPACITY = 1024;
+    private static final long ACQUIRE_TIMEOUT_MS = 2000;
+    private static final int DASHBOARD_CONCURRENCY = 32;
+    private static final int METRICS_CONCURRENCY = 64;
+    private static final int HISTORY_CONCURRENCY = 8;
+    private static final int STATS_CONCURRENCY = 8;
+    private static final int DEFAULT_STATS_BUCKETS = 24;
+    private static final int MAX_STATS_BUCKETS = 20_000;
+    private static final int DEAD_LETTER_CONCURRENCY = 4;
+    private static final int DEFAULT_DEAD_LETTER_LIMIT = 100;
+    private static final int TASK_CONCURRENCY = 8;
+    private static final int BATCH_CONCURRENCY = 2;
+    private static final int MAX_BATCH_TASKS = 100_000;
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final long KEEP_ALIVE_IDLE_SECONDS = 30;
+    private static final int MAX_IDLE_CONNECTIONS = 1000;
+    private static final long MAX_REQUEST_READ_SECONDS = 10;
+    
     private final HttpServer server;
+    private final ExecutorService executor;
     private final DistributedTaskScheduler scheduler;
+    private final EventBroadcaster broadcaster;
+    private final List<RouteHandler> routes = new ArrayList<>();
+    private final LongAdder httpRejected = new LongAdder();
     
     public WebServer(DistributedTaskScheduler scheduler, int port) throws IOException {
+        this(scheduler, port, ExecutionMode.VIRTUAL, DEFAULT_WORKER_THREADS);
+    }
+    
+    /**
+     * @param executorMode  VIRTUAL runs each request on its own virtual thread;
+     *                      PLATFORM uses a bounded pool of {@code workerThreads}
+     */
+    public WebServer(DistributedTaskScheduler scheduler, int port,
+                     ExecutionMode executorMode, int workerThreads) throws IOException {
         this.scheduler = scheduler;
-        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.broadcaster = new EventBroadcaster(scheduler, this::writeServerMetrics);
+        this.server = HttpServer.create(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        this.executor = createExecutor(executorMode, workerThreads);
         setupRoutes();
-        server.setExecutor(null);
+        server.setExecutor(executor);
+    }
+    
+    /**
+     * Opt-in tuning of keep-alive and request read limits for the dashboard.
+     * The JDK server only takes these from {@code sun.net.httpserver.*} system
+     * properties, which it reads once, when the first HttpServer in the process
+     * is created, and which then apply to every HttpServer in the JVM. Call this
+     * from the application entry point before any server is created; embedders
+     * that run their own servers can leave it out and keep the JDK defaults.
+     * Values set explicitly on the command line win.
+     */
+    public static void configureConnections() {
+        setDefault("sun.net.httpserver.idleInterval", KEEP_ALIVE_IDLE_SECONDS);
+        setDefault("sun.net.httpserver.maxIdleConnections", MAX_IDLE_CONNECTIONS);
+        setDefault("sun.net.httpserver.maxReqTime", MAX_REQUEST_READ_SECONDS);
+    }
+    
+    private static void setDefault(String property, long value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, Long.toString(value));
+        }
+    }
+    
+    private ExecutorService createExecutor(ExecutionMode mode, int workerThreads) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("HTTP-", 1).factory());
+        }
+        AtomicInteger threadIds = new AtomicInteger(0);
+        return new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY),
+            r -> {
+                Thread t = new Thread(r, "HTTP-Worker-" + threadIds.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            (r, pool) -> {
+                // The server closes the connection when the executor rejects it
+                httpRejected.increment();
+                throw new RejectedExecutionException("HTTP worker queue is full");
+            });
     }
     
     private void setupRoutes() {
-        server.createContext("/", this::handleDashboard);
-        server.createContext("/api/metrics", this::handleMetrics);
-        server.createContext("/api/history", this::handleHistory);
+        route("/", this::handleDashboard, DASHBOARD_CONCURRENCY);
+        route("/api/metrics", this::handleMetrics, METRICS_CONCURRENCY);
+        route("/api/history", this::handleHistory, HISTORY_CONCURRENCY);
+        route("/api/stats", this::handleStats, STATS_CONCURRENCY);
+        route("/api/stream", broadcaster::register, 0);
+        route("/metrics", this::handleScrape, METRICS_CONCURRENCY);
+        route("/api/dead-letters", this::handleDeadLetters, DEAD_LETTER_CONCURRENCY);
+        route("/api/dead-letters/replay", this::handleReplay, DEAD_LETTER_CONCURRENCY);
+        route("/api/tasks/status", this::handleTaskStatus, TASK_CONCURRENCY);
+        route("/api/tasks/cancel", this::handleCancel, TASK_CONCURRENCY);
+        route("/api/tasks/batch", this::handleBatch, BATCH_CONCURRENCY);
+        route("/api/dispatch-policy", this::handleDispatchPolicy, TASK_CONCURRENCY);
+        route("/api/estimates", this::handleEstimates, STATS_CONCURRENCY);
+    }
+    
+    private void route(String path, HttpHandler handler, int maxConcurrent) {
+        RouteHandler route = new RouteHandler(path, handler, maxConcurrent, ACQUIRE_TIMEOUT_MS);
+        routes.add(route);
+        server.createContext(path, route);
     }
     
     private void handleDashboard(HttpExchange exchange) throws IOException {
@@ -30,37 +140,540 @@ public class WebServer {
         sendResponse(exchange, 200, html, "text/html");
     }
     
+    /**
+     * Returns the current metrics; {@code ?latency=tasks} adds per task name
+     * latency percentiles.
+     */
     private void handleMetrics(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        boolean taskLatencies = "tasks".equals(query.get("latency"));
         SystemMetrics metrics = scheduler.getMetrics();
-        String json = String.format(
-            "{\"pendingTasks\":%d,\"activeThreads\":%d,\"totalThreads\":%d," +
-            "\"completedTasks\":%d,\"failedTasks\":%d,\"totalExecutions\":%d}",
-            metrics.getPendingTasks(), metrics.getActiveThreads(),
-            metrics.getTotalThreads(), metrics.getCompletedTasks(),
-            metrics.getFailedTasks(), metrics.getTotalExecutions()
-        );
-        sendResponse(exchange, 200, json, "application/json");
+        JsonWriter json = JsonWriter.acquire(null);
+        try {
+            json.beginObject();
+            JsonViews.writeMetrics(json, metrics, taskLatencies);
+            writeServerMetrics(json);
+            json.endObject();
+            sendDocument(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+    
+    /**
+     * OpenMetrics exposition for Prometheus-style scrapers.
+     */
+    private void handleScrape(HttpExchange exchange) throws IOException {
+        scheduler.getMetricsRegistry().scrape((buffer, length) -> {
+            exchange.getResponseHeaders().set("Content-Type", OpenMetricsWriter.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(buffer, 0, length);
+            }
+        });
     }
     
+    private void writeServerMetrics(JsonWriter json) throws IOException {
+        json.field("streamClients", broadcaster.getClientCount())
+            .field("streamDroppedClients", broadcaster.getDroppedClients())
+            .field("httpRejected", httpRejected.sum())
+            .name("routes").beginArray();
+        for (RouteHandler route : routes) {
+            route.writeStats(json);
+        }
+        json.endArray();
+    }
+    
+    private void sendDocument(HttpExchange exchange, JsonWriter json) throws IOException {
+        String etag = "W/\"m" + Long.toHexString(json.checksum()) + "\"";
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        boolean gzip = json.length() >= GZIP_MIN_BYTES && acceptsGzip(exchange);
+        setJsonHeaders(exchange, etag, gzip);
+        if (gzip) {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody(), STREAM_BUFFER_BYTES)) {
+                json.writeTo(os);
+            }
+        } else {
+            exchange.sendResponseHeaders(200, json.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                json.writeTo(os);
+            }
+        }
+    }
+    
+    /**
+     * Returns the newest {@code limit} records after skipping the newest
+     * {@code offset}, oldest first. Any of {@code taskId}, {@code taskName},
+     * {@code status}, {@code from} and {@code to} (epoch millis, on the start
+     * time) searches the stored history instead of the recent in-memory one.
+     * The body is streamed with chunked encoding, so large pages are never held
+     * in memory as one payload. The ETag only changes when a new execution is
+     * recorded.
+     */
     private void handleHistory(HttpExchange exchange) throws IOException {
-        List<TaskExecutionRecord> history = scheduler.getExecutionHistory();
-        StringBuilder json = new StringBuilder("[");
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        int limit;
+        int offset;
+        HistoryQuery filter;
+        try {
+            Map<String, String> query = parseQuery(rawQuery);
+            limit = Math.min(intParam(query, "limit", DEFAULT_HISTORY_LIMIT), MAX_HISTORY_LIMIT);
+            offset = intParam(query, "offset", 0);
+            filter = historyFilter(query, offset + limit);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, e.getMessage(), "text/plain");
+            return;
+        }
+        
+        long version = scheduler.getHistoryVersion();
+        String etag = "W/\"h" + version + "-" + offset + "-" + limit
+            + (filter != null ? "-" + Integer.toHexString(rawQuery.hashCode()) : "") + "\"";
+        if (notModified(exchange, etag)) {
+            return;
+        }
         
-        for (int i = 0; i < history.size(); i++) {
-            TaskExecutionRecord record = history.get(i);
-            if (i > 0) json.append(",");
-            json.append(String.format(
-                "{\"taskId\":\"%s\",\"taskName\":\"%s\",\"status\":\"%s\"," +
-                "\"duration\":%d,\"error\":\"%s\"}",
-                record.getTaskId(), record.getTaskName(), record.getStatus(),
-                record.getActualDuration() != null ? 
-                    record.getActualDuration().toMillis() : 0,
-                record.getErrorMessage() != null ? record.getErrorMessage() : ""
-            ));
-        }
-        json.append("]");
+        List<TaskExecutionRecord> history;
+        if (filter != null) {
+            try {
+                history = scheduler.queryHistory(filter);
+            } catch (SQLException e) {
+                sendResponse(exchange, 500, e.getMessage(), "text/plain");
+                return;
+            }
+        } else {
+            history = scheduler.getExecutionHistory(offset + limit);
+        }
+        int end = Math.max(0, history.size() - offset);
+        boolean gzip = acceptsGzip(exchange);
+        setJsonHeaders(exchange, etag, gzip);
+        if (filter == null) {
+            exchange.getResponseHeaders().set("X-Total-Count", Long.toString(version));
+        }
+        exchange.sendResponseHeaders(200, 0);
+        
+        OutputStream body = exchange.getResponseBody();
+        try (OutputStream os = gzip ? new GZIPOutputStream(body, STREAM_BUFFER_BYTES) : body) {
+            JsonWriter json = JsonWriter.acquire(os);
+            try {
+                json.beginArray();
+                for (int i = 0; i < end; i++) {
+                    JsonViews.writeRecord(json, history.get(i));
+                }
+                json.endArray().flush();
+            } finally {
+                json.release();
+            }
+        }
+    }
+    
+    /**
+     * Builds a store query from the history filters, or returns null if none is set.
+     */
+    private static HistoryQuery historyFilter(Map<String, String> query, int limit) {
+        String taskId = stringParam(query, "taskId");
+        String taskName = stringParam(query, "taskName");
+        TaskStatus status = enumParam(query, "status", TaskStatus.class);
+        Instant from = instantParam(query, "from");
+        Instant to = instantParam(query, "to");
+        if (taskId == null && taskName == null && status == null && from == null && to == null) {
+            return null;
+        }
+        return new HistoryQuery(limit)
+            .withTaskId(taskId)
+            .withTaskName(taskName)
+            .withStatus(status)
+            .withFrom(from)
+            .withTo(to);
+    }
+    
+    /**
+     * Per task name and priority rollups of {@code ?grain=minute|hour|day}
+     * (hour by default) whose buckets start in [{@code from}, {@code to}), in
+     * epoch millis. Without a range it covers the last {@value #DEFAULT_STATS_BUCKETS}
+     * buckets up to now. {@code ?taskName=} narrows it to one task.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        HistoryRollup.Grain grain;
+        Instant from;
+        Instant to;
+        List<HistoryRollup> rollups;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            HistoryRollup.Grain requested = enumParam(query, "grain", HistoryRollup.Grain.class);
+            grain = requested != null ? requested : HistoryRollup.Grain.HOUR;
+            Instant until = instantParam(query, "to");
+            to = until != null ? until : Instant.now();
+            Instant since = instantParam(query, "from");
+            from = since != null ? since
+                : grain.bucketOf(to).minus(grain.getLength().multipliedBy(DEFAULT_STATS_BUCKETS - 1));
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("Parameter 'from' must be before 'to'");
+            }
+            if (Duration.between(from, to).dividedBy(grain.getLength()) > MAX_STATS_BUCKETS) {
+                throw new IllegalArgumentException("Range spans more than " + MAX_STATS_BUCKETS + " buckets");
+            }
+            rollups = scheduler.getRollups(grain, from, to, stringParam(query, "taskName"));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, e.getMessage(), "text/plain");
+            return;
+        } catch (SQLException e) {
+            sendResponse(exchange, 500, e.getMessage(), "text/plain");
+            return;
+        }
+        
+        JsonWriter json = JsonWriter.acquire(null);
+        try {
+            json.beginObject()
+                .field("grain", grain)
+                .field("from", from.toEpochMilli())
+                .field("to", to.toEpochMilli())
+                .name("bucketBoundsMs").beginArray();
+            for (long bound : HistoryRollup.BUCKET_BOUNDS_MS) {
+                json.value(bound);
+            }
+            json.endArray().name("rollups").beginArray();
+            for (HistoryRollup rollup : rollups) {
+                JsonViews.writeRollup(json, rollup);
+            }
+            json.endArray().endObject();
+            sendDocument(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+    
+    /**
+     * Lists the oldest dead-lettered tasks, {@code ?limit=} at most.
+     */
+    private void handleDeadLetters(HttpExchange exchange) throws IOException {
+        List<DeadLetter> letters;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int limit = Math.min(intParam(query, "limit", DEFAULT_DEAD_LETTER_LIMIT), MAX_HISTORY_LIMIT);
+            letters = scheduler.getDeadLetters(limit);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, e.getMessage(), "text/plain");
+            return;
+        } catch (SQLException e) {
+            sendResponse(exchange, 500, e.getMessage(), "text/plain");
+            return;
+        }
+        
+        JsonWriter json = JsonWriter.acquire(null);
+        try {
+            json.beginObject()
+                .field("total", scheduler.getDeadLetterCount())
+                .name("deadLetters").beginArray();
+            for (DeadLetter letter : letters) {
+                JsonViews.writeDeadLetter(json, letter);
+            }
+            json.endArray().endObject();
+            sendDocument(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+    
+    /**
+     * POST: reruns the dead letters named by {@code ?ids=a,b,c}, or else the
+     * oldest {@code ?limit=} of them.
+     */
+    private void handleReplay(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendResponse(exchange, 405, "Use POST", "text/plain");
+            return;
+        }
+        int replayed;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int limit = Math.min(intParam(query, "limit", DEFAULT_DEAD_LETTER_LIMIT), MAX_HISTORY_LIMIT);
+            replayed = scheduler.replayDeadLetters(idsParam(query), limit);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, e.getMessage(), "text/plain");
+            return;
+        } catch (SQLException e) {
+            sendResponse(exchange, 500, e.getMessage(), "text/plain");
+            return;
+        }
+        sendResponse(exchange, 200, "{\"replayed\":" + replayed + "}", "application/json");
+    }
+    
+    /**
+     * Status of the task {@code ?id=}, from memory while the scheduler tracks
+     * it and from the store after that. Unknown ids are a 404.
+     */
+    private void handleTaskStatus(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String id = stringParam(query, "id");
+        if (id == null || id.isBlank()) {
+            sendResponse(exchange, 400, "Missing id", "text/plain");
+            return;
+        }
+        TaskState state;
+        try {
+            state = scheduler.lookupTask(id.trim());
+        } catch (SQLException e) {
+            sendResponse(exchange, 500, e.getMessage(), "text/plain");
+            return;
+        }
+        if (state == null) {
+            sendResponse(exchange, 404, "No task " + id, "text/plain");
+            return;
+        }
         
-        sendResponse(exchange, 200, json.toString(), "application/json");
+        JsonWriter json = JsonWriter.acquire(null);
+        try {
+            JsonViews.writeTaskState(json, state);
+            sendDocument(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+    
+    /**
+     * POST: cancels the task {@code ?id=}, or every task in {@code ?ids=a,b,c}.
+     * A single id that is unknown or already finished is a 404.
+     */
+    private void handleCancel(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendResponse(exchange, 405, "Use POST", "text/plain");
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String id = query.get("id");
+        if (id != null && !id.isBlank()) {
+            if (!scheduler.cancelTask(id.trim())) {
+                sendResponse(exchange, 404, "No cancellable task " + id, "text/plain");
+                return;
+            }
+            sendResponse(exchange, 200, "{\"cancelled\":1}", "application/json");
+            return;
+        }
+        List<String> ids = idsParam(query);
+        if (ids.isEmpty()) {
+            sendResponse(exchange, 400, "Missing id or ids", "text/plain");
+            return;
+        }
+        int cancelled = scheduler.cancelTasks(ids);
+        sendResponse(exchange, 200, "{\"cancelled\":" + cancelled + ",\"requested\":" + ids.size() + "}",
+            "application/json");
+    }
+    
+    /**
+     * POST: schedules one task per body line, {@code name[,priority[,delayMillis]]},
+     * built from the task types the scheduler recovered with. Answers with the
+     * new ids in line order.
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendResponse(exchange, 405, "Use POST", "text/plain");
+            return;
+        }
+        TaskResolver resolver = scheduler.getTaskResolver();
+        if (resolver == null) {
+            sendResponse(exchange, 503, "No task types registered", "text/plain");
+            return;
+        }
+        
+        List<ScheduledTask> tasks = new ArrayList<>();
+        int lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            long now = System.currentTimeMillis();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (tasks.size() == MAX_BATCH_TASKS) {
+                    sendResponse(exchange, 413, "At most " + MAX_BATCH_TASKS + " tasks per batch", "text/plain");
+                    return;
+                }
+                String[] fields = line.split(",");
+                String name = fields[0].trim();
+                TaskPriority priority = fields.length > 1
+                    ? TaskPriority.valueOf(fields[1].trim().toUpperCase())
+                    : TaskPriority.MEDIUM;
+                long delayMillis = fields.length > 2 ? Long.parseLong(fields[2].trim()) : 0;
+                ScheduledTask task = resolver.resolve(ScheduledTask.newId(), name, priority,
+                    Instant.ofEpochMilli(now + Math.max(delayMillis, 0)));
+                if (task == null) {
+                    throw new IllegalArgumentException("Unknown task type '" + name + "'");
+                }
+                tasks.add(task);
+            }
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "Line " + lineNumber + ": " + e.getMessage(), "text/plain");
+            return;
+        }
+        
+        try {
+            scheduler.scheduleTasks(tasks);
+        } catch (SQLException e) {
+            sendResponse(exchange, 500, e.getMessage(), "text/plain");
+            return;
+        }
+        JsonWriter json = JsonWriter.acquire(null);
+        try {
+            json.beginObject()
+                .field("scheduled", tasks.size())
+                .name("ids").beginArray();
+            for (ScheduledTask task : tasks) {
+                json.value(task.getId());
+            }
+            json.endArray().endObject();
+            sendDocument(exchange, json);
+        } finally {
+            json.release();
+        }
+    }
+    
+    private boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !(ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+    
+    private boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.contains("gzip");
+    }
+    
+    private void setJsonHeaders(HttpExchange exchange, String etag, boolean gzip) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "application/json");
+        headers.set("Access-Control-Allow-Origin", "*");
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+        headers.set("ETag", etag);
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+        }
+    }
+    
+    /** The comma-separated {@code ids} parameter, blanks dropped. */
+    private static List<String> idsParam(Map<String, String> query) {
+        List<String> ids = new ArrayList<>();
+        for (String id : query.getOrDefault("ids", "").split(",")) {
+            if (!id.isBlank()) {
+                ids.add(id.trim());
+            }
+        }
+        return ids;
+    }
+    
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+    
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Parameter '" + name + "' must not be negative");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be an integer");
+        }
+    }
+    
+    private static String stringParam(Map<String, String> query, String name) {
+        String value = query.get(name);
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    private static Instant instantParam(Map<String, String> query, String name) {
+        String value = stringParam(query, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be epoch milliseconds");
+        }
+    }
+    
+    private static <E extends Enum<E>> E enumParam(Map<String, String> query, String name, Class<E> type) {
+        String value = stringParam(query, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be one of "
+                + Arrays.toString(type.getEnumConstants()));
+        }
+    }
+    
+    /**
+     * GET returns the dispatch policy in use; POST switches it to {@code ?policy=}.
+     */
+    private void handleDispatchPolicy(HttpExchange exchange) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            DispatchPolicy policy;
+            try {
+                Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                policy = enumParam(query, "policy", DispatchPolicy.class);
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, e.getMessage(), "text/plain");
+                return;
+            }
+            if (policy == null) {
+                sendResponse(exchange, 400, "Missing policy", "text/plain");
+                return;
+            }
+            scheduler.setDispatchPolicy(policy);
+        }
+        sendResponse(exchange, 200, "{\"policy\":\"" + scheduler.getDispatchPolicy() + "\"}",
+            "application/json");
+    }
+    
+    /**
+     * Run durations learned per task name, as used by shortest job first.
+     */
+    private void handleEstimates(HttpExchange exchange) throws IOException {
+        JsonWriter json = JsonWriter.acquire(null);
+        try {
+            json.beginArray();
+            for (DurationEstimate estimate : scheduler.getDurationEstimates()) {
+                JsonViews.writeEstimate(json, estimate);
+            }
+            json.endArray();
+            sendDocument(exchange, json);
+        } finally {
+            json.release();
+        }
     }
     
     private void sendResponse(HttpExchange exchange, int statusCode, 
@@ -89,28 +702,68 @@ public class WebServer {
             ".status.COMPLETED{background:#d4edda;color:#155724}.status.FAILED{background:#f8d7da;color:#721c24}" +
             ".status.RUNNING{background:#d1ecf1;color:#0c5460}</style></head><body><div class='container'>" +
             "<div class='header'><h1>📊 Task Scheduler Dashboard</h1><p>Real-time Monitoring System</p></div>" +
-            "<div class='metrics' id='metrics'></div><div class='history'><h2>Recent Executions</h2>" +
-            "<div id='history'></div></div></div><script>async function fetchMetrics(){const r=await fetch('/api/metrics');" +
-            "const d=await r.json();document.getElementById('metrics').innerHTML=`<div class='card'><h3>Pending Tasks</h3>" +
+            "<div class='metrics' id='metrics'></div>" +
+            "<div class='history' style='margin-bottom:30px'><h2>Latency (p99, all tasks)</h2>" +
+            "<canvas id='lat' width='1160' height='180'></canvas><div id='latTable'></div></div>" +
+            "<div class='history'><h2>Recent Executions</h2>" +
+            "<div id='history'></div></div></div><script>let hist=[];function renderMetrics(d){document.getElementById('metrics').innerHTML=`<div class='card'><h3>Pending Tasks</h3>" +
             "<div class='value'>${d.pendingTasks}</div></div><div class='card'><h3>Active Threads</h3>" +
             "<div class='value'>${d.activeThreads}</div></div><div class='card'><h3>Completed</h3>" +
             "<div class='value'>${d.completedTasks}</div></div><div class='card'><h3>Failed</h3>" +
             "<div class='value'>${d.failedTasks}</div></div><div class='card'><h3>Total Executions</h3>" +
             "<div class='value'>${d.totalExecutions}</div></div><div class='card'><h3>Thread Pool</h3>" +
-            "<div class='value'>${d.totalThreads}</div></div>`}async function fetchHistory(){const r=await fetch('/api/history');" +
-            "const d=await r.json();document.getElementById('history').innerHTML=d.map(i=>`<div class='history-item'><div><strong>" +
+            "<div class='value'>${d.totalThreads}</div><small>${d.lastPoolResize}</small></div>" +
+            "<div class='card'><h3>Queue Wait</h3><div class='value'>${d.queueWaitMicros}µs</div></div>" +
+            "<div class='card'><h3>DB Pool Wait</h3>" +
+            "<div class='value'>${d.dbPoolWaitMicros}µs</div></div><div class='card'><h3>DB Query Latency</h3>" +
+            "<div class='value'>${d.dbQueryMicros}µs</div></div><div class='card'><h3>Retries</h3>" +
+            "<div class='value'>${d.retries}</div></div><div class='card'><h3>Dead Letters</h3>" +
+            "<div class='value'>${d.deadLetters}</div>${d.deadLetters?`<button onclick='replay()'>Replay</button>`:''}</div><div class='card'><h3>Cancelled / Timed Out</h3>" +
+            "<div class='value'>${d.cancellations} / ${d.timeouts}</div></div><div class='card'><h3>Dispatch Policy</h3>" +
+            "<select onchange='setPolicy(this.value)'>${['PRIORITY','EARLIEST_DEADLINE','SHORTEST_JOB'].map(p=>`<option ${p==d.dispatchPolicy?'selected':''}>${p}</option>`).join('')}</select>" +
+            "<div class='value'>${d.deadlineMisses}</div><small>deadline misses · estimate error ${d.estimateErrorMicros}µs</small></div>`+d.lanes.map(l=>`<div class='card'><h3>${l.priority} Lane</h3>" +
+            "<div class='value'>${l.depth}</div><small>wait p50 ${l.waitP50Micros}µs · p99 ${l.waitP99Micros}µs</small></div>`).join('')+(d.groups||[]).map(g=>`<div class='card'><h3>${g.group} Group</h3>" +
+            "<div class='value'>${g.running}${g.maxConcurrent?' / '+g.maxConcurrent:''}</div><small>${g.parked} parked · ${g.throttled} throttled${g.permitsPerSecond?' · '+g.permitsPerSecond+'/s':''} · wait p99 ${g.waitP99Micros}µs</small></div>`).join('')+(d.routes||[]).map(r=>`<div class='card'><h3>${r.route}</h3>" +
+            "<div class='value'>${r.p99Micros}µs</div><small>p50 ${r.p50Micros}µs · ${r.requests} req · ${r.rejected} rejected</small></div>`).join('');renderLatency(d)}" +
+            "const series={SCHEDULE_LAG:[],QUEUE_WAIT:[],EXECUTION:[],PERSISTENCE:[]}," +
+            "colors={SCHEDULE_LAG:'#667eea',QUEUE_WAIT:'#f0ad4e',EXECUTION:'#5cb85c',PERSISTENCE:'#d9534f'};" +
+            "function renderLatency(d){const ls=d.latencies||[];for(const k in series){" +
+            "const s=ls.find(l=>l.stage==k&&l.group=='all');series[k].push(s?s.p99Micros:0);" +
+            "if(series[k].length>60)series[k].shift()}const c=document.getElementById('lat'),x=c.getContext('2d');" +
+            "x.clearRect(0,0,c.width,c.height);const m=Math.max(1,...Object.values(series).flat());" +
+            "for(const k in series){x.strokeStyle=colors[k];x.beginPath();series[k].forEach((v,i)=>{" +
+            "const px=i*c.width/59,py=c.height-5-v/m*(c.height-20);i?x.lineTo(px,py):x.moveTo(px,py)});x.stroke()}" +
+            "x.fillStyle='#333';x.fillText('p99 max '+m+'µs',5,12);" +
+            "document.getElementById('latTable').innerHTML='<table style=width:100%;font-size:0.85em><tr>" +
+            "<th align=left>Stage</th><th align=left>Tasks</th><th>p50 µs</th><th>p90 µs</th><th>p99 µs</th>" +
+            "<th>max µs</th></tr>'+ls.filter(l=>l.group!='task').map(l=>`<tr><td style='color:${colors[l.stage]}'>" +
+            "${l.stage}</td><td>${l.key}</td><td align=center>${l.p50Micros}</td><td align=center>${l.p90Micros}</td>" +
+            "<td align=center>${l.p99Micros}</td><td align=center>${l.maxMicros}</td></tr>`).join('')+'</table>'}" +
+            "function renderHistory(){document.getElementById('history').innerHTML=hist.map(i=>`<div class='history-item'><div><strong>" +
             "${i.taskName}</strong><br><small>${i.taskId}</small></div><div><span class='status ${i.status}'>${i.status}</span><br>" +
-            "<small>${i.duration}ms</small></div></div>`).join('')}setInterval(()=>{fetchMetrics();fetchHistory()},1000);" +
+            "<small>${i.duration}ms</small></div></div>`).join('')}" +
+            "async function replay(){await fetch('/api/dead-letters/replay',{method:'POST'});fetchMetrics()}" +
+            "async function setPolicy(p){await fetch('/api/dispatch-policy?policy='+p,{method:'POST'});fetchMetrics()}" +
+            "async function fetchMetrics(){const r=await fetch('/api/metrics');renderMetrics(await r.json())}" +
+            "async function fetchHistory(){const r=await fetch('/api/history?limit=50');hist=await r.json();renderHistory()}" +
+            "function connect(){const es=new EventSource('/api/stream');" +
+            "es.addEventListener('metrics',e=>renderMetrics(JSON.parse(e.data)));" +
+            "es.addEventListener('history',e=>{hist=hist.concat(JSON.parse(e.data).records).slice(-50);renderHistory()});" +
+            "es.addEventListener('resync',fetchHistory);es.onopen=fetchHistory}" +
+            "if(window.EventSource){connect()}else{setInterval(()=>{fetchMetrics();fetchHistory()},1000)}" +
             "fetchMetrics();fetchHistory()</script></body></html>";
     }
     
     public void start() {
+        broadcaster.start();
         server.start();
         System.out.println("🌐 Web Dashboard started at http://localhost:" + 
             server.getAddress().getPort());
     }
     
     public void stop() {
+        broadcaster.stop();
         server.stop(0);
+        executor.shutdownNow();
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.database.ConnectionPool;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.database.TaskLeaseStore;
+import com.scheduler.model.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClusterCoordinatorTest {
+    private String url;
+    private DatabaseManager store;
+    
+    @BeforeEach
+    void open() {
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        store = new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 4, 30_000), 4096, 1024, 10);
+    }
+    
+    @AfterEach
+    void close() {
+        store.shutdown();
+    }
+    
+    @Test
+    void unresolvableRowsAreRememberedUpToTheCap() throws Exception {
+        int rows = ClusterCoordinator.MAX_UNRESOLVABLE + 100;
+        List<ScheduledTask> tasks = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            tasks.add(new ScheduledTask("elsewhere", TaskPriority.MEDIUM, () -> { }, Duration.ofMillis(1),
+                Instant.now()));
+        }
+        store.saveTasks(tasks, TaskStatus.PENDING);
+        store.flush();
+        
+        AtomicInteger accepted = new AtomicInteger();
+        ClusterConfig config = new ClusterConfig("node-a", url).withPollIntervalMillis(10)
+            .withResolver((id, name, priority, nextFireTime) -> null);
+        ClusterCoordinator coordinator = new ClusterCoordinator(config,
+            new TaskLeaseStore(store.getConnectionPool()), () -> 64, task -> accepted.incrementAndGet());
+        coordinator.start();
+        try {
+            DistributedTaskSchedulerTest.await(
+                () -> coordinator.getUnresolvableCount() == ClusterCoordinator.MAX_UNRESOLVABLE);
+            // Later polls still meet the rows past the cap, but remember no more of them
+            Thread.sleep(200);
+            assertEquals(ClusterCoordinator.MAX_UNRESOLVABLE, coordinator.getUnresolvableCount());
+            assertEquals(0, accepted.get());
+            assertEquals(0, coordinator.getInFlight());
+        } finally {
+            coordinator.stop();
+        }
+    }
+}
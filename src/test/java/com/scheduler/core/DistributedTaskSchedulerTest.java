@@ -0,0 +1,131 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.database.ConnectionPool;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.model.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DistributedTaskSchedulerTest {
+    private static final long WAIT_MS = 10_000;
+    
+    private DistributedTaskScheduler scheduler;
+    
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+    
+    /** A store that only writes when flushed, so anything unflushed is visibly missing. */
+    private static DatabaseManager slowStore() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        return new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 4, 30_000), 65_536, 65_536, 60_000);
+    }
+    
+    @Test
+    void historyPastTheRingIncludesQueuedRecords() throws Exception {
+        scheduler = new DistributedTaskScheduler(2, 2, ExecutorBackend.THREAD_POOL, 5, 0, slowStore());
+        List<ScheduledTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new ScheduledTask("job-" + i, TaskPriority.MEDIUM, () -> { }, Duration.ofMillis(1),
+                Instant.now()));
+        }
+        scheduler.scheduleTasks(tasks);
+        await(() -> scheduler.getMetrics().getCompletedTasks() == 20);
+        
+        List<TaskExecutionRecord> history = scheduler.getExecutionHistory(20);
+        assertEquals(20, history.size());
+    }
+    
+    @Test
+    void interruptedTasksAreRecoveredOnce() throws Exception {
+        // More than one recovery page, so the PENDING pass runs while the reset rows are being flushed
+        int rows = 12_000;
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        DatabaseManager previous = new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 4, 30_000),
+            65_536, 1024, 10);
+        Instant due = Instant.now().plusSeconds(3);
+        List<ScheduledTask> interrupted = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            interrupted.add(new ScheduledTask("job", TaskPriority.MEDIUM, () -> { }, Duration.ofMillis(1), due));
+        }
+        previous.saveTasks(interrupted, TaskStatus.RUNNING);
+        previous.flush();
+        previous.shutdown();
+        
+        scheduler = new DistributedTaskScheduler(4, 4, ExecutorBackend.THREAD_POOL, 100, 0,
+            new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 4, 30_000), 65_536, 1024, 10));
+        Map<String, AtomicInteger> runs = new ConcurrentHashMap<>();
+        int recovered = scheduler.recoverTasks((id, name, priority, nextFireTime) -> {
+            AtomicInteger count = runs.computeIfAbsent(id, k -> new AtomicInteger());
+            return new ScheduledTask(id, name, priority, count::incrementAndGet, Duration.ofMillis(1), nextFireTime);
+        });
+        assertEquals(rows, recovered);
+        await(() -> scheduler.getMetrics().getCompletedTasks() >= rows);
+        Thread.sleep(200);
+        assertEquals(rows, scheduler.getMetrics().getCompletedTasks());
+        assertTrue(runs.values().stream().allMatch(count -> count.get() == 1));
+    }
+    
+    @Test
+    void clusterNodeWithATakenIdNodeFailsToStart() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        scheduler = new DistributedTaskScheduler(1, 1, new ClusterConfig("node-a", url).withIdNode(5));
+        assertThrows(IllegalStateException.class,
+            () -> new DistributedTaskScheduler(1, 1, new ClusterConfig("node-b", url).withIdNode(5)));
+    }
+    
+    @Test
+    void unclaimedTaskCanBeCancelledFromAnyNode() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        scheduler = new DistributedTaskScheduler(1, 1, new ClusterConfig("node-a", url));
+        DistributedTaskScheduler other = new DistributedTaskScheduler(1, 1, new ClusterConfig("node-b", url));
+        try {
+            AtomicInteger cancelledRuns = new AtomicInteger();
+            AtomicInteger keptRuns = new AtomicInteger();
+            Instant due = Instant.now().plusMillis(300);
+            ScheduledTask local = new ScheduledTask("local", TaskPriority.MEDIUM, cancelledRuns::incrementAndGet,
+                Duration.ofMillis(1), due);
+            ScheduledTask remote = new ScheduledTask("remote", TaskPriority.MEDIUM, cancelledRuns::incrementAndGet,
+                Duration.ofMillis(1), due);
+            ScheduledTask kept = new ScheduledTask("kept", TaskPriority.MEDIUM, keptRuns::incrementAndGet,
+                Duration.ofMillis(1), due);
+            scheduler.scheduleTask(local);
+            scheduler.scheduleTask(remote);
+            scheduler.scheduleTask(kept);
+            
+            assertTrue(scheduler.cancelTask(local.getId()));
+            assertTrue(other.cancelTask(remote.getId()));
+            assertFalse(other.cancelTask(remote.getId()));
+            assertEquals(TaskStatus.CANCELLED, scheduler.getTaskStatus(local.getId()));
+            assertEquals(TaskStatus.CANCELLED, other.getTaskStatus(remote.getId()));
+            
+            await(() -> keptRuns.get() == 1);
+            Thread.sleep(200);
+            assertEquals(0, cancelledRuns.get());
+        } finally {
+            other.shutdown();
+        }
+    }
+    
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+}
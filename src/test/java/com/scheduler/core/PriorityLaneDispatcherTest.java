@@ -0,0 +1,42 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class PriorityLaneDispatcherTest {
+    
+    @Test
+    void cancelledTasksDoNotTakeTheOnlySlot() throws Exception {
+        Set<String> cancelled = ConcurrentHashMap.newKeySet();
+        List<ScheduledTask> dispatched = new CopyOnWriteArrayList<>();
+        // One slot that is never released: whatever is dispatched first keeps it
+        PriorityLaneDispatcher dispatcher = new PriorityLaneDispatcher(() -> 1,
+            (task, readyAtNanos) -> dispatched.add(task), 0, DispatchPolicy.PRIORITY, task -> 0,
+            task -> cancelled.contains(task.getId()));
+        try {
+            ScheduledTask first = task("first");
+            ScheduledTask second = task("second");
+            cancelled.add(first.getId());
+            dispatcher.offer(first);
+            dispatcher.offer(second);
+            
+            DistributedTaskSchedulerTest.await(() -> !dispatched.isEmpty());
+            assertEquals(List.of(second), dispatched);
+            assertEquals(0, dispatcher.getQueuedCount());
+        } finally {
+            dispatcher.stop();
+        }
+    }
+    
+    private static ScheduledTask task(String name) {
+        return new ScheduledTask(name, TaskPriority.MEDIUM, () -> { }, Duration.ofMillis(1), Instant.now());
+    }
+}
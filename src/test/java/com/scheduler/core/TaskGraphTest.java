@@ -0,0 +1,160 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.database.ConnectionPool;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.model.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TaskGraphTest {
+    private DistributedTaskScheduler scheduler;
+    
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+    
+    @Test
+    void criticalPathIsTheLongestChainOfEstimatesFromEachTask() {
+        ScheduledTask a = task("a", 10, () -> { });
+        ScheduledTask b = task("b", 50, () -> { });
+        ScheduledTask c = task("c", 20, () -> { });
+        ScheduledTask d = task("d", 5, () -> { });
+        ScheduledTask e = task("e", 100, () -> { });
+        // A diamond a -> {b, c} -> d, with e hanging off c only
+        TaskGraph graph = new TaskGraph().add(a).add(c, a).add(b, a).add(d, b, c).add(e, c);
+        graph.computeCriticalPaths();
+        
+        assertEquals(5, d.getCriticalPathMillis());
+        assertEquals(100, e.getCriticalPathMillis());
+        assertEquals(55, b.getCriticalPathMillis());
+        assertEquals(120, c.getCriticalPathMillis());
+        assertEquals(130, a.getCriticalPathMillis());
+    }
+    
+    @Test
+    void predecessorsMustBeAddedFirst() {
+        ScheduledTask a = task("a", 1, () -> { });
+        ScheduledTask b = task("b", 1, () -> { });
+        TaskGraph graph = new TaskGraph();
+        assertThrows(IllegalArgumentException.class, () -> graph.add(b, a));
+        graph.add(a);
+        assertThrows(IllegalArgumentException.class, () -> graph.add(a));
+        assertThrows(IllegalArgumentException.class, () -> graph.add(b, b));
+        ScheduledTask recurring = task("r", 1, () -> { }).withRecurrence(Recurrence.fixedRate(Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> graph.add(recurring, a));
+    }
+    
+    @Test
+    void diamondRunsInDependencyOrderLongestChainFirst() throws Exception {
+        scheduler = new DistributedTaskScheduler(1, 1, ExecutorBackend.THREAD_POOL, 100, 0, store());
+        List<String> ran = new CopyOnWriteArrayList<>();
+        ScheduledTask a = task("a", 10, () -> ran.add("a"));
+        ScheduledTask b = task("b", 50, () -> ran.add("b"));
+        ScheduledTask c = task("c", 20, () -> ran.add("c"));
+        ScheduledTask d = task("d", 5, () -> ran.add("d"));
+        // c goes in before b, so only the critical path can put b first
+        scheduler.scheduleGraph(new TaskGraph().add(a).add(c, a).add(b, a).add(d, b, c));
+        
+        DistributedTaskSchedulerTest.await(() -> scheduler.getTaskStatus(d.getId()) == TaskStatus.COMPLETED);
+        assertEquals(List.of("a", "b", "c", "d"), ran);
+    }
+    
+    @Test
+    void joinIsReleasedOnceAfterEveryPredecessor() throws Exception {
+        scheduler = new DistributedTaskScheduler(4, 4, ExecutorBackend.THREAD_POOL, 100, 0, store());
+        int width = 40;
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger joins = new AtomicInteger();
+        AtomicInteger finishedBeforeJoin = new AtomicInteger(-1);
+        ScheduledTask root = task("root", 1, () -> { });
+        TaskGraph graph = new TaskGraph().add(root);
+        List<ScheduledTask> middle = new ArrayList<>();
+        for (int i = 0; i < width; i++) {
+            ScheduledTask task = task("m" + i, 1, finished::incrementAndGet);
+            graph.add(task, root);
+            middle.add(task);
+        }
+        ScheduledTask join = task("join", 1, () -> {
+            finishedBeforeJoin.set(finished.get());
+            joins.incrementAndGet();
+        });
+        graph.add(join, middle.toArray(new ScheduledTask[0]));
+        scheduler.scheduleGraph(graph);
+        
+        DistributedTaskSchedulerTest.await(() -> scheduler.getTaskStatus(join.getId()) == TaskStatus.COMPLETED);
+        Thread.sleep(100);
+        assertEquals(1, joins.get());
+        assertEquals(width, finishedBeforeJoin.get());
+    }
+    
+    @Test
+    void successorsOfARootThatFinishesDuringSchedulingRunOnce() throws Exception {
+        scheduler = new DistributedTaskScheduler(4, 4, ExecutorBackend.THREAD_POOL, 100, 0, store());
+        // The root can finish and release its successors before scheduleGraph has looked at them;
+        // whether it does is down to thread scheduling, so try it a number of times
+        Map<String, AtomicInteger> runs = new ConcurrentHashMap<>();
+        for (int round = 0; round < 30; round++) {
+            ScheduledTask root = task("root", 1, () -> { });
+            TaskGraph graph = new TaskGraph().add(root);
+            List<ScheduledTask> successors = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String name = round + "-" + i;
+                ScheduledTask successor = task(name, 1,
+                    () -> runs.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet());
+                graph.add(successor, root);
+                successors.add(successor);
+            }
+            scheduler.scheduleGraph(graph);
+            DistributedTaskSchedulerTest.await(() -> successors.stream()
+                .allMatch(task -> scheduler.getTaskStatus(task.getId()) == TaskStatus.COMPLETED));
+        }
+        Thread.sleep(100);
+        assertEquals(30 * 20, runs.size());
+        assertTrue(runs.values().stream().allMatch(count -> count.get() == 1), "ran " + runs);
+    }
+    
+    @Test
+    void failedTaskCancelsEverythingDownstream() throws Exception {
+        scheduler = new DistributedTaskScheduler(2, 2, ExecutorBackend.THREAD_POOL, 100, 0, store());
+        List<String> ran = new CopyOnWriteArrayList<>();
+        ScheduledTask a = task("a", 1, () -> ran.add("a"));
+        ScheduledTask b = task("b", 1, () -> {
+            ran.add("b");
+            throw new IllegalStateException("b failed");
+        });
+        ScheduledTask c = task("c", 1, () -> ran.add("c"));
+        ScheduledTask d = task("d", 1, () -> ran.add("d"));
+        ScheduledTask e = task("e", 1, () -> ran.add("e"));
+        scheduler.scheduleGraph(new TaskGraph().add(a).add(b, a).add(c, a).add(d, b, c).add(e, d));
+        
+        DistributedTaskSchedulerTest.await(() -> scheduler.getTaskStatus(e.getId()) == TaskStatus.CANCELLED
+            && scheduler.getTaskStatus(c.getId()) == TaskStatus.COMPLETED);
+        Thread.sleep(100);
+        assertEquals(TaskStatus.FAILED, scheduler.getTaskStatus(b.getId()));
+        assertEquals(TaskStatus.CANCELLED, scheduler.getTaskStatus(d.getId()));
+        assertFalse(ran.contains("d") || ran.contains("e"), "ran " + ran);
+    }
+    
+    private static DatabaseManager store() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        return new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 4, 30_000), 1024, 1024, 10);
+    }
+    
+    private static ScheduledTask task(String name, long estimateMillis, Runnable action) {
+        return new ScheduledTask(name, TaskPriority.MEDIUM, action, Duration.ofMillis(estimateMillis), Instant.now());
+    }
+}
@@ -0,0 +1,175 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.TaskIds;
+import com.scheduler.model.TaskStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TaskStateTableTest {
+    private static final long FIRST_KEY = 1L << 40;
+    
+    private TaskStateTable table;
+    
+    @BeforeEach
+    void open() {
+        // The sweeper never runs on its own within a test; sweeps are called directly
+        table = new TaskStateTable(Duration.ofHours(1));
+    }
+    
+    @AfterEach
+    void close() {
+        table.close();
+    }
+    
+    @Test
+    void removingFromTheMiddleOfAProbeChainKeepsTheRestReachable() {
+        // Eight ids with one home slot, then two homed inside the run they form
+        List<String> chain = colliding(FIRST_KEY, 8, 0);
+        List<String> inside = colliding(FIRST_KEY, 2, 3);
+        List<String> ids = new ArrayList<>(chain);
+        ids.addAll(inside);
+        for (String id : ids) {
+            table.put(id, TaskStatus.RUNNING);
+        }
+        // Finish every other id of the run, including both ends
+        List<String> finished = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += 2) {
+            finished.add(ids.get(i));
+            table.put(ids.get(i), TaskStatus.COMPLETED);
+        }
+        finished.add(ids.get(ids.size() - 1));
+        table.put(ids.get(ids.size() - 1), TaskStatus.FAILED);
+        
+        assertEquals(finished.size(), table.sweep(System.currentTimeMillis() + Duration.ofHours(2).toMillis()));
+        for (String id : ids) {
+            assertEquals(finished.contains(id) ? null : TaskStatus.RUNNING, table.getStatus(id), id);
+        }
+        assertEquals(ids.size() - finished.size(), table.size());
+        
+        // The slots freed by the shift take new entries of the same chain
+        for (String id : finished) {
+            table.put(id, TaskStatus.PENDING);
+        }
+        for (String id : ids) {
+            assertEquals(finished.contains(id) ? TaskStatus.PENDING : TaskStatus.RUNNING, table.getStatus(id), id);
+        }
+    }
+    
+    @Test
+    void denseTableSurvivesSweepingEveryThirdTask() {
+        // About 70% of the initial capacity in every segment, so probe runs are long
+        int count = 11_000;
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = TaskIds.format(FIRST_KEY + i * 7919L);
+            ids.add(id);
+            table.put(id, i % 3 == 0 ? TaskStatus.CANCELLED : TaskStatus.RUNNING);
+        }
+        long bytes = table.getTableBytes();
+        
+        int removed = table.sweep(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+        assertEquals((count + 2) / 3, removed);
+        assertEquals(removed, table.getEvictedCount());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 3 == 0 ? null : TaskStatus.RUNNING, table.getStatus(ids.get(i)), ids.get(i));
+        }
+        assertEquals(count - removed, table.size());
+        assertEquals(bytes, table.getTableBytes());
+    }
+    
+    @Test
+    void readsStayCorrectWhileConcurrentPutsGrowTheTable() throws Exception {
+        int writers = 4;
+        int perWriter = 50_000;
+        List<List<String>> ids = new ArrayList<>();
+        List<AtomicInteger> published = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<String> own = new ArrayList<>(perWriter);
+            for (int i = 0; i < perWriter; i++) {
+                own.add(TaskIds.format(TaskIds.next()));
+            }
+            ids.add(own);
+            published.add(new AtomicInteger());
+        }
+        long initialBytes = table.getTableBytes();
+        
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicInteger writing = new AtomicInteger(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<String> own = ids.get(w);
+            AtomicInteger done = published.get(w);
+            threads.add(new Thread(() -> {
+                for (String id : own) {
+                    table.put(id, TaskStatus.PENDING);
+                    done.incrementAndGet();
+                }
+                writing.decrementAndGet();
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get() > 0 && failure.get() == null) {
+                    int w = random.nextInt(writers);
+                    int visible = published.get(w).get();
+                    if (visible == 0) {
+                        continue;
+                    }
+                    String id = ids.get(w).get(random.nextInt(visible));
+                    if (table.getStatus(id) != TaskStatus.PENDING) {
+                        failure.set(id + " was put but read back as " + table.getStatus(id));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60_000);
+        }
+        
+        assertNull(failure.get());
+        assertEquals((long) writers * perWriter, table.size());
+        assertTrue(table.getTableBytes() > initialBytes, "the tables never grew");
+        for (List<String> own : ids) {
+            for (String id : own) {
+                assertEquals(TaskStatus.PENDING, table.getStatus(id), id);
+            }
+        }
+    }
+    
+    /**
+     * Generated ids in one segment whose home slot in a fresh table is
+     * {@code offset} past that of the first such id. This mirrors the
+     * table's hashing; if the two drift apart the ids merely stop colliding.
+     */
+    private static List<String> colliding(long from, int count, int offset) {
+        int segment = -1;
+        int target = -1;
+        List<String> ids = new ArrayList<>(count);
+        for (long key = from; ids.size() < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+            int home = (int) (((h >>> 16) & 0xFFFFFFFFL) * 256 >>> 32);
+            if (segment < 0) {
+                segment = (int) (h >>> 58);
+                target = (home + offset) & 255;
+            }
+            if ((int) (h >>> 58) == segment && home == target) {
+                ids.add(TaskIds.format(key));
+            }
+        }
+        return ids;
+    }
+}
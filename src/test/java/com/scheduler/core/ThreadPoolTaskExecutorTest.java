@@ -0,0 +1,47 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ThreadPoolTaskExecutorTest {
+    
+    @Test
+    void shrinkingRetiresThreadsWhileWorkTrickles() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor(2, 16);
+        try {
+            executor.setTargetPoolSize(16);
+            CountDownLatch running = new CountDownLatch(16);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 16; i++) {
+                executor.submit(() -> {
+                    running.countDown();
+                    await(release);
+                });
+            }
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            
+            executor.setTargetPoolSize(2);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (executor.getPoolSize() > 2) {
+                assertTrue(System.currentTimeMillis() < deadline, "pool stayed at " + executor.getPoolSize());
+                executor.submit(() -> { });
+                Thread.sleep(20);
+            }
+            assertEquals(2, executor.getTargetPoolSize());
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.scheduler.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.TaskPriority;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+    // Slack for a late wake-up on a loaded machine; a cascading bug is off by whole wheel spans
+    private static final long LATE_MS = 1000;
+    
+    private TimingWheel<?> wheel;
+    
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+    
+    @Test
+    void delaysAcrossLevelBoundariesFireOnTime() throws Exception {
+        Map<Long, Long> firedAt = new ConcurrentHashMap<>();
+        TimingWheel<Long> wheel = start(new TimingWheel<>("wheel", 1, TimeUnit.MILLISECONDS,
+            ticks -> firedAt.put(ticks, System.nanoTime()), null));
+        // Off a level-1 boundary, so the cascades land mid-wheel
+        Thread.sleep(10);
+        
+        List<Long> delays = List.of(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L);
+        long scheduledAt = System.nanoTime();
+        for (long ticks : delays) {
+            wheel.schedule(ticks, ticks, TimeUnit.MILLISECONDS);
+        }
+        DistributedTaskSchedulerTest.await(() -> firedAt.size() == delays.size());
+        
+        for (long ticks : delays) {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(firedAt.get(ticks) - scheduledAt);
+            assertTrue(elapsedMs >= ticks, ticks + " ticks fired after " + elapsedMs + " ms");
+            assertTrue(elapsedMs < ticks + LATE_MS, ticks + " ticks fired after " + elapsedMs + " ms");
+        }
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void cancelledTimeoutsNeverFire() throws Exception {
+        List<String> fired = new CopyOnWriteArrayList<>();
+        TimingWheel<String> wheel = start(new TimingWheel<>("wheel", 1, TimeUnit.MILLISECONDS, fired::add, null));
+        TimingWheel.Timeout<String> soon = wheel.schedule("soon", 50, TimeUnit.MILLISECONDS);
+        TimingWheel.Timeout<String> kept = wheel.schedule("kept", 100, TimeUnit.MILLISECONDS);
+        // Parked on level 2 until it would cascade
+        TimingWheel.Timeout<String> far = wheel.schedule("far", 5000, TimeUnit.MILLISECONDS);
+        assertEquals(3, wheel.size());
+        
+        assertTrue(soon.cancel());
+        assertTrue(far.cancel());
+        assertFalse(soon.cancel());
+        assertEquals(1, wheel.size());
+        
+        DistributedTaskSchedulerTest.await(kept::isExpired);
+        Thread.sleep(100);
+        assertEquals(List.of("kept"), fired);
+        assertTrue(soon.isCancelled());
+        assertTrue(far.isCancelled());
+        assertFalse(kept.cancel());
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void scheduleAllArmsEveryItemAtItsDeadline() throws Exception {
+        Map<Integer, Long> firedAt = new ConcurrentHashMap<>();
+        TimingWheel<Integer> wheel = start(new TimingWheel<>("wheel", 1, TimeUnit.MILLISECONDS,
+            item -> firedAt.merge(item, System.nanoTime(), (first, again) -> -1L), null));
+        long base = System.nanoTime();
+        Map<Integer, Long> deadlines = new ConcurrentHashMap<>();
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // The first few are already overdue and fire on the wheel thread's next pass
+            long offsetMs = i < 10 ? -1 : i % 150;
+            deadlines.put(i, base + TimeUnit.MILLISECONDS.toNanos(offsetMs));
+            items.add(i);
+        }
+        
+        List<TimingWheel.Timeout<Integer>> timeouts = wheel.scheduleAll(items, deadlines::get);
+        assertEquals(items.size(), timeouts.size());
+        assertTrue(wheel.scheduleAll(List.of(), item -> 0).isEmpty());
+        DistributedTaskSchedulerTest.await(() -> firedAt.size() == items.size() && wheel.size() == 0);
+        
+        for (int item : items) {
+            // -1 marks an item that fired twice
+            assertTrue(firedAt.get(item) >= deadlines.get(item), "item " + item + " fired early or twice");
+        }
+        assertTrue(timeouts.stream().allMatch(TimingWheel.Timeout::isExpired));
+    }
+    
+    @Test
+    void sameTickItemsFireInOrder() throws Exception {
+        List<TaskPriority> fired = new CopyOnWriteArrayList<>();
+        TimingWheel<TaskPriority> wheel = start(new TimingWheel<>("wheel", 50, TimeUnit.MILLISECONDS, fired::add,
+            Comparator.comparingInt(TaskPriority::getWeight).reversed()));
+        List<TaskPriority> items = List.of(TaskPriority.LOW, TaskPriority.MEDIUM, TaskPriority.CRITICAL,
+            TaskPriority.LOW, TaskPriority.HIGH);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(120);
+        wheel.scheduleAll(items, item -> deadline);
+        
+        DistributedTaskSchedulerTest.await(() -> fired.size() == items.size());
+        assertEquals(List.of(TaskPriority.CRITICAL, TaskPriority.HIGH, TaskPriority.MEDIUM, TaskPriority.LOW,
+            TaskPriority.LOW), fired);
+    }
+    
+    private <T> TimingWheel<T> start(TimingWheel<T> started) {
+        wheel = started;
+        started.start();
+        return started;
+    }
+}
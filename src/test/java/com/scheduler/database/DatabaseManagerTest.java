@@ -0,0 +1,99 @@
+package com.scheduler.database;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.*;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatabaseManagerTest {
+    private DatabaseManager store;
+    
+    @BeforeEach
+    void open() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        // A long flush interval keeps every queued event in one batch until flush()
+        store = new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 2, 30_000), 1024, 1024, 60_000);
+    }
+    
+    @AfterEach
+    void close() {
+        store.shutdown();
+    }
+    
+    @Test
+    void rejectedRowOnlyDropsItsOwnEvent() throws Exception {
+        ScheduledTask first = task("first");
+        ScheduledTask second = task("second");
+        store.saveTasks(List.of(first, second), TaskStatus.PENDING);
+        
+        ScheduledTask third = task("third");
+        store.updateTaskStatus(first.getId(), TaskStatus.COMPLETED);
+        store.saveExecutionRecord(record(first.getId(), "first"), TaskPriority.HIGH);
+        // No such task: the history row's foreign key rejects it
+        store.saveExecutionRecord(record("missing", "missing"), TaskPriority.HIGH);
+        store.saveTask(third, TaskStatus.PENDING);
+        store.updateTaskStatus(second.getId(), TaskStatus.FAILED);
+        store.flush();
+        
+        assertEquals(TaskStatus.COMPLETED, store.loadTask(first.getId()).getStatus());
+        assertEquals(TaskStatus.FAILED, store.loadTask(second.getId()).getStatus());
+        assertEquals(TaskStatus.PENDING, store.loadTask(third.getId()).getStatus());
+        List<TaskExecutionRecord> history = store.getExecutionHistory(10);
+        assertEquals(1, history.size());
+        assertEquals(first.getId(), history.get(0).getTaskId());
+        assertEquals(1, store.getDroppedEvents());
+    }
+    
+    @Test
+    void eventsAreHeldThroughAnOutage() throws Exception {
+        AtomicBoolean down = new AtomicBoolean();
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        ConnectionPool pool = new ConnectionPool(url, "sa", "", 1, 2, 30_000) {
+            @Override
+            public PooledConnection acquire() throws SQLException {
+                if (down.get()) {
+                    throw new SQLNonTransientConnectionException("Connection refused", "08001");
+                }
+                return super.acquire();
+            }
+        };
+        DatabaseManager flaky = new DatabaseManager(pool, 1024, 1024, 10);
+        try {
+            ScheduledTask before = task("before");
+            flaky.saveTask(before, TaskStatus.PENDING);
+            flaky.flush();
+            
+            down.set(true);
+            ScheduledTask during = task("during");
+            flaky.saveTask(during, TaskStatus.PENDING);
+            flaky.updateTaskStatus(before.getId(), TaskStatus.COMPLETED);
+            Thread.sleep(500);
+            down.set(false);
+            flaky.flush();
+            
+            assertEquals(TaskStatus.COMPLETED, flaky.loadTask(before.getId()).getStatus());
+            assertEquals(TaskStatus.PENDING, flaky.loadTask(during.getId()).getStatus());
+            assertEquals(0, flaky.getDroppedEvents());
+        } finally {
+            flaky.shutdown();
+        }
+    }
+    
+    private static ScheduledTask task(String name) {
+        return new ScheduledTask(name, TaskPriority.HIGH, () -> { }, Duration.ofMillis(1), Instant.now());
+    }
+    
+    private static TaskExecutionRecord record(String taskId, String name) {
+        Instant end = Instant.now();
+        return new TaskExecutionRecord(taskId, name, TaskStatus.COMPLETED, end.minusMillis(5), end, null);
+    }
+}
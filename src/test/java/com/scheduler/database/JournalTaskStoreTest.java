@@ -0,0 +1,106 @@
+package com.scheduler.database;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTaskStoreTest {
+    // Small segments, so a few hundred executions roll enough of them to compact
+    private static final int SEGMENT_BYTES = 4096;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void oldGenerationLeftBehindByACompactionIsNotReplayed() throws Exception {
+        JournalTaskStore store = open();
+        record(store, 10);
+        store.shutdown();
+        Path saved = Files.createDirectory(directory.resolve("saved"));
+        for (Path segment : segments()) {
+            Files.copy(segment, saved.resolve(segment.getFileName()));
+        }
+        
+        store = open();
+        record(store, 300);
+        store.shutdown();
+        assertTrue(Files.exists(directory.resolve("journal.manifest")), "no compaction ran");
+        // As if the process died after the new generation was committed but before the old one was deleted
+        for (Path segment : listing(saved)) {
+            Files.copy(segment, directory.resolve(segment.getFileName()));
+        }
+        
+        store = open();
+        try {
+            assertEquals(310, runs(store));
+        } finally {
+            store.shutdown();
+        }
+    }
+    
+    @Test
+    void unfinishedCompactionIsDiscarded() throws Exception {
+        JournalTaskStore store = open();
+        record(store, 300);
+        store.shutdown();
+        List<Path> current = segments();
+        long first = JournalSegment.sequenceOf(current.get(0));
+        long next = JournalSegment.sequenceOf(current.get(current.size() - 1)) + 1;
+        // As if the process died while a compaction was writing its segments
+        for (Path segment : current) {
+            long sequence = next + JournalSegment.sequenceOf(segment) - first;
+            Files.copy(segment, directory.resolve(String.format("journal-%016d.seg.pending", sequence)));
+        }
+        Files.writeString(directory.resolve("journal.manifest"), "first=" + first + "\npending=" + next + "\n");
+        
+        store = open();
+        try {
+            assertEquals(300, runs(store));
+            assertTrue(listing(directory).stream().noneMatch(JournalSegment::isPending));
+        } finally {
+            store.shutdown();
+        }
+    }
+    
+    private JournalTaskStore open() throws IOException {
+        return new JournalTaskStore(directory, SEGMENT_BYTES, FsyncPolicy.EVERY_BATCH, 1000, 1024, 16, 60_000);
+    }
+    
+    private static void record(JournalTaskStore store, int runs) {
+        Instant end = Instant.now();
+        for (int i = 0; i < runs; i++) {
+            store.saveExecutionRecord(new TaskExecutionRecord("task-" + i, "job", TaskStatus.COMPLETED,
+                end.minusMillis(5), end, null), TaskPriority.MEDIUM);
+        }
+        store.flush();
+    }
+    
+    private static long runs(JournalTaskStore store) {
+        Instant now = Instant.now();
+        return store.getRollups(HistoryRollup.Grain.DAY, now.minus(Duration.ofDays(2)),
+                now.plus(Duration.ofDays(1)), "job")
+            .stream().mapToLong(HistoryRollup::getRuns).sum();
+    }
+    
+    private List<Path> segments() throws IOException {
+        return listing(directory).stream().filter(JournalSegment::isSegment)
+            .sorted((a, b) -> Long.compare(JournalSegment.sequenceOf(a), JournalSegment.sequenceOf(b)))
+            .collect(Collectors.toList());
+    }
+    
+    private static List<Path> listing(Path dir) throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
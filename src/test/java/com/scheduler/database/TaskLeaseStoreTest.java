@@ -0,0 +1,85 @@
+package com.scheduler.database;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.ScheduledTask;
+import com.scheduler.model.TaskPriority;
+import com.scheduler.model.TaskStatus;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TaskLeaseStoreTest {
+    private static final long LEASE_MS = 60_000;
+    
+    private DatabaseManager store;
+    private TaskLeaseStore leases;
+    
+    @BeforeEach
+    void open() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        store = new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 2, 30_000), 1024, 1024, 60_000);
+        leases = new TaskLeaseStore(store.getConnectionPool());
+    }
+    
+    @AfterEach
+    void close() {
+        store.shutdown();
+    }
+    
+    @Test
+    void liveNodesNeverShareAnIdNode() throws Exception {
+        assertEquals(7, leases.leaseIdNode("a", 7, LEASE_MS));
+        assertEquals(-1, leases.leaseIdNode("b", 7, LEASE_MS));
+        // A restarted node takes its own number back
+        assertEquals(7, leases.leaseIdNode("a", 7, LEASE_MS));
+        
+        assertEquals(0, leases.leaseIdNode("c", -1, LEASE_MS));
+        assertEquals(1, leases.leaseIdNode("d", -1, LEASE_MS));
+        assertEquals(0, leases.leaseIdNode("c", -1, LEASE_MS));
+        
+        leases.releaseIdNode("c", 0);
+        assertEquals(0, leases.leaseIdNode("e", -1, LEASE_MS));
+        assertFalse(leases.renewIdNode("c", 0, LEASE_MS));
+    }
+    
+    @Test
+    void expiredIdNodeCanBeTakenOver() throws Exception {
+        assertEquals(3, leases.leaseIdNode("a", 3, 1));
+        Thread.sleep(5);
+        assertEquals(3, leases.leaseIdNode("b", 3, LEASE_MS));
+        assertFalse(leases.renewIdNode("a", 3, LEASE_MS));
+        assertTrue(leases.renewIdNode("b", 3, LEASE_MS));
+    }
+    
+    @Test
+    void onlyUnclaimedPendingRowsCanBeCancelled() throws Exception {
+        ScheduledTask free = task();
+        ScheduledTask claimed = task();
+        ScheduledTask lapsed = task();
+        store.saveTasks(List.of(free, claimed, lapsed), TaskStatus.PENDING);
+        store.flush();
+        long now = System.currentTimeMillis();
+        assertEquals(1, leases.claimDue("a", now, LEASE_MS, 10, Set.of(free.getId(), lapsed.getId())).size());
+        assertEquals(1, leases.claimDue("b", now, 1, 10, Set.of(free.getId(), claimed.getId())).size());
+        Thread.sleep(5);
+        
+        assertTrue(leases.cancelUnclaimed(free.getId()));
+        assertFalse(leases.cancelUnclaimed(free.getId()));
+        assertFalse(leases.cancelUnclaimed(claimed.getId()));
+        assertTrue(leases.cancelUnclaimed(lapsed.getId()));
+        assertFalse(leases.cancelUnclaimed("unknown"));
+        // Cancelled rows are never claimed
+        assertTrue(leases.claimDue("c", System.currentTimeMillis(), LEASE_MS, 10, Set.of()).isEmpty());
+    }
+    
+    private static ScheduledTask task() {
+        return new ScheduledTask("job", TaskPriority.MEDIUM, () -> { }, Duration.ofMillis(1),
+            Instant.now().minusSeconds(1));
+    }
+}
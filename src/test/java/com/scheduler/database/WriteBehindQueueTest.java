@@ -0,0 +1,52 @@
+package com.scheduler.database;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.model.TaskStatus;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class WriteBehindQueueTest {
+    
+    @Test
+    void shutdownWritesEverythingQueued() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            // A 1 ms poll keeps the writer timing out around the moment shutdown clears running
+            for (int round = 0; round < 200; round++) {
+                List<PersistenceEvent> written = new CopyOnWriteArrayList<>();
+                WriteBehindQueue queue = new WriteBehindQueue(64, 16, 1, written::addAll);
+                for (int i = 0; i < 10; i++) {
+                    queue.enqueue(PersistenceEvent.statusChanged("task-" + i, TaskStatus.COMPLETED));
+                }
+                queue.shutdown();
+                assertEquals(10, written.stream().filter(e -> e.kind != PersistenceEvent.Kind.FLUSH).count());
+            }
+        });
+    }
+    
+    @Test
+    void shutdownDoesNotWaitOutTheFlushInterval() {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int round = 0; round < 20; round++) {
+                new WriteBehindQueue(64, 16, 60_000, batch -> { }).shutdown();
+            }
+        });
+    }
+    
+    @Test
+    void interruptedEnqueueKeepsTheEvent() {
+        List<PersistenceEvent> written = new CopyOnWriteArrayList<>();
+        WriteBehindQueue queue = new WriteBehindQueue(64, 16, 10, written::addAll);
+        try {
+            Thread.currentThread().interrupt();
+            queue.enqueue(PersistenceEvent.statusChanged("task", TaskStatus.COMPLETED));
+            assertTrue(Thread.interrupted());
+            queue.flush();
+            assertEquals(1, written.stream().filter(e -> e.kind != PersistenceEvent.Kind.FLUSH).count());
+        } finally {
+            queue.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.scheduler.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CronExpressionTest {
+    
+    @ParameterizedTest(name = "{0} in {1} after {2}")
+    @CsvSource(delimiter = '|', textBlock = """
+        # Steps, ranges and lists; the result is strictly after the given time
+        */15 * * * *     | UTC              | 2024-01-01T10:07:00Z     | 2024-01-01T10:15:00Z
+        */15 * * * *     | UTC              | 2024-01-01T10:15:00Z     | 2024-01-01T10:30:00Z
+        0 * * * *        | UTC              | 2024-01-01T10:59:59.999Z | 2024-01-01T11:00:00Z
+        10/20 * * * *    | UTC              | 2024-01-01T10:31:00Z     | 2024-01-01T10:50:00Z
+        0 9-17/4 * * *   | UTC              | 2024-01-01T13:00:00Z     | 2024-01-01T17:00:00Z
+        0 9-17/4 * * *   | UTC              | 2024-01-01T17:00:00Z     | 2024-01-02T09:00:00Z
+        5,10-12 0 * * *  | UTC              | 2024-01-01T00:05:00Z     | 2024-01-01T00:10:00Z
+        0 0 1 */3 *      | UTC              | 2024-02-10T00:00:00Z     | 2024-04-01T00:00:00Z
+        59 23 31 12 *    | UTC              | 2024-06-01T00:00:00Z     | 2024-12-31T23:59:00Z
+        # Day of month or day of week: either matches when both are restricted (2024-01-01 is a Monday)
+        0 0 13 * 5       | UTC              | 2024-01-01T00:00:00Z     | 2024-01-05T00:00:00Z
+        0 0 13 * 5       | UTC              | 2024-01-12T00:00:00Z     | 2024-01-13T00:00:00Z
+        0 0 * * 1        | UTC              | 2024-01-01T00:00:00Z     | 2024-01-08T00:00:00Z
+        0 0 13 * *       | UTC              | 2024-01-01T00:00:00Z     | 2024-01-13T00:00:00Z
+        0 0 * * 7        | UTC              | 2024-01-01T00:00:00Z     | 2024-01-07T00:00:00Z
+        0 0 * * 0        | UTC              | 2024-01-01T00:00:00Z     | 2024-01-07T00:00:00Z
+        # A field starting with * counts as unrestricted, so both must match: the 1st, 11th, 21st or 31st on a Sunday
+        0 0 */10 * 0     | UTC              | 2024-01-01T00:00:00Z     | 2024-01-21T00:00:00Z
+        # Feb 29 and 31st-of-month roll over to the next month or year that has the day
+        0 0 29 2 *       | UTC              | 2023-01-01T00:00:00Z     | 2024-02-29T00:00:00Z
+        0 0 29 2 *       | UTC              | 2024-02-29T00:00:00Z     | 2028-02-29T00:00:00Z
+        0 0 31 * *       | UTC              | 2024-01-31T00:00:00Z     | 2024-03-31T00:00:00Z
+        0 0 31 * *       | UTC              | 2024-03-31T00:00:00Z     | 2024-05-31T00:00:00Z
+        0 0 30 2 *       | UTC              | 2024-01-01T00:00:00Z     | none
+        # 02:00-03:00 does not exist on 2024-03-10 in New York: a time in the gap fires just after it
+        30 2 * * *       | America/New_York | 2024-03-10T05:00:00Z     | 2024-03-10T07:30:00Z
+        30 2 * * *       | America/New_York | 2024-03-10T07:30:00Z     | 2024-03-11T06:30:00Z
+        0 * * * *        | America/New_York | 2024-03-10T06:30:00Z     | 2024-03-10T07:00:00Z
+        # 01:00-02:00 happens twice on 2024-11-03: the first one fires, the repeat does not
+        30 1 * * *       | America/New_York | 2024-11-03T04:00:00Z     | 2024-11-03T05:30:00Z
+        30 1 * * *       | America/New_York | 2024-11-03T05:30:00Z     | 2024-11-04T06:30:00Z
+        """)
+    void nextAfter(String expression, String zone, String after, String expected) {
+        CronExpression cron = CronExpression.parse(expression, ZoneId.of(zone));
+        long next = cron.nextAfter(Instant.parse(after).toEpochMilli());
+        if (expected.equals("none")) {
+            assertEquals(Recurrence.NONE, next);
+        } else {
+            assertEquals(Instant.parse(expected), Instant.ofEpochMilli(next));
+        }
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "", "* * * *", "* * * * * *",
+        "60 * * * *", "* 24 * * *", "* * 0 * *", "* * 32 * *", "* * * 0 *", "* * * 13 *", "* * * * 8",
+        "5-1 * * * *", "*/0 * * * *", "*/x * * * *", "a * * * *", "1,,2 * * * *", "-1 * * * *"
+    })
+    void invalidFieldsAreRejected(String expression) {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse(expression));
+    }
+}
@@ -0,0 +1,87 @@
+package com.scheduler.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class TaskIdsTest {
+    private static final long SEQUENCE_MASK = (1L << 12) - 1;
+    
+    @Test
+    void formatAndKeyRoundTrip() {
+        long before = System.currentTimeMillis();
+        long id = TaskIds.next();
+        long after = System.currentTimeMillis();
+        String text = TaskIds.format(id);
+        
+        assertEquals(16, text.length());
+        assertEquals(text.toLowerCase(), text);
+        assertEquals(id, TaskIds.key(text));
+        assertEquals(id, Long.parseUnsignedLong(text, 16));
+        long created = TaskIds.createdAt(text).toEpochMilli();
+        // Ids borrow from later milliseconds after a burst, never from earlier ones
+        assertTrue(created >= before && created <= after + 1000, "created at " + created);
+    }
+    
+    @Test
+    void fieldsSitInTheirBits() {
+        long millis = 3_000_000;
+        long id = millis << 22 | 1023L << 12 | 4095;
+        String text = TaskIds.format(id);
+        
+        assertEquals("00000b71b03fffff", text);
+        assertEquals(id, TaskIds.key(text));
+        assertEquals(Instant.ofEpochMilli(TaskIds.EPOCH_MILLIS + millis), TaskIds.createdAt(text));
+    }
+    
+    @Test
+    void otherIdsHaveNoKeyOrCreationTime() {
+        assertEquals(0xabcdL | 1L << 32, TaskIds.key("0000abcd"));
+        assertNull(TaskIds.createdAt("0000abcd"));
+        assertEquals(0, TaskIds.key("ABCDEF0123456789"));
+        assertEquals(0, TaskIds.key("backup-nightly"));
+        assertEquals(0, TaskIds.key("0000000012345678"));
+        assertNull(TaskIds.createdAt("backup-nightly"));
+        assertNotEquals(TaskIds.key("0000abcd"), TaskIds.key("000000000000abcd"));
+    }
+    
+    @Test
+    void sequenceRollsOverIntoTheNextMillisecond() {
+        TaskIds.setNode(5);
+        try {
+            int count = 100_000;
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = TaskIds.next();
+            }
+            long nowTick = System.currentTimeMillis() - TaskIds.EPOCH_MILLIS;
+            
+            int rollovers = 0;
+            for (int i = 0; i < count; i++) {
+                assertEquals(5, (ids[i] >>> 12) & 1023, "node bits");
+                if (i == 0) {
+                    continue;
+                }
+                assertTrue(ids[i] > ids[i - 1], "ids must increase");
+                if ((ids[i - 1] & SEQUENCE_MASK) == SEQUENCE_MASK) {
+                    rollovers++;
+                    assertEquals((ids[i - 1] >>> 22) + 1, ids[i] >>> 22, "borrowed millisecond");
+                    assertEquals(0, ids[i] & SEQUENCE_MASK);
+                }
+            }
+            // A tight loop takes far more than 4096 ids a millisecond
+            assertTrue(rollovers > 0, "no sequence rollover");
+            // Borrowing stays within one millisecond per 4096 ids
+            assertTrue((ids[count - 1] >>> 22) <= nowTick + count / 4096 + 1);
+        } finally {
+            TaskIds.setNode(0);
+        }
+    }
+    
+    @Test
+    void nodeOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TaskIds.setNode(-1));
+        assertThrows(IllegalArgumentException.class, () -> TaskIds.setNode(TaskIds.MAX_NODE + 1));
+    }
+}
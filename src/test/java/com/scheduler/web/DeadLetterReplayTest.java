@@ -0,0 +1,116 @@
+package com.scheduler.web;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.scheduler.core.DistributedTaskScheduler;
+import com.scheduler.core.ExecutorBackend;
+import com.scheduler.database.ConnectionPool;
+import com.scheduler.database.DatabaseManager;
+import com.scheduler.model.*;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeadLetterReplayTest {
+    private static final long WAIT_MS = 10_000;
+    private static final RetryPolicy THREE_ATTEMPTS = RetryPolicy.exponential(3, Duration.ofMillis(10)).withJitter(0);
+    
+    private final HttpClient client = HttpClient.newHttpClient();
+    private DistributedTaskScheduler scheduler;
+    private WebServer web;
+    private String base;
+    
+    @BeforeEach
+    void start() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        scheduler = new DistributedTaskScheduler(2, 2, ExecutorBackend.THREAD_POOL, 100, 0,
+            new DatabaseManager(new ConnectionPool(url, "sa", "", 1, 4, 30_000), 1024, 1024, 10));
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        web = new WebServer(scheduler, port);
+        web.start();
+        base = "http://localhost:" + port;
+    }
+    
+    @AfterEach
+    void stop() {
+        web.stop();
+        scheduler.shutdown();
+    }
+    
+    @Test
+    void taskThatKeepsFailingIsDeadLetteredAfterItsLastAttempt() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledTask task = task("flaky", () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("downstream unavailable");
+        });
+        scheduler.scheduleTask(task);
+        
+        await(() -> scheduler.getDeadLetterCount() == 1);
+        String body = get("/api/dead-letters");
+        assertTrue(body.contains("\"total\":1"), body);
+        assertTrue(body.contains("\"taskId\":\"" + task.getId() + "\""), body);
+        assertTrue(body.contains("\"attempts\":3"), body);
+        assertTrue(body.contains("\"error\":\"downstream unavailable\""), body);
+        assertEquals(3, runs.get());
+        assertEquals(TaskStatus.FAILED, scheduler.getTaskStatus(task.getId()));
+    }
+    
+    @Test
+    void replayRearmsTheTaskWithFreshAttempts() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        // Fails its first three runs and the first run after the replay, then succeeds
+        ScheduledTask task = task("flaky", () -> {
+            if (runs.incrementAndGet() <= 4) {
+                throw new IllegalStateException("run " + runs.get() + " failed");
+            }
+        });
+        scheduler.scheduleTask(task);
+        await(() -> scheduler.getDeadLetterCount() == 1);
+        assertEquals(3, runs.get());
+        
+        HttpResponse<String> replay = client.send(HttpRequest.newBuilder(
+                URI.create(base + "/api/dead-letters/replay?ids=" + task.getId()))
+            .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, replay.statusCode());
+        assertEquals("{\"replayed\":1}", replay.body());
+        
+        await(() -> scheduler.getTaskStatus(task.getId()) == TaskStatus.COMPLETED);
+        assertEquals(5, runs.get());
+        assertEquals(0, scheduler.getDeadLetterCount());
+        assertTrue(get("/api/dead-letters").contains("\"total\":0"));
+    }
+    
+    private String get(String path) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + path)).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return response.body();
+    }
+    
+    private static ScheduledTask task(String name, Runnable action) {
+        return new ScheduledTask(name, TaskPriority.MEDIUM, action, Duration.ofMillis(1), Instant.now())
+            .withRetryPolicy(THREE_ATTEMPTS);
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.scheduler.web;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class JsonWriterTest {
+    
+    static Stream<Arguments> escapes() {
+        return Stream.of(
+            Arguments.of("plain", "\"plain\""),
+            Arguments.of("quote \" and \\ backslash", "\"quote \\\" and \\\\ backslash\""),
+            Arguments.of("\n\r\t\b\f", "\"\\n\\r\\t\\b\\f\""),
+            Arguments.of("\u0000\u0001\u001f", "\"\\u0000\\u0001\\u001f\""),
+            Arguments.of("\u007f", "\"\u007f\""),
+            // Valid JSON, but they end a line in JavaScript, so they are escaped for script contexts
+            Arguments.of("a\u2028b\u2029c", "\"a\\u2028b\\u2029c\""),
+            Arguments.of("é ü ß", "\"é ü ß\""),
+            Arguments.of("€ 中", "\"€ 中\""),
+            Arguments.of("😀 𝄞", "\"😀 𝄞\""),
+            // Unpaired surrogates cannot be encoded as UTF-8
+            Arguments.of("x\uD83Dy", "\"x?y\""),
+            Arguments.of("x\uDE00y", "\"x?y\""),
+            Arguments.of("x\uD83D", "\"x?\""),
+            Arguments.of("\uDE00\uD83D", "\"??\""),
+            Arguments.of("\uD83D😀", "\"?😀\"")
+        );
+    }
+    
+    @ParameterizedTest
+    @MethodSource("escapes")
+    void stringsAreEscaped(String value, String expected) throws Exception {
+        assertEquals(expected, render(value));
+    }
+    
+    @Test
+    void everyControlCharacterIsEscaped() throws Exception {
+        for (char c = 0; c < 0x20; c++) {
+            String json = render(String.valueOf(c));
+            assertTrue(json.startsWith("\"\\"), "U+" + Integer.toHexString(c) + " written as " + json);
+            assertTrue(json.chars().allMatch(ch -> ch >= 0x20), json);
+        }
+    }
+    
+    @Test
+    void multiByteCharactersSurviveStreamingFlushes() throws Exception {
+        // Four-byte characters across several buffer flushes, offset so some fall on a boundary
+        String value = "ab" + "😀é\u2028".repeat(3000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = JsonWriter.acquire(out);
+        try {
+            writer.beginObject().field("v", value).endObject();
+            writer.flush();
+        } finally {
+            writer.release();
+        }
+        String expected = "{\"v\":\"ab" + "😀é\\u2028".repeat(3000) + "\"}";
+        assertEquals(expected, decode(out.toByteArray()));
+    }
+    
+    private static String render(String value) throws Exception {
+        JsonWriter writer = JsonWriter.acquire(null);
+        try {
+            writer.value(value);
+            return decode(writer.toByteArray());
+        } finally {
+            writer.release();
+        }
+    }
+    
+    /** Strict decoding, so malformed UTF-8 fails instead of turning into replacement characters. */
+    private static String decode(byte[] bytes) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT)
+            .decode(ByteBuffer.wrap(bytes))
+            .toString();
+    }
+}